@@ -0,0 +1,37 @@
+package org.example.dynamicgraph.analysis;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 图静态分析报告
+ *
+ * @param unreachableNodes   从 START 不可达的节点（可删除）
+ * @param deadEndNodes       可达但到不了 END 的节点（配置错误，只报告不删除）
+ * @param constantConditions 恒真/恒假的条件规则，格式 "源节点: 条件 -> 目标 (ALWAYS|NEVER|SHADOWED)"
+ * @param deadWriteNodes     输出在被读取前就被覆盖的节点（可删除）
+ * @param foldableConstants  入口处的常量写入，可折叠进初始状态
+ */
+public record GraphAnalysisReport(Set<String> unreachableNodes,
+                                  Set<String> deadEndNodes,
+                                  List<String> constantConditions,
+                                  Set<String> deadWriteNodes,
+                                  Map<String, Object> foldableConstants) {
+
+    public boolean isClean() {
+        return unreachableNodes.isEmpty() && deadEndNodes.isEmpty() && constantConditions.isEmpty()
+            && deadWriteNodes.isEmpty() && foldableConstants.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "GraphAnalysisReport{" +
+            "unreachable=" + unreachableNodes +
+            ", deadEnds=" + deadEndNodes +
+            ", constantConditions=" + constantConditions +
+            ", deadWrites=" + deadWriteNodes +
+            ", foldable=" + foldableConstants.keySet() +
+            '}';
+    }
+}
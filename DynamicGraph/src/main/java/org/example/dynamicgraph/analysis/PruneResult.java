@@ -0,0 +1,12 @@
+package org.example.dynamicgraph.analysis;
+
+/**
+ * 剪枝结果
+ *
+ * @param config        剪枝后的配置
+ * @param report        剪枝前的分析报告
+ * @param removedNodes  删除的节点数
+ * @param removedEdges  删除或合并的边/规则数
+ */
+public record PruneResult<C>(C config, GraphAnalysisReport report, int removedNodes, int removedEdges) {
+}
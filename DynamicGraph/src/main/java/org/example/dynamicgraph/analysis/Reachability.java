@@ -0,0 +1,58 @@
+package org.example.dynamicgraph.analysis;
+
+import org.example.dynamicgraph.optimizer.LinearChains.Link;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 可达性分析
+ */
+public final class Reachability {
+
+    private Reachability() {
+    }
+
+    /**
+     * 从 source 出发沿边正向可达的节点（含 source）
+     */
+    public static Set<String> forward(String source, List<Link> links) {
+        Map<String, List<String>> adjacency = new HashMap<>();
+        for (Link link : links) {
+            adjacency.computeIfAbsent(link.from(), k -> new ArrayList<>()).add(link.to());
+        }
+        return traverse(source, adjacency);
+    }
+
+    /**
+     * 能沿边到达 target 的节点（含 target）
+     */
+    public static Set<String> backward(String target, List<Link> links) {
+        Map<String, List<String>> reverse = new HashMap<>();
+        for (Link link : links) {
+            reverse.computeIfAbsent(link.to(), k -> new ArrayList<>()).add(link.from());
+        }
+        return traverse(target, reverse);
+    }
+
+    private static Set<String> traverse(String origin, Map<String, List<String>> adjacency) {
+        Set<String> visited = new HashSet<>();
+        Deque<String> queue = new ArrayDeque<>();
+        visited.add(origin);
+        queue.add(origin);
+        while (!queue.isEmpty()) {
+            for (String next : adjacency.getOrDefault(queue.poll(), List.of())) {
+                if (visited.add(next)) {
+                    queue.add(next);
+                }
+            }
+        }
+        return visited;
+    }
+}
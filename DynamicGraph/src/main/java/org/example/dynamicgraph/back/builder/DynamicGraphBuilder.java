@@ -4,18 +4,34 @@ import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.StateGraph;
 import org.bsc.langgraph4j.action.NodeAction;
+import org.bsc.langgraph4j.state.AppenderChannel;
+import org.example.dynamicgraph.analysis.GraphAnalysisReport;
+import org.example.dynamicgraph.analysis.PruneResult;
 import org.example.dynamicgraph.back.config.EdgeConfig;
 import org.example.dynamicgraph.back.config.NodeConfig;
 import org.example.dynamicgraph.back.config.TenantGraphConfig;
 import org.example.dynamicgraph.back.core.DynamicState;
 import org.example.dynamicgraph.back.nodes.DynamicNode;
+import org.example.dynamicgraph.back.nodes.impl.FusedNode;
+import org.example.dynamicgraph.back.optimizer.ChainFusionOptimizer;
+import org.example.dynamicgraph.back.optimizer.GraphAnalyzer;
 import org.example.dynamicgraph.back.registry.NodeRegistry;
+import org.example.dynamicgraph.back.router.ConditionalRouter;
+import org.example.dynamicgraph.back.router.ConditionalRouter.RouteRule;
+import org.example.dynamicgraph.optimizer.FusionResult;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.bsc.langgraph4j.StateGraph.END;
 import static org.bsc.langgraph4j.StateGraph.START;
+import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
 import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
 
 /**
@@ -24,7 +40,16 @@ import static org.bsc.langgraph4j.action.AsyncNodeAction.node_async;
  */
 public class DynamicGraphBuilder {
     
+    /**
+     * Schema 中的 appender 字段，复合节点按追加语义合并这些字段
+     */
+    private static final Set<String> APPENDER_KEYS = DynamicState.SCHEMA.entrySet().stream()
+        .filter(entry -> entry.getValue() instanceof AppenderChannel)
+        .map(Map.Entry::getKey)
+        .collect(Collectors.toUnmodifiableSet());
+    
     private final NodeRegistry nodeRegistry;
+    private final GraphAnalyzer graphAnalyzer = new GraphAnalyzer();
     
     public DynamicGraphBuilder() {
         this.nodeRegistry = new NodeRegistry();
@@ -36,11 +61,49 @@ public class DynamicGraphBuilder {
     
     /**
      * 根据租户配置构建图
+     * 编译前先做静态分析，不可达节点和永远不会生效的条件规则不进入编译图
      * 
-     * @param config 租户图配置
+     * @param config 租户图配置（不会被修改）
      * @return 编译后的可执行图
      */
     public CompiledGraph<DynamicState> buildGraph(TenantGraphConfig config) throws GraphStateException {
+        return compile(prune(config));
+    }
+    
+    /**
+     * 先剪枝、再做链融合优化，最后构建图
+     * 
+     * @param config 租户图配置（不会被修改）
+     * @param interruptNodes 需要保留为独立节点的中断点
+     */
+    public CompiledGraph<DynamicState> buildOptimizedGraph(TenantGraphConfig config, Set<String> interruptNodes) throws GraphStateException {
+        FusionResult<TenantGraphConfig> fusion = new ChainFusionOptimizer(nodeRegistry).optimize(prune(config), interruptNodes);
+        System.out.println("🔗 链融合: " + fusion.fusedChains() + "，每次执行减少 " + fusion.eliminatedSteps() + " 步");
+        return compile(fusion.config());
+    }
+    
+    /**
+     * 静态剪枝：删除不可达节点及其出边、被遮蔽或恒假的条件规则
+     * 兜底边的校验放在剪枝前，否则多余的兜底边会被当作被遮蔽的规则静默删掉
+     */
+    private TenantGraphConfig prune(TenantGraphConfig config) throws GraphStateException {
+        checkConditionalFallbacks(config.getEdges());
+        PruneResult<TenantGraphConfig> result = graphAnalyzer.prune(config);
+        GraphAnalysisReport report = result.report();
+        if (result.removedNodes() > 0 || result.removedEdges() > 0) {
+            System.out.println("✂️ 静态剪枝: 删除 " + result.removedNodes() + " 个不可达节点 " + report.unreachableNodes()
+                             + "，" + result.removedEdges() + " 条边/规则，常量条件: " + report.constantConditions());
+        }
+        if (!report.deadEndNodes().isEmpty()) {
+            System.out.println("⚠️ 到不了 END 的节点: " + report.deadEndNodes());
+        }
+        return result.config();
+    }
+    
+    /**
+     * 编译（已剪枝的）配置
+     */
+    private CompiledGraph<DynamicState> compile(TenantGraphConfig config) throws GraphStateException {
         System.out.println("=== 开始构建动态图 ===");
         System.out.println("租户: " + config.getTenantId());
         System.out.println("图名: " + config.getGraphName());
@@ -73,7 +136,9 @@ public class DynamicGraphBuilder {
         System.out.println("添加节点: " + nodeConfig.getId() + " (类型: " + nodeConfig.getType() + ")");
         
         // 创建节点实例
-        DynamicNode dynamicNode = nodeRegistry.createNode(nodeConfig.getType());
+        DynamicNode dynamicNode = nodeConfig.getFusedNodes() != null
+            ? createFusedNode(nodeConfig.getFusedNodes())
+            : nodeRegistry.createNode(nodeConfig.getType());
         
         // 包装为 NodeAction
         NodeAction<DynamicState> nodeAction = state -> {
@@ -90,33 +155,86 @@ public class DynamicGraphBuilder {
     }
     
     /**
-     * 批量添加边到图中（暂时将条件边作为普通边处理）
+     * 创建复合节点：每个原节点各自一个实例，参数按原配置传入
+     */
+    private DynamicNode createFusedNode(List<NodeConfig> steps) {
+        List<DynamicNode> nodes = new ArrayList<>();
+        List<Map<String, Object>> params = new ArrayList<>();
+        for (NodeConfig step : steps) {
+            nodes.add(nodeRegistry.createNode(step.getType()));
+            params.add(step.getParams());
+        }
+        return new FusedNode(nodes, params, APPENDER_KEYS);
+    }
+    
+    /**
+     * 批量添加边到图中
+     * 条件边按源节点分组，每组编译为一个 ConditionalRouter 并注册为条件边；
+     * 与条件边同源的普通边作为该组的兜底路由，每个条件源节点至多一条
+     *
+     * @throws GraphStateException 条件源节点有多条普通边时
      */
     private void addEdgesToGraph(StateGraph<DynamicState> stateGraph, List<EdgeConfig> edges) throws GraphStateException {
         System.out.println("📊 图边配置分析:");
         System.out.println("总边数: " + edges.size());
         
-        long conditionalCount = edges.stream().filter(EdgeConfig::isConditional).count();
-        System.out.println("条件边数: " + conditionalCount + " (暂时作为普通边处理)");
-        System.out.println("普通边数: " + (edges.size() - conditionalCount));
+        // 保持配置顺序分组：规则顺序即匹配优先级
+        Map<String, List<EdgeConfig>> conditionalBySource = new LinkedHashMap<>();
+        for (EdgeConfig edge : edges) {
+            if (edge.isConditional()) {
+                conditionalBySource.computeIfAbsent(edge.getFrom(), from -> new ArrayList<>()).add(edge);
+            }
+        }
+        System.out.println("条件边数: " + edges.stream().filter(EdgeConfig::isConditional).count()
+                         + " (条件源节点: " + conditionalBySource.keySet() + ")");
         
-        // 暂时将所有边都作为普通边处理，避免复杂的条件路由
+        checkConditionalFallbacks(edges);
         for (EdgeConfig edge : edges) {
             if (edge.isConditional()) {
-                System.out.println("⚠️ 条件边暂时简化处理: " + edge.getFrom() + " -> " + edge.getTo() 
-                                 + " (条件: " + edge.getCondition() + ")");
+                continue;
+            }
+            List<EdgeConfig> group = conditionalBySource.get(edge.getFrom());
+            if (group != null) {
+                // 同源普通边 -> 兜底规则，放在组末尾
+                group.add(new EdgeConfig(edge.getFrom(), edge.getTo(), "continue"));
+                continue;
             }
             addSingleEdge(stateGraph, edge);
         }
         
-        if (conditionalCount > 0) {
-            System.out.println("ℹ️ 注意：条件边功能正在开发中，当前所有边都作为普通边处理");
+        for (Map.Entry<String, List<EdgeConfig>> entry : conditionalBySource.entrySet()) {
+            addConditionalEdges(stateGraph, entry.getKey(), entry.getValue());
+        }
+    }
+    
+    /**
+     * 每个条件源节点至多一条普通边作为兜底路由：
+     * 路由只会选中第一条兜底规则，多条同源普通边中后面的永远不可达，构建期直接拒绝
+     */
+    private static void checkConditionalFallbacks(List<EdgeConfig> edges) throws GraphStateException {
+        Set<String> conditionalSources = new HashSet<>();
+        for (EdgeConfig edge : edges) {
+            if (edge.isConditional()) {
+                conditionalSources.add(edge.getFrom());
+            }
+        }
+        Map<String, List<String>> fallbackBySource = new LinkedHashMap<>();
+        for (EdgeConfig edge : edges) {
+            if (!edge.isConditional() && conditionalSources.contains(edge.getFrom())) {
+                fallbackBySource.computeIfAbsent(edge.getFrom(), from -> new ArrayList<>()).add(edge.getTo());
+            }
+        }
+        for (Map.Entry<String, List<String>> entry : fallbackBySource.entrySet()) {
+            if (entry.getValue().size() > 1) {
+                throw new GraphStateException("条件源节点 '" + entry.getKey() + "' 只能有一条普通边作为兜底路由，实际有 "
+                    + entry.getValue().size() + " 条: " + entry.getValue());
+            }
         }
     }
     
     /**
-     * 添加条件边 - 暂时使用简化实现
-     * TODO: 完善条件路由API调用
+     * 添加条件边组
+     * 构建期把条件编译为 ConditionalRouter，运行期只做一次路由求值
      */
     private void addConditionalEdges(StateGraph<DynamicState> stateGraph, 
                                    String sourceNode, 
@@ -124,13 +242,17 @@ public class DynamicGraphBuilder {
         
         System.out.println("添加条件边组: " + sourceNode + " -> [条件路由]");
         
-        // 暂时只添加第一个条件边作为普通边
-        // TODO: 实现真正的条件路由逻辑
-        if (!conditionalEdges.isEmpty()) {
-            EdgeConfig firstEdge = conditionalEdges.get(0);
-            System.out.println("  暂时使用普通边: " + firstEdge.getCondition() + " -> " + firstEdge.getTo());
-            addSingleEdge(stateGraph, new EdgeConfig(sourceNode, firstEdge.getTo()));
+        List<RouteRule> rules = new ArrayList<>();
+        Map<String, String> mappings = new HashMap<>();
+        for (EdgeConfig edge : conditionalEdges) {
+            System.out.println("  条件: " + edge.getCondition() + " -> " + edge.getTo());
+            rules.add(new RouteRule(edge.getCondition(), edge.getTo()));
+            mappings.put(edge.getTo(), normalizeTarget(edge.getTo()));
         }
+        
+        ConditionalRouter router = new ConditionalRouter(rules);
+        String from = "START".equals(sourceNode) ? START : sourceNode;
+        stateGraph.addConditionalEdges(from, edge_async(router::route), mappings);
     }
     
     /**
@@ -140,19 +262,20 @@ public class DynamicGraphBuilder {
         System.out.println("添加边: " + edgeConfig.getFrom() + " -> " + edgeConfig.getTo());
         
         String from = edgeConfig.getFrom();
-        String to = edgeConfig.getTo();
+        String to = normalizeTarget(edgeConfig.getTo());
         
         // 处理特殊节点标识
         if ("START".equals(from)) {
             from = START;
         }
-        if ("END".equals(to)) {
-            to = END;
-        }
         
         stateGraph.addEdge(from, to);
     }
     
+    private String normalizeTarget(String target) {
+        return "END".equals(target) ? END : target;
+    }
+    
     /**
      * 获取节点注册表（用于扩展）
      */
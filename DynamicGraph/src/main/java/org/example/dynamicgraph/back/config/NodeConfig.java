@@ -1,6 +1,7 @@
 package org.example.dynamicgraph.back.config;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -19,6 +20,7 @@ public class NodeConfig {
     private String id;           // 节点ID
     private String type;         // 节点类型
     private Map<String, Object> params; // 节点参数
+    private List<NodeConfig> fusedNodes; // 链融合后的原节点（按执行顺序），普通节点为 null
     
     public NodeConfig() {
         this.params = new HashMap<>();
@@ -42,6 +44,7 @@ public class NodeConfig {
                 "id='" + id + '\'' +
                 ", type='" + type + '\'' +
                 ", params=" + params +
+                (fusedNodes != null ? ", fusedNodes=" + fusedNodes : "") +
                 '}';
     }
 }
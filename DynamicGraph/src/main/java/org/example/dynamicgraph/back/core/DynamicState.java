@@ -16,13 +16,15 @@ public class DynamicState extends AgentState {
     
     public static final String MESSAGES_KEY = "messages";
     public static final String DATA_KEY = "data";
+    public static final String RETRY_COUNT_KEY = "retryCount";
     
     /**
-     * 通用Schema：支持消息列表和通用数据存储
+     * 通用Schema：支持消息列表、通用数据存储和重试计数
      */
     public static final Map<String, Channel<?>> SCHEMA = Map.of(
         MESSAGES_KEY, Channels.appender(ArrayList::new),
-        DATA_KEY, Channels.base(() -> "")
+        DATA_KEY, Channels.base(() -> ""),
+        RETRY_COUNT_KEY, Channels.base(() -> 0)
     );
     
     public DynamicState(Map<String, Object> initData) {
@@ -57,6 +59,13 @@ public class DynamicState extends AgentState {
         return getData("").toString();
     }
     
+    /**
+     * 获取重试次数（由重试节点增量维护）
+     */
+    public Optional<Integer> getRetryCount() {
+        return this.value(RETRY_COUNT_KEY);
+    }
+    
     /**
      * 打印当前状态信息（用于调试）
      */
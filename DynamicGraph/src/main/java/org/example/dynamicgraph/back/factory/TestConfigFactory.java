@@ -71,7 +71,30 @@ public class TestConfigFactory {
         
         return new TenantGraphConfig("tenant_C", "最简流程", nodes, edges);
     }
-    
+
+    /**
+     * 租户D配置：条件分支 + 重试循环
+     * 流程：START -> 处理 -> [成功: 成功日志 | 重试次数<3: 处理 | 其他: 失败日志] -> END
+     */
+    public static TenantGraphConfig createTenantDConfig() {
+        List<NodeConfig> nodes = List.of(
+            new NodeConfig("process", "retryNode", Map.of("failureRate", 0.5)),
+            new NodeConfig("successLogger", "logNode", Map.of("prefix", "[租户D-成功]")),
+            new NodeConfig("failureLogger", "logNode", Map.of("prefix", "[租户D-失败]"))
+        );
+
+        List<EdgeConfig> edges = List.of(
+            new EdgeConfig("START", "process"),
+            new EdgeConfig("process", "successLogger", "data_contains_success"),
+            new EdgeConfig("process", "process", "retry_count_lt_3"),
+            new EdgeConfig("process", "failureLogger", "continue"),
+            new EdgeConfig("successLogger", "END"),
+            new EdgeConfig("failureLogger", "END")
+        );
+
+        return new TenantGraphConfig("tenant_D", "条件分支流程", nodes, edges);
+    }
+
     /**
      * 从JSON字符串创建租户A配置
      */
@@ -8,10 +8,13 @@ import org.example.dynamicgraph.back.intent.config.GraphConfig;
 import org.example.dynamicgraph.back.intent.node.GraphNode;
 import org.example.dynamicgraph.back.intent.router.GraphRouter;
 import org.example.dynamicgraph.back.intent.state.IntentState;
+import org.example.dynamicgraph.parse.ConfigFormat;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -42,6 +45,15 @@ public class IntentGraphBuilder {
         return build(config);
     }
 
+    /**
+     * 从输入流构建图：按文件头识别 JSON / CBOR / Smile，直接从流绑定
+     */
+    public CompiledGraph<IntentState> buildFromStream(InputStream in) throws IOException, GraphStateException {
+        BufferedInputStream buffered = ConfigFormat.buffered(in);
+        GraphConfig config = ConfigFormat.detect(buffered).mapper(objectMapper).readValue(buffered, GraphConfig.class);
+        return build(config);
+    }
+
     /**
      * 从配置对象构建图
      */
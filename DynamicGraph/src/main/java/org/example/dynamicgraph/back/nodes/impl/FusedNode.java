@@ -0,0 +1,41 @@
+package org.example.dynamicgraph.back.nodes.impl;
+
+import org.example.dynamicgraph.back.nodes.DynamicNode;
+import org.example.dynamicgraph.optimizer.FusedUpdates;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 复合节点 - 链融合优化的产物
+ * 在一个超步内按顺序执行多个无副作用节点，只向图返回一次合并后的更新
+ */
+public class FusedNode implements DynamicNode {
+
+    public static final String TYPE = "fusedNode";
+
+    private final List<DynamicNode> nodes;
+    private final List<Map<String, Object>> params;
+    private final Set<String> appenderKeys;
+
+    public FusedNode(List<DynamicNode> nodes, List<Map<String, Object>> params, Set<String> appenderKeys) {
+        this.nodes = List.copyOf(nodes);
+        this.params = List.copyOf(params);
+        this.appenderKeys = appenderKeys;
+    }
+
+    @Override
+    public Map<String, Object> execute(Map<String, Object> state, Map<String, Object> ignored) {
+        FusedUpdates updates = new FusedUpdates(appenderKeys, state);
+        for (int i = 0; i < nodes.size(); i++) {
+            updates.apply(nodes.get(i).execute(updates.state(), params.get(i)));
+        }
+        return updates.result();
+    }
+
+    @Override
+    public String getNodeType() {
+        return TYPE;
+    }
+}
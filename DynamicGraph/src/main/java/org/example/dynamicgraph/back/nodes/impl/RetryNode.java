@@ -30,9 +30,12 @@ public class RetryNode implements DynamicNode {
             );
         } else {
             System.out.println("[Retry] 操作失败，需要重试: " + data);
+            Object retryCount = state.get(DynamicState.RETRY_COUNT_KEY);
+            int nextRetryCount = (retryCount instanceof Number n ? n.intValue() : 0) + 1;
             return Map.of(
                 DynamicState.DATA_KEY, data + "-error", 
-                DynamicState.MESSAGES_KEY, "操作失败，重试中"
+                DynamicState.MESSAGES_KEY, "操作失败，重试中",
+                DynamicState.RETRY_COUNT_KEY, nextRetryCount
             );
         }
     }
@@ -0,0 +1,116 @@
+package org.example.dynamicgraph.back.optimizer;
+
+import org.example.dynamicgraph.back.config.EdgeConfig;
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.nodes.impl.FusedNode;
+import org.example.dynamicgraph.back.registry.NodeRegistry;
+import org.example.dynamicgraph.optimizer.FusionResult;
+import org.example.dynamicgraph.optimizer.LinearChains;
+import org.example.dynamicgraph.optimizer.LinearChains.Link;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 链融合优化器
+ * 把租户配置中极大的无副作用线性链合并为一个复合节点（FusedNode），
+ * 每条长度为 n 的链每次执行省掉 n - 1 次状态合并和 checkpoint
+ *
+ * 中断点（interruptNodes）和有副作用的节点（重试、人工审批、日志打印）不参与融合，
+ * 是否无副作用以 NodeRegistry 注册时的声明为准；
+ * 条件边只能挂在链尾，融合后改挂到复合节点上
+ */
+public class ChainFusionOptimizer {
+
+    private final NodeRegistry nodeRegistry;
+
+    public ChainFusionOptimizer(NodeRegistry nodeRegistry) {
+        this.nodeRegistry = nodeRegistry;
+    }
+
+    public FusionResult<TenantGraphConfig> optimize(TenantGraphConfig config) {
+        return optimize(config, Set.of());
+    }
+
+    /**
+     * @param config         原始配置（不会被修改）
+     * @param interruptNodes 需要保留为独立节点的中断点
+     */
+    public FusionResult<TenantGraphConfig> optimize(TenantGraphConfig config, Set<String> interruptNodes) {
+        Map<String, NodeConfig> nodesById = new LinkedHashMap<>();
+        for (NodeConfig node : config.getNodes()) {
+            nodesById.put(node.getId(), node);
+        }
+
+        List<Link> links = new ArrayList<>();
+        for (EdgeConfig edge : config.getEdges()) {
+            links.add(new Link(edge.getFrom(), edge.getTo(), edge.isConditional()));
+        }
+
+        List<List<String>> chains = LinearChains.find(new ArrayList<>(nodesById.keySet()), links, id ->
+            !interruptNodes.contains(id) && isFusible(nodesById.get(id)));
+        if (chains.isEmpty()) {
+            return new FusionResult<>(config, List.of());
+        }
+
+        // 原节点 ID -> 所在链；链头/链尾 -> 复合节点 ID
+        Map<String, List<String>> chainOf = new HashMap<>();
+        for (List<String> chain : chains) {
+            chain.forEach(id -> chainOf.put(id, chain));
+        }
+
+        List<NodeConfig> nodes = new ArrayList<>();
+        for (NodeConfig node : config.getNodes()) {
+            List<String> chain = chainOf.get(node.getId());
+            if (chain == null) {
+                nodes.add(node);
+            } else if (chain.get(0).equals(node.getId())) {
+                nodes.add(fusedNode(chain, nodesById));
+            }
+        }
+
+        List<EdgeConfig> edges = new ArrayList<>();
+        for (EdgeConfig edge : config.getEdges()) {
+            List<String> fromChain = chainOf.get(edge.getFrom());
+            if (fromChain != null && !fromChain.get(fromChain.size() - 1).equals(edge.getFrom())) {
+                continue; // 链内部的边
+            }
+            String from = fromChain != null ? FusionResult.fusedId(fromChain) : edge.getFrom();
+            List<String> toChain = chainOf.get(edge.getTo());
+            String to = toChain != null ? FusionResult.fusedId(toChain) : edge.getTo();
+            edges.add(edge.isConditional() ? new EdgeConfig(from, to, edge.getCondition()) : new EdgeConfig(from, to));
+        }
+
+        TenantGraphConfig optimized = new TenantGraphConfig(config.getTenantId(), config.getGraphName(), nodes, edges);
+        return new FusionResult<>(optimized, chains);
+    }
+
+    private boolean isFusible(NodeConfig node) {
+        if (node.getFusedNodes() != null) {
+            return true;
+        }
+        // 只看注册元数据，不为检查而创建 PER_GRAPH 实例
+        return nodeRegistry.isSideEffectFree(node.getType());
+    }
+
+    private NodeConfig fusedNode(List<String> chain, Map<String, NodeConfig> nodesById) {
+        List<NodeConfig> steps = new ArrayList<>();
+        for (String id : chain) {
+            NodeConfig node = nodesById.get(id);
+            // 已融合的节点展开，避免复合节点嵌套
+            if (node.getFusedNodes() != null) {
+                steps.addAll(node.getFusedNodes());
+            } else {
+                steps.add(node);
+            }
+        }
+        NodeConfig fused = new NodeConfig(FusionResult.fusedId(chain), FusedNode.TYPE);
+        fused.setFusedNodes(List.copyOf(steps));
+        return fused;
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.dynamicgraph.back.optimizer;
+
+import org.example.dynamicgraph.analysis.GraphAnalysisReport;
+import org.example.dynamicgraph.analysis.PruneResult;
+import org.example.dynamicgraph.analysis.Reachability;
+import org.example.dynamicgraph.back.config.EdgeConfig;
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.router.RouteConditions;
+import org.example.dynamicgraph.back.router.RoutePredicate;
+import org.example.dynamicgraph.optimizer.LinearChains.Link;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 租户图静态分析器
+ * 在构建前找出不可达节点、到不了 END 的节点和恒真/恒假的条件规则，并可据此剪枝
+ *
+ * 条件规则的语义与 DynamicGraphBuilder/ConditionalRouter 一致：
+ * 同源规则按顺序匹配，同源普通边作为兜底 continue 规则，都不匹配时走最后一条规则的目标
+ */
+public class GraphAnalyzer {
+
+    private static final String START = "START";
+    private static final String END = "END";
+
+    public GraphAnalysisReport analyze(TenantGraphConfig config) {
+        List<String> constantConditions = new ArrayList<>();
+        List<EdgeConfig> edges = simplify(config.getEdges(), constantConditions);
+        return analyze(config, edges, constantConditions);
+    }
+
+    /**
+     * 剪枝：删除不可达节点及其出边、被遮蔽或恒假的规则；只剩一条规则的条件组退化为普通边
+     * 到不了 END 的节点属于配置错误，只在报告中体现
+     */
+    public PruneResult<TenantGraphConfig> prune(TenantGraphConfig config) {
+        List<String> constantConditions = new ArrayList<>();
+        List<EdgeConfig> edges = simplify(config.getEdges(), constantConditions);
+        GraphAnalysisReport report = analyze(config, edges, constantConditions);
+
+        List<NodeConfig> nodes = new ArrayList<>();
+        for (NodeConfig node : config.getNodes()) {
+            if (!report.unreachableNodes().contains(node.getId())) {
+                nodes.add(node);
+            }
+        }
+        List<EdgeConfig> liveEdges = new ArrayList<>();
+        for (EdgeConfig edge : edges) {
+            if (!report.unreachableNodes().contains(edge.getFrom())) {
+                liveEdges.add(edge);
+            }
+        }
+
+        TenantGraphConfig pruned = new TenantGraphConfig(config.getTenantId(), config.getGraphName(), nodes, liveEdges);
+        return new PruneResult<>(pruned, report,
+            config.getNodes().size() - nodes.size(), config.getEdges().size() - liveEdges.size());
+    }
+
+    private GraphAnalysisReport analyze(TenantGraphConfig config, List<EdgeConfig> simplifiedEdges,
+                                        List<String> constantConditions) {
+        List<Link> links = new ArrayList<>();
+        for (EdgeConfig edge : simplifiedEdges) {
+            links.add(new Link(edge.getFrom(), edge.getTo(), edge.isConditional()));
+        }
+        Set<String> reachable = Reachability.forward(START, links);
+        Set<String> reachesEnd = Reachability.backward(END, links);
+
+        Set<String> unreachable = new LinkedHashSet<>();
+        Set<String> deadEnds = new LinkedHashSet<>();
+        for (NodeConfig node : config.getNodes()) {
+            if (!reachable.contains(node.getId())) {
+                unreachable.add(node.getId());
+            } else if (!reachesEnd.contains(node.getId())) {
+                deadEnds.add(node.getId());
+            }
+        }
+        return new GraphAnalysisReport(unreachable, deadEnds, constantConditions, Set.of(), Map.of());
+    }
+
+    /**
+     * 化简条件边：去掉永远不会生效的规则，单规则的条件组改为普通边
+     *
+     * @param constantConditions 输出：识别出的常量规则
+     */
+    private static List<EdgeConfig> simplify(List<EdgeConfig> edges, List<String> constantConditions) {
+        Map<String, List<EdgeConfig>> groups = new LinkedHashMap<>();
+        for (EdgeConfig edge : edges) {
+            if (edge.isConditional()) {
+                groups.computeIfAbsent(edge.getFrom(), from -> new ArrayList<>()).add(edge);
+            }
+        }
+
+        List<EdgeConfig> result = new ArrayList<>();
+        for (EdgeConfig edge : edges) {
+            if (edge.isConditional()) {
+                continue;
+            }
+            List<EdgeConfig> group = groups.get(edge.getFrom());
+            if (group != null) {
+                group.add(new EdgeConfig(edge.getFrom(), edge.getTo(), "continue"));
+            } else {
+                result.add(edge);
+            }
+        }
+
+        for (List<EdgeConfig> group : groups.values()) {
+            List<EdgeConfig> live = new ArrayList<>();
+            boolean shadowed = false;
+            for (int i = 0; i < group.size(); i++) {
+                EdgeConfig rule = group.get(i);
+                boolean last = i == group.size() - 1;
+                RoutePredicate predicate = RouteConditions.compile(rule.getCondition());
+                if (shadowed) {
+                    constantConditions.add(describe(rule, "SHADOWED"));
+                } else if (predicate == RoutePredicate.ALWAYS) {
+                    constantConditions.add(describe(rule, "ALWAYS"));
+                    live.add(rule);
+                    shadowed = true;
+                } else if (predicate == RoutePredicate.NEVER && !last) {
+                    constantConditions.add(describe(rule, "NEVER"));
+                } else {
+                    // 恒假的最后一条规则仍是默认路由，保留
+                    live.add(rule);
+                }
+            }
+            if (live.size() == 1) {
+                result.add(new EdgeConfig(live.get(0).getFrom(), live.get(0).getTo()));
+            } else {
+                result.addAll(live);
+            }
+        }
+        return result;
+    }
+
+    private static String describe(EdgeConfig rule, String kind) {
+        return rule.getFrom() + ": " + rule.getCondition() + " -> " + rule.getTo() + " (" + kind + ")";
+    }
+}
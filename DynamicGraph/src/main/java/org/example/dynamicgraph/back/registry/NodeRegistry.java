@@ -7,6 +7,8 @@ import org.example.dynamicgraph.back.nodes.impl.HumanApprovalNode;
 import org.example.dynamicgraph.back.nodes.impl.LogNode;
 import org.example.dynamicgraph.back.nodes.impl.RetryNode;
 import org.example.dynamicgraph.back.nodes.impl.UpperCaseNode;
+import org.example.dynamicgraph.scope.NodeScope;
+import org.example.dynamicgraph.scope.ScopedNodeFactories;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -15,72 +17,111 @@ import java.util.function.Supplier;
 /**
  * 节点注册中心
  * 管理所有可用的节点类型
+ *
+ * 线程安全：图构建过程中可以并发注册新类型。
+ * DynamicNode 在 execute 时才拿到参数，内置节点都是无状态单例，不再每次 createNode 都 new 一个
  */
 public class NodeRegistry {
-    
-    private final Map<String, Supplier<DynamicNode>> nodeFactories;
-    
+
+    private final ScopedNodeFactories<DynamicNode> nodeFactories = new ScopedNodeFactories<>();
+
     public NodeRegistry() {
-        this.nodeFactories = new HashMap<>();
         initializeBuiltinNodes();
     }
-    
+
     /**
      * 初始化内置节点
      */
     private void initializeBuiltinNodes() {
-        // 基础节点
-        register("logNode", LogNode::new);
-        register("upperCaseNode", UpperCaseNode::new);
-        register("appendNode", AppendNode::new);
-        
+        // 基础节点（logNode 的输出就是打印，不算无副作用）
+        register("logNode", NodeScope.SINGLETON, LogNode::new);
+        register("upperCaseNode", NodeScope.SINGLETON, UpperCaseNode::new, true);
+        register("appendNode", NodeScope.SINGLETON, AppendNode::new, true);
+
         // 复杂节点
-        register("retryNode", RetryNode::new);
-        register("decisionNode", DecisionNode::new);
-        register("humanApprovalNode", HumanApprovalNode::new);
+        register("retryNode", NodeScope.SINGLETON, RetryNode::new);
+        register("decisionNode", NodeScope.SINGLETON, DecisionNode::new, true);
+        register("humanApprovalNode", NodeScope.SINGLETON, HumanApprovalNode::new);
     }
-    
+
     /**
      * 注册新的节点类型
-     * 
+     * 未声明作用域时按 PER_GRAPH 处理（每次创建新实例），对有状态的自定义节点是安全的默认值
+     *
      * @param nodeType 节点类型标识
      * @param factory 节点工厂函数
      */
     public void register(String nodeType, Supplier<DynamicNode> factory) {
-        nodeFactories.put(nodeType, factory);
-        System.out.println("[Registry] 注册节点类型: " + nodeType);
+        register(nodeType, NodeScope.PER_GRAPH, factory);
     }
-    
+
     /**
-     * 创建节点实例
-     * 
+     * 按作用域注册节点类型（按有副作用处理，不参与链融合）
+     */
+    public void register(String nodeType, NodeScope scope, Supplier<DynamicNode> factory) {
+        register(nodeType, scope, factory, false);
+    }
+
+    /**
+     * 按作用域注册节点类型，并声明是否无副作用（只读状态、只通过返回值更新状态）
+     * 无副作用的类型可以被链融合优化合并进复合节点
+     */
+    public void register(String nodeType, NodeScope scope, Supplier<DynamicNode> factory, boolean sideEffectFree) {
+        nodeFactories.register(nodeType, scope, params -> factory.get(), sideEffectFree);
+        System.out.println("[Registry] 注册节点类型: " + nodeType + " (" + scope + (sideEffectFree ? ", 无副作用" : "") + ")");
+    }
+
+    /**
+     * 创建节点实例（单例类型返回共享实例）
+     *
      * @param nodeType 节点类型
      * @return 节点实例
      * @throws IllegalArgumentException 如果节点类型不存在
      */
     public DynamicNode createNode(String nodeType) {
-        Supplier<DynamicNode> factory = nodeFactories.get(nodeType);
-        if (factory == null) {
-            throw new IllegalArgumentException("未知的节点类型: " + nodeType + 
-                ". 可用类型: " + nodeFactories.keySet());
+        if (!nodeFactories.contains(nodeType)) {
+            throw new IllegalArgumentException("未知的节点类型: " + nodeType +
+                ". 可用类型: " + nodeFactories.types());
         }
-        
-        DynamicNode node = factory.get();
-        System.out.println("[Registry] 创建节点实例: " + nodeType);
-        return node;
+        return nodeFactories.get(nodeType, Map.of());
     }
-    
+
     /**
      * 获取所有可用的节点类型
      */
     public Map<String, Supplier<DynamicNode>> getAllNodeTypes() {
-        return new HashMap<>(nodeFactories);
+        Map<String, Supplier<DynamicNode>> types = new HashMap<>();
+        for (String nodeType : nodeFactories.types()) {
+            types.put(nodeType, () -> createNode(nodeType));
+        }
+        return types;
     }
-    
+
     /**
      * 检查节点类型是否存在
      */
     public boolean hasNodeType(String nodeType) {
-        return nodeFactories.containsKey(nodeType);
+        return nodeFactories.contains(nodeType);
+    }
+
+    /**
+     * 节点类型是否登记为无副作用，未注册返回 false
+     */
+    public boolean isSideEffectFree(String nodeType) {
+        return nodeFactories.isSideEffectFree(nodeType);
+    }
+
+    /**
+     * 节点类型的作用域，未注册返回 null
+     */
+    public NodeScope getScope(String nodeType) {
+        return nodeFactories.scope(nodeType);
+    }
+
+    /**
+     * 实例统计：类型数、创建次数、复用次数
+     */
+    public Map<String, Object> stats() {
+        return nodeFactories.stats();
     }
 }
@@ -0,0 +1,158 @@
+package org.example.dynamicgraph.back.registry;
+
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphStateException;
+import org.example.dynamicgraph.back.builder.DynamicGraphBuilder;
+import org.example.dynamicgraph.back.config.EdgeConfig;
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.core.DynamicState;
+import org.example.dynamicgraph.pool.ConfigFingerprint;
+import org.example.dynamicgraph.pool.SharedGraphPool;
+import org.example.dynamicgraph.pool.VersionedGraphs;
+import org.example.dynamicgraph.pool.VersionedGraphs.GraphLease;
+import org.example.dynamicgraph.pool.VersionedGraphs.GraphVersion;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * 租户图注册表
+ * 租户 -> 配置指纹 -> 共享的编译图；结构相同的租户配置只编译一次
+ * 重复注册发布新版本，已开始的运行和暂停的 HITL 线程继续使用原版本，排空后释放
+ */
+public class TenantGraphRegistry {
+
+    private final DynamicGraphBuilder graphBuilder;
+    private final SharedGraphPool<CompiledGraph<DynamicState>> pool = new SharedGraphPool<>();
+
+    /**
+     * 租户 ID -> 版本（当前版本 + 排空中的旧版本）
+     */
+    private final VersionedGraphs<CompiledGraph<DynamicState>> versions = new VersionedGraphs<>(this::reclaim);
+
+    public TenantGraphRegistry(DynamicGraphBuilder graphBuilder) {
+        this.graphBuilder = graphBuilder;
+    }
+
+    /**
+     * 注册租户图，重复注册时替换旧配置
+     */
+    public CompiledGraph<DynamicState> register(TenantGraphConfig config) throws GraphStateException {
+        String fingerprint = fingerprint(config);
+        CompiledGraph<DynamicState> graph = pool.acquire(fingerprint, () -> graphBuilder.buildGraph(config));
+        GraphVersion<CompiledGraph<DynamicState>> version = versions.publish(config.getTenantId(), fingerprint, graph);
+        System.out.println("[TenantRegistry] 注册租户: " + config.getTenantId() + " v" + version.version()
+            + " -> " + fingerprint.substring(0, 12) + " (共享图数: " + pool.distinctGraphs() + ")");
+        return graph;
+    }
+
+    private void reclaim(GraphVersion<CompiledGraph<DynamicState>> version) {
+        pool.release(version.fingerprint());
+        System.out.println("[TenantRegistry] 旧版本已排空: " + version.graphId() + " v" + version.version());
+    }
+
+    public Optional<CompiledGraph<DynamicState>> get(String tenantId) {
+        return versions.latest(tenantId).map(GraphVersion::graph);
+    }
+
+    /**
+     * 为一次运行获取最新版本的租约，运行结束后关闭
+     */
+    public Optional<GraphLease<CompiledGraph<DynamicState>>> lease(String tenantId) {
+        return versions.lease(tenantId);
+    }
+
+    /**
+     * 为会话线程获取租约：首次运行固定版本，HITL 恢复时仍使用同一版本；
+     * 线程结束时调用 completeThread，没有调用的固定在闲置超过 VersionedGraphs.DEFAULT_PIN_TTL 后失效
+     */
+    public Optional<GraphLease<CompiledGraph<DynamicState>>> lease(String tenantId, String threadId) {
+        return versions.lease(tenantId, threadId);
+    }
+
+    public void completeThread(String tenantId, String threadId) {
+        versions.completeThread(tenantId, threadId);
+    }
+
+    public void unregister(String tenantId) {
+        if (versions.remove(tenantId)) {
+            System.out.println("[TenantRegistry] 注销租户: " + tenantId);
+        }
+    }
+
+    public Optional<String> getFingerprint(String tenantId) {
+        return versions.latest(tenantId).map(GraphVersion::fingerprint);
+    }
+
+    public int size() {
+        return versions.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new LinkedHashMap<>(pool.stats());
+        stats.putAll(versions.stats());
+        stats.put("tenants", versions.size());
+        return stats;
+    }
+
+    /**
+     * 规范化配置指纹：只包含节点类型/参数、边和 Schema，不含租户 ID 与图名
+     * 节点按 ID 排序；同源条件规则和条件源上的兜底普通边保持声明顺序（决定匹配优先级），
+     * 其余普通边按目标排序
+     */
+    public static String fingerprint(TenantGraphConfig config) {
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("schema", new ArrayList<>(new TreeMap<>(DynamicState.SCHEMA).keySet()));
+        tree.put("nodes", canonicalNodes(config.getNodes(), true));
+
+        Map<String, List<Object>> edgesBySource = new TreeMap<>();
+        List<EdgeConfig> edges = new ArrayList<>(config.getEdges());
+        edges.sort(Comparator.comparing(EdgeConfig::isConditional).reversed());
+        Map<String, List<String>> plainTargets = new TreeMap<>();
+        for (EdgeConfig edge : edges) {
+            if (edge.isConditional()) {
+                edgesBySource.computeIfAbsent(edge.getFrom(), k -> new ArrayList<>())
+                    .add(List.of(edge.getCondition() == null ? "" : edge.getCondition(), edge.getTo()));
+            } else {
+                plainTargets.computeIfAbsent(edge.getFrom(), k -> new ArrayList<>()).add(edge.getTo());
+            }
+        }
+        plainTargets.forEach((from, targets) -> {
+            // 条件源上的普通边是兜底规则，按声明顺序排在条件规则之后，不能重排；
+            // 其余源的多条普通边是并行扇出，与顺序无关
+            if (!edgesBySource.containsKey(from)) {
+                targets.sort(null);
+            }
+            edgesBySource.computeIfAbsent(from, k -> new ArrayList<>()).add(targets);
+        });
+        tree.put("edges", edgesBySource);
+        return ConfigFingerprint.of(tree);
+    }
+
+    private static List<Object> canonicalNodes(List<NodeConfig> nodes, boolean sortById) {
+        List<NodeConfig> sorted = new ArrayList<>(nodes);
+        if (sortById) {
+            sorted.sort(Comparator.comparing(NodeConfig::getId));
+        }
+        List<Object> canonical = new ArrayList<>();
+        for (NodeConfig node : sorted) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("id", node.getId());
+            entry.put("type", node.getType());
+            entry.put("params", node.getParams());
+            if (node.getFusedNodes() != null) {
+                // 复合节点内的执行顺序有意义，不排序
+                entry.put("fused", canonicalNodes(node.getFusedNodes(), false));
+            }
+            canonical.add(entry);
+        }
+        return canonical;
+    }
+}
@@ -2,82 +2,142 @@ package org.example.dynamicgraph.back.router;
 
 import org.example.dynamicgraph.back.core.DynamicState;
 
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 条件路由器
  * 根据状态和条件规则决定下一个节点
+ *
+ * 规则在构造时编译为 RoutePredicate；相邻的等值规则（data_equals:xxx）
+ * 合并为一张 HashMap 分发表，命中只需一次查表。
+ * 每次路由只创建一个 RouteView，所有规则共享其中的派生值。
  */
 public class ConditionalRouter {
-    
+
     private final List<RouteRule> rules;
-    
+    private final List<RouteStep> steps;
+    private final String defaultTarget;
+
     public ConditionalRouter(List<RouteRule> rules) {
-        this.rules = rules;
+        this.rules = List.copyOf(rules);
+        this.steps = compile(this.rules);
+        this.defaultTarget = this.rules.isEmpty() ? null : this.rules.get(this.rules.size() - 1).getTargetNode();
     }
-    
+
     /**
-     * 根据当前状态确定下一个节点
+     * 根据当前状态确定下一个节点，没有规则匹配时走最后一条规则的目标；
+     * 每个图步骤都会调用，不输出日志
      */
     public String route(DynamicState state) {
+        RouteView view = new RouteView(state);
+        for (RouteStep step : steps) {
+            String target = step.resolve(view);
+            if (target != null) {
+                return target;
+            }
+        }
+        return defaultTarget;
+    }
+
+    /**
+     * 与 route 相同，保留给已有调用方
+     */
+    public String resolve(DynamicState state) {
+        return route(state);
+    }
+
+    public List<RouteRule> getRules() {
+        return rules;
+    }
+
+    /**
+     * 编译规则：保持规则顺序（先匹配先生效），相邻等值规则合并为分发表
+     */
+    private static List<RouteStep> compile(List<RouteRule> rules) {
+        List<RouteStep> compiled = new ArrayList<>();
+        Map<String, String> table = null;
         for (RouteRule rule : rules) {
-            if (rule.matches(state)) {
-                System.out.println("[Router] 匹配规则: " + rule.getCondition() + " -> " + rule.getTargetNode());
-                return rule.getTargetNode();
+            if (RouteConditions.isEquality(rule.getCondition())) {
+                if (table == null) {
+                    table = new HashMap<>();
+                }
+                // 重复的等值条件只保留第一条，与逐条匹配的语义一致
+                table.putIfAbsent(RouteConditions.equalityValue(rule.getCondition()), rule.getTargetNode());
+                continue;
             }
+            if (table != null) {
+                compiled.add(new DispatchStep(table));
+                table = null;
+            }
+            compiled.add(new PredicateStep(rule));
+        }
+        if (table != null) {
+            compiled.add(new DispatchStep(table));
+        }
+        return List.copyOf(compiled);
+    }
+
+    /**
+     * 编译后的路由步骤：返回目标节点，不匹配返回 null
+     */
+    private interface RouteStep {
+        String resolve(RouteView view);
+    }
+
+    private static final class PredicateStep implements RouteStep {
+        private final RouteRule rule;
+
+        PredicateStep(RouteRule rule) {
+            this.rule = rule;
+        }
+
+        @Override
+        public String resolve(RouteView view) {
+            return rule.predicate.test(view) ? rule.getTargetNode() : null;
+        }
+    }
+
+    private static final class DispatchStep implements RouteStep {
+        private final Map<String, String> table;
+
+        DispatchStep(Map<String, String> table) {
+            this.table = Map.copyOf(table);
+        }
+
+        @Override
+        public String resolve(RouteView view) {
+            return table.get(view.data());
         }
-        
-        // 默认路由（如果没有规则匹配）
-        System.out.println("[Router] 使用默认路由");
-        return rules.isEmpty() ? null : rules.get(rules.size() - 1).getTargetNode();
     }
-    
+
     /**
      * 路由规则
      */
     public static class RouteRule {
         private final String condition;
         private final String targetNode;
-        
+        private final RoutePredicate predicate;
+
         public RouteRule(String condition, String targetNode) {
             this.condition = condition;
             this.targetNode = targetNode;
+            this.predicate = RouteConditions.compile(condition);
         }
-        
+
         /**
          * 检查规则是否匹配当前状态
          */
         public boolean matches(DynamicState state) {
-            // 简化的条件匹配逻辑
-            switch (condition) {
-                case "data_contains_error":
-                    return state.getDataAsString().toLowerCase().contains("error");
-                case "data_contains_success":
-                    return state.getDataAsString().toLowerCase().contains("success");
-                case "data_length_gt_10":
-                    return state.getDataAsString().length() > 10;
-                case "retry_count_lt_3":
-                    return getRetryCount(state) < 3;
-                case "need_human_approval":
-                    return state.getDataAsString().toLowerCase().contains("approve");
-                case "continue":
-                    return true; // 默认继续
-                default:
-                    return false;
-            }
-        }
-        
-        private int getRetryCount(DynamicState state) {
-            // 从消息中计算重试次数
-            return (int) state.getMessages().stream()
-                    .filter(msg -> msg.toString().contains("重试"))
-                    .count();
+            return predicate.test(new RouteView(state));
         }
-        
+
         public String getCondition() {
             return condition;
         }
-        
+
         public String getTargetNode() {
             return targetNode;
         }
@@ -0,0 +1,70 @@
+package org.example.dynamicgraph.back.router;
+
+import org.example.dynamicgraph.expression.CompiledExpression;
+import org.example.dynamicgraph.expression.ExpressionCompiler;
+
+/**
+ * 路由条件编译器
+ * 在构建期把条件字符串翻译为 RoutePredicate，运行期不再做字符串 switch
+ *
+ * 固定词汇（data_contains_error 等）之外的条件按表达式编译，例如
+ * {@code retryCount < 3 && data contains 'error'}，可用变量见 RouteView#resolve
+ *
+ * 无法解析的条件在构建期直接报错，不再静默当作"永不匹配"；
+ * 词汇表之外的单个标识符按状态变量取真值，状态中没有该变量时不匹配
+ */
+public final class RouteConditions {
+
+    /** 等值条件前缀: data_equals:xxx，可被编译进 O(1) 分发表 */
+    public static final String DATA_EQUALS_PREFIX = "data_equals:";
+
+    private RouteConditions() {
+    }
+
+    /**
+     * 编译条件
+     *
+     * @throws IllegalArgumentException 条件表达式有语法错误时
+     */
+    public static RoutePredicate compile(String condition) {
+        if (condition == null) {
+            return RoutePredicate.NEVER;
+        }
+        if (isEquality(condition)) {
+            String expected = equalityValue(condition);
+            return view -> expected.equals(view.data());
+        }
+        switch (condition) {
+            case "data_contains_error":
+                return view -> view.lowerData().contains("error");
+            case "data_contains_success":
+                return view -> view.lowerData().contains("success");
+            case "data_length_gt_10":
+                return view -> view.data().length() > 10;
+            case "retry_count_lt_3":
+                return view -> view.retryCount() < 3;
+            case "need_human_approval":
+                return view -> view.lowerData().contains("approve");
+            case "continue":
+                return RoutePredicate.ALWAYS; // 默认继续
+            default:
+                CompiledExpression expression = ExpressionCompiler.compile(condition);
+                // 常量表达式保留 ALWAYS/NEVER 身份，便于静态分析识别
+                if (expression == CompiledExpression.ALWAYS) {
+                    return RoutePredicate.ALWAYS;
+                }
+                if (expression == CompiledExpression.NEVER) {
+                    return RoutePredicate.NEVER;
+                }
+                return expression::test;
+        }
+    }
+
+    public static boolean isEquality(String condition) {
+        return condition != null && condition.startsWith(DATA_EQUALS_PREFIX);
+    }
+
+    public static String equalityValue(String condition) {
+        return condition.substring(DATA_EQUALS_PREFIX.length());
+    }
+}
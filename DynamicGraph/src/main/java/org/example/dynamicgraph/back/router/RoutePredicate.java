@@ -0,0 +1,14 @@
+package org.example.dynamicgraph.back.router;
+
+/**
+ * 编译后的路由条件
+ */
+@FunctionalInterface
+public interface RoutePredicate {
+
+    boolean test(RouteView view);
+
+    RoutePredicate ALWAYS = view -> true;
+
+    RoutePredicate NEVER = view -> false;
+}
@@ -0,0 +1,79 @@
+package org.example.dynamicgraph.back.router;
+
+import org.example.dynamicgraph.back.core.DynamicState;
+import org.example.dynamicgraph.expression.VariableResolver;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 单次路由求值的状态视图
+ * 同一次 route() 中所有规则共享，data 的小写形式等派生值只计算一次
+ */
+public class RouteView implements VariableResolver {
+
+    private final DynamicState state;
+
+    private String data;
+    private String lowerData;
+    private int retryCount = -1;
+
+    public RouteView(DynamicState state) {
+        this.state = state;
+    }
+
+    public DynamicState getState() {
+        return state;
+    }
+
+    public String data() {
+        if (data == null) {
+            data = state.getDataAsString();
+        }
+        return data;
+    }
+
+    public String lowerData() {
+        if (lowerData == null) {
+            lowerData = data().toLowerCase(Locale.ROOT);
+        }
+        return lowerData;
+    }
+
+    /**
+     * 表达式变量：data 和 retryCount 走缓存的派生值，其余直接读状态
+     */
+    @Override
+    public Object resolve(String name) {
+        switch (name) {
+            case DynamicState.DATA_KEY:
+                return data();
+            case DynamicState.RETRY_COUNT_KEY:
+                return retryCount();
+            default:
+                return state.value(name).orElse(null);
+        }
+    }
+
+    /**
+     * 重试次数：优先读取节点增量维护的计数器，
+     * 只有状态中没有计数器时（例如外部构造的旧状态）才回退为扫描消息
+     */
+    public int retryCount() {
+        if (retryCount < 0) {
+            retryCount = state.getRetryCount().orElseGet(this::countRetryMessages);
+        }
+        return retryCount;
+    }
+
+    private int countRetryMessages() {
+        List<String> messages = state.getMessages();
+        int count = 0;
+        for (Object msg : messages) {
+            if (msg.toString().contains("重试")) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
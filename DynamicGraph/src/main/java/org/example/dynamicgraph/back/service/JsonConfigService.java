@@ -1,11 +1,17 @@
 package org.example.dynamicgraph.back.service;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.parse.ConfigFormat;
 
+import java.io.BufferedInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.function.Consumer;
 
 /**
  * JSON配置解析服务
@@ -26,11 +32,47 @@ public class JsonConfigService {
     }
     
     /**
-     * 从JSON文件解析配置
+     * 从配置文件解析：按扩展名识别 JSON / CBOR / Smile，直接从文件流绑定，不先读成字符串
      */
     public TenantGraphConfig parseFromJsonFile(String filePath) throws IOException {
-        String json = Files.readString(Path.of(filePath));
-        return parseFromJson(json);
+        Path path = Path.of(filePath);
+        try (InputStream in = Files.newInputStream(path)) {
+            return parseFromStream(in, ConfigFormat.fromFileName(path.getFileName().toString()));
+        }
+    }
+    
+    /**
+     * 从输入流解析配置，format 为 null 时按文件头识别
+     */
+    public TenantGraphConfig parseFromStream(InputStream in, ConfigFormat format) throws IOException {
+        BufferedInputStream buffered = ConfigFormat.buffered(in);
+        ConfigFormat resolved = format != null ? format : ConfigFormat.detect(buffered);
+        return resolved.mapper(objectMapper).readValue(buffered, TenantGraphConfig.class);
+    }
+    
+    /**
+     * 解析多租户配置包（JSONL、顶层数组或二进制根值序列），逐个交给 sink，不整体载入内存
+     *
+     * @return 解析的配置数量
+     */
+    public int parseBundle(Path bundle, Consumer<TenantGraphConfig> sink) throws IOException {
+        ConfigFormat format = ConfigFormat.fromFileName(bundle.getFileName().toString());
+        ObjectMapper mapper = format.mapper(objectMapper);
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(bundle));
+             JsonParser parser = mapper.getFactory().createParser(in)) {
+            // 顶层数组时进入数组逐个读取元素；空文件和空数组直接返回 0
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+            int count = 0;
+            while (token != null && token != JsonToken.END_ARRAY) {
+                sink.accept(mapper.readValue(parser, TenantGraphConfig.class));
+                count++;
+                token = parser.nextToken();
+            }
+            return count;
+        }
     }
     
     /**
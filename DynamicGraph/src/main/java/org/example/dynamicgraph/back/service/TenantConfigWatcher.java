@@ -0,0 +1,290 @@
+package org.example.dynamicgraph.back.service;
+
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.registry.TenantGraphRegistry;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * 租户配置目录监听器
+ * 监听目录下的 *.json 租户配置，文件变化后自动重新注册，无需重启
+ *
+ * - 监听线程只收集变化的文件；一段时间（debounce）内没有新事件后，由独立的重载线程统一处理，
+ *   编辑器保存时的连续事件只触发一次重载
+ * - 只解析内容真正变化的文件（按内容 SHA-256 判断，不常驻文件全文）
+ * - 通过 TenantGraphRegistry.register 发布新版本；解析或编译失败只记录错误，旧版本继续服务
+ * - 多个文件声明同一租户时以最近加载的为准；删除其中一个文件时改用剩余文件的配置重新发布，
+ *   最后一个声明该租户的文件删除后才注销租户
+ */
+public class TenantConfigWatcher implements AutoCloseable {
+
+    public static final long DEFAULT_DEBOUNCE_MILLIS = 300;
+
+    private final Path directory;
+    private final JsonConfigService jsonService;
+    private final TenantGraphRegistry registry;
+    private final long debounceMillis;
+
+    private final Set<Path> pending = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService reloader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tenant-config-reload");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ScheduledFuture<?> scheduledFlush;
+    private WatchService watchService;
+    private Thread watchThread;
+
+    /**
+     * 文件内容哈希只在重载线程（或 start 期间）读写；fileTenants 也会在事件溢出时被监听线程读取
+     */
+    private final Map<Path, String> loadedHashes = new HashMap<>();
+    private final Map<Path, String> fileTenants = new ConcurrentHashMap<>();
+    private final Map<String, String> errors = new ConcurrentHashMap<>();
+
+    private final AtomicLong reloads = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong unchanged = new AtomicLong();
+
+    public TenantConfigWatcher(Path directory, JsonConfigService jsonService, TenantGraphRegistry registry) {
+        this(directory, jsonService, registry, DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    public TenantConfigWatcher(Path directory, JsonConfigService jsonService,
+                               TenantGraphRegistry registry, long debounceMillis) {
+        this.directory = directory.toAbsolutePath();
+        this.jsonService = jsonService;
+        this.registry = registry;
+        this.debounceMillis = debounceMillis;
+    }
+
+    /**
+     * 加载目录下现有配置并开始监听
+     */
+    public synchronized void start() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        // 先注册监听再做首次加载，加载期间的修改不会丢失
+        directory.register(watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        for (Path file : listConfigFiles()) {
+            reload(file);
+        }
+        watchThread = new Thread(this::watchLoop, "tenant-config-watch");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        System.out.println("[ConfigWatcher] 开始监听: " + directory + " (租户数: " + fileTenants.size() + ")");
+    }
+
+    private void watchLoop() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == OVERFLOW) {
+                        // 事件丢失：重新检查所有已知文件和目录下的配置
+                        pending.addAll(fileTenants.keySet());
+                        pending.addAll(listConfigFiles());
+                        continue;
+                    }
+                    Path file = directory.resolve((Path) event.context());
+                    if (isConfigFile(file)) {
+                        pending.add(file);
+                    }
+                }
+                scheduleFlush();
+                if (!key.reset()) {
+                    System.out.println("[ConfigWatcher] 监听目录已失效: " + directory);
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException | IOException e) {
+            // close() 关闭监听
+        }
+    }
+
+    /**
+     * 每个新事件都把处理时间推迟 debounceMillis
+     */
+    private synchronized void scheduleFlush() {
+        if (pending.isEmpty() || reloader.isShutdown()) {
+            return;
+        }
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = reloader.schedule(this::flush, debounceMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void flush() {
+        Set<Path> batch = new TreeSet<>();
+        for (Path file : pending) {
+            if (pending.remove(file)) {
+                batch.add(file);
+            }
+        }
+        for (Path file : batch) {
+            reload(file);
+        }
+    }
+
+    /**
+     * 重新加载单个文件；失败时保留该租户的旧版本
+     */
+    private void reload(Path file) {
+        String name = file.getFileName().toString();
+        try {
+            if (!Files.exists(file)) {
+                loadedHashes.remove(file);
+                errors.remove(name);
+                String tenantId = fileTenants.remove(file);
+                if (tenantId != null) {
+                    System.out.println("[ConfigWatcher] 配置已删除: " + name + " (租户 " + tenantId + ")");
+                    release(tenantId);
+                }
+                return;
+            }
+
+            byte[] content = Files.readAllBytes(file);
+            String hash = sha256(content);
+            if (hash.equals(loadedHashes.get(file))) {
+                unchanged.incrementAndGet();
+                return;
+            }
+
+            TenantGraphConfig config = jsonService.parseFromJson(new String(content, StandardCharsets.UTF_8));
+            if (config == null || config.getTenantId() == null || config.getTenantId().isBlank()) {
+                throw new IllegalArgumentException("缺少 tenantId");
+            }
+            registry.register(config);
+
+            String previousTenant = fileTenants.put(file, config.getTenantId());
+            loadedHashes.put(file, hash);
+            Set<Path> owners = owners(config.getTenantId());
+            if (owners.size() > 1) {
+                System.out.println("[ConfigWatcher] 租户 " + config.getTenantId() + " 由多个文件声明 " + owners
+                    + "，以最近加载的 " + name + " 为准");
+            }
+            if (previousTenant != null && !previousTenant.equals(config.getTenantId())) {
+                release(previousTenant);
+            }
+            errors.remove(name);
+            reloads.incrementAndGet();
+            System.out.println("[ConfigWatcher] 已重载: " + name + " -> " + config.getTenantId());
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            errors.put(name, e.getClass().getSimpleName() + ": " + e.getMessage());
+            System.out.println("[ConfigWatcher] 重载失败，继续使用旧版本: " + name + " - " + e.getMessage());
+        }
+    }
+
+    /**
+     * 某个文件不再声明 tenantId 后调用：还有其他文件声明该租户时用其中一个重新发布，否则注销租户
+     */
+    private void release(String tenantId) {
+        Set<Path> owners = owners(tenantId);
+        if (owners.isEmpty()) {
+            registry.unregister(tenantId);
+            System.out.println("[ConfigWatcher] 注销租户 " + tenantId);
+            return;
+        }
+        Path survivor = owners.iterator().next();
+        // 内容没变也要重新发布：注册表里可能还是刚被删除或改名的那份配置
+        loadedHashes.remove(survivor);
+        System.out.println("[ConfigWatcher] 租户 " + tenantId + " 仍由 " + owners + " 声明，改用 "
+            + survivor.getFileName() + " 重新发布");
+        reload(survivor);
+    }
+
+    /**
+     * 当前声明该租户的文件（按路径排序）
+     */
+    private Set<Path> owners(String tenantId) {
+        Set<Path> owners = new TreeSet<>();
+        fileTenants.forEach((file, tenant) -> {
+            if (tenant.equals(tenantId)) {
+                owners.add(file);
+            }
+        });
+        return owners;
+    }
+
+    private static String sha256(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private Set<Path> listConfigFiles() throws IOException {
+        Set<Path> files = new TreeSet<>();
+        try (Stream<Path> stream = Files.list(directory)) {
+            stream.filter(this::isConfigFile).forEach(files::add);
+        }
+        return files;
+    }
+
+    private boolean isConfigFile(Path file) {
+        return file.getFileName().toString().endsWith(".json");
+    }
+
+    /**
+     * 最近一次加载失败的文件 -> 错误信息；重载成功或文件删除后清除
+     */
+    public Map<String, String> getErrors() {
+        return Map.copyOf(errors);
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "reloads", reloads.get(),
+            "failures", failures.get(),
+            "unchanged", unchanged.get(),
+            "pendingFiles", pending.size(),
+            "failingFiles", errors.size()
+        );
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        reloader.shutdownNow();
+        if (watchService != null) {
+            watchService.close();
+        }
+        if (watchThread != null) {
+            watchThread.interrupt();
+        }
+        System.out.println("[ConfigWatcher] 停止监听: " + directory);
+    }
+}
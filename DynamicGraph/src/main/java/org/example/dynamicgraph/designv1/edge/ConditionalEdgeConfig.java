@@ -2,10 +2,17 @@ package org.example.dynamicgraph.designv1.edge;
 
 import lombok.Data;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 
 /**
  * 条件边配置 - 对应 stateGraph.addConditionalEdges()
+ *
+ * 两种写法:
+ * - conditionKey + routes: 按某个 key 的值等值分发
+ * - conditions: 按顺序求值的表达式分支，第一个成立的分支生效
+ * 都不匹配时走 defaultTarget
  */
 @Data
 public class ConditionalEdgeConfig {
@@ -18,6 +25,21 @@ public class ConditionalEdgeConfig {
     /** 路由映射: 条件值 -> 目标节点 */
     private Map<String, String> routes;
     
+    /** 表达式分支（可选），如 {"when": "score >= 80 && size(messages) < 10", "target": "fast"} */
+    private List<ConditionBranch> conditions = new ArrayList<>();
+    
     /** 默认目标（可选） */
     private String defaultTarget;
+
+    /**
+     * 表达式分支
+     */
+    @Data
+    public static class ConditionBranch {
+        /** 条件表达式，语法见 ExpressionCompiler */
+        private String when;
+
+        /** 目标节点 */
+        private String target;
+    }
 }
@@ -0,0 +1,24 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import java.util.Map;
+
+/**
+ * 批量加载结果
+ *
+ * @param total          配置总数
+ * @param loaded         成功注册数
+ * @param failures       失败项: 来源（文件名或 文件:行号）-> 错误信息
+ * @param distinctGraphs 加载后共享池中不同结构的图数量
+ * @param elapsedMillis  总耗时
+ */
+public record BulkLoadReport(int total, int loaded, Map<String, String> failures,
+                             int distinctGraphs, long elapsedMillis) {
+
+    public int failed() {
+        return failures.size();
+    }
+
+    public double graphsPerSecond() {
+        return elapsedMillis == 0 ? loaded : loaded * 1000.0 / elapsedMillis;
+    }
+}
@@ -0,0 +1,144 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.edge.EdgeConfig;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+import org.example.dynamicgraph.designv1.node.NodeRegistry;
+import org.example.dynamicgraph.optimizer.FusionResult;
+import org.example.dynamicgraph.optimizer.LinearChains;
+import org.example.dynamicgraph.optimizer.LinearChains.Link;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 链融合优化器
+ *
+ * 把 GraphConfig 中极大的无副作用线性链（NodeRegistry 登记为无副作用的节点）合并为一个复合节点，
+ * 复合节点由 DynamicGraphBuilder 按顺序执行原节点、只合并一次状态。
+ * 中断点不参与融合；条件边只能挂在链尾，融合后改挂到复合节点上
+ */
+public class ChainFusionOptimizer {
+
+    private static final String START_ID = "__start__";
+
+    private final NodeRegistry nodeRegistry;
+
+    public ChainFusionOptimizer(NodeRegistry nodeRegistry) {
+        this.nodeRegistry = nodeRegistry;
+    }
+
+    public FusionResult<GraphConfig> optimize(GraphConfig config) {
+        return optimize(config, Set.of());
+    }
+
+    /**
+     * @param config         原始配置（不会被修改）
+     * @param interruptNodes 需要保留为独立节点的中断点
+     */
+    public FusionResult<GraphConfig> optimize(GraphConfig config, Set<String> interruptNodes) {
+        Map<String, NodeConfig> nodesById = new LinkedHashMap<>();
+        for (NodeConfig node : config.getNodes()) {
+            nodesById.put(node.getId(), node);
+        }
+
+        List<Link> links = new ArrayList<>();
+        links.add(new Link(START_ID, config.getEntryNode(), false));
+        for (EdgeConfig edge : config.getEdges()) {
+            links.add(new Link(edge.getFrom(), edge.getTo(), false));
+        }
+        for (ConditionalEdgeConfig edge : config.getConditionalEdges()) {
+            for (String target : targets(edge)) {
+                links.add(new Link(edge.getFrom(), target, true));
+            }
+        }
+
+        List<List<String>> chains = LinearChains.find(new ArrayList<>(nodesById.keySet()), links, id ->
+            !interruptNodes.contains(id) && isFusible(nodesById.get(id)));
+        if (chains.isEmpty()) {
+            return new FusionResult<>(config, List.of());
+        }
+
+        Map<String, List<String>> chainOf = new HashMap<>();
+        for (List<String> chain : chains) {
+            chain.forEach(id -> chainOf.put(id, chain));
+        }
+
+        GraphConfig optimized = GraphConfigs.shell(config);
+        optimized.setEntryNode(rename(config.getEntryNode(), chainOf));
+
+        for (NodeConfig node : config.getNodes()) {
+            List<String> chain = chainOf.get(node.getId());
+            if (chain == null) {
+                optimized.getNodes().add(node);
+            } else if (chain.get(0).equals(node.getId())) {
+                optimized.getNodes().add(fusedNode(chain, nodesById));
+            }
+        }
+
+        for (EdgeConfig edge : config.getEdges()) {
+            List<String> fromChain = chainOf.get(edge.getFrom());
+            if (fromChain != null && !fromChain.get(fromChain.size() - 1).equals(edge.getFrom())) {
+                continue; // 链内部的边
+            }
+            optimized.getEdges().add(GraphConfigs.edge(rename(edge.getFrom(), chainOf), rename(edge.getTo(), chainOf)));
+        }
+
+        for (ConditionalEdgeConfig edge : config.getConditionalEdges()) {
+            optimized.getConditionalEdges().add(GraphConfigs.rename(edge, id -> rename(id, chainOf)));
+        }
+
+        return new FusionResult<>(optimized, chains);
+    }
+
+    private boolean isFusible(NodeConfig node) {
+        if (node.getFusedNodes() != null) {
+            return true;
+        }
+        // 只看注册元数据，不为检查而创建实例
+        return nodeRegistry.isSideEffectFree(node.getComponentType());
+    }
+
+    private NodeConfig fusedNode(List<String> chain, Map<String, NodeConfig> nodesById) {
+        List<NodeConfig> steps = new ArrayList<>();
+        for (String id : chain) {
+            NodeConfig node = nodesById.get(id);
+            // 已融合的节点展开，避免复合节点嵌套
+            if (node.getFusedNodes() != null) {
+                steps.addAll(node.getFusedNodes());
+            } else {
+                steps.add(node);
+            }
+        }
+        NodeConfig fused = NodeConfig.of(FusionResult.fusedId(chain), null);
+        fused.setDescription("fused: " + chain);
+        fused.setFusedNodes(List.copyOf(steps));
+        return fused;
+    }
+
+    private static List<String> targets(ConditionalEdgeConfig edge) {
+        List<String> targets = new ArrayList<>();
+        if (edge.getRoutes() != null) {
+            targets.addAll(edge.getRoutes().values());
+        }
+        if (edge.getConditions() != null) {
+            edge.getConditions().forEach(branch -> targets.add(branch.getTarget()));
+        }
+        if (edge.getDefaultTarget() != null) {
+            targets.add(edge.getDefaultTarget());
+        }
+        return targets;
+    }
+
+    /**
+     * 链头/链尾 -> 复合节点 ID（边只可能指向链头、从链尾出发）
+     */
+    private static String rename(String id, Map<String, List<String>> chainOf) {
+        List<String> chain = id == null ? null : chainOf.get(id);
+        return chain == null ? id : FusionResult.fusedId(chain);
+    }
+}
@@ -6,19 +6,35 @@ import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphStateException;
 import org.bsc.langgraph4j.StateGraph;
+import org.bsc.langgraph4j.action.AsyncEdgeAction;
+import org.bsc.langgraph4j.action.AsyncNodeAction;
 import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.state.AgentState;
+import org.bsc.langgraph4j.state.AppenderChannel;
 import org.bsc.langgraph4j.state.Channel;
 import org.bsc.langgraph4j.state.Channels;
+import org.example.dynamicgraph.analysis.GraphAnalysisReport;
+import org.example.dynamicgraph.analysis.PruneResult;
 import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
 import org.example.dynamicgraph.designv1.edge.EdgeConfig;
 import org.example.dynamicgraph.designv1.node.NodeConfig;
 import org.example.dynamicgraph.designv1.node.NodeRegistry;
+import org.example.dynamicgraph.expression.CompiledExpression;
+import org.example.dynamicgraph.expression.ExpressionCompiler;
+import org.example.dynamicgraph.expression.VariableResolver;
+import org.example.dynamicgraph.optimizer.FusedUpdates;
+import org.example.dynamicgraph.optimizer.FusionResult;
+import org.example.dynamicgraph.parse.ConfigFormat;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import static org.bsc.langgraph4j.StateGraph.END;
 import static org.bsc.langgraph4j.StateGraph.START;
@@ -39,7 +55,7 @@ public class DynamicGraphBuilder {
     /**
      * 动态状态（直接使用 LangGraph4j 的 AgentState）
      */
-    public static class DynamicAgentState extends AgentState {
+    public static class DynamicAgentState extends AgentState implements VariableResolver {
 
         public DynamicAgentState(Map<String, Object> initData) {
             super(initData);
@@ -48,13 +64,95 @@ public class DynamicGraphBuilder {
         public String getString(String key) {
             return this.<String>value(key).orElse("");
         }
+
+        @Override
+        public Object resolve(String name) {
+            return value(name).orElse(null);
+        }
     }
 
     /**
      * 从 GraphConfig 构建图
+     * 编译前先做静态剪枝：不可达节点、被覆盖前未读取的写入节点和永远不会生效的分支不进入编译图
      */
     public CompiledGraph<DynamicAgentState> build(GraphConfig config) throws GraphStateException {
         log.info("Building graph: {}", config.getName());
+        return assemble(prune(config), new HashMap<>(), new HashMap<>());
+    }
+
+    /**
+     * 静态剪枝，不折叠常量（折叠会改变调用方显式传入同名字段时的语义）
+     */
+    private GraphConfig prune(GraphConfig config) {
+        PruneResult<GraphConfig> result = new GraphAnalyzer(nodeRegistry).prune(config, false);
+        GraphAnalysisReport report = result.report();
+        if (result.removedNodes() > 0 || result.removedEdges() > 0) {
+            log.info("Graph {} pruned before compile: {} nodes, {} edges/branches removed "
+                    + "(unreachable={}, deadWrites={}, constantConditions={})",
+                config.getName(), result.removedNodes(), result.removedEdges(),
+                report.unreachableNodes(), report.deadWriteNodes(), report.constantConditions());
+        }
+        if (!report.deadEndNodes().isEmpty()) {
+            log.warn("Graph {} has nodes that never reach END: {}", config.getName(), report.deadEndNodes());
+        }
+        return result.config();
+    }
+
+    /**
+     * 构建可增量更新的图：节点包装器和条件路由保留下来，供 update 复用
+     * 增量图按配置原样编译、不剪枝：剪枝结果取决于整张图，一处编辑就可能增删其他节点，破坏包装器复用
+     */
+    public IncrementalGraph buildIncremental(GraphConfig config) throws GraphStateException {
+        log.info("Building incremental graph: {}", config.getName());
+        Map<String, NodeSlot> slots = new HashMap<>();
+        Map<ConditionalEdgeConfig, EdgeRoute> routes = new HashMap<>();
+        CompiledGraph<DynamicAgentState> graph = assemble(config, slots, routes);
+        return new IncrementalGraph(config, graph, slots, routes, GraphConfigDiff.between(config, config), true);
+    }
+
+    /**
+     * 按配置差异增量更新
+     * 
+     * - 无差异：原样返回
+     * - 有差异：重新组装并编译，未变化节点的包装器和未变化的条件路由直接复用，变化的节点使用新包装器
+     *
+     * 节点包装器不可变（写时复制）：旧版本的 IncrementalGraph 和其上正在执行的运行不受更新影响
+     */
+    public IncrementalGraph update(IncrementalGraph current, GraphConfig next) throws GraphStateException {
+        GraphConfigDiff diff = GraphConfigDiff.between(current.config(), next);
+        if (diff.isEmpty()) {
+            return new IncrementalGraph(next, current.graph(), current.slots(), current.routes(), diff, false);
+        }
+
+        Map<String, NodeConfig> nodes = new HashMap<>();
+        next.getNodes().forEach(node -> nodes.put(node.getId(), node));
+
+        // 复制包装器表，变化的节点去掉后由 assemble 新建，旧版本持有的表和包装器保持不变
+        Map<String, NodeSlot> slots = new HashMap<>(current.slots());
+        slots.keySet().retainAll(nodes.keySet());
+        slots.keySet().removeAll(diff.changedNodes());
+        if (diff.schemaChanged()) {
+            // appender 字段变化会影响复合节点的合并方式
+            slots.values().removeIf(NodeSlot::isFused);
+        }
+        int reusedNodes = slots.size();
+        Map<ConditionalEdgeConfig, EdgeRoute> routes = new HashMap<>(current.routes());
+        routes.keySet().retainAll(new HashSet<>(next.getConditionalEdges()));
+        int reusedRoutes = routes.size();
+
+        CompiledGraph<DynamicAgentState> graph = assemble(next, slots, routes);
+        log.info("Graph {} rebuilt incrementally: {}/{} node wrappers and {}/{} routes reused",
+            next.getName(), reusedNodes, nodes.size(), reusedRoutes, next.getConditionalEdges().size());
+        return new IncrementalGraph(next, graph, slots, routes, diff, true);
+    }
+
+    /**
+     * 组装并编译图；slots / routes 中已有的节点包装器和条件路由直接复用，缺失的新建并写回
+     */
+    private CompiledGraph<DynamicAgentState> assemble(GraphConfig config,
+                                                      Map<String, NodeSlot> slots,
+                                                      Map<ConditionalEdgeConfig, EdgeRoute> routes)
+            throws GraphStateException {
 
         // 根据配置动态构建 Schema
         Map<String, Channel<?>> schema = buildSchema(config);
@@ -66,37 +164,122 @@ public class DynamicGraphBuilder {
 
         // 添加节点
         for (NodeConfig nodeConfig : config.getNodes()) {
-            addNode(stateGraph, nodeConfig);
+            NodeSlot slot = slots.get(nodeConfig.getId());
+            if (slot == null) {
+                slot = new NodeSlot(nodeConfig.getId(), resolveAction(nodeConfig, schema), nodeConfig.getFusedNodes() != null);
+                slots.put(nodeConfig.getId(), slot);
+            }
+            stateGraph.addNode(nodeConfig.getId(), slot.wrapper());
         }
 
         // 添加边
-        addEdges(stateGraph, config);
+        addEdges(stateGraph, config, routes);
 
         return stateGraph.compile();
     }
 
+    /**
+     * 先剪枝、再做链融合优化，最后构建图
+     */
+    public CompiledGraph<DynamicAgentState> buildOptimized(GraphConfig config, Set<String> interruptNodes)
+            throws GraphStateException {
+        log.info("Building optimized graph: {}", config.getName());
+        FusionResult<GraphConfig> fusion = new ChainFusionOptimizer(nodeRegistry).optimize(prune(config), interruptNodes);
+        log.info("Chain fusion: {} -> {} steps eliminated per run", fusion.fusedChains(), fusion.eliminatedSteps());
+        return assemble(fusion.config(), new HashMap<>(), new HashMap<>());
+    }
+
     /**
      * 从 JSON 构建图
      */
     public CompiledGraph<DynamicAgentState> buildFromJson(String json) throws Exception {
-        GraphConfig config = objectMapper.readValue(json, GraphConfig.class);
-        return build(config);
+        return build(parseConfig(json));
     }
 
-    private void addNode(StateGraph<DynamicAgentState> stateGraph, NodeConfig nodeConfig)
-            throws GraphStateException {
-        
-        String nodeId = nodeConfig.getId();
-        NodeAction<AgentState> nodeAction = nodeRegistry.get(nodeConfig.getComponentType());
-        
-        stateGraph.addNode(nodeId, node_async(state -> {
-            log.debug("[{}] executing", nodeId);
-            return nodeAction.apply(state);
-        }));
+    /**
+     * 解析 JSON 配置（流式绑定 + 校验）
+     *
+     * @throws IllegalArgumentException 节点缺字段、ID 重复、边指向不存在的节点等结构错误，在解析时即报告
+     */
+    public GraphConfig parseConfig(String json) throws Exception {
+        return new StreamingGraphConfigReader(objectMapper).read(json);
     }
 
-    private void addEdges(StateGraph<DynamicAgentState> stateGraph, GraphConfig config)
-            throws GraphStateException {
+    /**
+     * 从输入流解析配置，format 为 null 时按文件头识别 JSON / CBOR / Smile
+     */
+    public GraphConfig parseConfig(InputStream in, ConfigFormat format) throws IOException {
+        return new StreamingGraphConfigReader(objectMapper).read(in, format);
+    }
+
+    private NodeAction<AgentState> resolveAction(NodeConfig nodeConfig, Map<String, Channel<?>> schema) {
+        return nodeConfig.getFusedNodes() != null
+            ? fusedAction(nodeConfig.getFusedNodes(), schema)
+            : nodeRegistry.get(nodeConfig);
+    }
+
+    /**
+     * 节点包装器：注册到 StateGraph 的 AsyncNodeAction 和内部 Action 一起创建、之后不再变化，
+     * 可以在多个版本的编译图之间安全共享
+     */
+    static final class NodeSlot {
+        private final boolean fused;
+        private final AsyncNodeAction<DynamicAgentState> wrapper;
+        private final NodeAction<AgentState> action;
+
+        NodeSlot(String nodeId, NodeAction<AgentState> action, boolean fused) {
+            this.action = action;
+            this.fused = fused;
+            this.wrapper = node_async(state -> {
+                log.debug("[{}] executing", nodeId);
+                return action.apply(state);
+            });
+        }
+
+        AsyncNodeAction<DynamicAgentState> wrapper() {
+            return wrapper;
+        }
+
+        NodeAction<AgentState> action() {
+            return action;
+        }
+
+        boolean isFused() {
+            return fused;
+        }
+    }
+
+    /**
+     * 预编译的条件路由：路由函数 + 路由 key 到目标节点的映射
+     */
+    record EdgeRoute(AsyncEdgeAction<DynamicAgentState> action, Map<String, String> mappings) {
+    }
+
+    /**
+     * 复合节点：按顺序执行原节点，普通字段覆盖、appender 字段追加，最后只返回一次合并后的更新
+     */
+    private NodeAction<AgentState> fusedAction(List<NodeConfig> steps, Map<String, Channel<?>> schema) {
+        List<NodeAction<AgentState>> actions = new ArrayList<>();
+        for (NodeConfig step : steps) {
+            actions.add(nodeRegistry.get(step));
+        }
+        Set<String> appenderKeys = new HashSet<>();
+        schema.forEach((key, channel) -> {
+            if (channel instanceof AppenderChannel) {
+                appenderKeys.add(key);
+            }
+        });
+        return state -> {
+            FusedUpdates updates = new FusedUpdates(appenderKeys, state.data());
+            for (NodeAction<AgentState> action : actions) {
+                updates.apply(action.apply(new DynamicAgentState(updates.state())));
+            }
+            return updates.result();
+        };
+    }
+
+    private void addEdges(StateGraph<DynamicAgentState> stateGraph, GraphConfig config,
+                          Map<ConditionalEdgeConfig, EdgeRoute> routes) throws GraphStateException {
         
         // 入口边
         stateGraph.addEdge(START, config.getEntryNode());
@@ -108,28 +291,37 @@ public class DynamicGraphBuilder {
 
         // 条件边 - addConditionalEdges(from, condition, routes)
         for (ConditionalEdgeConfig edge : config.getConditionalEdges()) {
-            addConditionalEdge(stateGraph, edge);
+            EdgeRoute route = routes.get(edge);
+            if (route == null) {
+                route = conditionalRoute(edge);
+                routes.put(edge, route);
+            }
+            stateGraph.addConditionalEdges(edge.getFrom(), route.action(), route.mappings());
         }
     }
 
-    private void addConditionalEdge(StateGraph<DynamicAgentState> stateGraph, 
-                                    ConditionalEdgeConfig edge) throws GraphStateException {
+    private EdgeRoute conditionalRoute(ConditionalEdgeConfig edge) {
         
-        String from = edge.getFrom();
         String conditionKey = edge.getConditionKey();
         Map<String, String> routes = edge.getRoutes();
         String defaultTarget = edge.getDefaultTarget();
         
         // 标准化路由目标
         Map<String, String> normalizedRoutes = new HashMap<>();
-        routes.forEach((k, v) -> normalizedRoutes.put(k, normalizeTarget(v)));
+        if (routes != null) {
+            routes.forEach((k, v) -> normalizedRoutes.put(k, normalizeTarget(v)));
+        }
         
         if (defaultTarget != null) {
             normalizedRoutes.put("__default__", normalizeTarget(defaultTarget));
         }
 
-        stateGraph.addConditionalEdges(
-            from,
+        List<ConditionalEdgeConfig.ConditionBranch> branches = edge.getConditions();
+        if (branches != null && !branches.isEmpty()) {
+            return expressionRoute(branches, normalizedRoutes);
+        }
+
+        return new EdgeRoute(
             edge_async(state -> {
                 String value = state.getString(conditionKey);
                 return normalizedRoutes.containsKey(value) ? value : "__default__";
@@ -138,6 +330,36 @@ public class DynamicGraphBuilder {
         );
     }
 
+    /**
+     * 表达式分支：构建期编译全部表达式，运行期按顺序求值
+     * 分支的路由 key 为 "__branch_i__"，与 routes 的条件值互不冲突
+     */
+    private EdgeRoute expressionRoute(List<ConditionalEdgeConfig.ConditionBranch> branches,
+                                      Map<String, String> normalizedRoutes) {
+
+        CompiledExpression[] expressions = new CompiledExpression[branches.size()];
+        String[] routeKeys = new String[branches.size()];
+        for (int i = 0; i < branches.size(); i++) {
+            ConditionalEdgeConfig.ConditionBranch branch = branches.get(i);
+            expressions[i] = ExpressionCompiler.compile(branch.getWhen());
+            routeKeys[i] = "__branch_" + i + "__";
+            normalizedRoutes.put(routeKeys[i], normalizeTarget(branch.getTarget()));
+        }
+        String fallback = normalizedRoutes.containsKey("__default__") ? "__default__" : routeKeys[routeKeys.length - 1];
+
+        return new EdgeRoute(
+            edge_async(state -> {
+                for (int i = 0; i < expressions.length; i++) {
+                    if (expressions[i].test(state)) {
+                        return routeKeys[i];
+                    }
+                }
+                return fallback;
+            }),
+            normalizedRoutes
+        );
+    }
+
     private String normalizeTarget(String target) {
         if (target == null || "__end__".equals(target) || "END".equals(target)) {
             return END;
@@ -164,8 +386,11 @@ public class DynamicGraphBuilder {
             String type = fieldConfig.getType();
             if ("appender".equals(type)) {
                 schema.put(fieldName, Channels.appender(ArrayList::new));
+            } else if (fieldConfig.getDefaultValue() != null) {
+                Object defaultValue = fieldConfig.getDefaultValue();
+                schema.put(fieldName, Channels.base(() -> defaultValue));
             }
-            // "value" 类型不需要显式定义 Channel，LangGraph4j 默认就是覆盖模式
+            // "value" 类型不需要显式定义 Channel，LangGraph4j 默认就是覆盖模式；有默认值时才声明
         });
 
         return schema;
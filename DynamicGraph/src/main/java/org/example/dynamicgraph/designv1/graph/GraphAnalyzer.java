@@ -0,0 +1,498 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.action.NodeAction;
+import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.analysis.GraphAnalysisReport;
+import org.example.dynamicgraph.analysis.PruneResult;
+import org.example.dynamicgraph.analysis.Reachability;
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.edge.EdgeConfig;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+import org.example.dynamicgraph.designv1.node.NodeRegistry;
+import org.example.dynamicgraph.designv1.node.StateAccess;
+import org.example.dynamicgraph.expression.CompiledExpression;
+import org.example.dynamicgraph.expression.ExpressionCompiler;
+import org.example.dynamicgraph.optimizer.LinearChains.Link;
+import org.example.dynamicgraph.scope.NodeScope;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * GraphConfig 静态分析与剪枝
+ *
+ * - 不可达节点：从入口不可达，直接删除
+ * - 死胡同：可达但到不了 END，只报告
+ * - 常量条件：表达式分支编译为恒真/恒假，删除永远不会命中的分支，只剩一个目标时退化为普通边
+ * - 无效写入：实现 StateAccess、且在 NodeRegistry 登记为无副作用的节点，写入的字段在被读取（或图结束）前都被覆盖，
+ *   只有一条出边时可以直接绕过
+ * - 常量折叠（可选）：入口处只写常量的节点折叠为 stateSchema 默认值
+ *
+ * 字段活跃性按 StateAccess 声明做后向数据流分析；未声明的节点、PER_GRAPH 节点和表达式条件按"读取全部字段"保守处理
+ */
+@Slf4j
+public class GraphAnalyzer {
+
+    private static final String START_ID = "__start__";
+    private static final String END_ID = "__end__";
+
+    private final NodeRegistry nodeRegistry;
+
+    public GraphAnalyzer(NodeRegistry nodeRegistry) {
+        this.nodeRegistry = nodeRegistry;
+    }
+
+    public GraphAnalysisReport analyze(GraphConfig config) {
+        return new Analysis(config).report();
+    }
+
+    /**
+     * 剪枝
+     *
+     * 常量折叠会把入口处的常量写入变成字段默认值：调用方在输入里显式传入同名字段时，
+     * 原图会被节点覆盖、折叠后以输入为准，因此需要显式开启
+     *
+     * @param foldConstants 是否把入口常量折叠进 stateSchema 默认值
+     */
+    public PruneResult<GraphConfig> prune(GraphConfig config, boolean foldConstants) {
+        Analysis first = new Analysis(config);
+        GraphConfig current = config;
+        Analysis analysis = first;
+
+        // 删除一个节点可能让上游写入变为无效，迭代到不动点
+        for (int round = 0; round <= config.getNodes().size(); round++) {
+            GraphConfig next = analysis.removeDeadNodes();
+            if (next == null) {
+                break;
+            }
+            current = next;
+            analysis = new Analysis(current);
+        }
+        if (foldConstants) {
+            current = analysis.foldConstants();
+        }
+
+        int removedNodes = config.getNodes().size() - current.getNodes().size();
+        int removedEdges = edgeCount(config) - edgeCount(current);
+        log.debug("Pruned graph {}: {} nodes, {} edges/branches removed, report={}",
+            config.getId(), removedNodes, removedEdges, first.report());
+        return new PruneResult<>(current, first.report(), removedNodes, removedEdges);
+    }
+
+    private static int edgeCount(GraphConfig config) {
+        int count = config.getEdges().size();
+        for (ConditionalEdgeConfig edge : config.getConditionalEdges()) {
+            count += Math.max(1, edge.getConditions() == null ? 0 : edge.getConditions().size());
+        }
+        return count;
+    }
+
+    private static String normalize(String target) {
+        if (target == null || "END".equals(target) || END_ID.equals(target)) {
+            return END_ID;
+        }
+        return target;
+    }
+
+    /**
+     * 单个配置的分析结果
+     */
+    private final class Analysis {
+
+        private final GraphConfig config;
+        private final Map<String, NodeConfig> nodes = new LinkedHashMap<>();
+        private final Set<String> appenderKeys = new HashSet<>();
+
+        /** 化简后的条件边 / 退化出的普通边 */
+        private final List<ConditionalEdgeConfig> conditionalEdges = new ArrayList<>();
+        private final List<EdgeConfig> edges = new ArrayList<>();
+        private final List<String> constantConditions = new ArrayList<>();
+        private boolean edgesSimplified;
+
+        private final List<Link> links = new ArrayList<>();
+        private final Set<String> reachable;
+        private final Set<String> reachesEnd;
+        private final Map<String, Set<String>> liveOut = new HashMap<>();
+        private final Set<String> allKeys = new HashSet<>();
+        private final Map<String, StateAccess> accesses = new HashMap<>();
+
+        Analysis(GraphConfig config) {
+            this.config = config;
+            config.getNodes().forEach(node -> nodes.put(node.getId(), node));
+            collectAppenders();
+            edges.addAll(config.getEdges());
+            config.getConditionalEdges().forEach(this::simplify);
+
+            links.add(new Link(START_ID, normalize(config.getEntryNode()), false));
+            edges.forEach(edge -> links.add(new Link(edge.getFrom(), normalize(edge.getTo()), false)));
+            for (ConditionalEdgeConfig edge : conditionalEdges) {
+                for (String target : liveTargets(edge)) {
+                    links.add(new Link(edge.getFrom(), normalize(target), true));
+                }
+            }
+            reachable = Reachability.forward(START_ID, links);
+            reachesEnd = Reachability.backward(END_ID, links);
+            computeLiveness();
+        }
+
+        private void collectAppenders() {
+            Map<String, GraphConfig.StateFieldConfig> schema = config.getStateSchema();
+            if (schema == null || schema.isEmpty()) {
+                appenderKeys.add("messages");
+                return;
+            }
+            schema.forEach((key, field) -> {
+                if ("appender".equals(field.getType())) {
+                    appenderKeys.add(key);
+                }
+            });
+        }
+
+        /**
+         * 表达式分支：ALWAYS 之后的分支和默认目标被遮蔽，NEVER 分支（除非是兜底分支）永远不会命中
+         */
+        private void simplify(ConditionalEdgeConfig edge) {
+            List<ConditionalEdgeConfig.ConditionBranch> branches = edge.getConditions();
+            if (branches == null || branches.isEmpty()) {
+                conditionalEdges.add(edge);
+                return;
+            }
+            List<ConditionalEdgeConfig.ConditionBranch> live = new ArrayList<>();
+            boolean shadowed = false;
+            for (int i = 0; i < branches.size(); i++) {
+                ConditionalEdgeConfig.ConditionBranch branch = branches.get(i);
+                boolean fallback = edge.getDefaultTarget() == null && i == branches.size() - 1;
+                CompiledExpression expression = ExpressionCompiler.compile(branch.getWhen());
+                if (shadowed) {
+                    constantConditions.add(describe(edge, branch, "SHADOWED"));
+                } else if (expression == CompiledExpression.ALWAYS) {
+                    constantConditions.add(describe(edge, branch, "ALWAYS"));
+                    live.add(branch);
+                    shadowed = true;
+                } else if (expression == CompiledExpression.NEVER && !fallback) {
+                    constantConditions.add(describe(edge, branch, "NEVER"));
+                } else {
+                    live.add(branch);
+                }
+            }
+            String defaultTarget = shadowed ? null : edge.getDefaultTarget();
+
+            Set<String> targets = new LinkedHashSet<>();
+            live.forEach(branch -> targets.add(branch.getTarget()));
+            if (defaultTarget != null) {
+                targets.add(defaultTarget);
+            }
+            if (targets.size() == 1) {
+                edges.add(GraphConfigs.edge(edge.getFrom(), targets.iterator().next()));
+                edgesSimplified = true;
+                return;
+            }
+            if (live.size() == branches.size() && defaultTarget == edge.getDefaultTarget()) {
+                conditionalEdges.add(edge);
+                return;
+            }
+            edgesSimplified = true;
+            ConditionalEdgeConfig simplified = GraphConfigs.rename(edge, id -> id);
+            simplified.setConditions(live);
+            simplified.setDefaultTarget(defaultTarget);
+            conditionalEdges.add(simplified);
+        }
+
+        private String describe(ConditionalEdgeConfig edge, ConditionalEdgeConfig.ConditionBranch branch, String kind) {
+            return edge.getFrom() + ": " + branch.getWhen() + " -> " + branch.getTarget() + " (" + kind + ")";
+        }
+
+        /**
+         * 条件边实际可能走到的目标：有表达式分支时 routes 不参与路由
+         */
+        private List<String> liveTargets(ConditionalEdgeConfig edge) {
+            List<String> targets = new ArrayList<>();
+            if (edge.getConditions() != null && !edge.getConditions().isEmpty()) {
+                edge.getConditions().forEach(branch -> targets.add(branch.getTarget()));
+            } else if (edge.getRoutes() != null) {
+                targets.addAll(edge.getRoutes().values());
+            }
+            if (edge.getDefaultTarget() != null) {
+                targets.add(edge.getDefaultTarget());
+            }
+            return targets;
+        }
+
+        // ==================== 字段活跃性 ====================
+
+        /**
+         * 节点声明的读写集合，未知时返回 null（按读取全部字段、不覆盖任何字段处理）
+         * PER_GRAPH 类型每次 get 都会新建实例，不为分析而创建，直接按未知处理；
+         * 单例和按参数享元的实例本来就会被构建复用，查到的结果按节点缓存
+         */
+        private StateAccess access(String nodeId) {
+            if (accesses.containsKey(nodeId)) {
+                return accesses.get(nodeId);
+            }
+            NodeConfig node = nodes.get(nodeId);
+            StateAccess access = null;
+            if (node != null && node.getFusedNodes() == null && nodeRegistry.contains(node.getComponentType())
+                    && nodeRegistry.getScope(node.getComponentType()) != NodeScope.PER_GRAPH) {
+                NodeAction<AgentState> action = nodeRegistry.get(node);
+                access = action instanceof StateAccess stateAccess ? stateAccess : null;
+            }
+            accesses.put(nodeId, access);
+            return access;
+        }
+
+        private boolean sideEffectFree(String nodeId) {
+            NodeConfig node = nodes.get(nodeId);
+            return node != null && nodeRegistry.isSideEffectFree(node.getComponentType());
+        }
+
+        private Set<String> reads(String nodeId) {
+            StateAccess access = access(nodeId);
+            return access == null ? allKeys : access.reads();
+        }
+
+        private Set<String> kills(String nodeId) {
+            StateAccess access = access(nodeId);
+            if (access == null) {
+                return Set.of();
+            }
+            Set<String> kills = new HashSet<>(access.writes());
+            kills.removeAll(appenderKeys);
+            return kills;
+        }
+
+        private Set<String> conditionReads(String nodeId) {
+            Set<String> reads = new HashSet<>();
+            for (ConditionalEdgeConfig edge : conditionalEdges) {
+                if (!nodeId.equals(edge.getFrom())) {
+                    continue;
+                }
+                if (edge.getConditions() != null && !edge.getConditions().isEmpty()) {
+                    reads.addAll(allKeys);
+                } else if (edge.getConditionKey() != null) {
+                    reads.add(edge.getConditionKey());
+                }
+            }
+            return reads;
+        }
+
+        private void computeLiveness() {
+            for (String id : nodes.keySet()) {
+                StateAccess access = access(id);
+                if (access != null) {
+                    allKeys.addAll(access.writes());
+                }
+            }
+            allKeys.removeAll(appenderKeys);
+
+            Map<String, List<String>> successors = new HashMap<>();
+            for (Link link : links) {
+                successors.computeIfAbsent(link.from(), k -> new ArrayList<>()).add(link.to());
+            }
+
+            Map<String, Set<String>> liveIn = new HashMap<>();
+            liveIn.put(END_ID, allKeys);
+            boolean changed = true;
+            while (changed) {
+                changed = false;
+                for (String id : nodes.keySet()) {
+                    Set<String> out = new HashSet<>(conditionReads(id));
+                    for (String next : successors.getOrDefault(id, List.of())) {
+                        out.addAll(liveIn.getOrDefault(next, nodes.containsKey(next) ? Set.of() : allKeys));
+                    }
+                    Set<String> in = new HashSet<>(out);
+                    in.removeAll(kills(id));
+                    in.addAll(reads(id));
+                    if (!in.equals(liveIn.get(id)) || !out.equals(liveOut.get(id))) {
+                        liveIn.put(id, in);
+                        liveOut.put(id, out);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        private Set<String> deadWriteNodes() {
+            Set<String> dead = new LinkedHashSet<>();
+            for (String id : nodes.keySet()) {
+                StateAccess access = access(id);
+                if (access == null || !reachable.contains(id) || !sideEffectFree(id)) {
+                    continue;
+                }
+                Set<String> writes = access.writes();
+                if (writes.isEmpty() || writes.stream().anyMatch(appenderKeys::contains)) {
+                    continue;
+                }
+                if (writes.stream().noneMatch(liveOut.getOrDefault(id, Set.of())::contains)) {
+                    dead.add(id);
+                }
+            }
+            return dead;
+        }
+
+        // ==================== 常量折叠 ====================
+
+        /**
+         * 入口处连续的常量写入节点：只有 START 一条入边、只有一条普通出边
+         */
+        private List<String> constantPrefix() {
+            List<String> prefix = new ArrayList<>();
+            String current = normalize(config.getEntryNode());
+            Set<String> visited = new HashSet<>();
+            while (nodes.containsKey(current) && visited.add(current)) {
+                StateAccess access = access(current);
+                if (access == null || !sideEffectFree(current) || access.constantWrites().isEmpty()
+                        || !access.constantWrites().keySet().equals(access.writes())
+                        || access.writes().stream().anyMatch(appenderKeys::contains)
+                        || incoming(current) != 1) {
+                    break;
+                }
+                String next = soleSuccessor(current);
+                if (next == null || END_ID.equals(next)) {
+                    break;
+                }
+                prefix.add(current);
+                current = next;
+            }
+            return prefix;
+        }
+
+        private Map<String, Object> foldableConstants() {
+            Map<String, Object> constants = new LinkedHashMap<>();
+            for (String id : constantPrefix()) {
+                constants.putAll(access(id).constantWrites());
+            }
+            return constants;
+        }
+
+        private long incoming(String nodeId) {
+            return links.stream().filter(link -> link.to().equals(nodeId)).count();
+        }
+
+        /**
+         * 唯一的普通出边目标；有条件边或多条出边时返回 null
+         */
+        private String soleSuccessor(String nodeId) {
+            List<Link> out = links.stream().filter(link -> link.from().equals(nodeId)).toList();
+            if (out.size() != 1 || out.get(0).conditional() || out.get(0).to().equals(nodeId)) {
+                return null;
+            }
+            return out.get(0).to();
+        }
+
+        GraphAnalysisReport report() {
+            Set<String> unreachable = new LinkedHashSet<>();
+            Set<String> deadEnds = new LinkedHashSet<>();
+            for (String id : nodes.keySet()) {
+                if (!reachable.contains(id)) {
+                    unreachable.add(id);
+                } else if (!reachesEnd.contains(id)) {
+                    deadEnds.add(id);
+                }
+            }
+            return new GraphAnalysisReport(unreachable, deadEnds, List.copyOf(constantConditions),
+                deadWriteNodes(), foldableConstants());
+        }
+
+        // ==================== 改写 ====================
+
+        /**
+         * 删除不可达节点、绕过可删除的无效写入节点、落地化简后的条件边
+         *
+         * @return 改写后的配置；没有任何可删除内容时返回 null
+         */
+        GraphConfig removeDeadNodes() {
+            Map<String, String> bypass = new HashMap<>();
+            for (String id : deadWriteNodes()) {
+                String next = soleSuccessor(id);
+                boolean isEntryToEnd = id.equals(config.getEntryNode()) && END_ID.equals(next);
+                if (next != null && !isEntryToEnd) {
+                    bypass.put(id, next);
+                }
+            }
+            Set<String> removed = new HashSet<>(bypass.keySet());
+            for (String id : nodes.keySet()) {
+                if (!reachable.contains(id)) {
+                    removed.add(id);
+                }
+            }
+            if (removed.isEmpty() && !edgesSimplified) {
+                return null;
+            }
+
+            GraphConfig pruned = GraphConfigs.shell(config);
+            pruned.setEntryNode(resolve(config.getEntryNode(), bypass));
+            for (NodeConfig node : config.getNodes()) {
+                if (!removed.contains(node.getId())) {
+                    pruned.getNodes().add(node);
+                }
+            }
+            for (EdgeConfig edge : edges) {
+                if (!removed.contains(edge.getFrom())) {
+                    pruned.getEdges().add(GraphConfigs.edge(edge.getFrom(), resolve(edge.getTo(), bypass)));
+                }
+            }
+            for (ConditionalEdgeConfig edge : conditionalEdges) {
+                if (!removed.contains(edge.getFrom())) {
+                    pruned.getConditionalEdges().add(GraphConfigs.rename(edge, id -> resolve(id, bypass)));
+                }
+            }
+            return pruned;
+        }
+
+        private String resolve(String id, Map<String, String> bypass) {
+            String current = id;
+            Set<String> seen = new HashSet<>();
+            while (current != null && bypass.containsKey(current) && seen.add(current)) {
+                current = bypass.get(current);
+            }
+            return current;
+        }
+
+        /**
+         * 把入口常量写入折叠为 stateSchema 默认值，入口后移
+         */
+        GraphConfig foldConstants() {
+            List<String> prefix = constantPrefix();
+            if (prefix.isEmpty()) {
+                return config;
+            }
+            Map<String, GraphConfig.StateFieldConfig> schema = new LinkedHashMap<>();
+            if (config.getStateSchema() == null || config.getStateSchema().isEmpty()) {
+                // 保持默认 Schema 中 messages 的 appender 语义
+                GraphConfig.StateFieldConfig messages = new GraphConfig.StateFieldConfig();
+                messages.setType("appender");
+                schema.put("messages", messages);
+            } else {
+                schema.putAll(config.getStateSchema());
+            }
+            foldableConstants().forEach((key, value) -> {
+                GraphConfig.StateFieldConfig field = new GraphConfig.StateFieldConfig();
+                field.setDefaultValue(value);
+                schema.put(key, field);
+            });
+
+            GraphConfig folded = GraphConfigs.shell(config);
+            folded.setStateSchema(schema);
+            folded.setEntryNode(soleSuccessor(prefix.get(prefix.size() - 1)));
+            for (NodeConfig node : config.getNodes()) {
+                if (!prefix.contains(node.getId())) {
+                    folded.getNodes().add(node);
+                }
+            }
+            for (EdgeConfig edge : config.getEdges()) {
+                if (!prefix.contains(edge.getFrom())) {
+                    folded.getEdges().add(edge);
+                }
+            }
+            folded.getConditionalEdges().addAll(config.getConditionalEdges());
+            return folded;
+        }
+    }
+}
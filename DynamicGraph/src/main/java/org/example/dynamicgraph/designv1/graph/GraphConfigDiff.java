@@ -0,0 +1,126 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.edge.EdgeConfig;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * 两个 GraphConfig 版本之间的最小差异
+ *
+ * @param addedNodes    新增节点
+ * @param removedNodes  删除节点
+ * @param changedNodes  ID 不变但组件类型、参数或复合节点内容变化的节点；只改描述不算变化
+ * @param rewiredNodes  出边（普通边或条件边）变化的源节点
+ * @param entryChanged  入口节点变化
+ * @param schemaChanged State Schema 变化
+ */
+public record GraphConfigDiff(Set<String> addedNodes,
+                              Set<String> removedNodes,
+                              Set<String> changedNodes,
+                              Set<String> rewiredNodes,
+                              boolean entryChanged,
+                              boolean schemaChanged) {
+
+    public static GraphConfigDiff between(GraphConfig before, GraphConfig after) {
+        Map<String, Object> oldNodes = behaviors(before);
+        Map<String, Object> newNodes = behaviors(after);
+
+        Set<String> added = new HashSet<>(newNodes.keySet());
+        added.removeAll(oldNodes.keySet());
+        Set<String> removed = new HashSet<>(oldNodes.keySet());
+        removed.removeAll(newNodes.keySet());
+        Set<String> changed = new HashSet<>();
+        newNodes.forEach((id, behavior) -> {
+            if (oldNodes.containsKey(id) && !oldNodes.get(id).equals(behavior)) {
+                changed.add(id);
+            }
+        });
+
+        Map<String, Object> oldEdges = outgoing(before);
+        Map<String, Object> newEdges = outgoing(after);
+        Set<String> rewired = new HashSet<>();
+        Set<String> sources = new HashSet<>(oldEdges.keySet());
+        sources.addAll(newEdges.keySet());
+        for (String source : sources) {
+            if (!Objects.equals(oldEdges.get(source), newEdges.get(source))) {
+                rewired.add(source);
+            }
+        }
+
+        return new GraphConfigDiff(Set.copyOf(added), Set.copyOf(removed), Set.copyOf(changed), Set.copyOf(rewired),
+            !Objects.equals(before.getEntryNode(), after.getEntryNode()),
+            !Objects.equals(before.getStateSchema(), after.getStateSchema()));
+    }
+
+    public boolean isEmpty() {
+        return changedNodes.isEmpty() && !topologyChanged();
+    }
+
+    /**
+     * 是否需要重新组装 StateGraph（节点集合、边、入口或 Schema 变化）
+     */
+    public boolean topologyChanged() {
+        return !addedNodes.isEmpty() || !removedNodes.isEmpty() || !rewiredNodes.isEmpty()
+            || entryChanged || schemaChanged;
+    }
+
+    /**
+     * 受影响的节点：需要新建包装器或改变连接的节点
+     */
+    public Set<String> affectedNodes() {
+        Set<String> affected = new HashSet<>(addedNodes);
+        affected.addAll(changedNodes);
+        affected.addAll(rewiredNodes);
+        return affected;
+    }
+
+    /**
+     * 节点行为：组件类型 + 参数；复合节点为按顺序的原节点行为列表
+     */
+    private static Map<String, Object> behaviors(GraphConfig config) {
+        Map<String, Object> behaviors = new HashMap<>();
+        for (NodeConfig node : config.getNodes()) {
+            behaviors.put(node.getId(), behavior(node));
+        }
+        return behaviors;
+    }
+
+    private static Object behavior(NodeConfig node) {
+        if (node.getFusedNodes() == null) {
+            return Arrays.asList(node.getComponentType(), node.getParams() == null ? Map.of() : node.getParams());
+        }
+        List<Object> steps = new ArrayList<>();
+        node.getFusedNodes().forEach(step -> steps.add(behavior(step)));
+        return steps;
+    }
+
+    /**
+     * 源节点 -> [普通边目标集合, 条件边列表]；条件边保持声明顺序
+     */
+    private static Map<String, Object> outgoing(GraphConfig config) {
+        Map<String, Set<String>> plain = new HashMap<>();
+        for (EdgeConfig edge : config.getEdges()) {
+            plain.computeIfAbsent(edge.getFrom(), k -> new HashSet<>()).add(edge.getTo());
+        }
+        Map<String, List<ConditionalEdgeConfig>> conditional = new HashMap<>();
+        for (ConditionalEdgeConfig edge : config.getConditionalEdges()) {
+            conditional.computeIfAbsent(edge.getFrom(), k -> new ArrayList<>()).add(edge);
+        }
+        Map<String, Object> outgoing = new HashMap<>();
+        Set<String> sources = new HashSet<>(plain.keySet());
+        sources.addAll(conditional.keySet());
+        for (String source : sources) {
+            outgoing.put(source, List.of(plain.getOrDefault(source, Set.of()), conditional.getOrDefault(source, List.of())));
+        }
+        return outgoing;
+    }
+}
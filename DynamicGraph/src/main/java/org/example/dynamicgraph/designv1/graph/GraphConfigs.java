@@ -0,0 +1,121 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.edge.EdgeConfig;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+/**
+ * GraphConfig 改写工具（优化/剪枝 Pass 共用）
+ */
+final class GraphConfigs {
+
+    private GraphConfigs() {
+    }
+
+    static EdgeConfig edge(String from, String to) {
+        EdgeConfig edge = new EdgeConfig();
+        edge.setFrom(from);
+        edge.setTo(to);
+        return edge;
+    }
+
+    /**
+     * 复制条件边，源节点和所有目标节点经过 rename 映射
+     */
+    static ConditionalEdgeConfig rename(ConditionalEdgeConfig edge, UnaryOperator<String> rename) {
+        ConditionalEdgeConfig copy = new ConditionalEdgeConfig();
+        copy.setFrom(rename.apply(edge.getFrom()));
+        copy.setConditionKey(edge.getConditionKey());
+        if (edge.getRoutes() != null) {
+            Map<String, String> routes = new LinkedHashMap<>();
+            edge.getRoutes().forEach((value, target) -> routes.put(value, rename.apply(target)));
+            copy.setRoutes(routes);
+        }
+        if (edge.getConditions() != null) {
+            List<ConditionalEdgeConfig.ConditionBranch> branches = new ArrayList<>();
+            for (ConditionalEdgeConfig.ConditionBranch branch : edge.getConditions()) {
+                branches.add(branch(branch.getWhen(), rename.apply(branch.getTarget())));
+            }
+            copy.setConditions(branches);
+        }
+        copy.setDefaultTarget(edge.getDefaultTarget() == null ? null : rename.apply(edge.getDefaultTarget()));
+        return copy;
+    }
+
+    static ConditionalEdgeConfig.ConditionBranch branch(String when, String target) {
+        ConditionalEdgeConfig.ConditionBranch branch = new ConditionalEdgeConfig.ConditionBranch();
+        branch.setWhen(when);
+        branch.setTarget(target);
+        return branch;
+    }
+
+    /**
+     * 复制 GraphConfig 的基本信息（不含节点和边）
+     */
+    static GraphConfig shell(GraphConfig config) {
+        GraphConfig copy = new GraphConfig();
+        copy.setId(config.getId());
+        copy.setName(config.getName());
+        copy.setEntryNode(config.getEntryNode());
+        copy.setStateSchema(config.getStateSchema());
+        return copy;
+    }
+
+    /**
+     * 结构校验：图 ID、入口节点存在，所有边的端点都是已声明的节点或 END
+     *
+     * @throws IllegalArgumentException 列出全部问题
+     */
+    static void validate(GraphConfig config) {
+        List<String> errors = new ArrayList<>();
+        if (config.getId() == null || config.getId().isBlank()) {
+            errors.add("缺少图 ID");
+        }
+        Set<String> nodeIds = new HashSet<>();
+        for (NodeConfig node : config.getNodes()) {
+            if (node.getFusedNodes() == null && node.getComponentType() == null) {
+                errors.add("节点缺少 componentType: " + node.getId());
+            }
+            if (!nodeIds.add(node.getId())) {
+                errors.add("节点 ID 重复: " + node.getId());
+            }
+        }
+        if (!nodeIds.contains(config.getEntryNode())) {
+            errors.add("入口节点不存在: " + config.getEntryNode());
+        }
+        for (EdgeConfig edge : config.getEdges()) {
+            checkEndpoint(edge.getFrom(), nodeIds, false, errors);
+            checkEndpoint(edge.getTo(), nodeIds, true, errors);
+        }
+        for (ConditionalEdgeConfig edge : config.getConditionalEdges()) {
+            checkEndpoint(edge.getFrom(), nodeIds, false, errors);
+            if (edge.getRoutes() != null) {
+                edge.getRoutes().values().forEach(target -> checkEndpoint(target, nodeIds, true, errors));
+            }
+            if (edge.getConditions() != null) {
+                edge.getConditions().forEach(branch -> checkEndpoint(branch.getTarget(), nodeIds, true, errors));
+            }
+            if (edge.getDefaultTarget() != null) {
+                checkEndpoint(edge.getDefaultTarget(), nodeIds, true, errors);
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalArgumentException("Invalid graph config " + config.getId() + ": " + errors);
+        }
+    }
+
+    private static void checkEndpoint(String id, Set<String> nodeIds, boolean allowEnd, List<String> errors) {
+        boolean isEnd = id == null || "END".equals(id) || "__end__".equals(id);
+        if (isEnd ? !allowEnd : !nodeIds.contains(id)) {
+            errors.add("未知节点: " + id);
+        }
+    }
+}
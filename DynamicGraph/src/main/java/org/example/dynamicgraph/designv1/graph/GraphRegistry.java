@@ -4,16 +4,46 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphStateException;
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.edge.EdgeConfig;
 import org.example.dynamicgraph.designv1.graph.DynamicGraphBuilder.DynamicAgentState;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+import org.example.dynamicgraph.pool.ConfigFingerprint;
+import org.example.dynamicgraph.pool.SharedGraphPool;
+import org.example.dynamicgraph.pool.VersionedGraphs;
+import org.example.dynamicgraph.pool.VersionedGraphs.GraphLease;
+import org.example.dynamicgraph.pool.VersionedGraphs.GraphVersion;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /**
  * 图注册表 - 管理多个 LangGraph4j 图（多租户场景）
+ * 
+ * 图 ID 只映射到配置指纹，编译后的图放在按指纹去重的共享池中：
+ * 结构相同的配置（不论图 ID、名称）只编译一次，所有租户共享同一个实例
+ * 
+ * 重复注册同一个图 ID 会发布新版本：新运行立即使用新版本，
+ * 通过 lease 开始的运行和暂停中的 HITL 线程继续使用原版本，旧版本排空后释放共享池引用
  */
 @Slf4j
 @Component
@@ -23,54 +53,205 @@ public class GraphRegistry {
     private final DynamicGraphBuilder graphBuilder;
     
     /**
-     * 图 ID -> 编译后的 LangGraph4j 图
+     * 配置指纹 -> 编译后的 LangGraph4j 图（引用计数）
      */
-    private final Map<String, CompiledGraph<DynamicAgentState>> graphs = new ConcurrentHashMap<>();
+    private final SharedGraphPool<CompiledGraph<DynamicAgentState>> pool = new SharedGraphPool<>();
+    
+    /**
+     * 图 ID -> 版本（当前版本 + 排空中的旧版本）
+     */
+    private final VersionedGraphs<CompiledGraph<DynamicAgentState>> versions =
+        new VersionedGraphs<>(this::reclaim);
     
     /**
      * 注册图（从配置）
      */
     public CompiledGraph<DynamicAgentState> register(GraphConfig config) throws GraphStateException {
-        CompiledGraph<DynamicAgentState> graph = graphBuilder.build(config);
-        graphs.put(config.getId(), graph);
-        log.info("Graph registered: {}", config.getId());
-        return graph;
+        return register(config.getId(), config);
     }
     
     /**
      * 注册图（从 JSON）
      */
     public CompiledGraph<DynamicAgentState> registerFromJson(String graphId, String json) throws Exception {
-        CompiledGraph<DynamicAgentState> graph = graphBuilder.buildFromJson(json);
-        graphs.put(graphId, graph);
-        log.info("Graph registered from JSON: {}", graphId);
+        return register(graphId, graphBuilder.parseConfig(json));
+    }
+    
+    private CompiledGraph<DynamicAgentState> register(String graphId, GraphConfig config) throws GraphStateException {
+        String fingerprint = fingerprint(config);
+        CompiledGraph<DynamicAgentState> graph = pool.acquire(fingerprint, () -> graphBuilder.build(config));
+        GraphVersion<CompiledGraph<DynamicAgentState>> version = versions.publish(graphId, fingerprint, graph);
+        log.info("Graph registered: {} v{} -> {} ({} distinct graphs)",
+            graphId, version.version(), fingerprint.substring(0, 12), pool.distinctGraphs());
         return graph;
     }
     
+    private void reclaim(GraphVersion<CompiledGraph<DynamicAgentState>> version) {
+        pool.release(version.fingerprint());
+        log.info("Graph version drained: {} v{}", version.graphId(), version.version());
+    }
+    
+    /**
+     * 批量注册：目录下的 *.json（每个文件一个图）或 .jsonl 文件（每行一个图）
+     * 
+     * 读取、解析（含校验）、编译在 ForkJoinPool 上并行执行；单个配置失败只记录在报告中，不影响其他配置。
+     * 同一个图 ID 出现多次时只注册来源顺序中的第一个，其余记为失败，结果与并行度无关
+     */
+    public BulkLoadReport registerAll(Path source) throws IOException {
+        return registerAll(source, ForkJoinPool.getCommonPoolParallelism());
+    }
+    
+    public BulkLoadReport registerAll(Path source, int parallelism) throws IOException {
+        long start = System.nanoTime();
+        Map<String, String> failures = new ConcurrentSkipListMap<>();
+        AtomicInteger loaded = new AtomicInteger();
+        
+        ForkJoinPool workers = new ForkJoinPool(Math.max(1, parallelism));
+        try {
+            // 来源按顺序边读边提交解析，JSONL 不整体读入内存
+            List<ParsedSource> parsed = new ArrayList<>();
+            ConfigSource.forEach(source, configSource -> parsed.add(new ParsedSource(configSource.name(),
+                workers.submit(() -> graphBuilder.parseConfig(configSource.read())))));
+            int total = parsed.size();
+            int progressStep = Math.max(1, total / 10);
+            AtomicInteger done = new AtomicInteger();
+            Runnable progress = () -> {
+                int finished = done.incrementAndGet();
+                if (finished % progressStep == 0 || finished == total) {
+                    log.info("Bulk load progress: {}/{} ({} failed)", finished, total, failures.size());
+                }
+            };
+            
+            Map<String, String> owners = new HashMap<>();
+            List<Callable<Void>> tasks = new ArrayList<>(total);
+            for (ParsedSource parsedSource : parsed) {
+                GraphConfig config;
+                try {
+                    config = parsedSource.config().get();
+                } catch (ExecutionException e) {
+                    failures.put(parsedSource.name(), describe(e.getCause()));
+                    progress.run();
+                    continue;
+                }
+                String owner = owners.putIfAbsent(config.getId(), parsedSource.name());
+                if (owner != null) {
+                    failures.put(parsedSource.name(),
+                        "Duplicate graph id: " + config.getId() + " (already in " + owner + ")");
+                    progress.run();
+                    continue;
+                }
+                tasks.add(() -> {
+                    try {
+                        register(config.getId(), config);
+                        loaded.incrementAndGet();
+                    } catch (Exception e) {
+                        failures.put(parsedSource.name(), describe(e));
+                    } finally {
+                        progress.run();
+                    }
+                    return null;
+                });
+            }
+            workers.invokeAll(tasks);
+            
+            BulkLoadReport report = new BulkLoadReport(total, loaded.get(), Map.copyOf(failures),
+                pool.distinctGraphs(), (System.nanoTime() - start) / 1_000_000);
+            log.info("Bulk load finished from {}: {} loaded, {} failed, {} distinct graphs, {} ms",
+                source, report.loaded(), report.failed(), report.distinctGraphs(), report.elapsedMillis());
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Bulk load interrupted: " + source, e);
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+    
+    private static String describe(Throwable e) {
+        return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+    
+    /**
+     * 已提交解析的配置来源
+     */
+    private record ParsedSource(String name, Future<GraphConfig> config) {
+    }
+    
+    /**
+     * 批量加载的单个配置来源
+     */
+    private record ConfigSource(String name, Path file, String inlineJson) {
+        
+        String read() throws IOException {
+            return inlineJson != null ? inlineJson : Files.readString(file);
+        }
+        
+        /**
+         * 按来源顺序回调：目录按文件名排序，JSONL 逐行读取（跳过空行）
+         */
+        static void forEach(Path source, Consumer<ConfigSource> action) throws IOException {
+            if (Files.isDirectory(source)) {
+                try (Stream<Path> files = Files.list(source)) {
+                    files.filter(file -> file.getFileName().toString().endsWith(".json"))
+                        .sorted()
+                        .forEach(file -> action.accept(new ConfigSource(file.getFileName().toString(), file, null)));
+                }
+                return;
+            }
+            try (BufferedReader reader = Files.newBufferedReader(source)) {
+                String line;
+                int lineNumber = 0;
+                while ((line = reader.readLine()) != null) {
+                    lineNumber++;
+                    if (!line.isBlank()) {
+                        action.accept(new ConfigSource(source.getFileName() + ":" + lineNumber, null, line));
+                    }
+                }
+            }
+        }
+    }
+    
     /**
      * 获取图
      */
     public Optional<CompiledGraph<DynamicAgentState>> get(String graphId) {
-        return Optional.ofNullable(graphs.get(graphId));
+        return versions.latest(graphId).map(GraphVersion::graph);
+    }
+    
+    /**
+     * 为一次运行获取最新版本的租约，运行结束后关闭（try-with-resources）
+     */
+    public Optional<GraphLease<CompiledGraph<DynamicAgentState>>> lease(String graphId) {
+        return versions.lease(graphId);
+    }
+    
+    /**
+     * 为会话线程获取租约：线程首次运行时固定版本，HITL 恢复时仍使用同一版本；
+     * 线程结束时调用 completeThread，没有调用的固定在闲置超过 VersionedGraphs.DEFAULT_PIN_TTL 后失效
+     */
+    public Optional<GraphLease<CompiledGraph<DynamicAgentState>>> lease(String graphId, String threadId) {
+        return versions.lease(graphId, threadId);
+    }
+    
+    /**
+     * 会话线程结束，解除版本固定
+     */
+    public void completeThread(String graphId, String threadId) {
+        versions.completeThread(graphId, threadId);
     }
     
     /**
      * 获取图（不存在则抛异常）
      */
     public CompiledGraph<DynamicAgentState> getOrThrow(String graphId) {
-        CompiledGraph<DynamicAgentState> graph = graphs.get(graphId);
-        if (graph == null) {
-            throw new IllegalArgumentException("Graph not found: " + graphId);
-        }
-        return graph;
+        return get(graphId).orElseThrow(() -> new IllegalArgumentException("Graph not found: " + graphId));
     }
     
     /**
      * 移除图
      */
     public void unregister(String graphId) {
-        CompiledGraph<DynamicAgentState> graph = graphs.remove(graphId);
-        if (graph != null) {
+        if (versions.remove(graphId)) {
             log.info("Graph unregistered: {}", graphId);
         }
     }
@@ -79,28 +260,111 @@ public class GraphRegistry {
      * 检查图是否存在
      */
     public boolean contains(String graphId) {
-        return graphs.containsKey(graphId);
+        return versions.contains(graphId);
     }
     
     /**
      * 获取所有图 ID
      */
     public Set<String> getGraphIds() {
-        return graphs.keySet();
+        return versions.graphIds();
     }
     
     /**
      * 获取注册的图数量
      */
     public int size() {
-        return graphs.size();
+        return versions.size();
+    }
+    
+    /**
+     * 共享池统计：不同结构的图数量、引用数、编译次数
+     */
+    public Map<String, Object> poolStats() {
+        return pool.stats();
+    }
+    
+    /**
+     * 版本统计：排空中的旧版本、固定的会话线程、已回收版本数
+     */
+    public Map<String, Object> versionStats() {
+        return versions.stats();
     }
     
     /**
      * 清理
      */
     public void clear() {
-        log.info("Clearing {} graphs", graphs.size());
-        graphs.clear();
+        log.info("Clearing {} graphs", versions.size());
+        versions.clear();
+        pool.clear();
+    }
+    
+    /**
+     * 规范化配置指纹：入口、Schema、节点、边和条件边，不含图 ID、名称和节点描述
+     */
+    public static String fingerprint(GraphConfig config) {
+        Map<String, Object> tree = new HashMap<>();
+        tree.put("entry", config.getEntryNode());
+        
+        Map<String, Object> schema = new HashMap<>();
+        if (config.getStateSchema() != null) {
+            config.getStateSchema().forEach((key, field) -> {
+                Map<String, Object> fieldTree = new HashMap<>();
+                fieldTree.put("type", field.getType());
+                fieldTree.put("default", field.getDefaultValue());
+                schema.put(key, fieldTree);
+            });
+        }
+        tree.put("schema", schema);
+        tree.put("nodes", canonicalNodes(config.getNodes(), true));
+        
+        List<String> edges = new ArrayList<>();
+        for (EdgeConfig edge : config.getEdges()) {
+            edges.add(edge.getFrom() + "->" + edge.getTo());
+        }
+        edges.sort(null);
+        tree.put("edges", edges);
+        
+        List<ConditionalEdgeConfig> conditionalEdges = new ArrayList<>(config.getConditionalEdges());
+        conditionalEdges.sort(Comparator.comparing(ConditionalEdgeConfig::getFrom));
+        List<Object> conditional = new ArrayList<>();
+        for (ConditionalEdgeConfig edge : conditionalEdges) {
+            Map<String, Object> edgeTree = new LinkedHashMap<>();
+            edgeTree.put("from", edge.getFrom());
+            edgeTree.put("key", edge.getConditionKey());
+            edgeTree.put("routes", edge.getRoutes());
+            List<Object> branches = new ArrayList<>();
+            if (edge.getConditions() != null) {
+                // 分支顺序决定匹配优先级，保持原顺序
+                edge.getConditions().forEach(branch -> branches.add(List.of(
+                    String.valueOf(branch.getWhen()), String.valueOf(branch.getTarget()))));
+            }
+            edgeTree.put("conditions", branches);
+            edgeTree.put("default", edge.getDefaultTarget());
+            conditional.add(edgeTree);
+        }
+        tree.put("conditionalEdges", conditional);
+        return ConfigFingerprint.of(tree);
+    }
+    
+    private static List<Object> canonicalNodes(List<NodeConfig> nodes, boolean sortById) {
+        List<NodeConfig> sorted = new ArrayList<>(nodes);
+        if (sortById) {
+            sorted.sort(Comparator.comparing(NodeConfig::getId));
+        }
+        List<Object> canonical = new ArrayList<>();
+        for (NodeConfig node : sorted) {
+            Map<String, Object> nodeTree = new HashMap<>();
+            nodeTree.put("id", node.getId());
+            nodeTree.put("type", node.getComponentType());
+            nodeTree.put("params", node.getParams());
+            if (node.getFusedNodes() != null) {
+                // 复合节点内的执行顺序有意义，不排序
+                nodeTree.put("fused", canonicalNodes(node.getFusedNodes(), false));
+            }
+            canonical.add(nodeTree);
+        }
+        return canonical;
     }
 }
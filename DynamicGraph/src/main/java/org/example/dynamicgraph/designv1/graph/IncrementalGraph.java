@@ -0,0 +1,82 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.action.NodeAction;
+import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.graph.DynamicGraphBuilder.DynamicAgentState;
+import org.example.dynamicgraph.designv1.graph.DynamicGraphBuilder.EdgeRoute;
+import org.example.dynamicgraph.designv1.graph.DynamicGraphBuilder.NodeSlot;
+
+import java.util.Map;
+
+/**
+ * 可增量更新的编译图 - 由 DynamicGraphBuilder.buildIncremental / update 生成
+ *
+ * 除编译图外还保留节点包装器和预编译的条件路由，下一次 update 时只处理变化的部分。
+ * 每个版本不可变：update 生成新版本，旧版本的编译图和节点 Action 保持原样，正在执行的运行不受影响
+ */
+public final class IncrementalGraph {
+
+    private final GraphConfig config;
+    private final CompiledGraph<DynamicAgentState> graph;
+    private final Map<String, NodeSlot> slots;
+    private final Map<ConditionalEdgeConfig, EdgeRoute> routes;
+    private final GraphConfigDiff diff;
+    private final boolean recompiled;
+
+    IncrementalGraph(GraphConfig config,
+                     CompiledGraph<DynamicAgentState> graph,
+                     Map<String, NodeSlot> slots,
+                     Map<ConditionalEdgeConfig, EdgeRoute> routes,
+                     GraphConfigDiff diff,
+                     boolean recompiled) {
+        this.config = config;
+        this.graph = graph;
+        this.slots = Map.copyOf(slots);
+        this.routes = Map.copyOf(routes);
+        this.diff = diff;
+        this.recompiled = recompiled;
+    }
+
+    public GraphConfig config() {
+        return config;
+    }
+
+    public CompiledGraph<DynamicAgentState> graph() {
+        return graph;
+    }
+
+    /**
+     * 与上一个版本的差异
+     */
+    public GraphConfigDiff diff() {
+        return diff;
+    }
+
+    /**
+     * 本次更新是否重新编译了图
+     */
+    public boolean recompiled() {
+        return recompiled;
+    }
+
+    /**
+     * 节点当前执行的 Action
+     */
+    public NodeAction<AgentState> nodeAction(String nodeId) {
+        NodeSlot slot = slots.get(nodeId);
+        if (slot == null) {
+            throw new IllegalArgumentException("Node not found: " + nodeId);
+        }
+        return slot.action();
+    }
+
+    Map<String, NodeSlot> slots() {
+        return slots;
+    }
+
+    Map<ConditionalEdgeConfig, EdgeRoute> routes() {
+        return routes;
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphStateException;
+import org.example.dynamicgraph.designv1.graph.DynamicGraphBuilder.DynamicAgentState;
+import org.example.dynamicgraph.pool.LazyGraphCache;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 惰性图注册表 - GraphRegistry 的按需编译模式
+ *
+ * 只常驻配置；编译后的图在首次 get 时生成，放入有容量上限的 LRU 缓存，
+ * 空闲租户的图会被淘汰，下次使用时重新编译。结构相同的配置按指纹共享同一个编译结果
+ */
+@Slf4j
+public class LazyGraphRegistry {
+
+    private final DynamicGraphBuilder graphBuilder;
+    private final LazyGraphCache<CompiledGraph<DynamicAgentState>> cache;
+
+    /**
+     * 注册信息：配置与其指纹一起替换，读取方一次拿到配对的两者
+     */
+    private record Registration(GraphConfig config, String fingerprint) {
+    }
+
+    /**
+     * 图 ID -> 注册信息
+     */
+    private final Map<String, Registration> registrations = new ConcurrentHashMap<>();
+
+    /**
+     * @param maxResidentGraphs 最多常驻的编译图数量
+     * @param maxResidentNodes  常驻编译图的节点数 + 边数之和上限，用作内存预算的近似
+     */
+    public LazyGraphRegistry(DynamicGraphBuilder graphBuilder, int maxResidentGraphs, long maxResidentNodes) {
+        this.graphBuilder = graphBuilder;
+        this.cache = new LazyGraphCache<>(maxResidentGraphs, maxResidentNodes);
+    }
+
+    public LazyGraphRegistry(DynamicGraphBuilder graphBuilder, int maxResidentGraphs) {
+        this(graphBuilder, maxResidentGraphs, Long.MAX_VALUE);
+    }
+
+    /**
+     * 注册图（从配置），不编译
+     */
+    public void register(GraphConfig config) {
+        register(config.getId(), config);
+    }
+
+    /**
+     * 注册图（从 JSON），不编译
+     */
+    public void registerFromJson(String graphId, String json) throws Exception {
+        register(graphId, graphBuilder.parseConfig(json));
+    }
+
+    private void register(String graphId, GraphConfig config) {
+        GraphConfigs.validate(config);
+        String fingerprint = GraphRegistry.fingerprint(config);
+        registrations.put(graphId, new Registration(config, fingerprint));
+        log.info("Graph config registered: {} -> {} (lazy)", graphId, fingerprint.substring(0, 12));
+    }
+
+    /**
+     * 获取图，未常驻时在当前线程编译；同一图的并发首次请求共享一次编译
+     */
+    public Optional<CompiledGraph<DynamicAgentState>> get(String graphId) throws GraphStateException {
+        Registration registration = registrations.get(graphId);
+        if (registration == null) {
+            return Optional.empty();
+        }
+        GraphConfig config = registration.config();
+        return Optional.ofNullable(cache.get(registration.fingerprint(), weight(config), () -> {
+            log.info("Compiling graph on demand: {}", graphId);
+            return graphBuilder.build(config);
+        }));
+    }
+
+    /**
+     * 获取图（不存在则抛异常）
+     */
+    public CompiledGraph<DynamicAgentState> getOrThrow(String graphId) throws GraphStateException {
+        return get(graphId).orElseThrow(() -> new IllegalArgumentException("Graph not found: " + graphId));
+    }
+
+    /**
+     * 移除图配置；编译结果可能被其他相同结构的图共享，交给 LRU 淘汰
+     */
+    public void unregister(String graphId) {
+        if (registrations.remove(graphId) != null) {
+            log.info("Graph unregistered: {}", graphId);
+        }
+    }
+
+    /**
+     * 检查图是否存在
+     */
+    public boolean contains(String graphId) {
+        return registrations.containsKey(graphId);
+    }
+
+    /**
+     * 图是否已编译并常驻
+     */
+    public boolean isResident(String graphId) {
+        Registration registration = registrations.get(graphId);
+        return registration != null && cache.isResident(registration.fingerprint());
+    }
+
+    /**
+     * 获取所有图 ID
+     */
+    public Set<String> getGraphIds() {
+        return registrations.keySet();
+    }
+
+    /**
+     * 获取注册的图数量
+     */
+    public int size() {
+        return registrations.size();
+    }
+
+    /**
+     * 缓存统计：常驻数、命中、加载、合并加载、淘汰和编译耗时
+     */
+    public Map<String, Object> stats() {
+        return cache.stats();
+    }
+
+    /**
+     * 清理
+     */
+    public void clear() {
+        log.info("Clearing {} graph configs", registrations.size());
+        registrations.clear();
+        cache.clear();
+    }
+
+    private static long weight(GraphConfig config) {
+        return config.getNodes().size() + config.getEdges().size() + config.getConditionalEdges().size();
+    }
+}
@@ -0,0 +1,181 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.edge.EdgeConfig;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+import org.example.dynamicgraph.parse.ConfigFormat;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+/**
+ * 流式 GraphConfig 解析器
+ *
+ * 不把整份配置读成 String 或 JsonNode 树：顶层字段逐个读取，nodes / edges / conditionalEdges
+ * 数组中的元素逐个绑定后直接追加到 GraphConfig，峰值内存只和单个元素有关。
+ * 节点缺字段、ID 重复在读到该节点时立即报错（带位置）；边端点等跨元素约束在图读完后统一校验。
+ * 支持 JSON / CBOR / Smile，以及一个流中连续多个图（JSONL、顶层数组或二进制根值序列）
+ */
+public class StreamingGraphConfigReader {
+
+    private static final TypeReference<Map<String, GraphConfig.StateFieldConfig>> SCHEMA_TYPE = new TypeReference<>() {
+    };
+
+    private final ObjectMapper objectMapper;
+
+    public StreamingGraphConfigReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * 读取单个图（JSON 文本）
+     */
+    public GraphConfig read(String json) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(json)) {
+            return readSingle(parser);
+        }
+    }
+
+    /**
+     * 读取单个图（JSON 文本流）
+     */
+    public GraphConfig read(Reader reader) throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            return readSingle(parser);
+        }
+    }
+
+    /**
+     * 读取单个图，format 为 null 时按文件头自动识别
+     */
+    public GraphConfig read(InputStream in, ConfigFormat format) throws IOException {
+        try (JsonParser parser = createParser(in, format)) {
+            return readSingle(parser);
+        }
+    }
+
+    /**
+     * 读取多图包：连续的根值（JSONL / 二进制序列）或顶层数组，每读完一个图交给 sink
+     *
+     * @return 读取的图数量
+     */
+    public int readBundle(InputStream in, ConfigFormat format, Consumer<GraphConfig> sink) throws IOException {
+        try (JsonParser parser = createParser(in, format)) {
+            int count = 0;
+            JsonToken token = parser.nextToken();
+            boolean array = token == JsonToken.START_ARRAY;
+            if (array) {
+                token = parser.nextToken();
+            }
+            while (token != null && token != JsonToken.END_ARRAY) {
+                sink.accept(readGraph(parser));
+                count++;
+                token = parser.nextToken();
+            }
+            return count;
+        }
+    }
+
+    private JsonParser createParser(InputStream in, ConfigFormat format) throws IOException {
+        BufferedInputStream buffered = ConfigFormat.buffered(in);
+        ConfigFormat resolved = format != null ? format : ConfigFormat.detect(buffered);
+        ObjectMapper mapper = resolved.mapper(objectMapper);
+        JsonParser parser = mapper.getFactory().createParser(buffered);
+        parser.setCodec(mapper);
+        return parser;
+    }
+
+    private GraphConfig readSingle(JsonParser parser) throws IOException {
+        if (parser.nextToken() == null) {
+            throw new IllegalArgumentException("Empty graph config");
+        }
+        return readGraph(parser);
+    }
+
+    /**
+     * 当前 token 为图对象的 START_OBJECT，返回时停在对应的 END_OBJECT
+     */
+    private GraphConfig readGraph(JsonParser parser) throws IOException {
+        expect(parser, JsonToken.START_OBJECT);
+        GraphConfig config = new GraphConfig();
+        Set<String> nodeIds = new HashSet<>();
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            parser.nextToken();
+            switch (field) {
+                case "id" -> config.setId(parser.getValueAsString());
+                case "name" -> config.setName(parser.getValueAsString());
+                case "entryNode" -> config.setEntryNode(parser.getValueAsString());
+                case "stateSchema" -> config.setStateSchema(parser.readValueAs(SCHEMA_TYPE));
+                case "nodes" -> readArray(parser, () -> {
+                    NodeConfig node = parser.readValueAs(NodeConfig.class);
+                    checkNode(parser, node, nodeIds);
+                    config.getNodes().add(node);
+                });
+                case "edges" -> readArray(parser, () -> config.getEdges().add(parser.readValueAs(EdgeConfig.class)));
+                case "conditionalEdges" -> readArray(parser,
+                    () -> config.getConditionalEdges().add(parser.readValueAs(ConditionalEdgeConfig.class)));
+                // 与 Spring Boot 默认 ObjectMapper 一致：忽略未知字段
+                default -> parser.skipChildren();
+            }
+        }
+        expect(parser, JsonToken.END_OBJECT);
+
+        GraphConfigs.validate(config);
+        return config;
+    }
+
+    private static void checkNode(JsonParser parser, NodeConfig node, Set<String> nodeIds) {
+        String problem = null;
+        if (node.getId() == null || node.getId().isBlank()) {
+            problem = "节点缺少 id";
+        } else if (node.getFusedNodes() == null && node.getComponentType() == null) {
+            problem = "节点缺少 componentType: " + node.getId();
+        } else if (!nodeIds.add(node.getId())) {
+            problem = "节点 ID 重复: " + node.getId();
+        }
+        if (problem != null) {
+            throw new IllegalArgumentException(problem + " at " + location(parser));
+        }
+    }
+
+    @FunctionalInterface
+    private interface ElementReader {
+        void read() throws IOException;
+    }
+
+    private static void readArray(JsonParser parser, ElementReader element) throws IOException {
+        if (parser.currentToken() == JsonToken.VALUE_NULL) {
+            return;
+        }
+        expect(parser, JsonToken.START_ARRAY);
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            element.read();
+        }
+    }
+
+    private static void expect(JsonParser parser, JsonToken expected) {
+        if (parser.currentToken() != expected) {
+            throw new IllegalArgumentException("Expected " + expected + " but got " + parser.currentToken()
+                + " at " + location(parser));
+        }
+    }
+
+    private static String location(JsonParser parser) {
+        var location = parser.currentLocation();
+        return location.getLineNr() > 0
+            ? "line " + location.getLineNr() + ", column " + location.getColumnNr()
+            : "byte " + location.getByteOffset();
+    }
+}
@@ -2,6 +2,10 @@ package org.example.dynamicgraph.designv1.node;
 
 import lombok.Data;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * 节点配置（对应 JSON 中的节点定义）
  */
@@ -23,6 +27,16 @@ public class NodeConfig {
      */
     private String description;
     
+    /**
+     * 节点参数（可选），传给参数化节点的工厂，如 {"key": "status", "value": "done"}
+     */
+    private Map<String, Object> params = new HashMap<>();
+    
+    /**
+     * 链融合后的原节点（按执行顺序），普通节点为 null
+     */
+    private List<NodeConfig> fusedNodes;
+    
     // ============ 静态工厂方法 ============
     
     public static NodeConfig of(String id, String componentType) {
@@ -31,4 +45,10 @@ public class NodeConfig {
         config.setComponentType(componentType);
         return config;
     }
+    
+    public static NodeConfig of(String id, String componentType, Map<String, Object> params) {
+        NodeConfig config = of(id, componentType);
+        config.setParams(new HashMap<>(params));
+        return config;
+    }
 }
@@ -2,6 +2,13 @@ package org.example.dynamicgraph.designv1.node;
 
 import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.node.impl.LogNode;
+import org.example.dynamicgraph.designv1.node.impl.ResponseNode;
+import org.example.dynamicgraph.designv1.node.impl.SetValueNode;
+import org.example.dynamicgraph.designv1.node.impl.TransformNode;
+import org.example.dynamicgraph.scope.NodeScope;
+import org.example.dynamicgraph.scope.ScopedNodeFactories;
+import org.example.dynamicgraph.scope.ScopedNodeFactories.NodeFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Component;
@@ -11,18 +18,25 @@ import java.util.*;
 
 /**
  * 节点注册表 - 管理所有 NodeAction 实例
+ *
+ * 每个类型带作用域：Spring Bean 和手动注册的实例是单例；内置的参数化节点（log / setValue /
+ * transform / response）按参数享元，同一组参数只创建一个实例。线程安全，图构建期间可以并发注册
  */
 @Component
 public class NodeRegistry {
-    
+
     @Autowired(required = false)
     private ApplicationContext applicationContext;
-    
+
     /**
-     * 节点类型 -> NodeAction 实例
+     * 节点类型 -> 作用域 + 工厂
      */
-    private final Map<String, NodeAction<AgentState>> registry = new HashMap<>();
-    
+    private final ScopedNodeFactories<NodeAction<AgentState>> registry = new ScopedNodeFactories<>();
+
+    public NodeRegistry() {
+        registerBuiltins();
+    }
+
     @PostConstruct
     public void init() {
         if (applicationContext != null) {
@@ -30,47 +44,104 @@ public class NodeRegistry {
             Map<String, NodeAction> beans = applicationContext.getBeansOfType(NodeAction.class);
             beans.forEach((beanName, bean) -> {
                 NodeAction<AgentState> action = bean;
-                registry.put(beanName, action);
+                register(beanName, action);
             });
         }
     }
-    
+
     /**
-     * 手动注册节点
+     * 内置参数化节点，参数来自 NodeConfig.params
+     */
+    private void registerBuiltins() {
+        register("log", NodeScope.PER_PARAMS, params -> new LogNode(string(params, "message", "")), true);
+        register("setValue", NodeScope.PER_PARAMS,
+            params -> new SetValueNode(string(params, "key", "value"), string(params, "value", "")), true);
+        register("transform", NodeScope.PER_PARAMS, params -> new TransformNode(
+            string(params, "inputKey", "input"), string(params, "outputKey", "output"), string(params, "operation", "echo")), true);
+        register("response", NodeScope.PER_PARAMS,
+            params -> new ResponseNode(string(params, "template", ""), string(params, "outputKey", "response")), true);
+    }
+
+    private static String string(Map<String, Object> params, String key, String defaultValue) {
+        Object value = params.get(key);
+        return value == null ? defaultValue : value.toString();
+    }
+
+    /**
+     * 手动注册节点（单例），实现 SideEffectFree 的实例登记为无副作用
      */
     public void register(String type, NodeAction<AgentState> node) {
-        registry.put(type, node);
+        registry.register(type, NodeScope.SINGLETON, params -> node, node instanceof SideEffectFree);
+    }
+
+    /**
+     * 按作用域注册节点工厂（按有副作用处理）
+     */
+    public void register(String type, NodeScope scope, NodeFactory<NodeAction<AgentState>> factory) {
+        registry.register(type, scope, factory, false);
     }
-    
+
+    /**
+     * 按作用域注册节点工厂，并声明工厂产出的节点是否无副作用
+     */
+    public void register(String type, NodeScope scope, NodeFactory<NodeAction<AgentState>> factory,
+                         boolean sideEffectFree) {
+        registry.register(type, scope, factory, sideEffectFree);
+    }
+
     /**
-     * 获取节点
+     * 获取节点（无参数）
      */
     public NodeAction<AgentState> get(String type) {
-        NodeAction<AgentState> node = registry.get(type);
-        if (node == null) {
-            throw new IllegalArgumentException("Unknown node type: " + type);
-        }
-        return node;
+        return registry.get(type, Map.of());
+    }
+
+    /**
+     * 按节点配置获取实例：组件类型 + 参数
+     */
+    public NodeAction<AgentState> get(NodeConfig nodeConfig) {
+        return registry.get(nodeConfig.getComponentType(), nodeConfig.getParams());
     }
-    
+
     /**
      * 获取所有已注册的节点类型
      */
     public Set<String> getRegisteredTypes() {
-        return Collections.unmodifiableSet(registry.keySet());
+        return registry.types();
     }
-    
+
     /**
      * 检查节点是否存在
      */
     public boolean contains(String type) {
-        return registry.containsKey(type);
+        return registry.contains(type);
+    }
+
+    /**
+     * 节点类型是否登记为无副作用，未注册返回 false
+     */
+    public boolean isSideEffectFree(String type) {
+        return registry.isSideEffectFree(type);
+    }
+
+    /**
+     * 节点类型的作用域，未注册返回 null
+     */
+    public NodeScope getScope(String type) {
+        return registry.scope(type);
     }
-    
+
     /**
      * 获取注册的节点数量
      */
     public int size() {
         return registry.size();
     }
+
+    /**
+     * 实例统计：类型数、驻留实例数、创建次数、复用次数
+     */
+    public Map<String, Object> stats() {
+        return registry.stats();
+    }
 }
@@ -0,0 +1,10 @@
+package org.example.dynamicgraph.designv1.node;
+
+/**
+ * 标记接口 - 无副作用节点
+ * 只读取状态、只通过返回值更新状态的 NodeAction 实现它。
+ * 按实例注册时 NodeRegistry 据此登记为无副作用，链融合优化才会把它合并进复合节点；
+ * 按工厂注册的类型需在注册时显式声明
+ */
+public interface SideEffectFree {
+}
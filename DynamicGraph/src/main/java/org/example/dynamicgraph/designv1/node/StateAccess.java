@@ -0,0 +1,24 @@
+package org.example.dynamicgraph.designv1.node;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 节点的状态读写声明，供静态分析使用
+ * 未实现该接口的节点按"可能读取任意字段"保守处理
+ */
+public interface StateAccess {
+
+    /** 读取的字段 */
+    Set<String> reads();
+
+    /** 写入的字段 */
+    Set<String> writes();
+
+    /**
+     * 写入的常量值（与输入状态无关），非常量节点返回空
+     */
+    default Map<String, Object> constantWrites() {
+        return Map.of();
+    }
+}
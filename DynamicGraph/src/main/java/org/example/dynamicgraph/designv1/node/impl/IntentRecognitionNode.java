@@ -2,15 +2,18 @@ package org.example.dynamicgraph.designv1.node.impl;
 
 import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.node.SideEffectFree;
+import org.example.dynamicgraph.designv1.node.StateAccess;
 import org.springframework.stereotype.Component;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 意图识别节点 - 直接实现 NodeAction
  */
 @Component("intentRecognition")
-public class IntentRecognitionNode implements NodeAction<AgentState> {
+public class IntentRecognitionNode implements NodeAction<AgentState>, SideEffectFree, StateAccess {
 
     @Override
     public Map<String, Object> apply(AgentState state) {
@@ -19,6 +22,16 @@ public class IntentRecognitionNode implements NodeAction<AgentState> {
         return Map.of("intent", intent);
     }
 
+    @Override
+    public Set<String> reads() {
+        return Set.of("input");
+    }
+
+    @Override
+    public Set<String> writes() {
+        return Set.of("intent");
+    }
+
     private String recognizeIntent(String input) {
         if (input.contains("你好") || input.contains("hello") || input.contains("hi")) {
             return "WELCOME";
@@ -4,9 +4,12 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.node.SideEffectFree;
+import org.example.dynamicgraph.designv1.node.StateAccess;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 日志追加节点 - 向 logs 字段追加消息
@@ -14,7 +17,7 @@ import java.util.Map;
  */
 @NoArgsConstructor
 @AllArgsConstructor
-public class LogNode implements NodeAction<AgentState> {
+public class LogNode implements NodeAction<AgentState>, SideEffectFree, StateAccess {
 
     private String message;
 
@@ -23,4 +26,14 @@ public class LogNode implements NodeAction<AgentState> {
         // 返回一个 List，如果 Schema 中 logs 是 appender 模式，会追加而非覆盖
         return Map.of("logs", List.of(message));
     }
+
+    @Override
+    public Set<String> reads() {
+        return Set.of();
+    }
+
+    @Override
+    public Set<String> writes() {
+        return Set.of("logs");
+    }
 }
@@ -4,15 +4,18 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.node.SideEffectFree;
+import org.example.dynamicgraph.designv1.node.StateAccess;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 响应生成节点 - 直接实现 NodeAction
  */
 @NoArgsConstructor
 @AllArgsConstructor
-public class ResponseNode implements NodeAction<AgentState> {
+public class ResponseNode implements NodeAction<AgentState>, SideEffectFree, StateAccess {
 
     private String template = "";
     private String outputKey = "response";
@@ -25,4 +28,19 @@ public class ResponseNode implements NodeAction<AgentState> {
     public Map<String, Object> apply(AgentState state) {
         return Map.of(outputKey, template);
     }
+
+    @Override
+    public Set<String> reads() {
+        return Set.of();
+    }
+
+    @Override
+    public Set<String> writes() {
+        return Set.of(outputKey);
+    }
+
+    @Override
+    public Map<String, Object> constantWrites() {
+        return Map.of(outputKey, template);
+    }
 }
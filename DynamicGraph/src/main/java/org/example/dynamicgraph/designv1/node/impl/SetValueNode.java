@@ -4,15 +4,18 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.node.SideEffectFree;
+import org.example.dynamicgraph.designv1.node.StateAccess;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 设置值节点 - 直接实现 NodeAction
  */
 @NoArgsConstructor
 @AllArgsConstructor
-public class SetValueNode implements NodeAction<AgentState> {
+public class SetValueNode implements NodeAction<AgentState>, SideEffectFree, StateAccess {
 
     private String key;
     private String value;
@@ -21,4 +24,19 @@ public class SetValueNode implements NodeAction<AgentState> {
     public Map<String, Object> apply(AgentState state) {
         return Map.of(key, value);
     }
+
+    @Override
+    public Set<String> reads() {
+        return Set.of();
+    }
+
+    @Override
+    public Set<String> writes() {
+        return Set.of(key);
+    }
+
+    @Override
+    public Map<String, Object> constantWrites() {
+        return Map.of(key, value);
+    }
 }
@@ -4,15 +4,18 @@ import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import org.bsc.langgraph4j.action.NodeAction;
 import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.node.SideEffectFree;
+import org.example.dynamicgraph.designv1.node.StateAccess;
 
 import java.util.Map;
+import java.util.Set;
 
 /**
  * 字符串转换节点 - 直接实现 NodeAction
  */
 @NoArgsConstructor
 @AllArgsConstructor
-public class TransformNode implements NodeAction<AgentState> {
+public class TransformNode implements NodeAction<AgentState>, SideEffectFree, StateAccess {
 
     private String inputKey = "input";
     private String outputKey = "output";
@@ -31,4 +34,14 @@ public class TransformNode implements NodeAction<AgentState> {
 
         return Map.of(outputKey, result);
     }
+
+    @Override
+    public Set<String> reads() {
+        return Set.of(inputKey);
+    }
+
+    @Override
+    public Set<String> writes() {
+        return Set.of(outputKey);
+    }
 }
@@ -0,0 +1,14 @@
+package org.example.dynamicgraph.expression;
+
+/**
+ * 编译后的条件表达式
+ * 构建期由 ExpressionCompiler 生成，运行期求值就是一串 lambda 调用，不再解析字符串
+ */
+@FunctionalInterface
+public interface CompiledExpression {
+
+    CompiledExpression ALWAYS = vars -> true;
+    CompiledExpression NEVER = vars -> false;
+
+    boolean test(VariableResolver vars);
+}
@@ -0,0 +1,34 @@
+package org.example.dynamicgraph.expression;
+
+import java.util.List;
+
+/**
+ * 表达式语法树（仅在编译期存在）
+ */
+sealed interface ExprNode {
+
+    /** 字面量: 数字(Double)、字符串、true/false、null */
+    record Literal(Object value) implements ExprNode {
+    }
+
+    /** 变量引用，支持 a.b.c 形式的嵌套 Map 路径 */
+    record Variable(List<String> path) implements ExprNode {
+    }
+
+    /** 内置函数调用: size(x)、lower(x) */
+    record Call(String function, ExprNode argument) implements ExprNode {
+    }
+
+    record Not(ExprNode operand) implements ExprNode {
+    }
+
+    record And(ExprNode left, ExprNode right) implements ExprNode {
+    }
+
+    record Or(ExprNode left, ExprNode right) implements ExprNode {
+    }
+
+    /** 比较: == != > >= < <= contains */
+    record Compare(String operator, ExprNode left, ExprNode right) implements ExprNode {
+    }
+}
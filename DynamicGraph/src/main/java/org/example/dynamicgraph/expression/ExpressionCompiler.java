@@ -0,0 +1,393 @@
+package org.example.dynamicgraph.expression;
+
+import java.lang.reflect.Array;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 条件表达式编译器
+ *
+ * 在配置加载时把表达式解析成语法树，再逐节点翻译为嵌套 lambda：
+ * - 常量子表达式在编译期折叠（如 1 &lt; 2、true || x）
+ * - 比较的一侧是常量时，常量的数值/字符串形式预先算好，运行期不再转换
+ * - && / || 保持短路语义
+ * 运行期求值只剩变量读取和几次接口调用，不解释字符串；数值比较（含 size()）全程走 double 原始值，不装箱。
+ * 唯一的运行期分配是 lower() 生成的小写字符串
+ *
+ * 示例: {@code retryCount < 3 && data contains 'error'}、{@code size(messages) > 10 || !approved}
+ *
+ * 类型规则:
+ * - 数字比较统一按 double；非数字（或无法解析的字符串）参与大小比较时结果为 false
+ * - == 两侧有数字时按数值比较，否则按字符串形式比较；null 只等于 null
+ * - contains: 字符串子串 / 集合元素 / Map 的 key
+ * - 裸变量按真值判断: Boolean 取值，数字非 0，字符串/集合非空，null 为 false
+ */
+public final class ExpressionCompiler {
+
+    private ExpressionCompiler() {
+    }
+
+    /**
+     * 编译条件表达式，语法错误抛出 IllegalArgumentException
+     */
+    public static CompiledExpression compile(String source) {
+        return condition(ExpressionParser.parse(source));
+    }
+
+    /**
+     * 求值函数：编译后的值节点
+     */
+    @FunctionalInterface
+    private interface Operand {
+        Object eval(VariableResolver vars);
+    }
+
+    /**
+     * 数值节点：大小比较直接取 double，不经过 eval 装箱
+     */
+    @FunctionalInterface
+    private interface NumberOperand extends Operand {
+        double evalNumber(VariableResolver vars);
+
+        @Override
+        default Object eval(VariableResolver vars) {
+            return evalNumber(vars);
+        }
+    }
+
+    /**
+     * 常量节点，编译期可以直接取值
+     */
+    private record Constant(Object value) implements Operand {
+        @Override
+        public Object eval(VariableResolver vars) {
+            return value;
+        }
+    }
+
+    // ==================== 布尔节点 ====================
+
+    private static CompiledExpression condition(ExprNode node) {
+        if (node instanceof ExprNode.Not not) {
+            CompiledExpression operand = condition(not.operand());
+            if (operand == CompiledExpression.ALWAYS) {
+                return CompiledExpression.NEVER;
+            }
+            if (operand == CompiledExpression.NEVER) {
+                return CompiledExpression.ALWAYS;
+            }
+            return vars -> !operand.test(vars);
+        }
+        if (node instanceof ExprNode.And and) {
+            CompiledExpression left = condition(and.left());
+            CompiledExpression right = condition(and.right());
+            if (left == CompiledExpression.NEVER || right == CompiledExpression.NEVER) {
+                return CompiledExpression.NEVER;
+            }
+            if (left == CompiledExpression.ALWAYS) {
+                return right;
+            }
+            if (right == CompiledExpression.ALWAYS) {
+                return left;
+            }
+            return vars -> left.test(vars) && right.test(vars);
+        }
+        if (node instanceof ExprNode.Or or) {
+            CompiledExpression left = condition(or.left());
+            CompiledExpression right = condition(or.right());
+            if (left == CompiledExpression.ALWAYS || right == CompiledExpression.ALWAYS) {
+                return CompiledExpression.ALWAYS;
+            }
+            if (left == CompiledExpression.NEVER) {
+                return right;
+            }
+            if (right == CompiledExpression.NEVER) {
+                return left;
+            }
+            return vars -> left.test(vars) || right.test(vars);
+        }
+        if (node instanceof ExprNode.Compare compare) {
+            return compare(compare);
+        }
+        Operand operand = operand(node);
+        if (operand instanceof Constant constant) {
+            return truthy(constant.value()) ? CompiledExpression.ALWAYS : CompiledExpression.NEVER;
+        }
+        return vars -> truthy(operand.eval(vars));
+    }
+
+    private static CompiledExpression compare(ExprNode.Compare node) {
+        Operand left = operand(node.left());
+        Operand right = operand(node.right());
+
+        if (left instanceof Constant l && right instanceof Constant r) {
+            return evaluate(node.operator(), l.value(), r.value())
+                    ? CompiledExpression.ALWAYS : CompiledExpression.NEVER;
+        }
+
+        switch (node.operator()) {
+            case "==":
+                return equality(left, right);
+            case "!=": {
+                CompiledExpression equals = equality(left, right);
+                return vars -> !equals.test(vars);
+            }
+            case "contains":
+                if (right instanceof Constant r && r.value() instanceof String needle) {
+                    return vars -> {
+                        Object value = left.eval(vars);
+                        return value instanceof String text ? text.contains(needle) : contains(value, needle);
+                    };
+                }
+                return vars -> contains(left.eval(vars), right.eval(vars));
+            default:
+                return relational(node.operator(), left, right);
+        }
+    }
+
+    private static CompiledExpression equality(Operand left, Operand right) {
+        // 常量放到右侧，只需要处理一种形态
+        if (left instanceof Constant) {
+            Operand swap = left;
+            left = right;
+            right = swap;
+        }
+        Operand variable = left;
+        if (right instanceof Constant c) {
+            Object expected = c.value();
+            if (expected == null) {
+                return vars -> variable.eval(vars) == null;
+            }
+            if (expected instanceof Number n) {
+                double number = n.doubleValue();
+                NumberOperand value = number(variable);
+                return vars -> value.evalNumber(vars) == number;
+            }
+            String text = expected.toString();
+            double textNumber = toDouble(text);
+            if (variable instanceof NumberOperand value) {
+                return vars -> value.evalNumber(vars) == textNumber;
+            }
+            return vars -> {
+                Object value = variable.eval(vars);
+                return value != null && (value instanceof Number
+                        ? toDouble(value) == textNumber
+                        : text.equals(value.toString()));
+            };
+        }
+        Operand other = right;
+        return vars -> equalValues(variable.eval(vars), other.eval(vars));
+    }
+
+    private static CompiledExpression relational(String operator, Operand left, Operand right) {
+        if (right instanceof Constant c) {
+            double bound = toDouble(c.value());
+            NumberOperand value = number(left);
+            switch (operator) {
+                case ">":
+                    return vars -> value.evalNumber(vars) > bound;
+                case ">=":
+                    return vars -> value.evalNumber(vars) >= bound;
+                case "<":
+                    return vars -> value.evalNumber(vars) < bound;
+                default:
+                    return vars -> value.evalNumber(vars) <= bound;
+            }
+        }
+        if (left instanceof Constant c) {
+            double bound = toDouble(c.value());
+            NumberOperand value = number(right);
+            switch (operator) {
+                case ">":
+                    return vars -> bound > value.evalNumber(vars);
+                case ">=":
+                    return vars -> bound >= value.evalNumber(vars);
+                case "<":
+                    return vars -> bound < value.evalNumber(vars);
+                default:
+                    return vars -> bound <= value.evalNumber(vars);
+            }
+        }
+        NumberOperand l = number(left);
+        NumberOperand r = number(right);
+        switch (operator) {
+            case ">":
+                return vars -> l.evalNumber(vars) > r.evalNumber(vars);
+            case ">=":
+                return vars -> l.evalNumber(vars) >= r.evalNumber(vars);
+            case "<":
+                return vars -> l.evalNumber(vars) < r.evalNumber(vars);
+            default:
+                return vars -> l.evalNumber(vars) <= r.evalNumber(vars);
+        }
+    }
+
+    // ==================== 值节点 ====================
+
+    private static Operand operand(ExprNode node) {
+        if (node instanceof ExprNode.Literal literal) {
+            return new Constant(literal.value());
+        }
+        if (node instanceof ExprNode.Variable variable) {
+            return variable(variable.path());
+        }
+        if (node instanceof ExprNode.Call call) {
+            return call(call);
+        }
+        CompiledExpression condition = condition(node);
+        if (condition == CompiledExpression.ALWAYS || condition == CompiledExpression.NEVER) {
+            return new Constant(condition == CompiledExpression.ALWAYS);
+        }
+        return vars -> condition.test(vars);
+    }
+
+    private static Operand variable(List<String> path) {
+        String root = path.get(0);
+        if (path.size() == 1) {
+            return vars -> vars.resolve(root);
+        }
+        String[] rest = path.subList(1, path.size()).toArray(new String[0]);
+        return vars -> {
+            Object value = vars.resolve(root);
+            for (String segment : rest) {
+                if (!(value instanceof Map<?, ?> map)) {
+                    return null;
+                }
+                value = map.get(segment);
+            }
+            return value;
+        };
+    }
+
+    /**
+     * 按数值读取操作数：数值节点直接取 double，其余按 toDouble 转换
+     */
+    private static NumberOperand number(Operand operand) {
+        if (operand instanceof NumberOperand number) {
+            return number;
+        }
+        return vars -> toDouble(operand.eval(vars));
+    }
+
+    private static Operand call(ExprNode.Call call) {
+        Operand argument = operand(call.argument());
+        Operand function = "size".equals(call.function())
+                ? (NumberOperand) vars -> size(argument.eval(vars))
+                : vars -> {
+                    Object value = argument.eval(vars);
+                    return value == null ? null : value.toString().toLowerCase(Locale.ROOT);
+                };
+        if (argument instanceof Constant) {
+            return new Constant(function.eval(name -> null));
+        }
+        return function;
+    }
+
+    // ==================== 运行期辅助 ====================
+
+    private static boolean evaluate(String operator, Object left, Object right) {
+        switch (operator) {
+            case "==":
+                return equalValues(left, right);
+            case "!=":
+                return !equalValues(left, right);
+            case "contains":
+                return contains(left, right);
+            case ">":
+                return toDouble(left) > toDouble(right);
+            case ">=":
+                return toDouble(left) >= toDouble(right);
+            case "<":
+                return toDouble(left) < toDouble(right);
+            case "<=":
+                return toDouble(left) <= toDouble(right);
+            default:
+                throw new IllegalArgumentException("未知运算符: " + operator);
+        }
+    }
+
+    private static boolean equalValues(Object left, Object right) {
+        if (left == null || right == null) {
+            return left == right;
+        }
+        if (left instanceof Number || right instanceof Number) {
+            return toDouble(left) == toDouble(right);
+        }
+        return left.equals(right) || left.toString().equals(right.toString());
+    }
+
+    private static boolean contains(Object container, Object element) {
+        if (container == null || element == null) {
+            return false;
+        }
+        if (container instanceof Collection<?> collection) {
+            if (collection.contains(element)) {
+                return true;
+            }
+            for (Object item : collection) {
+                if (equalValues(item, element)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        if (container instanceof Map<?, ?> map) {
+            return map.containsKey(element) || map.containsKey(element.toString());
+        }
+        return container.toString().contains(element.toString());
+    }
+
+    /**
+     * 数值转换，非数字返回 NaN（任何大小比较都为 false）
+     */
+    private static double toDouble(Object value) {
+        if (value instanceof Number n) {
+            return n.doubleValue();
+        }
+        if (value instanceof String s) {
+            try {
+                return Double.parseDouble(s.trim());
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static int size(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (value instanceof Collection<?> collection) {
+            return collection.size();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return map.size();
+        }
+        if (value.getClass().isArray()) {
+            return Array.getLength(value);
+        }
+        return value.toString().length();
+    }
+
+    private static boolean truthy(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean b) {
+            return b;
+        }
+        if (value instanceof Number n) {
+            return n.doubleValue() != 0;
+        }
+        if (value instanceof Collection<?> collection) {
+            return !collection.isEmpty();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return !map.isEmpty();
+        }
+        return !value.toString().isEmpty();
+    }
+}
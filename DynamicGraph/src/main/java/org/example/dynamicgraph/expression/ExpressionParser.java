@@ -0,0 +1,238 @@
+package org.example.dynamicgraph.expression;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 条件表达式解析器（递归下降）
+ *
+ * 语法:
+ * <pre>
+ * or      := and (('||' | 'or') and)*
+ * and     := not (('&&' | 'and') not)*
+ * not     := ('!' | 'not') not | compare
+ * compare := primary (('==' | '!=' | '>' | '>=' | '<' | '<=' | 'contains') primary)?
+ * primary := number | string | true | false | null
+ *          | identifier ('.' identifier)*
+ *          | function '(' or ')'
+ *          | '(' or ')'
+ * </pre>
+ */
+final class ExpressionParser {
+
+    static final Set<String> FUNCTIONS = Set.of("size", "lower");
+
+    private static final Set<String> COMPARE_OPERATORS = Set.of("==", "!=", ">", ">=", "<", "<=", "contains");
+
+    private final String source;
+    private final List<Token> tokens;
+    private int pos;
+
+    private ExpressionParser(String source) {
+        this.source = source;
+        this.tokens = tokenize(source);
+    }
+
+    static ExprNode parse(String source) {
+        if (source == null || source.isBlank()) {
+            throw new IllegalArgumentException("表达式不能为空");
+        }
+        ExpressionParser parser = new ExpressionParser(source);
+        ExprNode node = parser.parseOr();
+        if (parser.peek().type != TokenType.EOF) {
+            throw parser.error("多余的内容 '" + parser.peek().text + "'");
+        }
+        return node;
+    }
+
+    private ExprNode parseOr() {
+        ExprNode left = parseAnd();
+        while (acceptOperator("||") || acceptKeyword("or")) {
+            left = new ExprNode.Or(left, parseAnd());
+        }
+        return left;
+    }
+
+    private ExprNode parseAnd() {
+        ExprNode left = parseNot();
+        while (acceptOperator("&&") || acceptKeyword("and")) {
+            left = new ExprNode.And(left, parseNot());
+        }
+        return left;
+    }
+
+    private ExprNode parseNot() {
+        if (acceptOperator("!") || acceptKeyword("not")) {
+            return new ExprNode.Not(parseNot());
+        }
+        return parseCompare();
+    }
+
+    private ExprNode parseCompare() {
+        ExprNode left = parsePrimary();
+        Token token = peek();
+        boolean isOperator = token.type == TokenType.OPERATOR || token.type == TokenType.IDENTIFIER;
+        if (isOperator && COMPARE_OPERATORS.contains(token.text)) {
+            pos++;
+            return new ExprNode.Compare(token.text, left, parsePrimary());
+        }
+        return left;
+    }
+
+    private ExprNode parsePrimary() {
+        Token token = next();
+        switch (token.type) {
+            case NUMBER:
+                return new ExprNode.Literal(Double.parseDouble(token.text));
+            case STRING:
+                return new ExprNode.Literal(token.text);
+            case OPERATOR:
+                if ("(".equals(token.text)) {
+                    ExprNode inner = parseOr();
+                    expectOperator(")");
+                    return inner;
+                }
+                if ("-".equals(token.text) && peek().type == TokenType.NUMBER) {
+                    return new ExprNode.Literal(-Double.parseDouble(next().text));
+                }
+                throw error("意外的符号 '" + token.text + "'");
+            case IDENTIFIER:
+                return identifier(token);
+            default:
+                throw error("表达式不完整");
+        }
+    }
+
+    private ExprNode identifier(Token token) {
+        switch (token.text) {
+            case "true":
+                return new ExprNode.Literal(Boolean.TRUE);
+            case "false":
+                return new ExprNode.Literal(Boolean.FALSE);
+            case "null":
+                return new ExprNode.Literal(null);
+            default:
+                break;
+        }
+        if (acceptOperator("(")) {
+            if (!FUNCTIONS.contains(token.text)) {
+                throw error("未知函数 '" + token.text + "'");
+            }
+            ExprNode argument = parseOr();
+            expectOperator(")");
+            return new ExprNode.Call(token.text, argument);
+        }
+        List<String> path = new ArrayList<>();
+        path.add(token.text);
+        while (acceptOperator(".")) {
+            Token segment = next();
+            if (segment.type != TokenType.IDENTIFIER) {
+                throw error("'.' 后应为字段名");
+            }
+            path.add(segment.text);
+        }
+        return new ExprNode.Variable(List.copyOf(path));
+    }
+
+    private Token peek() {
+        return tokens.get(pos);
+    }
+
+    private Token next() {
+        Token token = tokens.get(pos);
+        if (token.type != TokenType.EOF) {
+            pos++;
+        }
+        return token;
+    }
+
+    private boolean acceptOperator(String operator) {
+        Token token = peek();
+        if (token.type == TokenType.OPERATOR && token.text.equals(operator)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private boolean acceptKeyword(String keyword) {
+        Token token = peek();
+        if (token.type == TokenType.IDENTIFIER && token.text.equals(keyword)) {
+            pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expectOperator(String operator) {
+        if (!acceptOperator(operator)) {
+            throw error("缺少 '" + operator + "'");
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        int offset = peek().offset;
+        return new IllegalArgumentException("表达式语法错误: " + message + "，位置 " + offset + ": " + source);
+    }
+
+    // ==================== 词法分析 ====================
+
+    private enum TokenType {
+        NUMBER, STRING, IDENTIFIER, OPERATOR, EOF
+    }
+
+    private record Token(TokenType type, String text, int offset) {
+    }
+
+    private static List<Token> tokenize(String source) {
+        List<Token> tokens = new ArrayList<>();
+        int i = 0;
+        int length = source.length();
+        while (i < length) {
+            char c = source.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (Character.isDigit(c)) {
+                int start = i;
+                while (i < length && (Character.isDigit(source.charAt(i)) || source.charAt(i) == '.')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.NUMBER, source.substring(start, i), start));
+            } else if (c == '\'' || c == '"') {
+                int start = i++;
+                StringBuilder text = new StringBuilder();
+                while (i < length && source.charAt(i) != c) {
+                    if (source.charAt(i) == '\\' && i + 1 < length) {
+                        i++;
+                    }
+                    text.append(source.charAt(i++));
+                }
+                if (i >= length) {
+                    throw new IllegalArgumentException("表达式语法错误: 字符串未闭合，位置 " + start + ": " + source);
+                }
+                i++;
+                tokens.add(new Token(TokenType.STRING, text.toString(), start));
+            } else if (Character.isLetter(c) || c == '_') {
+                int start = i;
+                while (i < length && (Character.isLetterOrDigit(source.charAt(i)) || source.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add(new Token(TokenType.IDENTIFIER, source.substring(start, i), start));
+            } else {
+                String two = i + 1 < length ? source.substring(i, i + 2) : "";
+                if (Set.of("==", "!=", ">=", "<=", "&&", "||").contains(two)) {
+                    tokens.add(new Token(TokenType.OPERATOR, two, i));
+                    i += 2;
+                } else if ("()!<>.-".indexOf(c) >= 0) {
+                    tokens.add(new Token(TokenType.OPERATOR, String.valueOf(c), i));
+                    i++;
+                } else {
+                    throw new IllegalArgumentException("表达式语法错误: 非法字符 '" + c + "'，位置 " + i + ": " + source);
+                }
+            }
+        }
+        tokens.add(new Token(TokenType.EOF, "", length));
+        return tokens;
+    }
+}
@@ -0,0 +1,20 @@
+package org.example.dynamicgraph.expression;
+
+import java.util.Map;
+
+/**
+ * 表达式变量解析器
+ * 由调用方提供（状态对象、路由视图等），编译后的表达式只通过它读取变量
+ */
+@FunctionalInterface
+public interface VariableResolver {
+
+    /**
+     * 读取变量，不存在返回 null
+     */
+    Object resolve(String name);
+
+    static VariableResolver of(Map<String, ?> variables) {
+        return variables::get;
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.dynamicgraph.optimizer;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 复合节点内的状态更新累加器
+ *
+ * 按顺序应用各步骤的更新：普通字段覆盖，appender 字段追加。
+ * 后续步骤读取的是累加后的工作状态，与逐节点执行看到的状态一致；
+ * 最终只向图返回一次合并后的更新（appender 字段返回本次新增的全部元素）
+ */
+public class FusedUpdates {
+
+    private final Set<String> appenderKeys;
+    private final Map<String, Object> working;
+    private final Map<String, Object> values = new HashMap<>();
+    private final Map<String, List<Object>> appended = new LinkedHashMap<>();
+
+    public FusedUpdates(Set<String> appenderKeys, Map<String, Object> initialState) {
+        this.appenderKeys = appenderKeys;
+        this.working = new HashMap<>(initialState);
+    }
+
+    /**
+     * 当前工作状态（传给下一个步骤）
+     */
+    public Map<String, Object> state() {
+        return working;
+    }
+
+    public void apply(Map<String, Object> update) {
+        if (update == null) {
+            return;
+        }
+        update.forEach((key, value) -> {
+            if (appenderKeys.contains(key)) {
+                List<Object> items = value instanceof Collection<?> c ? new ArrayList<>(c) : List.of(value);
+                appended.computeIfAbsent(key, k -> new ArrayList<>()).addAll(items);
+                List<Object> merged = new ArrayList<>();
+                if (working.get(key) instanceof Collection<?> existing) {
+                    merged.addAll(existing);
+                }
+                merged.addAll(items);
+                working.put(key, merged);
+            } else {
+                values.put(key, value);
+                working.put(key, value);
+            }
+        });
+    }
+
+    /**
+     * 合并后的更新
+     */
+    public Map<String, Object> result() {
+        Map<String, Object> result = new HashMap<>(values);
+        result.putAll(appended);
+        return result;
+    }
+}
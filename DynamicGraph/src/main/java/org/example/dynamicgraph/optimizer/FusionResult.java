@@ -0,0 +1,26 @@
+package org.example.dynamicgraph.optimizer;
+
+import java.util.List;
+
+/**
+ * 链融合结果
+ *
+ * @param config      融合后的配置
+ * @param fusedChains 被融合的节点链（原节点 ID）
+ */
+public record FusionResult<C>(C config, List<List<String>> fusedChains) {
+
+    /**
+     * 每次执行减少的超步数（每条链省掉 size - 1 次状态合并和 checkpoint）
+     */
+    public int eliminatedSteps() {
+        return fusedChains.stream().mapToInt(chain -> chain.size() - 1).sum();
+    }
+
+    /**
+     * 融合后的节点 ID
+     */
+    public static String fusedId(List<String> chain) {
+        return String.join("+", chain);
+    }
+}
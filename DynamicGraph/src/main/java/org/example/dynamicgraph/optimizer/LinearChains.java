@@ -0,0 +1,91 @@
+package org.example.dynamicgraph.optimizer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * 线性链查找
+ *
+ * 两个相邻节点 a -> b 可以融合，当且仅当:
+ * - a 只有一条出边，且是普通边（条件边的源节点只能做链尾）
+ * - b 只有一条入边（来自 a），且 b 不是 a 自身
+ * - a、b 都被判定为可融合（无副作用、不是中断点）
+ * 链头可以有任意入边，链尾可以有任意出边，融合后这些边原样挂到复合节点上
+ */
+public final class LinearChains {
+
+    private LinearChains() {
+    }
+
+    /**
+     * 图中的一条边（START/END 用任意不与节点 ID 冲突的名字表示即可）
+     */
+    public record Link(String from, String to, boolean conditional) {
+    }
+
+    /**
+     * 查找所有长度不小于 2 的极大线性链，按节点声明顺序返回
+     */
+    public static List<List<String>> find(List<String> nodeIds, List<Link> links, Predicate<String> fusible) {
+        Map<String, List<Link>> outgoing = new HashMap<>();
+        Map<String, Integer> incoming = new HashMap<>();
+        for (Link link : links) {
+            outgoing.computeIfAbsent(link.from(), k -> new ArrayList<>()).add(link);
+            incoming.merge(link.to(), 1, Integer::sum);
+        }
+
+        Set<String> candidates = new HashSet<>();
+        for (String id : nodeIds) {
+            if (fusible.test(id)) {
+                candidates.add(id);
+            }
+        }
+
+        List<List<String>> chains = new ArrayList<>();
+        Set<String> visited = new HashSet<>();
+        for (String id : nodeIds) {
+            if (!candidates.contains(id) || visited.contains(id) || predecessor(id, links, outgoing, incoming, candidates) != null) {
+                continue;
+            }
+            List<String> chain = new ArrayList<>();
+            String current = id;
+            while (current != null && visited.add(current)) {
+                chain.add(current);
+                current = successor(current, outgoing, incoming, candidates);
+            }
+            if (chain.size() > 1) {
+                chains.add(List.copyOf(chain));
+            }
+        }
+        return chains;
+    }
+
+    private static String successor(String node, Map<String, List<Link>> outgoing,
+                                    Map<String, Integer> incoming, Set<String> candidates) {
+        List<Link> out = outgoing.getOrDefault(node, List.of());
+        if (out.size() != 1 || out.get(0).conditional()) {
+            return null;
+        }
+        String next = out.get(0).to();
+        if (next.equals(node) || !candidates.contains(next) || incoming.getOrDefault(next, 0) != 1) {
+            return null;
+        }
+        return next;
+    }
+
+    private static String predecessor(String node, List<Link> links, Map<String, List<Link>> outgoing,
+                                      Map<String, Integer> incoming, Set<String> candidates) {
+        for (Link link : links) {
+            if (link.to().equals(node) && node.equals(successor(link.from(), outgoing, incoming, candidates))
+                    && candidates.contains(link.from())) {
+                return link.from();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,84 @@
+package org.example.dynamicgraph.parse;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.function.Supplier;
+
+/**
+ * 配置文件格式
+ *
+ * JSON 供人工编辑；CBOR / Smile 是二进制 JSON 数据模型，适合机器生成的大配置，
+ * 同一套绑定和校验逻辑对三种格式通用。JSONL / 多图包只是同一格式下连续的多个根值
+ */
+public enum ConfigFormat {
+
+    JSON(JsonFactory::new),
+    CBOR(CBORFactory::new),
+    SMILE(SmileFactory::new);
+
+    private final Supplier<JsonFactory> factory;
+
+    ConfigFormat(Supplier<JsonFactory> factory) {
+        this.factory = factory;
+    }
+
+    public JsonFactory newFactory() {
+        return factory.get();
+    }
+
+    /**
+     * 基于已有 ObjectMapper 的配置（特性开关、模块）创建该格式的 Mapper
+     */
+    public ObjectMapper mapper(ObjectMapper base) {
+        return this == JSON ? base : base.copyWith(newFactory());
+    }
+
+    /**
+     * 按扩展名判断：.cbor / .smile / .sml，其余按 JSON（含 .json、.jsonl）
+     */
+    public static ConfigFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".cbor")) {
+            return CBOR;
+        }
+        if (name.endsWith(".smile") || name.endsWith(".sml")) {
+            return SMILE;
+        }
+        return JSON;
+    }
+
+    /**
+     * 按文件头判断，不消耗输入：Smile 以 ":)\n" 开头；
+     * CBOR 以自描述标签 0xD9D9F7 开头，或第一个值是 map（0xA0-0xBF）/ array（0x80-0x9F）
+     */
+    public static ConfigFormat detect(BufferedInputStream in) throws IOException {
+        in.mark(3);
+        byte[] head = in.readNBytes(3);
+        in.reset();
+        if (head.length == 0) {
+            return JSON;
+        }
+        if (head.length == 3 && head[0] == ':' && head[1] == ')' && head[2] == '\n') {
+            return SMILE;
+        }
+        int first = head[0] & 0xFF;
+        if (first == 0xD9 || (first >= 0x80 && first <= 0xBF)) {
+            return CBOR;
+        }
+        return JSON;
+    }
+
+    /**
+     * 包装为可探测格式的输入流
+     */
+    public static BufferedInputStream buffered(InputStream in) {
+        return in instanceof BufferedInputStream buffered ? buffered : new BufferedInputStream(in);
+    }
+}
@@ -0,0 +1,70 @@
+package org.example.dynamicgraph.pool;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 配置指纹 - 规范化后的 SHA-256
+ *
+ * 调用方先把配置整理成只含结构信息的 Map/List 树（去掉租户 ID、图名等不影响行为的字段），
+ * 这里负责规范化序列化：Map 按 key 排序，数字按数值归一（1 与 1.0 相同），List 保持顺序
+ */
+public final class ConfigFingerprint {
+
+    private ConfigFingerprint() {
+    }
+
+    public static String of(Object canonicalTree) {
+        StringBuilder out = new StringBuilder();
+        write(canonicalTree, out);
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(out.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 不可用", e);
+        }
+    }
+
+    private static void write(Object value, StringBuilder out) {
+        if (value == null) {
+            out.append("null");
+        } else if (value instanceof Map<?, ?> map) {
+            List<String> keys = new ArrayList<>();
+            map.keySet().forEach(key -> keys.add(String.valueOf(key)));
+            keys.sort(null);
+            out.append('{');
+            for (String key : keys) {
+                writeString(key, out);
+                out.append(':');
+                write(map.get(key), out);
+                out.append(',');
+            }
+            out.append('}');
+        } else if (value instanceof Collection<?> collection) {
+            out.append('[');
+            for (Object item : collection) {
+                write(item, out);
+                out.append(',');
+            }
+            out.append(']');
+        } else if (value instanceof Number number) {
+            out.append('#').append(new BigDecimal(number.toString()).stripTrailingZeros().toPlainString());
+        } else if (value instanceof Boolean) {
+            out.append(value);
+        } else {
+            writeString(value.toString(), out);
+        }
+    }
+
+    private static void writeString(String text, StringBuilder out) {
+        // 长度前缀避免拼接歧义
+        out.append('"').append(text.length()).append(':').append(text).append('"');
+    }
+}
@@ -0,0 +1,198 @@
+package org.example.dynamicgraph.pool;
+
+import org.bsc.langgraph4j.GraphStateException;
+import org.example.dynamicgraph.pool.SharedGraphPool.GraphCompiler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 惰性编译图缓存 - 首次使用时编译，按 LRU 淘汰冷图
+ *
+ * 同一 key 的并发首次请求只触发一次编译（single-flight），其余请求等待同一结果；
+ * 常驻图数量超过 maxGraphs 或总权重超过 maxWeight 时淘汰最久未使用的图。
+ * 权重由调用方估算（例如节点数 + 边数），只用于预算，不要求精确
+ */
+public class LazyGraphCache<G> {
+
+    private final int maxGraphs;
+    private final long maxWeight;
+
+    /**
+     * 访问顺序的 LinkedHashMap，所有读写都在 resident 锁内
+     */
+    private final LinkedHashMap<String, Resident<G>> resident = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<G>> inFlight = new ConcurrentHashMap<>();
+    private long residentWeight;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong compileNanos = new AtomicLong();
+    private final AtomicLong maxCompileNanos = new AtomicLong();
+
+    /**
+     * @param maxGraphs 最多常驻的编译图数量
+     * @param maxWeight 常驻图的总权重上限，Long.MAX_VALUE 表示不限
+     */
+    public LazyGraphCache(int maxGraphs, long maxWeight) {
+        if (maxGraphs < 1 || maxWeight < 1) {
+            throw new IllegalArgumentException("maxGraphs and maxWeight must be positive");
+        }
+        this.maxGraphs = maxGraphs;
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * 获取 key 对应的图；未常驻时编译并放入缓存
+     */
+    public G get(String key, long weight, GraphCompiler<G> compiler) throws GraphStateException {
+        G cached = residentGraph(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        CompletableFuture<G> flight = new CompletableFuture<>();
+        CompletableFuture<G> existing = inFlight.putIfAbsent(key, flight);
+        if (existing != null) {
+            coalesced.incrementAndGet();
+            return await(existing);
+        }
+
+        try {
+            // 拿到编译权后再查一次：上一轮编译可能刚好在两次检查之间完成
+            cached = residentGraph(key);
+            if (cached != null) {
+                hits.incrementAndGet();
+                flight.complete(cached);
+                return cached;
+            }
+            G graph = compile(compiler);
+            admit(key, graph, Math.max(1, weight));
+            flight.complete(graph);
+            return graph;
+        } catch (GraphStateException | RuntimeException e) {
+            failures.incrementAndGet();
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, flight);
+        }
+    }
+
+    private G compile(GraphCompiler<G> compiler) throws GraphStateException {
+        long start = System.nanoTime();
+        G graph = compiler.compile();
+        long elapsed = System.nanoTime() - start;
+        loads.incrementAndGet();
+        compileNanos.addAndGet(elapsed);
+        maxCompileNanos.accumulateAndGet(elapsed, Math::max);
+        return graph;
+    }
+
+    private G residentGraph(String key) {
+        synchronized (resident) {
+            Resident<G> entry = resident.get(key);
+            return entry == null ? null : entry.graph();
+        }
+    }
+
+    private void admit(String key, G graph, long weight) {
+        synchronized (resident) {
+            Resident<G> previous = resident.put(key, new Resident<>(graph, weight));
+            if (previous != null) {
+                residentWeight -= previous.weight();
+            }
+            residentWeight += weight;
+
+            // 至少保留刚放入的图，即使它单独就超出权重预算
+            Iterator<Map.Entry<String, Resident<G>>> eldest = resident.entrySet().iterator();
+            while (resident.size() > 1 && (resident.size() > maxGraphs || residentWeight > maxWeight)) {
+                Map.Entry<String, Resident<G>> victim = eldest.next();
+                residentWeight -= victim.getValue().weight();
+                eldest.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private static <G> G await(CompletableFuture<G> flight) throws GraphStateException {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof GraphStateException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * 是否常驻（不触发编译、不影响 LRU 顺序）
+     */
+    public boolean isResident(String key) {
+        synchronized (resident) {
+            return resident.containsKey(key);
+        }
+    }
+
+    /**
+     * 主动移除一个常驻图，下次使用时重新编译
+     */
+    public void invalidate(String key) {
+        synchronized (resident) {
+            Resident<G> removed = resident.remove(key);
+            if (removed != null) {
+                residentWeight -= removed.weight();
+            }
+        }
+    }
+
+    public int size() {
+        synchronized (resident) {
+            return resident.size();
+        }
+    }
+
+    public Map<String, Object> stats() {
+        long compiled = loads.get();
+        int residentGraphs;
+        long weight;
+        synchronized (resident) {
+            residentGraphs = resident.size();
+            weight = residentWeight;
+        }
+        return Map.of(
+            "residentGraphs", residentGraphs,
+            "residentWeight", weight,
+            "hits", hits.get(),
+            "loads", compiled,
+            "coalescedLoads", coalesced.get(),
+            "failedLoads", failures.get(),
+            "evictions", evictions.get(),
+            "avgCompileMillis", compiled == 0 ? 0.0 : compileNanos.get() / 1_000_000.0 / compiled,
+            "maxCompileMillis", maxCompileNanos.get() / 1_000_000.0
+        );
+    }
+
+    public void clear() {
+        synchronized (resident) {
+            resident.clear();
+            residentWeight = 0;
+        }
+    }
+
+    private record Resident<G>(G graph, long weight) {
+    }
+}
@@ -0,0 +1,97 @@
+package org.example.dynamicgraph.pool;
+
+import org.bsc.langgraph4j.GraphStateException;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 编译图共享池 - 按配置指纹去重、引用计数
+ *
+ * 结构相同的配置只编译一次，所有租户共享同一个编译后的图实例；
+ * 最后一个引用释放时才移除。不同指纹的编译互不阻塞，同一指纹只编译一次
+ */
+public class SharedGraphPool<G> {
+
+    /**
+     * 编译函数
+     */
+    @FunctionalInterface
+    public interface GraphCompiler<G> {
+        G compile() throws GraphStateException;
+    }
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong compiles = new AtomicLong();
+    private final AtomicLong shared = new AtomicLong();
+
+    /**
+     * 获取指纹对应的图并增加引用；不存在时调用 compiler 编译
+     */
+    public G acquire(String fingerprint, GraphCompiler<G> compiler) throws GraphStateException {
+        Entry entry = entries.compute(fingerprint, (key, existing) -> {
+            Entry target = existing != null ? existing : new Entry();
+            target.refCount++;
+            return target;
+        });
+        try {
+            return entry.get(compiler);
+        } catch (GraphStateException | RuntimeException e) {
+            release(fingerprint);
+            throw e;
+        }
+    }
+
+    /**
+     * 读取已编译的图，不改变引用计数
+     */
+    public Optional<G> peek(String fingerprint) {
+        Entry entry = entries.get(fingerprint);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.graph);
+    }
+
+    /**
+     * 释放一次引用，引用归零时移除
+     */
+    public void release(String fingerprint) {
+        entries.computeIfPresent(fingerprint, (key, entry) -> --entry.refCount <= 0 ? null : entry);
+    }
+
+    public int distinctGraphs() {
+        return entries.size();
+    }
+
+    public Map<String, Object> stats() {
+        long references = entries.values().stream().mapToLong(entry -> entry.refCount).sum();
+        return Map.of(
+            "distinctGraphs", entries.size(),
+            "references", references,
+            "compiles", compiles.get(),
+            "sharedAcquires", shared.get()
+        );
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    /**
+     * 池条目：refCount 只在 ConcurrentHashMap.compute 内修改，编译结果在条目锁内惰性生成
+     */
+    private final class Entry {
+        private volatile int refCount;
+        private volatile G graph;
+
+        synchronized G get(GraphCompiler<G> compiler) throws GraphStateException {
+            if (graph == null) {
+                graph = compiler.compile();
+                compiles.incrementAndGet();
+            } else {
+                shared.incrementAndGet();
+            }
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,332 @@
+package org.example.dynamicgraph.pool;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 图版本表 - 同一个图 ID 的多个编译版本
+ *
+ * 新版本发布是一次原子替换，之后的新运行拿到新版本；
+ * 运行中的请求持有租约（GraphLease），暂停中的 HITL 线程固定在开始时的版本上，
+ * 旧版本在没有租约、没有固定线程后才交给 reclaimer 回收。获取租约不加锁
+ *
+ * 线程固定由 completeThread 解除；调用方没有调用时（线程被放弃、进程内没有会话结束通知），
+ * 超过 pinTtl 未再使用的固定在下次访问该线程、下次发布或 expirePins 时失效，旧版本不会因此永远无法回收
+ */
+public class VersionedGraphs<G> {
+
+    /**
+     * 旧版本排空后的回收回调（例如释放共享池引用）
+     */
+    @FunctionalInterface
+    public interface Reclaimer<G> {
+        void reclaim(GraphVersion<G> version);
+    }
+
+    /**
+     * 线程固定的默认闲置上限：覆盖人工审批这类长时间暂停
+     */
+    public static final Duration DEFAULT_PIN_TTL = Duration.ofHours(24);
+
+    private final Reclaimer<G> reclaimer;
+    private final long pinTtlNanos;
+    private final LongSupplier clock;
+    private final Map<String, GraphVersion<G>> current = new ConcurrentHashMap<>();
+    private final Map<ThreadKey, Pin<G>> pinnedThreads = new ConcurrentHashMap<>();
+    private final Set<GraphVersion<G>> draining = ConcurrentHashMap.newKeySet();
+    private final AtomicLong versionSeq = new AtomicLong();
+    private final AtomicLong reclaimed = new AtomicLong();
+
+    public VersionedGraphs(Reclaimer<G> reclaimer) {
+        this(reclaimer, DEFAULT_PIN_TTL);
+    }
+
+    /**
+     * @param pinTtl 线程固定的闲置上限，超过后固定失效，线程下次运行按新线程处理
+     */
+    public VersionedGraphs(Reclaimer<G> reclaimer, Duration pinTtl) {
+        this(reclaimer, pinTtl, System::nanoTime);
+    }
+
+    VersionedGraphs(Reclaimer<G> reclaimer, Duration pinTtl, LongSupplier clock) {
+        this.reclaimer = reclaimer;
+        this.pinTtlNanos = pinTtl.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * 发布新版本，原子替换当前版本；旧版本进入排空状态
+     */
+    public GraphVersion<G> publish(String graphId, String fingerprint, G graph) {
+        GraphVersion<G> next = new GraphVersion<>(graphId, versionSeq.incrementAndGet(), fingerprint, graph);
+        retire(current.put(graphId, next));
+        expirePins();
+        return next;
+    }
+
+    /**
+     * 移除图 ID；当前版本进入排空状态，已开始的运行不受影响
+     */
+    public boolean remove(String graphId) {
+        GraphVersion<G> removed = current.remove(graphId);
+        retire(removed);
+        return removed != null;
+    }
+
+    public Optional<GraphVersion<G>> latest(String graphId) {
+        return Optional.ofNullable(current.get(graphId));
+    }
+
+    /**
+     * 为一次新运行获取最新版本的租约
+     */
+    public Optional<GraphLease<G>> lease(String graphId) {
+        while (true) {
+            GraphVersion<G> version = current.get(graphId);
+            if (version == null) {
+                return Optional.empty();
+            }
+            version.leases.incrementAndGet();
+            if (!version.retired) {
+                return Optional.of(new GraphLease<>(this, version));
+            }
+            // 读取和加租约之间发生了替换：退回后重读
+            version.leases.decrementAndGet();
+            tryReclaim(version);
+        }
+    }
+
+    /**
+     * 为某个会话线程获取租约：线程第一次运行时固定到最新版本，之后（包括 HITL 恢复）始终使用该版本
+     */
+    public Optional<GraphLease<G>> lease(String graphId, String threadId) {
+        ThreadKey key = new ThreadKey(graphId, threadId);
+        while (true) {
+            Pin<G> pin = pinnedThreads.get(key);
+            if (pin != null) {
+                long now = clock.getAsLong();
+                if (now - pin.lastUsed > pinTtlNanos) {
+                    unpin(key, pin);
+                    continue;
+                }
+                if (acquirePinned(pin.version)) {
+                    pin.lastUsed = now;
+                    return Optional.of(new GraphLease<>(this, pin.version));
+                }
+                // 固定刚被解除且版本已回收：重读，按新线程处理
+                continue;
+            }
+
+            Optional<GraphLease<G>> lease = lease(graphId);
+            if (lease.isEmpty()) {
+                return lease;
+            }
+            GraphVersion<G> version = lease.get().version();
+            version.pins.incrementAndGet();
+            if (pinnedThreads.putIfAbsent(key, new Pin<>(version, clock.getAsLong())) == null) {
+                return lease;
+            }
+            // 同一线程并发首次运行：以先固定的版本为准，退回后走固定路径
+            version.pins.decrementAndGet();
+            lease.get().close();
+        }
+    }
+
+    /**
+     * 会话线程结束（完成或放弃），解除版本固定
+     */
+    public void completeThread(String graphId, String threadId) {
+        ThreadKey key = new ThreadKey(graphId, threadId);
+        Pin<G> pin = pinnedThreads.get(key);
+        if (pin != null) {
+            unpin(key, pin);
+        }
+    }
+
+    /**
+     * 解除超过闲置上限的线程固定，返回解除的数量；发布新版本时也会调用
+     */
+    public int expirePins() {
+        long now = clock.getAsLong();
+        int expired = 0;
+        for (Map.Entry<ThreadKey, Pin<G>> entry : pinnedThreads.entrySet()) {
+            if (now - entry.getValue().lastUsed > pinTtlNanos && unpin(entry.getKey(), entry.getValue())) {
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    private boolean unpin(ThreadKey key, Pin<G> pin) {
+        if (!pinnedThreads.remove(key, pin)) {
+            return false;
+        }
+        pin.version.pins.decrementAndGet();
+        tryReclaim(pin.version);
+        return true;
+    }
+
+    /**
+     * 固定版本可能已经退役，不能用 lease(graphId) 的退役标志回退；
+     * 和 tryReclaim 在同一把锁下检查，加上租约的版本不会再被回收
+     */
+    private boolean acquirePinned(GraphVersion<G> version) {
+        synchronized (version) {
+            if (version.reclaimed.get()) {
+                return false;
+            }
+            version.leases.incrementAndGet();
+            return true;
+        }
+    }
+
+    public boolean contains(String graphId) {
+        return current.containsKey(graphId);
+    }
+
+    public Set<String> graphIds() {
+        return current.keySet();
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+            "graphs", current.size(),
+            "drainingVersions", draining.size(),
+            "pinnedThreads", pinnedThreads.size(),
+            "reclaimedVersions", reclaimed.get(),
+            "latestVersion", versionSeq.get()
+        );
+    }
+
+    /**
+     * 清空所有版本，不等待排空
+     */
+    public void clear() {
+        current.clear();
+        pinnedThreads.clear();
+        draining.clear();
+    }
+
+    private void retire(GraphVersion<G> version) {
+        if (version == null) {
+            return;
+        }
+        version.retired = true;
+        draining.add(version);
+        tryReclaim(version);
+    }
+
+    private void tryReclaim(GraphVersion<G> version) {
+        synchronized (version) {
+            if (!version.retired || version.leases.get() != 0 || version.pins.get() != 0
+                    || !version.reclaimed.compareAndSet(false, true)) {
+                return;
+            }
+        }
+        draining.remove(version);
+        reclaimed.incrementAndGet();
+        reclaimer.reclaim(version);
+    }
+
+    private record ThreadKey(String graphId, String threadId) {
+    }
+
+    /**
+     * 线程固定：固定的版本和最后一次使用时间
+     */
+    private static final class Pin<G> {
+        private final GraphVersion<G> version;
+        private volatile long lastUsed;
+
+        private Pin(GraphVersion<G> version, long lastUsed) {
+            this.version = version;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    /**
+     * 一个已发布的编译版本
+     */
+    public static final class GraphVersion<G> {
+        private final String graphId;
+        private final long version;
+        private final String fingerprint;
+        private final G graph;
+        private final AtomicInteger leases = new AtomicInteger();
+        private final AtomicInteger pins = new AtomicInteger();
+        private final AtomicBoolean reclaimed = new AtomicBoolean();
+        private volatile boolean retired;
+
+        private GraphVersion(String graphId, long version, String fingerprint, G graph) {
+            this.graphId = graphId;
+            this.version = version;
+            this.fingerprint = fingerprint;
+            this.graph = graph;
+        }
+
+        public String graphId() {
+            return graphId;
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public String fingerprint() {
+            return fingerprint;
+        }
+
+        public G graph() {
+            return graph;
+        }
+
+        public int activeLeases() {
+            return leases.get();
+        }
+
+        public boolean isRetired() {
+            return retired;
+        }
+    }
+
+    /**
+     * 运行租约：try-with-resources 中使用，关闭时归还
+     */
+    public static final class GraphLease<G> implements AutoCloseable {
+        private final VersionedGraphs<G> owner;
+        private final GraphVersion<G> version;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private GraphLease(VersionedGraphs<G> owner, GraphVersion<G> version) {
+            this.owner = owner;
+            this.version = version;
+        }
+
+        public G graph() {
+            return version.graph();
+        }
+
+        public GraphVersion<G> version() {
+            return version;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                version.leases.decrementAndGet();
+                owner.tryReclaim(version);
+            }
+        }
+    }
+}
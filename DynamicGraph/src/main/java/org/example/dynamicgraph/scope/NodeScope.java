@@ -0,0 +1,22 @@
+package org.example.dynamicgraph.scope;
+
+/**
+ * 节点实例作用域
+ */
+public enum NodeScope {
+
+    /**
+     * 无状态单例：注册时创建一次，所有图、所有参数共享
+     */
+    SINGLETON,
+
+    /**
+     * 按参数享元：参数相同的节点共享同一个实例（实例必须不可变）
+     */
+    PER_PARAMS,
+
+    /**
+     * 每次构建图都创建新实例（节点持有可变状态时使用）
+     */
+    PER_GRAPH
+}
@@ -0,0 +1,136 @@
+package org.example.dynamicgraph.scope;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按作用域管理的节点工厂表（线程安全）
+ *
+ * 每个节点类型的注册信息是一个不可变记录，注册 / 替换只是一次 ConcurrentHashMap 写入，
+ * 正在构建的图要么看到旧注册、要么看到新注册，不会看到中间状态。
+ * PER_PARAMS 类型按 (类型, 参数) 驻留实例，相同参数的节点只创建一次
+ */
+public class ScopedNodeFactories<N> {
+
+    /**
+     * 节点工厂：根据节点参数创建实例
+     */
+    @FunctionalInterface
+    public interface NodeFactory<N> {
+        N create(Map<String, Object> params);
+    }
+
+    private record Registration<N>(NodeScope scope, NodeFactory<N> factory, N singleton, boolean sideEffectFree) {
+    }
+
+    /**
+     * 驻留 key 绑定到具体的注册记录：类型被替换后，旧工厂创建的实例不会再被命中
+     */
+    private record InternKey(Registration<?> registration, Map<String, Object> params) {
+    }
+
+    private final Map<String, Registration<N>> registrations = new ConcurrentHashMap<>();
+    private final Map<InternKey, N> interned = new ConcurrentHashMap<>();
+    private final AtomicLong created = new AtomicLong();
+    private final AtomicLong reused = new AtomicLong();
+
+    /**
+     * 注册（或替换）节点类型；替换时丢弃该类型已驻留的实例。未声明的类型按有副作用处理
+     */
+    public void register(String type, NodeScope scope, NodeFactory<N> factory) {
+        register(type, scope, factory, false);
+    }
+
+    /**
+     * 注册（或替换）节点类型，并声明其实例是否无副作用
+     * 链融合等优化只看这份注册元数据，不需要为了检查而创建实例
+     */
+    public void register(String type, NodeScope scope, NodeFactory<N> factory, boolean sideEffectFree) {
+        N singleton = null;
+        if (scope == NodeScope.SINGLETON) {
+            singleton = factory.create(Map.of());
+            created.incrementAndGet();
+        }
+        Registration<N> previous = registrations.put(type, new Registration<>(scope, factory, singleton, sideEffectFree));
+        if (previous != null) {
+            interned.keySet().removeIf(key -> key.registration() == previous);
+        }
+    }
+
+    /**
+     * 获取节点实例
+     *
+     * @throws IllegalArgumentException 未注册的类型
+     */
+    public N get(String type, Map<String, Object> params) {
+        Registration<N> registration = registrations.get(type);
+        if (registration == null) {
+            throw new IllegalArgumentException("Unknown node type: " + type + ". Available: " + registrations.keySet());
+        }
+        Map<String, Object> safeParams = params == null ? Map.of() : params;
+        return switch (registration.scope()) {
+            case SINGLETON -> {
+                reused.incrementAndGet();
+                yield registration.singleton();
+            }
+            case PER_PARAMS -> intern(registration, safeParams);
+            case PER_GRAPH -> {
+                created.incrementAndGet();
+                yield registration.factory().create(safeParams);
+            }
+        };
+    }
+
+    private N intern(Registration<N> registration, Map<String, Object> params) {
+        // 参数按 key 排序后复制一份，调用方之后修改原 Map 不影响驻留 key
+        InternKey key = new InternKey(registration, Collections.unmodifiableMap(new TreeMap<>(params)));
+        N existing = interned.get(key);
+        if (existing != null) {
+            reused.incrementAndGet();
+            return existing;
+        }
+        return interned.computeIfAbsent(key, k -> {
+            created.incrementAndGet();
+            return registration.factory().create(k.params());
+        });
+    }
+
+    public boolean contains(String type) {
+        return registrations.containsKey(type);
+    }
+
+    public NodeScope scope(String type) {
+        Registration<N> registration = registrations.get(type);
+        return registration == null ? null : registration.scope();
+    }
+
+    /**
+     * 类型是否登记为无副作用，未注册返回 false
+     */
+    public boolean isSideEffectFree(String type) {
+        Registration<N> registration = registrations.get(type);
+        return registration != null && registration.sideEffectFree();
+    }
+
+    public Set<String> types() {
+        return Collections.unmodifiableSet(registrations.keySet());
+    }
+
+    public int size() {
+        return registrations.size();
+    }
+
+    public Map<String, Object> stats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("types", registrations.size());
+        stats.put("internedInstances", interned.size());
+        stats.put("created", created.get());
+        stats.put("reused", reused.get());
+        return stats;
+    }
+}
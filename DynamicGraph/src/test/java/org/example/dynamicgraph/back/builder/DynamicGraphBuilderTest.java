@@ -0,0 +1,137 @@
+package org.example.dynamicgraph.back.builder;
+
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.GraphStateException;
+import org.example.dynamicgraph.back.config.EdgeConfig;
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.core.DynamicState;
+import org.example.dynamicgraph.back.factory.TestConfigFactory;
+import org.example.dynamicgraph.back.nodes.impl.LogNode;
+import org.example.dynamicgraph.back.registry.NodeRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * DynamicGraphBuilder测试类
+ */
+class DynamicGraphBuilderTest {
+
+    private final DynamicGraphBuilder builder = new DynamicGraphBuilder();
+
+    /**
+     * START -> check(决策) -> 条件命中走 matched，否则走同源普通边 fallback
+     */
+    private static TenantGraphConfig routedConfig(List<EdgeConfig> extraEdges) {
+        List<NodeConfig> nodes = List.of(
+            new NodeConfig("check", "decisionNode", Map.of()),
+            new NodeConfig("matched", "logNode", Map.of("prefix", "[matched]")),
+            new NodeConfig("fallback", "logNode", Map.of("prefix", "[fallback]"))
+        );
+        List<EdgeConfig> edges = new ArrayList<>(List.of(
+            new EdgeConfig("START", "check"),
+            new EdgeConfig("check", "matched", "data_equals:ok-decided"),
+            new EdgeConfig("check", "fallback"),
+            new EdgeConfig("matched", "END"),
+            new EdgeConfig("fallback", "END")
+        ));
+        edges.addAll(extraEdges);
+        return new TenantGraphConfig("tenant_test", "条件路由", nodes, edges);
+    }
+
+    private static TenantGraphConfig tenantDWithFailureRate(double failureRate) {
+        TenantGraphConfig config = TestConfigFactory.createTenantDConfig();
+        List<NodeConfig> nodes = new ArrayList<>(config.getNodes());
+        nodes.set(0, new NodeConfig("process", "retryNode", Map.of("failureRate", failureRate)));
+        config.setNodes(nodes);
+        return config;
+    }
+
+    private static DynamicState run(CompiledGraph<DynamicState> graph, String data) {
+        return graph.invoke(Map.of(DynamicState.DATA_KEY, data)).orElseThrow();
+    }
+
+    @Test
+    @DisplayName("条件命中走条件边，未命中走同源普通边兜底")
+    void testConditionalRouteAndPlainFallback() throws Exception {
+        CompiledGraph<DynamicState> graph = builder.buildGraph(routedConfig(List.of()));
+
+        List<String> hit = run(graph, "ok").getMessages();
+        assertTrue(hit.contains("[matched] 节点执行完成"), hit.toString());
+        assertFalse(hit.contains("[fallback] 节点执行完成"), hit.toString());
+
+        List<String> miss = run(graph, "other").getMessages();
+        assertTrue(miss.contains("[fallback] 节点执行完成"), miss.toString());
+        assertFalse(miss.contains("[matched] 节点执行完成"), miss.toString());
+    }
+
+    @Test
+    @DisplayName("条件源节点有多条普通边时构建期拒绝")
+    void testRejectMultiplePlainEdgesFromConditionalSource() {
+        TenantGraphConfig config = routedConfig(List.of(new EdgeConfig("check", "matched")));
+
+        GraphStateException error = assertThrows(GraphStateException.class, () -> builder.buildGraph(config));
+        assertTrue(error.getMessage().contains("check"), error.getMessage());
+        assertTrue(error.getMessage().contains("[fallback, matched]"), error.getMessage());
+    }
+
+    @Test
+    @DisplayName("租户D: 成功走 successLogger，连续失败重试到上限后走 failureLogger")
+    void testTenantDRetryRouting() throws Exception {
+        DynamicState success = run(builder.buildGraph(tenantDWithFailureRate(0.0)), "task");
+        assertTrue(success.getMessages().contains("[租户D-成功] 节点执行完成"), success.getMessages().toString());
+        assertEquals(0, success.getRetryCount().orElse(0).intValue());
+
+        DynamicState failure = run(builder.buildGraph(tenantDWithFailureRate(1.0)), "task");
+        assertTrue(failure.getMessages().contains("[租户D-失败] 节点执行完成"), failure.getMessages().toString());
+        assertFalse(failure.getMessages().contains("[租户D-成功] 节点执行完成"));
+        assertEquals(3, failure.getRetryCount().orElse(0).intValue());
+
+        // 原始配置（随机失败）总能在重试上限内走到某个出口
+        List<String> messages = run(builder.buildGraph(TestConfigFactory.createTenantDConfig()), "task").getMessages();
+        assertTrue(messages.contains("[租户D-成功] 节点执行完成") || messages.contains("[租户D-失败] 节点执行完成"),
+            messages.toString());
+    }
+
+    @Test
+    @DisplayName("构建前剪枝：被遮蔽的规则和孤立节点不进入编译图")
+    void testDeadBranchIsNotCompiled() throws Exception {
+        NodeRegistry registry = new NodeRegistry();
+        AtomicInteger created = new AtomicInteger();
+        registry.register("countedLog", () -> {
+            created.incrementAndGet();
+            return new LogNode();
+        });
+        TenantGraphConfig config = new TenantGraphConfig("tenant_test", "死分支",
+            List.of(
+                new NodeConfig("check", "decisionNode", Map.of()),
+                new NodeConfig("live", "countedLog", Map.of("prefix", "[live]")),
+                new NodeConfig("shadowed", "countedLog", Map.of("prefix", "[shadowed]")),
+                new NodeConfig("orphan", "countedLog", Map.of("prefix", "[orphan]"))
+            ),
+            List.of(
+                new EdgeConfig("START", "check"),
+                // continue 恒真，排在它后面的规则永远不会生效
+                new EdgeConfig("check", "live", "continue"),
+                new EdgeConfig("check", "shadowed", "data_contains_error"),
+                new EdgeConfig("live", "END"),
+                new EdgeConfig("shadowed", "END"),
+                new EdgeConfig("orphan", "END")
+            ));
+
+        CompiledGraph<DynamicState> graph = new DynamicGraphBuilder(registry).buildGraph(config);
+
+        // 只有 live 被创建：shadowed 和 orphan 在编译前已被剪掉
+        assertEquals(1, created.get());
+        List<String> messages = run(graph, "error").getMessages();
+        assertTrue(messages.contains("[live] 节点执行完成"), messages.toString());
+        assertFalse(messages.contains("[shadowed] 节点执行完成"), messages.toString());
+    }
+}
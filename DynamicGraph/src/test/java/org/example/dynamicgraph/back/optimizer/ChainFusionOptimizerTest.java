@@ -0,0 +1,133 @@
+package org.example.dynamicgraph.back.optimizer;
+
+import org.example.dynamicgraph.back.config.EdgeConfig;
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.core.DynamicState;
+import org.example.dynamicgraph.back.factory.TestConfigFactory;
+import org.example.dynamicgraph.back.nodes.DynamicNode;
+import org.example.dynamicgraph.back.nodes.impl.FusedNode;
+import org.example.dynamicgraph.back.registry.NodeRegistry;
+import org.example.dynamicgraph.optimizer.FusionResult;
+import org.example.dynamicgraph.scope.NodeScope;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 链融合优化测试
+ */
+class ChainFusionOptimizerTest {
+
+    private final NodeRegistry registry = new NodeRegistry();
+    private final ChainFusionOptimizer optimizer = new ChainFusionOptimizer(registry);
+
+    @Test
+    @DisplayName("租户B的线性链融合为一个复合节点，打印日志的 logger 保持独立")
+    void testFuseLinearChain() {
+        FusionResult<TenantGraphConfig> result = optimizer.optimize(TestConfigFactory.createTenantBConfig());
+
+        assertEquals(List.of(List.of("append", "upperCase")), result.fusedChains());
+        assertEquals(1, result.eliminatedSteps());
+
+        TenantGraphConfig fused = result.config();
+        assertEquals(2, fused.getNodes().size());
+        assertEquals(FusedNode.TYPE, fused.getNodes().get(0).getType());
+        assertEquals("logNode", fused.getNodes().get(1).getType());
+        assertEquals(List.of("START->append+upperCase", "append+upperCase->logger", "logger->END"), edges(fused));
+    }
+
+    @Test
+    @DisplayName("可融合性只看注册元数据，不为检查而创建 PER_GRAPH 实例")
+    void testFusibilityFromRegistryMetadata() {
+        AtomicInteger created = new AtomicInteger();
+        registry.register("pureStep", NodeScope.PER_GRAPH, () -> {
+            created.incrementAndGet();
+            return registry.createNode("upperCaseNode");
+        }, true);
+        registry.register("customStep", () -> {
+            created.incrementAndGet();
+            return registry.createNode("upperCaseNode");
+        });
+        TenantGraphConfig config = new TenantGraphConfig("t", "g",
+            List.of(
+                new NodeConfig("append", "appendNode"),
+                new NodeConfig("pure", "pureStep"),
+                new NodeConfig("custom", "customStep")
+            ),
+            List.of(
+                new EdgeConfig("START", "append"),
+                new EdgeConfig("append", "pure"),
+                new EdgeConfig("pure", "custom"),
+                new EdgeConfig("custom", "END")
+            ));
+
+        FusionResult<TenantGraphConfig> result = optimizer.optimize(config);
+
+        assertEquals(List.of(List.of("append", "pure")), result.fusedChains());
+        assertEquals(0, created.get());
+        assertTrue(registry.isSideEffectFree("pureStep"));
+        assertFalse(registry.isSideEffectFree("customStep"));
+        assertFalse(registry.isSideEffectFree("logNode"));
+    }
+
+    @Test
+    @DisplayName("条件边只挂在链尾，有副作用的节点和中断点不参与融合")
+    void testPreserveConditionalEdgesAndInterrupts() {
+        TenantGraphConfig config = new TenantGraphConfig("t", "g",
+            List.of(
+                new NodeConfig("append", "appendNode"),
+                new NodeConfig("upper", "upperCaseNode"),
+                new NodeConfig("retry", "retryNode"),
+                new NodeConfig("log", "logNode")
+            ),
+            List.of(
+                new EdgeConfig("START", "append"),
+                new EdgeConfig("append", "upper"),
+                new EdgeConfig("upper", "retry", "data_contains_error"),
+                new EdgeConfig("upper", "log", "continue"),
+                new EdgeConfig("retry", "log"),
+                new EdgeConfig("log", "END")
+            ));
+
+        FusionResult<TenantGraphConfig> result = optimizer.optimize(config);
+        assertEquals(List.of(List.of("append", "upper")), result.fusedChains());
+        assertTrue(edges(result.config()).contains("append+upper->retry"));
+        assertTrue(edges(result.config()).contains("append+upper->log"));
+
+        FusionResult<TenantGraphConfig> withInterrupt = optimizer.optimize(config, Set.of("upper"));
+        assertTrue(withInterrupt.fusedChains().isEmpty());
+    }
+
+    @Test
+    @DisplayName("复合节点按顺序应用更新，appender 字段合并追加")
+    void testFusedNodeExecution() {
+        List<DynamicNode> nodes = List.of(registry.createNode("appendNode"), registry.createNode("upperCaseNode"));
+        List<Map<String, Object>> params = List.of(Map.of("suffix", "-x"), Map.of());
+        FusedNode fused = new FusedNode(nodes, params, Set.of(DynamicState.MESSAGES_KEY));
+
+        Map<String, Object> state = new HashMap<>();
+        state.put(DynamicState.DATA_KEY, "abc");
+        state.put(DynamicState.MESSAGES_KEY, List.of("old"));
+
+        Map<String, Object> update = fused.execute(state, Map.of());
+        assertEquals("ABC-X", update.get(DynamicState.DATA_KEY));
+        assertEquals(2, ((List<?>) update.get(DynamicState.MESSAGES_KEY)).size(), "只返回本次新增的消息");
+    }
+
+    private static List<String> edges(TenantGraphConfig config) {
+        List<String> edges = new ArrayList<>();
+        for (EdgeConfig edge : config.getEdges()) {
+            edges.add(edge.getFrom() + "->" + edge.getTo());
+        }
+        return edges;
+    }
+}
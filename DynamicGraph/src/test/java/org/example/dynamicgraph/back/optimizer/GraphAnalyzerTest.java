@@ -0,0 +1,57 @@
+package org.example.dynamicgraph.back.optimizer;
+
+import org.example.dynamicgraph.analysis.GraphAnalysisReport;
+import org.example.dynamicgraph.analysis.PruneResult;
+import org.example.dynamicgraph.back.config.EdgeConfig;
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 租户图静态分析测试
+ */
+class GraphAnalyzerTest {
+
+    private final GraphAnalyzer analyzer = new GraphAnalyzer();
+
+    @Test
+    @DisplayName("continue 遮蔽后续规则，被遮蔽的目标和孤立节点被剪掉")
+    void testPruneShadowedRulesAndUnreachableNodes() {
+        TenantGraphConfig config = new TenantGraphConfig("t", "g",
+            List.of(
+                new NodeConfig("check", "decisionNode"),
+                new NodeConfig("logger", "logNode"),
+                new NodeConfig("retry", "retryNode"),
+                new NodeConfig("orphan", "logNode"),
+                new NodeConfig("loop", "logNode")
+            ),
+            List.of(
+                new EdgeConfig("START", "check"),
+                new EdgeConfig("check", "logger", "continue"),
+                new EdgeConfig("check", "retry", "data_contains_error"),
+                new EdgeConfig("retry", "END"),
+                new EdgeConfig("logger", "loop"),
+                new EdgeConfig("loop", "logger", "retry_count_lt_3"),
+                new EdgeConfig("loop", "loop", "continue"),
+                new EdgeConfig("orphan", "END")
+            ));
+
+        GraphAnalysisReport report = analyzer.analyze(config);
+        assertEquals(Set.of("retry", "orphan"), report.unreachableNodes());
+        assertEquals(Set.of("check", "logger", "loop"), report.deadEndNodes());
+        assertEquals(3, report.constantConditions().size());
+
+        PruneResult<TenantGraphConfig> result = analyzer.prune(config);
+        assertEquals(2, result.removedNodes());
+        EdgeConfig checkEdge = result.config().getEdges().stream()
+            .filter(edge -> edge.getFrom().equals("check")).findFirst().orElseThrow();
+        assertFalse(checkEdge.isConditional(), "恒真的首条规则应退化为普通边");
+        assertEquals("logger", checkEdge.getTo());
+    }
+}
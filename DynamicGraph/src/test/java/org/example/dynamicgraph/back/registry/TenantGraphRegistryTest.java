@@ -0,0 +1,63 @@
+package org.example.dynamicgraph.back.registry;
+
+import org.example.dynamicgraph.back.config.EdgeConfig;
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * TenantGraphRegistry测试类
+ */
+class TenantGraphRegistryTest {
+
+    private static final List<NodeConfig> NODES = List.of(
+        new NodeConfig("check", "decisionNode"),
+        new NodeConfig("a", "logNode"),
+        new NodeConfig("b", "logNode")
+    );
+
+    private static TenantGraphConfig config(String tenantId, EdgeConfig... edges) {
+        return new TenantGraphConfig(tenantId, "g", NODES, List.of(edges));
+    }
+
+    @Test
+    @DisplayName("指纹不含租户 ID，并行扇出的普通边与声明顺序无关")
+    void testFingerprintIgnoresTenantAndFanOutOrder() {
+        String first = TenantGraphRegistry.fingerprint(config("t1",
+            new EdgeConfig("START", "check"), new EdgeConfig("check", "a"), new EdgeConfig("check", "b"),
+            new EdgeConfig("a", "END"), new EdgeConfig("b", "END")));
+        String second = TenantGraphRegistry.fingerprint(config("t2",
+            new EdgeConfig("START", "check"), new EdgeConfig("check", "b"), new EdgeConfig("check", "a"),
+            new EdgeConfig("b", "END"), new EdgeConfig("a", "END")));
+
+        assertEquals(first, second);
+    }
+
+    @Test
+    @DisplayName("条件规则和条件源上的兜底普通边保持声明顺序")
+    void testFingerprintKeepsRoutingOrder() {
+        String fallbackAB = TenantGraphRegistry.fingerprint(config("t",
+            new EdgeConfig("check", "a", "data_contains_error"), new EdgeConfig("check", "a"), new EdgeConfig("check", "b")));
+        String fallbackBA = TenantGraphRegistry.fingerprint(config("t",
+            new EdgeConfig("check", "a", "data_contains_error"), new EdgeConfig("check", "b"), new EdgeConfig("check", "a")));
+        assertNotEquals(fallbackAB, fallbackBA);
+
+        String rulesAB = TenantGraphRegistry.fingerprint(config("t",
+            new EdgeConfig("check", "a", "data_contains_error"), new EdgeConfig("check", "b", "data_contains_success")));
+        String rulesBA = TenantGraphRegistry.fingerprint(config("t",
+            new EdgeConfig("check", "b", "data_contains_success"), new EdgeConfig("check", "a", "data_contains_error")));
+        assertNotEquals(rulesAB, rulesBA);
+
+        // 普通边与条件边的相对位置不影响：兜底规则总是排在条件规则之后
+        String fallbackFirst = TenantGraphRegistry.fingerprint(config("t",
+            new EdgeConfig("check", "b"), new EdgeConfig("check", "a", "data_contains_error")));
+        String fallbackLast = TenantGraphRegistry.fingerprint(config("t",
+            new EdgeConfig("check", "a", "data_contains_error"), new EdgeConfig("check", "b")));
+        assertEquals(fallbackFirst, fallbackLast);
+    }
+}
@@ -0,0 +1,151 @@
+package org.example.dynamicgraph.back.router;
+
+import org.example.dynamicgraph.back.core.DynamicState;
+import org.example.dynamicgraph.back.router.ConditionalRouter.RouteRule;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 编译路由器测试
+ */
+class ConditionalRouterTest {
+
+    private static DynamicState state(String data, List<String> messages, Integer retryCount) {
+        Map<String, Object> init = new HashMap<>();
+        init.put(DynamicState.DATA_KEY, data);
+        init.put(DynamicState.MESSAGES_KEY, messages);
+        if (retryCount != null) {
+            init.put(DynamicState.RETRY_COUNT_KEY, retryCount);
+        }
+        return new DynamicState(init);
+    }
+
+    @Test
+    @DisplayName("规则按顺序匹配，未匹配时使用最后一条规则的目标")
+    void testRuleOrderAndDefault() {
+        ConditionalRouter router = new ConditionalRouter(List.of(
+            new RouteRule("data_contains_error", "retry"),
+            new RouteRule("data_contains_success", "done"),
+            new RouteRule("need_human_approval", "approval")
+        ));
+
+        assertEquals("retry", router.route(state("X-ERROR", List.of(), 0)));
+        assertEquals("done", router.route(state("x-Success", List.of(), 0)));
+        assertEquals("approval", router.route(state("nothing", List.of(), 0)));
+    }
+
+    @Test
+    @DisplayName("等值条件编译为分发表，重复值以第一条为准")
+    void testEqualityDispatchTable() {
+        ConditionalRouter router = new ConditionalRouter(List.of(
+            new RouteRule("data_equals:A", "nodeA"),
+            new RouteRule("data_equals:B", "nodeB"),
+            new RouteRule("data_equals:A", "shadowed"),
+            new RouteRule("data_contains_error", "retry"),
+            new RouteRule("continue", "fallback")
+        ));
+
+        assertEquals("nodeA", router.route(state("A", List.of(), 0)));
+        assertEquals("nodeB", router.route(state("B", List.of(), 0)));
+        assertEquals("retry", router.route(state("error", List.of(), 0)));
+        assertEquals("fallback", router.route(state("C", List.of(), 0)));
+    }
+
+    @Test
+    @DisplayName("重试计数优先读取计数器，缺失时回退扫描消息")
+    void testRetryCount() {
+        ConditionalRouter router = new ConditionalRouter(List.of(
+            new RouteRule("retry_count_lt_3", "retry"),
+            new RouteRule("continue", "giveUp")
+        ));
+
+        List<String> retries = List.of("操作失败，重试中", "操作失败，重试中", "操作失败，重试中");
+        assertEquals("retry", router.route(state("x", retries, 1)));
+        assertEquals("giveUp", router.route(state("x", List.of(), 3)));
+        assertEquals("giveUp", router.route(state("x", retries, null)));
+    }
+
+    @Test
+    @DisplayName("无法解析的条件在构建期报错，未知标识符按状态变量取真值")
+    void testInvalidConditionFailsAtBuildTime() {
+        assertThrows(IllegalArgumentException.class, () -> new RouteRule("retry_count <", "retry"));
+        assertThrows(IllegalArgumentException.class, () -> new RouteRule("data_contains error", "retry"));
+        assertThrows(IllegalArgumentException.class, () -> new ConditionalRouter(List.of(
+            new RouteRule("data_contains_error", "retry"),
+            new RouteRule("retryCount = 3", "giveUp")
+        )));
+
+        // 词汇表之外的标识符不是语法错误：状态里没有该变量时不匹配
+        RouteRule unknown = new RouteRule("data_contains_eror", "retry");
+        assertFalse(unknown.matches(state("error", List.of(), 0)));
+    }
+
+    private static ConditionalRouter retryRouter() {
+        return new ConditionalRouter(List.of(
+            new RouteRule("data_equals:ok", "ok"),
+            new RouteRule("data_contains_error", "retry"),
+            new RouteRule("data_contains_success", "done"),
+            new RouteRule("retry_count_lt_3", "retry"),
+            new RouteRule("continue", "end")
+        ));
+    }
+
+    private static List<String> history(int length) {
+        List<String> messages = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            messages.add(i % 10 == 0 ? "操作失败，重试中" : "执行了大写转换");
+        }
+        return messages;
+    }
+
+    @Test
+    @DisplayName("长消息历史下优先使用重试计数器，没有计数器时才扫描历史")
+    void testRoutingWithLongHistory() {
+        ConditionalRouter router = retryRouter();
+        List<String> messages = history(10_000);
+        assertEquals("retry", router.route(state("some payload", messages, 1)));
+        // 历史里有 1000 条重试消息
+        assertEquals("end", router.route(state("some payload", messages, null)));
+        assertEquals("retry", router.route(state("some payload", history(10), null)));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "dynamicgraph.benchmark", matches = "true")
+    @DisplayName("基准：路由耗时与消息历史长度")
+    void benchmarkRoutingCostByHistoryLength() {
+        ConditionalRouter router = retryRouter();
+
+        int iterations = 2_000;
+        for (int historyLength : new int[]{10, 100, 1_000, 10_000}) {
+            List<String> messages = history(historyLength);
+            DynamicState withCounter = state("some payload", messages, 1);
+            DynamicState withoutCounter = state("some payload", messages, null);
+
+            long counterNanos = time(router, withCounter, iterations);
+            long scanNanos = time(router, withoutCounter, iterations);
+
+            System.out.printf("history=%6d  counter=%8.1f ns/route  scan=%10.1f ns/route%n",
+                historyLength, (double) counterNanos / iterations, (double) scanNanos / iterations);
+        }
+    }
+
+    private static long time(ConditionalRouter router, DynamicState state, int iterations) {
+        // 预热
+        for (int i = 0; i < iterations; i++) {
+            router.resolve(state);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            router.resolve(state);
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,106 @@
+package org.example.dynamicgraph.back.service;
+
+import org.example.dynamicgraph.back.builder.DynamicGraphBuilder;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.factory.TestConfigFactory;
+import org.example.dynamicgraph.back.registry.TenantGraphRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 租户配置目录监听测试
+ */
+class TenantConfigWatcherTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("修改后自动重载，错误配置保留旧版本，删除后注销")
+    void testHotReload() throws Exception {
+        JsonConfigService jsonService = new JsonConfigService();
+        TenantGraphRegistry registry = new TenantGraphRegistry(new DynamicGraphBuilder());
+        Path file = directory.resolve("tenant-a.json");
+        Files.writeString(file, jsonService.toJson(TestConfigFactory.createTenantAConfig()));
+
+        try (TenantConfigWatcher watcher = new TenantConfigWatcher(directory, jsonService, registry, 50)) {
+            watcher.start();
+            String original = registry.getFingerprint("tenant_A").orElseThrow();
+
+            // 同一租户改为 B 的流程
+            var edited = TestConfigFactory.createTenantBConfig();
+            edited.setTenantId("tenant_A");
+            Files.writeString(file, jsonService.toJson(edited));
+            await(() -> !original.equals(registry.getFingerprint("tenant_A").orElse(original)));
+            String reloaded = registry.getFingerprint("tenant_A").orElseThrow();
+
+            Files.writeString(file, "{ broken json");
+            await(() -> watcher.getErrors().containsKey("tenant-a.json"));
+            assertEquals(reloaded, registry.getFingerprint("tenant_A").orElseThrow());
+
+            Files.delete(file);
+            await(() -> registry.getFingerprint("tenant_A").isEmpty());
+            assertTrue(watcher.getErrors().isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("多个文件声明同一租户：删除其中一个改用剩余文件，最后一个删除才注销")
+    void testTenantOwnedBySeveralFiles() throws Exception {
+        JsonConfigService jsonService = new JsonConfigService();
+        TenantGraphRegistry registry = new TenantGraphRegistry(new DynamicGraphBuilder());
+        TenantGraphConfig configA = TestConfigFactory.createTenantAConfig();
+        TenantGraphConfig configB = TestConfigFactory.createTenantBConfig();
+        configB.setTenantId(configA.getTenantId());
+        String tenantId = configA.getTenantId();
+        Path fileA = directory.resolve("a.json");
+        Path fileB = directory.resolve("b.json");
+        Files.writeString(fileA, jsonService.toJson(configA));
+        Files.writeString(fileB, jsonService.toJson(configB));
+
+        try (TenantConfigWatcher watcher = new TenantConfigWatcher(directory, jsonService, registry, 50)) {
+            watcher.start();
+            // 启动时按路径顺序加载，b.json 最后加载
+            assertEquals(TenantGraphRegistry.fingerprint(configB), registry.getFingerprint(tenantId).orElseThrow());
+
+            Files.delete(fileB);
+            String fingerprintA = TenantGraphRegistry.fingerprint(configA);
+            await(() -> fingerprintA.equals(registry.getFingerprint(tenantId).orElse(null)));
+
+            Files.delete(fileA);
+            await(() -> registry.getFingerprint(tenantId).isEmpty());
+        }
+    }
+
+    @Test
+    @DisplayName("内容未变化的文件事件不重新解析")
+    void testUnchangedContentIsSkipped() throws Exception {
+        JsonConfigService jsonService = new JsonConfigService();
+        TenantGraphRegistry registry = new TenantGraphRegistry(new DynamicGraphBuilder());
+        Path file = directory.resolve("tenant-c.json");
+        String json = jsonService.toJson(TestConfigFactory.createTenantCConfig());
+        Files.writeString(file, json);
+
+        try (TenantConfigWatcher watcher = new TenantConfigWatcher(directory, jsonService, registry, 50)) {
+            watcher.start();
+            Files.writeString(file, json);
+            await(() -> ((Number) watcher.stats().get("unchanged")).longValue() >= 1);
+            assertEquals(1L, ((Number) watcher.stats().get("reloads")).longValue());
+        }
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "等待重载超时");
+            Thread.sleep(20);
+        }
+    }
+}
@@ -11,6 +11,7 @@ import org.example.dynamicgraph.designv1.node.impl.LogNode;
 import org.example.dynamicgraph.designv1.node.impl.ResponseNode;
 import org.example.dynamicgraph.designv1.node.impl.SetValueNode;
 import org.example.dynamicgraph.designv1.node.impl.TransformNode;
+import org.example.dynamicgraph.scope.NodeScope;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -18,6 +19,7 @@ import org.junit.jupiter.api.Test;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -472,4 +474,53 @@ class DynamicGraphTest {
         assertEquals(1, logs.size());
         assertEquals("步骤3完成", logs.get(0));
     }
+
+    // ==================== 静态剪枝 ====================
+
+    @Test
+    @DisplayName("构建前剪枝：恒假分支和孤立节点不进入编译图")
+    void testDeadBranchIsNotCompiled() throws Exception {
+        NodeRegistry registry = new NodeRegistry();
+        registry.register("intentRecognition", new IntentRecognitionNode());
+        registry.register("defaultReply", new ResponseNode("我不太明白"));
+        AtomicInteger deadCreated = new AtomicInteger();
+        registry.register("deadReply", NodeScope.PER_GRAPH, params -> {
+            deadCreated.incrementAndGet();
+            return new ResponseNode("不该执行");
+        });
+        DynamicGraphBuilder pruningBuilder = new DynamicGraphBuilder(registry, new ObjectMapper());
+
+        String json = """
+            {
+              "id": "dead-branch-graph",
+              "name": "Dead Branch Graph",
+              "entryNode": "recognize",
+              "nodes": [
+                { "id": "recognize", "componentType": "intentRecognition" },
+                { "id": "neverReply", "componentType": "deadReply" },
+                { "id": "orphan", "componentType": "deadReply" },
+                { "id": "fallback", "componentType": "defaultReply" }
+              ],
+              "edges": [
+                { "from": "neverReply", "to": "__end__" },
+                { "from": "orphan", "to": "__end__" },
+                { "from": "fallback", "to": "__end__" }
+              ],
+              "conditionalEdges": [
+                {
+                  "from": "recognize",
+                  "conditions": [ { "when": "1 > 2", "target": "neverReply" } ],
+                  "defaultTarget": "fallback"
+                }
+              ]
+            }
+            """;
+
+        CompiledGraph<DynamicAgentState> graph = pruningBuilder.buildFromJson(json);
+
+        // 两个死节点的工厂都没有被调用：剪枝发生在创建节点和编译之前
+        assertEquals(0, deadCreated.get());
+        Optional<DynamicAgentState> result = graph.invoke(Map.of("input", "随便说点啥"));
+        assertEquals("我不太明白", result.orElseThrow().getString("response"));
+    }
 }
@@ -0,0 +1,101 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import org.example.dynamicgraph.analysis.GraphAnalysisReport;
+import org.example.dynamicgraph.analysis.PruneResult;
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+import org.example.dynamicgraph.designv1.node.NodeRegistry;
+import org.example.dynamicgraph.designv1.node.impl.ResponseNode;
+import org.example.dynamicgraph.designv1.node.impl.SetValueNode;
+import org.example.dynamicgraph.designv1.node.impl.TransformNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图静态分析与剪枝测试
+ */
+class GraphAnalyzerTest {
+
+    private GraphAnalyzer analyzer;
+
+    @BeforeEach
+    void setUp() {
+        NodeRegistry registry = new NodeRegistry();
+        registry.register("setCurrent1", new SetValueNode("current", "step1"));
+        registry.register("setCurrent2", new SetValueNode("current", "step2"));
+        registry.register("setData", new SetValueNode("data", "hello"));
+        registry.register("dataToUpper", new TransformNode("data", "data", "upper"));
+        registry.register("reply", new ResponseNode("done", "status"));
+        analyzer = new GraphAnalyzer(registry);
+    }
+
+    private static GraphConfig linear(String... componentTypes) {
+        GraphConfig config = new GraphConfig();
+        config.setId("g");
+        config.setEntryNode("n0");
+        for (int i = 0; i < componentTypes.length; i++) {
+            config.getNodes().add(NodeConfig.of("n" + i, componentTypes[i]));
+            String next = i + 1 < componentTypes.length ? "n" + (i + 1) : "__end__";
+            config.getEdges().add(GraphConfigs.edge("n" + i, next));
+        }
+        return config;
+    }
+
+    @Test
+    @DisplayName("被覆盖前未读取的写入可绕过删除")
+    void testDeadWrites() {
+        GraphConfig config = linear("setCurrent1", "setCurrent2", "reply");
+
+        GraphAnalysisReport report = analyzer.analyze(config);
+        assertEquals(Set.of("n0"), report.deadWriteNodes());
+
+        PruneResult<GraphConfig> result = analyzer.prune(config, false);
+        assertEquals(1, result.removedNodes());
+        assertEquals("n1", result.config().getEntryNode());
+    }
+
+    @Test
+    @DisplayName("被读取的写入保留，入口常量可折叠为默认值")
+    void testLiveWriteAndConstantFolding() {
+        GraphConfig config = linear("setData", "dataToUpper", "reply");
+
+        assertTrue(analyzer.analyze(config).deadWriteNodes().isEmpty());
+        assertEquals(Map.of("data", "hello"), analyzer.analyze(config).foldableConstants());
+
+        GraphConfig folded = analyzer.prune(config, true).config();
+        assertEquals("n1", folded.getEntryNode());
+        assertEquals("hello", folded.getStateSchema().get("data").getDefaultValue());
+        assertEquals("appender", folded.getStateSchema().get("messages").getType());
+    }
+
+    @Test
+    @DisplayName("恒真分支遮蔽后续分支，被遮蔽的目标不可达")
+    void testConstantConditionAndUnreachable() {
+        GraphConfig config = linear("setCurrent1");
+        config.getEdges().clear();
+        config.getNodes().add(NodeConfig.of("a", "reply"));
+        config.getNodes().add(NodeConfig.of("b", "reply"));
+        config.getEdges().add(GraphConfigs.edge("a", "__end__"));
+        config.getEdges().add(GraphConfigs.edge("b", "__end__"));
+
+        ConditionalEdgeConfig edge = new ConditionalEdgeConfig();
+        edge.setFrom("n0");
+        edge.setConditions(List.of(GraphConfigs.branch("1 < 2", "a"), GraphConfigs.branch("current == 'x'", "b")));
+        config.getConditionalEdges().add(edge);
+
+        GraphAnalysisReport report = analyzer.analyze(config);
+        assertEquals(2, report.constantConditions().size());
+        assertEquals(Set.of("b"), report.unreachableNodes());
+
+        GraphConfig pruned = analyzer.prune(config, false).config();
+        assertTrue(pruned.getConditionalEdges().isEmpty(), "只剩一个目标的条件边应退化为普通边");
+        assertEquals(2, pruned.getNodes().size());
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dynamicgraph.designv1.node.NodeRegistry;
+import org.example.dynamicgraph.designv1.node.impl.ResponseNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图注册表测试
+ */
+class GraphRegistryTest {
+
+    private GraphRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        NodeRegistry nodeRegistry = new NodeRegistry();
+        nodeRegistry.register("reply", new ResponseNode("ok"));
+        nodeRegistry.register("replyV2", new ResponseNode("ok-v2"));
+        registry = new GraphRegistry(new DynamicGraphBuilder(nodeRegistry, new ObjectMapper()));
+    }
+
+    private static String graph(String id, String entry) {
+        return "{\"id\":\"" + id + "\",\"entryNode\":\"" + entry + "\","
+            + "\"nodes\":[{\"id\":\"a\",\"componentType\":\"reply\"}],"
+            + "\"edges\":[{\"from\":\"a\",\"to\":\"__end__\"}]}";
+    }
+
+    @Test
+    @DisplayName("JSONL 批量加载：失败隔离，结构相同的图共享")
+    void testBulkLoadFromJsonl() throws Exception {
+        Path file = Files.createTempFile("graphs", ".jsonl");
+        try {
+            Files.write(file, List.of(
+                graph("t1", "a"),
+                graph("t2", "a"),
+                "",
+                "{not json",
+                graph("t3", "missing")
+            ));
+
+            BulkLoadReport report = registry.registerAll(file, 4);
+
+            assertEquals(4, report.total());
+            assertEquals(2, report.loaded());
+            assertEquals(2, report.failed());
+            assertEquals(1, report.distinctGraphs());
+            assertTrue(report.failures().keySet().stream().anyMatch(name -> name.endsWith(":5")));
+            assertTrue(registry.contains("t1") && registry.contains("t2"));
+            assertFalse(registry.contains("t3"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("批量加载：重复的图 ID 只注册来源顺序中的第一个")
+    void testBulkLoadRejectsDuplicateIds() throws Exception {
+        Path file = Files.createTempFile("graphs", ".jsonl");
+        try {
+            Files.write(file, List.of(
+                graph("t1", "a"),
+                graph("t1", "a").replace("\"reply\"", "\"replyV2\""),
+                graph("t2", "a")
+            ));
+
+            BulkLoadReport report = registry.registerAll(file, 4);
+
+            assertEquals(2, report.loaded());
+            assertEquals(1, report.failed());
+            String failure = report.failures().get(file.getFileName() + ":2");
+            assertNotNull(failure);
+            assertTrue(failure.contains("Duplicate graph id: t1"), failure);
+            // 第二行结构不同，没被注册所以共享池里只有一种结构
+            assertEquals(1, report.distinctGraphs());
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    @DisplayName("惰性模式：重新注册后按新配置和新指纹编译，旧编译结果不会被错配")
+    void testLazyRegistryReRegistration() throws Exception {
+        NodeRegistry nodeRegistry = new NodeRegistry();
+        nodeRegistry.register("reply", new ResponseNode("ok"));
+        nodeRegistry.register("replyV2", new ResponseNode("ok-v2"));
+        DynamicGraphBuilder builder = new DynamicGraphBuilder(nodeRegistry, new ObjectMapper());
+        LazyGraphRegistry lazy = new LazyGraphRegistry(builder, 4);
+
+        lazy.registerFromJson("t1", graph("t1", "a"));
+        assertFalse(lazy.isResident("t1"));
+        assertEquals("ok", respond(lazy, "t1"));
+        assertTrue(lazy.isResident("t1"));
+
+        lazy.registerFromJson("t1", graph("t1", "a").replace("\"reply\"", "\"replyV2\""));
+        assertFalse(lazy.isResident("t1"), "新指纹尚未编译");
+        assertEquals("ok-v2", respond(lazy, "t1"));
+
+        lazy.unregister("t1");
+        assertFalse(lazy.contains("t1"));
+        assertTrue(lazy.get("t1").isEmpty());
+    }
+
+    private static String respond(LazyGraphRegistry lazy, String graphId) throws Exception {
+        return lazy.getOrThrow(graphId).invoke(Map.of()).orElseThrow().getString("response");
+    }
+}
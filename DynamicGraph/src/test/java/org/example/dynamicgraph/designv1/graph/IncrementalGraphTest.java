@@ -0,0 +1,178 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import org.example.dynamicgraph.designv1.edge.ConditionalEdgeConfig;
+import org.example.dynamicgraph.designv1.graph.DynamicGraphBuilder.DynamicAgentState;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+import org.example.dynamicgraph.designv1.node.NodeRegistry;
+import org.example.dynamicgraph.designv1.node.impl.SetValueNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 配置差异与增量重编译测试
+ */
+class IncrementalGraphTest {
+
+    private DynamicGraphBuilder builder;
+
+    @BeforeEach
+    void setUp() {
+        NodeRegistry registry = new NodeRegistry();
+        registry.register("setA", new SetValueNode("data", "A"));
+        registry.register("setB", new SetValueNode("data", "B"));
+        builder = new DynamicGraphBuilder(registry, null);
+    }
+
+    /**
+     * n0 -> n1 -> ... -> n(size-1) -> END，每 10 个节点有一条表达式条件边
+     */
+    private static GraphConfig chain(int size) {
+        GraphConfig config = new GraphConfig();
+        config.setId("g");
+        config.setName("chain-" + size);
+        config.setEntryNode("n0");
+        for (int i = 0; i < size; i++) {
+            config.getNodes().add(NodeConfig.of("n" + i, "setA"));
+            String next = i + 1 < size ? "n" + (i + 1) : "__end__";
+            if (i % 10 == 9) {
+                ConditionalEdgeConfig edge = new ConditionalEdgeConfig();
+                edge.setFrom("n" + i);
+                edge.setConditions(List.of(GraphConfigs.branch("data == \"stop\"", "__end__")));
+                edge.setDefaultTarget(next);
+                config.getConditionalEdges().add(edge);
+            } else {
+                config.getEdges().add(GraphConfigs.edge("n" + i, next));
+            }
+        }
+        return config;
+    }
+
+    private static void setComponent(GraphConfig config, String nodeId, String componentType) {
+        config.getNodes().stream().filter(node -> node.getId().equals(nodeId)).findFirst()
+            .orElseThrow().setComponentType(componentType);
+    }
+
+    private static void retarget(GraphConfig config, String from, String to) {
+        config.getEdges().stream().filter(edge -> edge.getFrom().equals(from)).findFirst()
+            .orElseThrow().setTo(to);
+    }
+
+    @Test
+    @DisplayName("差异计算：只改描述不算变化，改组件类型和改边分别识别")
+    void testDiff() {
+        GraphConfig before = chain(20);
+        GraphConfig described = chain(20);
+        described.getNodes().get(3).setDescription("只是注释");
+        assertTrue(GraphConfigDiff.between(before, described).isEmpty());
+
+        GraphConfig edited = chain(20);
+        setComponent(edited, "n3", "setB");
+        retarget(edited, "n5", "n7");
+        GraphConfigDiff diff = GraphConfigDiff.between(before, edited);
+        assertEquals(Set.of("n3"), diff.changedNodes());
+        assertEquals(Set.of("n5"), diff.rewiredNodes());
+        assertTrue(diff.topologyChanged());
+    }
+
+    @Test
+    @DisplayName("只改组件类型：变化节点换新包装器，旧版本句柄仍按旧 Action 执行")
+    void testActionChangeLeavesPreviousVersionIntact() throws Exception {
+        IncrementalGraph v1 = builder.buildIncremental(chain(20));
+        GraphConfig edited = chain(20);
+        setComponent(edited, "n19", "setB");
+
+        IncrementalGraph v2 = builder.update(v1, edited);
+        assertTrue(v2.recompiled());
+        assertNotSame(v1.graph(), v2.graph());
+        assertNotSame(v1.slots().get("n19"), v2.slots().get("n19"));
+        assertSame(v1.slots().get("n18"), v2.slots().get("n18"));
+        ConditionalEdgeConfig unchanged = edited.getConditionalEdges().get(0);
+        assertSame(v1.routes().get(unchanged), v2.routes().get(unchanged));
+
+        DynamicAgentState state = new DynamicAgentState(Map.of());
+        assertEquals(Map.of("data", "B"), v2.nodeAction("n19").apply(state));
+        assertEquals(Map.of("data", "A"), v1.nodeAction("n19").apply(state));
+
+        // 更新之后再运行旧版本的编译图，行为不变
+        assertEquals("A", v1.graph().invoke(Map.of()).orElseThrow().getString("data"));
+        assertEquals("B", v2.graph().invoke(Map.of()).orElseThrow().getString("data"));
+
+        // 无差异的更新原样复用
+        IncrementalGraph same = builder.update(v2, chain20WithLast("setB"));
+        assertFalse(same.recompiled());
+        assertSame(v2.graph(), same.graph());
+    }
+
+    private static GraphConfig chain20WithLast(String componentType) {
+        GraphConfig config = chain(20);
+        setComponent(config, "n19", componentType);
+        return config;
+    }
+
+    @Test
+    @DisplayName("拓扑变化时重编译，未变化节点复用包装器，旧版本不受影响")
+    void testTopologyRebuildReusesWrappers() throws Exception {
+        IncrementalGraph v1 = builder.buildIncremental(chain(20));
+        GraphConfig edited = chain(20);
+        setComponent(edited, "n3", "setB");
+        retarget(edited, "n5", "n7");
+
+        IncrementalGraph v2 = builder.update(v1, edited);
+        assertTrue(v2.recompiled());
+        assertSame(v1.slots().get("n4"), v2.slots().get("n4"));
+        assertNotSame(v1.slots().get("n3"), v2.slots().get("n3"));
+        ConditionalEdgeConfig unchanged = edited.getConditionalEdges().get(0);
+        assertSame(v1.routes().get(unchanged), v2.routes().get(unchanged));
+
+        DynamicAgentState state = new DynamicAgentState(Map.of());
+        assertEquals(Map.of("data", "A"), v1.nodeAction("n3").apply(state));
+        assertEquals(Map.of("data", "B"), v2.nodeAction("n3").apply(state));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "dynamicgraph.benchmark", matches = "true")
+    @DisplayName("基准：数百节点图的编辑到可用耗时（全量 vs 增量）")
+    void benchmarkEditToReady() throws Exception {
+        for (int size : new int[]{100, 300, 600}) {
+            GraphConfig base = chain(size);
+            GraphConfig actionChange = chain(size);
+            setComponent(actionChange, "n" + (size / 2), "setB");
+            GraphConfig edgeEdit = chain(size);
+            retarget(edgeEdit, "n" + (size / 2), "n" + (size / 2 + 2));
+
+            IncrementalGraph current = builder.buildIncremental(base);
+            int iterations = 20;
+            long full = 0;
+            long actionEdit = 0;
+            long rewire = 0;
+            for (int i = 0; i < iterations + 5; i++) {
+                long t0 = System.nanoTime();
+                builder.build(edgeEdit);
+                long t1 = System.nanoTime();
+                IncrementalGraph edited = builder.update(current, actionChange);
+                long t2 = System.nanoTime();
+                // 从编辑后的版本改回基线
+                builder.update(edited, base);
+                long t3 = System.nanoTime();
+                builder.update(current, edgeEdit);
+                long t4 = System.nanoTime();
+                // 前 5 轮预热
+                if (i >= 5) {
+                    full += t1 - t0;
+                    actionEdit += t2 - t1;
+                    rewire += t4 - t3;
+                }
+            }
+            System.out.printf("nodes=%4d  full=%8.3f ms  actionEdit=%8.3f ms  incrementalRebuild=%8.3f ms%n",
+                size, full / 1e6 / iterations, actionEdit / 1e6 / iterations, rewire / 1e6 / iterations);
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.dynamicgraph.designv1.graph;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.service.JsonConfigService;
+import org.example.dynamicgraph.parse.ConfigFormat;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式配置解析测试
+ */
+class StreamingGraphConfigReaderTest {
+
+    private static final String GRAPH = """
+        {"id": "%s", "name": "demo", "entryNode": "greet", "extra": {"ignored": [1, 2]},
+         "edges": [{"from": "greet", "to": "reply"}, {"from": "reply", "to": "__end__"}],
+         "nodes": [{"id": "greet", "componentType": "log"}, {"id": "reply", "componentType": "response"}],
+         "conditionalEdges": [],
+         "stateSchema": {"messages": {"type": "appender"}}}
+        """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final StreamingGraphConfigReader reader = new StreamingGraphConfigReader(objectMapper);
+
+    private static ByteArrayInputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("流式解析：忽略未知字段，边可以出现在节点之前")
+    void testSingleGraph() throws Exception {
+        GraphConfig config = reader.read(stream(GRAPH.formatted("g1")), null);
+
+        assertEquals("g1", config.getId());
+        assertEquals("greet", config.getEntryNode());
+        assertEquals(2, config.getNodes().size());
+        assertEquals(2, config.getEdges().size());
+        assertEquals("appender", config.getStateSchema().get("messages").getType());
+    }
+
+    @Test
+    @DisplayName("重复节点在读到时立即报错并带位置，跨元素错误在图读完后报告")
+    void testValidatesAsItGoes() {
+        String duplicate = """
+            {"id": "g", "entryNode": "a",
+             "nodes": [{"id": "a", "componentType": "log"},
+                       {"id": "a", "componentType": "log"}]}
+            """;
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> reader.read(duplicate));
+        assertTrue(error.getMessage().contains("节点 ID 重复: a at line 3"), error.getMessage());
+
+        String danglingEdge = """
+            {"id": "g", "entryNode": "a", "nodes": [{"id": "a", "componentType": "log"}],
+             "edges": [{"from": "a", "to": "missing"}]}
+            """;
+        assertThrows(IllegalArgumentException.class, () -> reader.read(danglingEdge));
+    }
+
+    @Test
+    @DisplayName("多图包：JSONL 与顶层数组")
+    void testBundles() throws Exception {
+        List<String> ids = new ArrayList<>();
+        String jsonl = GRAPH.formatted("a").replace("\n", " ") + "\n" + GRAPH.formatted("b").replace("\n", " ") + "\n";
+        assertEquals(2, reader.readBundle(stream(jsonl), ConfigFormat.JSON, config -> ids.add(config.getId())));
+
+        String array = "[" + GRAPH.formatted("c") + "," + GRAPH.formatted("d") + "]";
+        assertEquals(2, reader.readBundle(stream(array), null, config -> ids.add(config.getId())));
+        assertEquals(List.of("a", "b", "c", "d"), ids);
+    }
+
+    @Test
+    @DisplayName("租户配置包逐个解析")
+    void testTenantBundle() throws Exception {
+        JsonConfigService service = new JsonConfigService();
+        Path bundle = Files.createTempFile("tenants", ".jsonl");
+        try {
+            Files.writeString(bundle, """
+                {"tenantId": "t1", "graphName": "one", "nodes": [], "edges": []}
+                {"tenantId": "t2", "graphName": "two", "nodes": [], "edges": []}
+                """);
+            List<String> tenants = new ArrayList<>();
+            assertEquals(2, service.parseBundle(bundle, config -> tenants.add(config.getTenantId())));
+            assertEquals(List.of("t1", "t2"), tenants);
+
+            TenantGraphConfig single = service.parseFromStream(
+                stream("{\"tenantId\": \"t3\", \"nodes\": [], \"edges\": []}"), null);
+            assertEquals("t3", single.getTenantId());
+        } finally {
+            Files.deleteIfExists(bundle);
+        }
+    }
+
+    @Test
+    @DisplayName("CBOR / Smile 往返：按文件头识别格式，解析结果与 JSON 一致")
+    void testBinaryRoundTrip() throws Exception {
+        GraphConfig expected = reader.read(GRAPH.formatted("bin"));
+        for (ConfigFormat format : List.of(ConfigFormat.CBOR, ConfigFormat.SMILE)) {
+            ObjectMapper mapper = format.mapper(objectMapper);
+            GraphConfig actual = reader.read(new ByteArrayInputStream(mapper.writeValueAsBytes(expected)), null);
+            assertEquals(expected, actual, format.name());
+
+            // 二进制根值序列作为多图包
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            try (var sequence = mapper.writer().writeValues(out)) {
+                sequence.write(expected);
+                sequence.write(expected);
+            }
+            List<GraphConfig> graphs = new ArrayList<>();
+            assertEquals(2, reader.readBundle(new ByteArrayInputStream(out.toByteArray()), format, graphs::add));
+            assertEquals(List.of(expected, expected), graphs, format.name());
+        }
+    }
+
+    @Test
+    @DisplayName("CBOR / Smile 租户配置包按扩展名识别")
+    void testBinaryTenantBundle() throws Exception {
+        JsonConfigService service = new JsonConfigService();
+        Map<ConfigFormat, String> suffixes = Map.of(ConfigFormat.CBOR, ".cbor", ConfigFormat.SMILE, ".smile");
+        for (Map.Entry<ConfigFormat, String> entry : suffixes.entrySet()) {
+            Path bundle = Files.createTempFile("tenants", entry.getValue());
+            try {
+                ObjectMapper mapper = entry.getKey().mapper(objectMapper);
+                Files.write(bundle, mapper.writeValueAsBytes(List.of(
+                    new TenantGraphConfig("t1", "one", List.of(), List.of()),
+                    new TenantGraphConfig("t2", "two", List.of(), List.of()))));
+                List<String> tenants = new ArrayList<>();
+                assertEquals(2, service.parseBundle(bundle, config -> tenants.add(config.getTenantId())));
+                assertEquals(List.of("t1", "t2"), tenants, entry.getKey().name());
+
+                TenantGraphConfig single = service.parseFromStream(new ByteArrayInputStream(
+                    mapper.writeValueAsBytes(new TenantGraphConfig("t3", "three", List.of(), List.of()))), null);
+                assertEquals("t3", single.getTenantId());
+            } finally {
+                Files.deleteIfExists(bundle);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("空包返回 0，坏元素报错且不影响已交付的元素")
+    void testEmptyAndMalformedBundles() throws Exception {
+        assertEquals(0, reader.readBundle(stream("[]"), null, config -> fail("unexpected " + config)));
+        assertEquals(0, reader.readBundle(stream(""), ConfigFormat.JSON, config -> fail("unexpected " + config)));
+
+        JsonConfigService service = new JsonConfigService();
+        Path bundle = Files.createTempFile("tenants", ".json");
+        try {
+            Files.writeString(bundle, "[]");
+            assertEquals(0, service.parseBundle(bundle, config -> fail("unexpected " + config)));
+            Files.writeString(bundle, "");
+            assertEquals(0, service.parseBundle(bundle, config -> fail("unexpected " + config)));
+
+            Files.writeString(bundle, """
+                [{"tenantId": "t1", "nodes": [], "edges": []},
+                 42,
+                 {"tenantId": "t3", "nodes": [], "edges": []}]
+                """);
+            List<String> tenants = new ArrayList<>();
+            assertThrows(IOException.class, () -> service.parseBundle(bundle, config -> tenants.add(config.getTenantId())));
+            assertEquals(List.of("t1"), tenants);
+        } finally {
+            Files.deleteIfExists(bundle);
+        }
+
+        String malformed = "[" + GRAPH.formatted("ok") + ", {\"id\": \"bad\", \"nodes\": [{\"componentType\": \"log\"}]}]";
+        List<String> ids = new ArrayList<>();
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+            () -> reader.readBundle(stream(malformed), null, config -> ids.add(config.getId())));
+        assertTrue(error.getMessage().contains("节点缺少 id"), error.getMessage());
+        assertEquals(List.of("ok"), ids);
+    }
+}
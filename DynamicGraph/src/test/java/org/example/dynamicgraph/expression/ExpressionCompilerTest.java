@@ -0,0 +1,135 @@
+package org.example.dynamicgraph.expression;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * 条件表达式编译测试
+ */
+class ExpressionCompilerTest {
+
+    private static boolean eval(String expression, Map<String, ?> variables) {
+        return ExpressionCompiler.compile(expression).test(VariableResolver.of(variables));
+    }
+
+    @Test
+    @DisplayName("比较、布尔运算与 contains")
+    void testOperators() {
+        Map<String, Object> vars = new HashMap<>();
+        vars.put("data", "Payment ERROR");
+        vars.put("retryCount", 2);
+        vars.put("score", 85.5);
+        vars.put("approved", false);
+        vars.put("messages", List.of("a", "b", "c"));
+        vars.put("user", Map.of("level", "vip"));
+
+        assertTrue(eval("retryCount < 3 && lower(data) contains 'error'", vars));
+        assertTrue(eval("score >= 80 and not approved", vars));
+        assertTrue(eval("size(messages) == 3 || approved", vars));
+        assertTrue(eval("messages contains \"b\"", vars));
+        assertTrue(eval("user.level == 'vip'", vars));
+        assertTrue(eval("retryCount == '2'", vars));
+        assertTrue(eval("missing == null && !missing", vars));
+        assertFalse(eval("data > 3", vars), "非数字参与大小比较应为 false");
+        assertFalse(eval("(retryCount > 1) && (score < -1)", vars));
+        assertTrue(eval("-1 < retryCount", vars));
+    }
+
+    @Test
+    @DisplayName("常量子表达式在编译期折叠")
+    void testConstantFolding() {
+        assertSame(CompiledExpression.ALWAYS, ExpressionCompiler.compile("1 < 2 || unknown"));
+        assertSame(CompiledExpression.NEVER, ExpressionCompiler.compile("size('abc') > 5 && unknown"));
+    }
+
+    @Test
+    @DisplayName("语法错误在编译期报告")
+    void testSyntaxErrors() {
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compile("retryCount <"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compile("(a == 1"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compile("foo(a)"));
+        assertThrows(IllegalArgumentException.class, () -> ExpressionCompiler.compile("a = 1"));
+    }
+
+    @Test
+    @DisplayName("数值比较（含 size()）求值时不装箱")
+    void testNumericComparisonsDoNotAllocate() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        VariableResolver resolver = VariableResolver.of(Map.of(
+            "messages", List.of("a", "b", "c"), "data", "payload", "retryCount", 2));
+        CompiledExpression expression = ExpressionCompiler.compile(
+            "size(messages) > 2 && size(data) >= 5 && retryCount < 3 && size(messages) == 3");
+
+        int iterations = 100_000;
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        boolean all = true;
+        for (int i = 0; i < iterations; i++) {
+            all &= expression.test(resolver);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue(all);
+        // 每次求值装箱一个 Double 就是 16 字节；这里允许的是测量本身的零星分配
+        assertTrue(allocated < iterations, "allocated " + allocated + " bytes for " + iterations + " evaluations");
+    }
+
+    private static final CompiledExpression HAND_WRITTEN = v -> ((Integer) v.resolve("retryCount")) < 3
+            && v.resolve("data").toString().contains("error");
+
+    @Test
+    @DisplayName("编译表达式与手写 lambda 结果一致")
+    void testMatchesHandWrittenLambda() {
+        CompiledExpression compiled = ExpressionCompiler.compile("retryCount < 3 && data contains 'error'");
+        for (Map<String, Object> vars : List.<Map<String, Object>>of(
+                Map.of("retryCount", 2, "data", "some payload with error"),
+                Map.of("retryCount", 3, "data", "some payload with error"),
+                Map.of("retryCount", 0, "data", "ok"))) {
+            VariableResolver resolver = VariableResolver.of(vars);
+            assertEquals(HAND_WRITTEN.test(resolver), compiled.test(resolver), vars.toString());
+        }
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "dynamicgraph.benchmark", matches = "true")
+    @DisplayName("基准：编译表达式与手写 lambda")
+    void benchmarkAgainstHandWrittenLambda() {
+        Map<String, Object> vars = Map.of("retryCount", 2, "data", "some payload with error");
+        VariableResolver resolver = VariableResolver.of(vars);
+        CompiledExpression compiled = ExpressionCompiler.compile("retryCount < 3 && data contains 'error'");
+
+        int iterations = 1_000_000;
+        long handWrittenNanos = time(HAND_WRITTEN, resolver, iterations);
+        long compiledNanos = time(compiled, resolver, iterations);
+
+        System.out.printf("compiled=%.1f ns/eval  hand-written=%.1f ns/eval%n",
+            (double) compiledNanos / iterations, (double) handWrittenNanos / iterations);
+    }
+
+    private static long time(CompiledExpression expression, VariableResolver resolver, int iterations) {
+        boolean sink = false;
+        // 预热
+        for (int i = 0; i < iterations; i++) {
+            sink ^= expression.test(resolver);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sink ^= expression.test(resolver);
+        }
+        long elapsed = System.nanoTime() - start;
+        assertFalse(sink && !sink);
+        return elapsed;
+    }
+}
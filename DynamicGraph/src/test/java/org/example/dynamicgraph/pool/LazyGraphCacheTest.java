@@ -0,0 +1,77 @@
+package org.example.dynamicgraph.pool;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 惰性编译图缓存测试
+ */
+class LazyGraphCacheTest {
+
+    @Test
+    @DisplayName("并发首次请求只编译一次")
+    void testSingleFlight() throws Exception {
+        LazyGraphCache<String> cache = new LazyGraphCache<>(8, Long.MAX_VALUE);
+        AtomicInteger compiles = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(executor.submit(() -> cache.get("g1", 1, () -> {
+                    compiles.incrementAndGet();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return "graph";
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+            for (Future<String> result : results) {
+                assertEquals("graph", result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, compiles.get());
+        assertEquals(1L, cache.stats().get("loads"));
+    }
+
+    @Test
+    @DisplayName("超出数量或权重预算时淘汰最久未使用的图")
+    void testLruEviction() throws Exception {
+        LazyGraphCache<String> cache = new LazyGraphCache<>(2, 10);
+        cache.get("a", 4, () -> "A");
+        cache.get("b", 4, () -> "B");
+        cache.get("a", 4, () -> "A");
+
+        // 数量超限：b 最久未使用
+        cache.get("c", 1, () -> "C");
+        assertTrue(cache.isResident("a"));
+        assertFalse(cache.isResident("b"));
+
+        // 权重超限：a(4) + c(1) + d(10) > 10，依次淘汰 a、c
+        cache.get("d", 10, () -> "D");
+        assertEquals(1, cache.size());
+        assertTrue(cache.isResident("d"));
+
+        assertEquals(3L, cache.stats().get("evictions"));
+        assertEquals(4L, cache.stats().get("loads"));
+        assertEquals(1L, cache.stats().get("hits"));
+    }
+}
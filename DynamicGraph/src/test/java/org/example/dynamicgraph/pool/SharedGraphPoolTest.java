@@ -0,0 +1,58 @@
+package org.example.dynamicgraph.pool;
+
+import org.example.dynamicgraph.back.config.NodeConfig;
+import org.example.dynamicgraph.back.config.TenantGraphConfig;
+import org.example.dynamicgraph.back.factory.TestConfigFactory;
+import org.example.dynamicgraph.back.registry.TenantGraphRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 编译图共享池测试
+ */
+class SharedGraphPoolTest {
+
+    @Test
+    @DisplayName("结构相同的租户配置指纹相同，与租户 ID、节点声明顺序、数字写法无关")
+    void testFingerprintIgnoresIdentity() {
+        TenantGraphConfig a = TestConfigFactory.createTenantBConfig();
+        TenantGraphConfig b = TestConfigFactory.createTenantBConfig();
+        b.setTenantId("tenant_B_copy");
+        b.setGraphName("另一个名字");
+        List<NodeConfig> reversed = new ArrayList<>(b.getNodes());
+        Collections.reverse(reversed);
+        b.setNodes(reversed);
+
+        assertEquals(TenantGraphRegistry.fingerprint(a), TenantGraphRegistry.fingerprint(b));
+        assertNotEquals(TenantGraphRegistry.fingerprint(a),
+            TenantGraphRegistry.fingerprint(TestConfigFactory.createTenantAConfig()));
+        assertEquals(ConfigFingerprint.of(Map.of("rate", 1)), ConfigFingerprint.of(Map.of("rate", 1.0)));
+    }
+
+    @Test
+    @DisplayName("同一指纹只编译一次，引用归零后移除")
+    void testReferenceCounting() throws Exception {
+        SharedGraphPool<String> pool = new SharedGraphPool<>();
+        AtomicInteger compiles = new AtomicInteger();
+
+        String first = pool.acquire("h1", () -> "graph-" + compiles.incrementAndGet());
+        String second = pool.acquire("h1", () -> "graph-" + compiles.incrementAndGet());
+        assertSame(first, second);
+        assertEquals(1, compiles.get());
+        assertEquals(1, pool.distinctGraphs());
+
+        pool.release("h1");
+        assertTrue(pool.peek("h1").isPresent());
+        pool.release("h1");
+        assertFalse(pool.peek("h1").isPresent());
+        assertEquals(0, pool.distinctGraphs());
+    }
+}
@@ -0,0 +1,140 @@
+package org.example.dynamicgraph.pool;
+
+import org.example.dynamicgraph.pool.VersionedGraphs.GraphLease;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 图版本热替换测试
+ */
+class VersionedGraphsTest {
+
+    @Test
+    @DisplayName("新运行使用新版本，运行中的租约保持旧版本，归还后旧版本才回收")
+    void testSwapDrainsInFlightRuns() {
+        List<String> reclaimed = new ArrayList<>();
+        VersionedGraphs<String> versions = new VersionedGraphs<>(version -> reclaimed.add(version.graph()));
+
+        versions.publish("g", "f1", "v1");
+        GraphLease<String> running = versions.lease("g").orElseThrow();
+        versions.publish("g", "f2", "v2");
+
+        assertEquals("v1", running.graph());
+        assertEquals("v2", versions.lease("g").orElseThrow().graph());
+        assertTrue(reclaimed.isEmpty());
+
+        running.close();
+        running.close();
+        assertEquals(List.of("v1"), reclaimed);
+    }
+
+    @Test
+    @DisplayName("暂停的会话线程恢复时仍使用开始时的版本，线程结束后回收")
+    void testPinnedThreadSurvivesSwap() {
+        List<String> reclaimed = new ArrayList<>();
+        VersionedGraphs<String> versions = new VersionedGraphs<>(version -> reclaimed.add(version.graph()));
+
+        versions.publish("g", "f1", "v1");
+        try (GraphLease<String> firstRun = versions.lease("g", "thread-1").orElseThrow()) {
+            assertEquals("v1", firstRun.graph());
+        }
+        // 线程在人工审批处暂停期间发布新版本
+        versions.publish("g", "f2", "v2");
+
+        try (GraphLease<String> resumed = versions.lease("g", "thread-1").orElseThrow();
+             GraphLease<String> fresh = versions.lease("g", "thread-2").orElseThrow()) {
+            assertEquals("v1", resumed.graph());
+            assertEquals("v2", fresh.graph());
+        }
+        assertTrue(reclaimed.isEmpty());
+
+        versions.completeThread("g", "thread-1");
+        assertEquals(List.of("v1"), reclaimed);
+        assertEquals(1L, versions.stats().get("reclaimedVersions"));
+    }
+
+    @Test
+    @DisplayName("没有调用 completeThread 的线程固定在闲置超时后失效，旧版本得以回收")
+    void testIdlePinExpires() {
+        List<String> reclaimed = new ArrayList<>();
+        AtomicLong now = new AtomicLong();
+        VersionedGraphs<String> versions = new VersionedGraphs<>(version -> reclaimed.add(version.graph()),
+            Duration.ofMinutes(10), now::get);
+
+        versions.publish("g", "f1", "v1");
+        versions.lease("g", "thread-1").orElseThrow().close();
+        versions.publish("g", "f2", "v2");
+        assertTrue(reclaimed.isEmpty());
+
+        now.addAndGet(Duration.ofMinutes(5).toNanos());
+        try (GraphLease<String> resumed = versions.lease("g", "thread-1").orElseThrow()) {
+            assertEquals("v1", resumed.graph(), "使用会刷新闲置时间");
+        }
+        now.addAndGet(Duration.ofMinutes(9).toNanos());
+        assertEquals(0, versions.expirePins());
+
+        now.addAndGet(Duration.ofMinutes(2).toNanos());
+        assertEquals(1, versions.expirePins());
+        assertEquals(List.of("v1"), reclaimed);
+        try (GraphLease<String> restarted = versions.lease("g", "thread-1").orElseThrow()) {
+            assertEquals("v2", restarted.graph(), "固定失效后按新线程处理");
+        }
+    }
+
+    @Test
+    @DisplayName("固定线程获取租约与解除固定并发时，持有租约的版本不会被回收")
+    void testPinnedLeaseNeverSeesReclaimedVersion() throws Exception {
+        Set<VersionedGraphs.GraphVersion<String>> reclaimed = ConcurrentHashMap.newKeySet();
+        AtomicBoolean reclaimedWithLease = new AtomicBoolean();
+        VersionedGraphs<String> versions = new VersionedGraphs<>(version -> {
+            if (version.activeLeases() > 0) {
+                reclaimedWithLease.set(true);
+            }
+            reclaimed.add(version);
+        });
+
+        for (int round = 0; round < 2_000; round++) {
+            versions.publish("g", "f1", "old");
+            versions.lease("g", "t").orElseThrow().close();
+            versions.publish("g", "f2", "new");
+
+            CountDownLatch start = new CountDownLatch(1);
+            AtomicBoolean leasedReclaimed = new AtomicBoolean();
+            Thread runner = new Thread(() -> {
+                await(start);
+                try (GraphLease<String> lease = versions.lease("g", "t").orElseThrow()) {
+                    if (reclaimed.contains(lease.version())) {
+                        leasedReclaimed.set(true);
+                    }
+                }
+            });
+            runner.start();
+            start.countDown();
+            versions.completeThread("g", "t");
+            runner.join();
+            versions.completeThread("g", "t");
+
+            assertFalse(leasedReclaimed.get(), "round " + round);
+        }
+        assertFalse(reclaimedWithLease.get());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package org.example.dynamicgraph.scope;
+
+import org.bsc.langgraph4j.action.NodeAction;
+import org.bsc.langgraph4j.state.AgentState;
+import org.example.dynamicgraph.designv1.node.NodeConfig;
+import org.example.dynamicgraph.designv1.node.NodeRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 节点作用域与实例驻留测试
+ */
+class ScopedNodeFactoriesTest {
+
+    @Test
+    @DisplayName("参数相同的节点共享实例，参数不同各自配置")
+    void testPerParamsInterning() throws Exception {
+        NodeRegistry registry = new NodeRegistry();
+        NodeAction<AgentState> a = registry.get(NodeConfig.of("a", "setValue", Map.of("key", "status", "value", "done")));
+        NodeAction<AgentState> b = registry.get(NodeConfig.of("b", "setValue", new HashMap<>(Map.of("value", "done", "key", "status"))));
+        NodeAction<AgentState> c = registry.get(NodeConfig.of("c", "setValue", Map.of("key", "status", "value", "failed")));
+
+        assertSame(a, b);
+        assertNotSame(a, c);
+        assertEquals(Map.of("status", "failed"), c.apply(new AgentState(Map.of())));
+        assertEquals(2, registry.stats().get("internedInstances"));
+    }
+
+    @Test
+    @DisplayName("单例只创建一次，PER_GRAPH 每次新建，替换注册后不再命中旧实例")
+    void testScopesAndReplacement() {
+        ScopedNodeFactories<List<String>> factories = new ScopedNodeFactories<>();
+        AtomicInteger created = new AtomicInteger();
+        factories.register("shared", NodeScope.SINGLETON, params -> List.of("shared-" + created.incrementAndGet()));
+        factories.register("fresh", NodeScope.PER_GRAPH, params -> List.of("fresh-" + created.incrementAndGet()));
+        factories.register("flyweight", NodeScope.PER_PARAMS, params -> List.of("v1:" + params));
+
+        assertSame(factories.get("shared", Map.of("x", 1)), factories.get("shared", Map.of()));
+        assertNotSame(factories.get("fresh", Map.of()), factories.get("fresh", Map.of()));
+        assertEquals(3, created.get());
+
+        List<String> before = factories.get("flyweight", Map.of("x", 1));
+        factories.register("flyweight", NodeScope.PER_PARAMS, params -> List.of("v2:" + params));
+        assertEquals(List.of("v2:{x=1}"), factories.get("flyweight", Map.of("x", 1)));
+        assertNotEquals(before, factories.get("flyweight", Map.of("x", 1)));
+        assertThrows(IllegalArgumentException.class, () -> factories.get("missing", Map.of()));
+    }
+}
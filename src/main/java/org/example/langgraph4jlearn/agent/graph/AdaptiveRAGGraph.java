@@ -3,13 +3,44 @@ package org.example.langgraph4jlearn.agent.graph;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.*;
 import org.bsc.langgraph4j.action.AsyncNodeAction;
+import org.bsc.langgraph4j.action.AsyncNodeActionWithConfig;
 import org.bsc.langgraph4j.action.EdgeAction;
 import org.bsc.langgraph4j.checkpoint.MemorySaver;
 import org.example.langgraph4jlearn.agent.state.ComprehensiveWorkflowState;
+import org.example.langgraph4jlearn.rag.budget.BudgetConfig;
+import org.example.langgraph4jlearn.rag.budget.BudgetUsage;
+import org.example.langgraph4jlearn.rag.cache.RetrievalCache;
+import org.example.langgraph4jlearn.rag.embedding.Embedder;
+import org.example.langgraph4jlearn.rag.embedding.HashingEmbedder;
+import org.example.langgraph4jlearn.rag.generation.AnswerGenerator;
+import org.example.langgraph4jlearn.rag.generation.GenerationRequest;
+import org.example.langgraph4jlearn.rag.generation.TemplateAnswerGenerator;
+import org.example.langgraph4jlearn.rag.generation.TokenStreams;
+import org.example.langgraph4jlearn.rag.grading.GradingConfig;
+import org.example.langgraph4jlearn.rag.grading.LexicalOverlapGrader;
+import org.example.langgraph4jlearn.rag.grading.ParallelDocumentGrader;
+import org.example.langgraph4jlearn.rag.ingest.ChunkSink;
+import org.example.langgraph4jlearn.rag.ingest.IngestionConfig;
+import org.example.langgraph4jlearn.rag.ingest.IngestionPipeline;
+import org.example.langgraph4jlearn.rag.retrieval.Bm25Retriever;
+import org.example.langgraph4jlearn.rag.retrieval.HybridRetrievalConfig;
+import org.example.langgraph4jlearn.rag.retrieval.HybridRetriever;
+import org.example.langgraph4jlearn.rag.retrieval.PersistentVectorRetriever;
+import org.example.langgraph4jlearn.rag.retrieval.RetrievedDocument;
+import org.example.langgraph4jlearn.rag.retrieval.Retriever;
+import org.example.langgraph4jlearn.rag.retrieval.VectorRetriever;
+import org.example.langgraph4jlearn.rag.vector.QuantizationConfig;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
 
 import static org.bsc.langgraph4j.StateGraph.END;
 import static org.bsc.langgraph4j.StateGraph.START;
@@ -72,9 +103,14 @@ import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
  * - 查询重写: 优化不相关的查询
  * - 答案评估: 检测幻觉和答案质量
  * - 自适应循环: 可重新生成或重新检索
+ * - 检索缓存: 运行级 + 全局两级缓存；同一运行里对同一查询的再次检索（re_retrieve）跳过缓存，
+ *   每次查询重写都在上一次重写的基础上换一个方向，循环不会拿回刚被判为不够用的文档
+ * - 可插拔检索器: 默认是进程内 HNSW 向量检索，RETRIEVED_DOCS 中每条为 "文档ID (分数): 内容"
+ * - 流式生成: 生成节点边生成边把片段发布到 {@link TokenStreams}（按 RUN_ID 订阅），状态里只写完整答案
+ * - 成本预算: 检索 / 生成 / 评估次数和墙钟时间有上限，循环路由只在剩余预算放得下整个循环时才进入
  */
 @Slf4j
-public class AdaptiveRAGGraph {
+public class AdaptiveRAGGraph implements Closeable {
     
     // 节点名称
     public static final String QUERY_ANALYZER = "query_analyzer";
@@ -94,20 +130,181 @@ public class AdaptiveRAGGraph {
     public static final String ANSWER_QUALITY = "answer_quality";
     public static final String TRANSFORM_COUNT = "transform_count";
     public static final String REGENERATE_COUNT = "regenerate_count";
+    public static final String RUN_ID = "run_id";
+    public static final String TRANSFORMED_QUERY = "transformed_query";
+    public static final String RETRIEVER_CALLS_SAVED = "retriever_calls_saved";
+    public static final String DOCS_GRADED = "docs_graded";
+    public static final String RUN_STARTED_AT = "run_started_at";
+    public static final String RETRIEVALS_USED = "retrievals_used";
+    public static final String GENERATIONS_USED = "generations_used";
+    public static final String GRADES_USED = "grades_used";
+    public static final String LAST_RETRIEVAL = "last_retrieval";
+    
+    // 检索条数
+    public static final int STANDARD_TOP_K = 3;
+    public static final int MULTI_STEP_TOP_K = 5;
+    
+    // 循环次数上限，和成本预算同时生效
+    public static final int MAX_TRANSFORMS = 2;
+    public static final int MAX_ANSWER_RETRIES = 2;
+    
+    // 持久化索引目录下的导入清单文件名
+    private static final String INGEST_MANIFEST = "ingest-manifest.json";
+    
+    // 第二次起的查询重写依次追加的方向
+    private static final List<String> REWRITE_DIRECTIONS = List.of("相关背景知识与案例研究", "对比分析与最新研究进展");
+    
+    private static final Pattern SUB_QUERY_SEPARATOR =
+            Pattern.compile("[,，;；?？。!！]|以及|和|(?i)\\s+and\\s+");
     
     private StateGraph<ComprehensiveWorkflowState> stateGraph;
+    private RetrievalCache retrievalCache;
+    private Retriever retriever;
+    private HybridRetriever hybridRetriever;
+    private ParallelDocumentGrader documentGrader;
+    private AnswerGenerator answerGenerator;
+    private BudgetConfig budgetConfig;
+    private final TokenStreams tokenStreams = new TokenStreams();
     
     public AdaptiveRAGGraph() {
+        this(new RetrievalCache());
+    }
+    
+    public AdaptiveRAGGraph(RetrievalCache retrievalCache) {
+        this(retrievalCache, defaultRetriever());
+    }
+    
+    public AdaptiveRAGGraph(RetrievalCache retrievalCache, Retriever retriever) {
+        this(retrievalCache, retriever, defaultLexicalRetriever(), HybridRetrievalConfig.defaults(),
+                new ParallelDocumentGrader(new LexicalOverlapGrader(), GradingConfig.defaults()));
+    }
+    
+    /**
+     * @param retriever        向量检索器，标准检索使用
+     * @param lexicalRetriever 关键词检索器，和向量检索器一起组成多步检索的混合检索源
+     * @param documentGrader   文档评估器，逐篇并行评估检索结果
+     */
+    public AdaptiveRAGGraph(RetrievalCache retrievalCache, Retriever retriever, Retriever lexicalRetriever,
+                            HybridRetrievalConfig hybridConfig, ParallelDocumentGrader documentGrader) {
+        this(retrievalCache, retriever, lexicalRetriever, hybridConfig, documentGrader, new TemplateAnswerGenerator());
+    }
+    
+    /**
+     * @param answerGenerator 流式答案生成器，直接生成和基于文档生成都使用它
+     */
+    public AdaptiveRAGGraph(RetrievalCache retrievalCache, Retriever retriever, Retriever lexicalRetriever,
+                            HybridRetrievalConfig hybridConfig, ParallelDocumentGrader documentGrader,
+                            AnswerGenerator answerGenerator) {
+        this(retrievalCache, retriever, lexicalRetriever, hybridConfig, documentGrader, answerGenerator,
+                BudgetConfig.defaults());
+    }
+    
+    /**
+     * @param budgetConfig 单次运行的成本预算，限制查询重写、重新生成、重新检索循环
+     */
+    public AdaptiveRAGGraph(RetrievalCache retrievalCache, Retriever retriever, Retriever lexicalRetriever,
+                            HybridRetrievalConfig hybridConfig, ParallelDocumentGrader documentGrader,
+                            AnswerGenerator answerGenerator, BudgetConfig budgetConfig) {
+        this.retrievalCache = retrievalCache;
+        this.retriever = retriever;
+        Map<String, Retriever> sources = new LinkedHashMap<>();
+        sources.put("vector", retriever);
+        sources.put("lexical", lexicalRetriever);
+        this.hybridRetriever = new HybridRetriever(sources, hybridConfig);
+        this.documentGrader = documentGrader;
+        this.answerGenerator = answerGenerator;
+        this.budgetConfig = budgetConfig;
         buildGraph();
     }
     
+    /**
+     * 默认检索器: 本地哈希向量 + 内存 HNSW，预置示例文档
+     */
+    public static VectorRetriever defaultRetriever() {
+        return defaultRetriever(new HashingEmbedder());
+    }
+    
+    /**
+     * 内存 HNSW 检索器，向量由 embedder 生成（如带缓存和微批的 EmbeddingService），预置示例文档
+     */
+    public static VectorRetriever defaultRetriever(Embedder embedder) {
+        VectorRetriever retriever = new VectorRetriever(embedder);
+        addSampleDocuments(retriever::add);
+        return retriever;
+    }
+    
+    /**
+     * 默认关键词检索器: 内存 BM25 倒排，预置同一批示例文档
+     */
+    public static Bm25Retriever defaultLexicalRetriever() {
+        Bm25Retriever retriever = new Bm25Retriever();
+        addSampleDocuments(retriever::add);
+        retriever.flush();
+        return retriever;
+    }
+    
+    /**
+     * 导入流水线: 文档切块后同时写入向量检索源和关键词检索源；向量用向量检索器自己的 Embedder 生成。
+     * 向量检索器持久化时，导入清单写在索引目录里，重启后不会重复向量化、也能删掉已删除文件的块
+     */
+    public IngestionPipeline ingestionPipeline(IngestionConfig config) throws IOException {
+        List<ChunkSink> sinks = hybridRetriever.getSources().values().stream().map(ChunkSink::of).toList();
+        if (retriever instanceof PersistentVectorRetriever persistent) {
+            return new IngestionPipeline(persistent.getEmbedder(), sinks, config,
+                    persistent.getDirectory().resolve(INGEST_MANIFEST));
+        }
+        Embedder embedder = retriever instanceof VectorRetriever vector ? vector.getEmbedder() : new HashingEmbedder();
+        return new IngestionPipeline(embedder, sinks, config);
+    }
+    
+    /**
+     * 持久化检索器: 索引在 directory 下的 mmap 段文件里，重启直接打开；目录为空时写入示例文档
+     */
+    public static PersistentVectorRetriever persistentRetriever(Path directory) throws IOException {
+        return persistentRetriever(directory, new HashingEmbedder());
+    }
+    
+    /**
+     * 持久化检索器，向量由 embedder 生成；换用不同维度的 embedder 需要新的索引目录
+     */
+    public static PersistentVectorRetriever persistentRetriever(Path directory, Embedder embedder) throws IOException {
+        return persistentRetriever(directory, embedder, QuantizationConfig.none());
+    }
+    
+    /**
+     * 持久化检索器，段文件按 quantization 存量化码（段落盘 / 合并时生效）
+     */
+    public static PersistentVectorRetriever persistentRetriever(Path directory, Embedder embedder,
+                                                                QuantizationConfig quantization) throws IOException {
+        PersistentVectorRetriever retriever = new PersistentVectorRetriever(embedder, directory, quantization);
+        if (retriever.size() == 0) {
+            addSampleDocuments(retriever::add);
+            retriever.flush();
+        }
+        return retriever;
+    }
+    
+    private static void addSampleDocuments(BiConsumer<String, String> sink) {
+        sink.accept("doc-langgraph", "LangGraph是一个用于构建状态化多参与者应用的框架，用图描述智能体的工作流");
+        sink.accept("doc-rag", "RAG结合了检索和生成，先检索相关文档再生成答案，提高答案准确性");
+        sink.accept("doc-vector-db", "向量数据库用于存储和检索文档嵌入，常用HNSW等近似最近邻索引");
+        sink.accept("doc-concepts", "深度分析: 核心概念解释，状态、节点、边和条件路由");
+        sink.accept("doc-background", "相关背景知识: 大语言模型的幻觉问题与检索增强");
+        sink.accept("doc-case-study", "案例研究: 医疗问答系统如何结合知识库检索与人工审核");
+        sink.accept("doc-comparison", "对比分析: 关键词检索与向量检索的优缺点及混合检索");
+        sink.accept("doc-research", "最新研究进展: 自适应检索、查询重写与答案自我评估");
+    }
+    
     private String timestamp() {
         return LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"));
     }
     
     // ========== Query Analyzer (查询分析器) ==========
-    private final AsyncNodeAction<ComprehensiveWorkflowState> queryAnalyzerNode = node_async(state -> {
+    private final AsyncNodeActionWithConfig<ComprehensiveWorkflowState> queryAnalyzerNode = AsyncNodeActionWithConfig.node_async((state, config) -> {
         log.info("🔎 [Query Analyzer] 分析查询复杂度");
+        // 运行级缓存按 threadId 隔离，没有 threadId 时每次运行单独一个作用域
+        String runId = config.threadId().orElseGet(() -> UUID.randomUUID().toString());
+        retrievalCache.beginRun(runId);
         String query = state.userInput().toLowerCase();
         String queryType;
         
@@ -122,15 +319,20 @@ public class AdaptiveRAGGraph {
         
         log.info("🔎 查询类型: {} (query: {})", queryType, query);
         
-        return Map.of(
-                ComprehensiveWorkflowState.CURRENT_STEP, QUERY_ANALYZER,
-                ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
-                ComprehensiveWorkflowState.INTENT, "rag:" + queryType,
-                QUERY_TYPE, queryType,
-                TRANSFORM_COUNT, 0,
-                REGENERATE_COUNT, 0,
-                ComprehensiveWorkflowState.MESSAGES, "🔎 [Query Analyzer] 查询类型: " + queryType,
-                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Query Analyzer: " + queryType
+        return Map.ofEntries(
+                Map.entry(ComprehensiveWorkflowState.CURRENT_STEP, QUERY_ANALYZER),
+                Map.entry(ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1),
+                Map.entry(ComprehensiveWorkflowState.INTENT, "rag:" + queryType),
+                Map.entry(QUERY_TYPE, queryType),
+                Map.entry(TRANSFORM_COUNT, 0),
+                Map.entry(REGENERATE_COUNT, 0),
+                Map.entry(RUN_ID, runId),
+                Map.entry(RUN_STARTED_AT, System.currentTimeMillis()),
+                Map.entry(RETRIEVALS_USED, 0),
+                Map.entry(GENERATIONS_USED, 0),
+                Map.entry(GRADES_USED, 0),
+                Map.entry(ComprehensiveWorkflowState.MESSAGES, "🔎 [Query Analyzer] 查询类型: " + queryType),
+                Map.entry(ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Query Analyzer: " + queryType)
         );
     });
     
@@ -138,18 +340,19 @@ public class AdaptiveRAGGraph {
     private final AsyncNodeAction<ComprehensiveWorkflowState> directGenerateNode = node_async(state -> {
         log.info("⚡ [Direct Generate] 简单查询，直接生成答案");
         
-        String answer = "【直接生成答案】\n" +
-                "查询: " + state.userInput() + "\n" +
-                "答案: 这是一个简单查询，基于模型内置知识直接生成答案。\n" +
-                "无需检索外部文档。";
+        Generation generation = generate(state, DIRECT_GENERATE,
+                GenerationRequest.direct(state.userInput(), state.<String>value(QUERY_TYPE).orElse("simple")));
+        String answer = generation.answer();
         
         return Map.of(
                 ComprehensiveWorkflowState.CURRENT_STEP, DIRECT_GENERATE,
                 ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
                 GENERATED_ANSWER, answer,
+                GENERATIONS_USED, used(state, GENERATIONS_USED) + 1,
                 ComprehensiveWorkflowState.TOOL_RESULTS, "⚡ Direct: " + answer,
                 ComprehensiveWorkflowState.MESSAGES, "⚡ [Direct Generate] 直接生成完成",
-                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Direct Generate: 完成"
+                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Direct Generate: 完成, 首片段 "
+                        + generation.firstTokenMillis() + "ms"
         );
     });
     
@@ -157,19 +360,23 @@ public class AdaptiveRAGGraph {
     private final AsyncNodeAction<ComprehensiveWorkflowState> standardRetrieveNode = node_async(state -> {
         log.info("📚 [Standard Retrieve] 执行标准RAG检索");
         
-        // 模拟检索过程
-        String docs = "【检索到的文档】\n" +
-                "Doc1: LangGraph是一个用于构建状态化多参与者应用的框架...\n" +
-                "Doc2: RAG结合了检索和生成，提高答案准确性...\n" +
-                "Doc3: 向量数据库用于存储和检索文档嵌入...";
+        String runId = runId(state);
+        String query = retrievalQuery(state);
+        long callsBefore = retrievalCache.runStats(runId).retrieverCalls();
+        List<String> docs = cachedRetrieve(state, STANDARD_RETRIEVE, query, retriever.version(),
+                q -> RetrievalCache.Result.complete(standardRetrieve(q)));
+        RetrievalCache.RunStats stats = retrievalCache.runStats(runId);
         
         return Map.of(
                 ComprehensiveWorkflowState.CURRENT_STEP, STANDARD_RETRIEVE,
                 ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
                 RETRIEVED_DOCS, docs,
-                ComprehensiveWorkflowState.TOOL_RESULTS, "📚 Retrieve: 检索到3篇相关文档",
-                ComprehensiveWorkflowState.MESSAGES, "📚 [Standard Retrieve] 检索完成",
-                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Standard Retrieve: 3 docs"
+                LAST_RETRIEVAL, retrievalKey(STANDARD_RETRIEVE, query),
+                RETRIEVER_CALLS_SAVED, stats.retrieverCallsSaved(),
+                RETRIEVALS_USED, used(state, RETRIEVALS_USED) + (int) (stats.retrieverCalls() - callsBefore),
+                ComprehensiveWorkflowState.TOOL_RESULTS, "📚 Retrieve: 检索到" + docs.size() + "篇相关文档",
+                ComprehensiveWorkflowState.MESSAGES, "📚 [Standard Retrieve] 检索完成 (本次运行已节省检索" + stats.retrieverCallsSaved() + "次)",
+                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Standard Retrieve: " + docs.size() + " docs"
         );
     });
     
@@ -177,21 +384,23 @@ public class AdaptiveRAGGraph {
     private final AsyncNodeAction<ComprehensiveWorkflowState> multiStepRetrieveNode = node_async(state -> {
         log.info("🔄 [Multi-Step Retrieve] 执行多步深度检索");
         
-        // 模拟多步检索
-        String docs = "【多步检索结果】\n" +
-                "Step1-Doc1: 深度分析文档A - 核心概念解释...\n" +
-                "Step1-Doc2: 相关背景知识B...\n" +
-                "Step2-Doc1: 扩展检索 - 案例研究C...\n" +
-                "Step2-Doc2: 对比分析文档D...\n" +
-                "Step3-Doc1: 最新研究进展E...";
+        String runId = runId(state);
+        String query = retrievalQuery(state);
+        long callsBefore = retrievalCache.runStats(runId).retrieverCalls();
+        List<String> docs = cachedRetrieve(state, MULTI_STEP_RETRIEVE, query, hybridRetriever.version(),
+                this::multiStepRetrieve);
+        RetrievalCache.RunStats stats = retrievalCache.runStats(runId);
         
         return Map.of(
                 ComprehensiveWorkflowState.CURRENT_STEP, MULTI_STEP_RETRIEVE,
                 ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
                 RETRIEVED_DOCS, docs,
-                ComprehensiveWorkflowState.TOOL_RESULTS, "🔄 Multi-Step: 多步检索完成(5篇文档)",
+                LAST_RETRIEVAL, retrievalKey(MULTI_STEP_RETRIEVE, query),
+                RETRIEVER_CALLS_SAVED, stats.retrieverCallsSaved(),
+                RETRIEVALS_USED, used(state, RETRIEVALS_USED) + (int) (stats.retrieverCalls() - callsBefore),
+                ComprehensiveWorkflowState.TOOL_RESULTS, "🔄 Multi-Step: 多步检索完成(" + docs.size() + "篇文档)",
                 ComprehensiveWorkflowState.MESSAGES, "🔄 [Multi-Step Retrieve] 多步检索完成",
-                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Multi-Step Retrieve: 5 docs"
+                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Multi-Step Retrieve: " + docs.size() + " docs"
         );
     });
     
@@ -199,19 +408,27 @@ public class AdaptiveRAGGraph {
     private final AsyncNodeAction<ComprehensiveWorkflowState> gradeDocumentsNode = node_async(state -> {
         log.info("📊 [Grade Documents] 评估文档相关性");
         
-        int transformCount = state.<Integer>value(TRANSFORM_COUNT).orElse(0);
-        // 模拟评估：第一次可能不相关，重写后相关
-        boolean relevant = transformCount > 0 || new Random().nextDouble() > 0.3;
-        String relevance = relevant ? "relevant" : "not_relevant";
+        List<String> docs = retrievedDocs(state);
+        String query = retrievalQuery(state);
+        // 并行逐篇评估，够用即停；只有通过的文档进入答案生成
+        ParallelDocumentGrader.GradingResult result = documentGrader.grade(query, docs, RetrievedDocument::contentOf);
+        List<String> passed = result.relevant();
+        String relevance = result.sufficient() ? "relevant" : "not_relevant";
         
-        log.info("📊 文档相关性: {} (transformCount: {})", relevance, transformCount);
+        log.info("📊 文档相关性: {} (通过 {}/{}，评估 {} 篇，跳过 {} 篇)", relevance, passed.size(), docs.size(),
+                result.graded(), result.skipped());
         
         return Map.of(
                 ComprehensiveWorkflowState.CURRENT_STEP, GRADE_DOCUMENTS,
                 ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
                 DOC_RELEVANCE, relevance,
-                ComprehensiveWorkflowState.MESSAGES, "📊 [Grade Documents] 相关性: " + (relevant ? "✅相关" : "❌不相关"),
+                RETRIEVED_DOCS, passed,
+                DOCS_GRADED, result.graded(),
+                GRADES_USED, used(state, GRADES_USED) + 1,
+                ComprehensiveWorkflowState.MESSAGES, "📊 [Grade Documents] 相关性: " + (result.sufficient() ? "✅相关" : "❌不相关")
+                        + " (" + passed.size() + "/" + docs.size() + "篇通过)",
                 ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Grade Documents: " + relevance
+                        + ", passed=" + passed.size() + ", graded=" + result.graded() + ", skipped=" + result.skipped()
         );
     });
     
@@ -221,14 +438,17 @@ public class AdaptiveRAGGraph {
         
         int transformCount = state.<Integer>value(TRANSFORM_COUNT).orElse(0);
         String originalQuery = state.userInput();
+        String rewritten = rewriteQuery(originalQuery, state.<String>value(TRANSFORMED_QUERY).orElse(null),
+                transformCount);
         String transformedQuery = "【重写后的查询】\n" +
                 "原始: " + originalQuery + "\n" +
-                "优化: 请详细解释 " + originalQuery + " 的核心概念、应用场景和最佳实践";
+                "优化: " + rewritten;
         
         return Map.of(
                 ComprehensiveWorkflowState.CURRENT_STEP, QUERY_TRANSFORM,
                 ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
                 TRANSFORM_COUNT, transformCount + 1,
+                TRANSFORMED_QUERY, rewritten,
                 ComprehensiveWorkflowState.TOOL_RESULTS, "✏️ Transform: " + transformedQuery,
                 ComprehensiveWorkflowState.MESSAGES, "✏️ [Query Transform] 查询已重写 (第" + (transformCount + 1) + "次)",
                 ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Query Transform: 重写#" + (transformCount + 1)
@@ -239,24 +459,22 @@ public class AdaptiveRAGGraph {
     private final AsyncNodeAction<ComprehensiveWorkflowState> generateAnswerNode = node_async(state -> {
         log.info("💡 [Generate Answer] 基于检索文档生成答案");
         
-        String docs = state.<String>value(RETRIEVED_DOCS).orElse("");
+        List<String> docs = retrievedDocs(state);
         String queryType = state.<String>value(QUERY_TYPE).orElse("standard");
         
-        String answer = "【RAG生成答案】\n" +
-                "查询类型: " + queryType + "\n" +
-                "基于检索文档数: " + (docs.split("Doc").length - 1) + "\n" +
-                "答案: 根据检索到的相关文档，综合分析如下...\n" +
-                "1. 核心概念已在Doc1中详细解释\n" +
-                "2. 实践应用参考Doc2的案例\n" +
-                "3. 最新进展见Doc3的研究结果";
+        Generation generation = generate(state, GENERATE_ANSWER,
+                GenerationRequest.grounded(state.userInput(), queryType, docs));
+        String answer = generation.answer();
         
         return Map.of(
                 ComprehensiveWorkflowState.CURRENT_STEP, GENERATE_ANSWER,
                 ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
                 GENERATED_ANSWER, answer,
+                GENERATIONS_USED, used(state, GENERATIONS_USED) + 1,
                 ComprehensiveWorkflowState.TOOL_RESULTS, "💡 Generate: " + answer,
                 ComprehensiveWorkflowState.MESSAGES, "💡 [Generate Answer] 答案生成完成",
-                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Generate Answer: 完成"
+                ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Generate Answer: 完成, 首片段 "
+                        + generation.firstTokenMillis() + "ms"
         );
     });
     
@@ -276,7 +494,9 @@ public class AdaptiveRAGGraph {
             else quality = "hallucination";
         }
         
-        log.info("✅ 答案质量: {} (regenerateCount: {})", quality, regenerateCount);
+        // 不合格的答案会触发一次重试（重新生成或重新检索），计数在这里累加，路由据此限制重试次数
+        int retries = "useful".equals(quality) ? regenerateCount : regenerateCount + 1;
+        log.info("✅ 答案质量: {} (regenerateCount: {})", quality, retries);
         
         String qualityDesc = switch(quality) {
             case "useful" -> "✅有用";
@@ -289,12 +509,147 @@ public class AdaptiveRAGGraph {
                 ComprehensiveWorkflowState.CURRENT_STEP, GRADE_ANSWER,
                 ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
                 ANSWER_QUALITY, quality,
-                REGENERATE_COUNT, regenerateCount,
+                REGENERATE_COUNT, retries,
+                GRADES_USED, used(state, GRADES_USED) + 1,
                 ComprehensiveWorkflowState.MESSAGES, "✅ [Grade Answer] 质量: " + qualityDesc,
                 ComprehensiveWorkflowState.EXECUTION_LOG, "[" + timestamp() + "] Grade Answer: " + quality
         );
     });
     
+    // ========== 生成 ==========
+    
+    private record Generation(String answer, long firstTokenMillis) {
+    }
+    
+    // 片段边生成边发布给本次运行的订阅方；记录首片段延迟
+    private Generation generate(ComprehensiveWorkflowState state, String node, GenerationRequest request) {
+        Consumer<String> publisher = tokenStreams.publisher(runId(state), node);
+        long start = System.nanoTime();
+        long[] firstToken = {-1};
+        String answer = answerGenerator.generate(request, token -> {
+            if (firstToken[0] < 0) {
+                firstToken[0] = System.nanoTime();
+            }
+            publisher.accept(token);
+        });
+        long firstTokenMillis = firstToken[0] < 0 ? -1 : (firstToken[0] - start) / 1_000_000;
+        log.info("💡 [Generator] {} 生成完成: 首片段 {}ms, 总耗时 {}ms", node, firstTokenMillis,
+                (System.nanoTime() - start) / 1_000_000);
+        return new Generation(answer, firstTokenMillis);
+    }
+    
+    // ========== 检索 ==========
+    
+    // 标准检索: 单次 top-k
+    private List<String> standardRetrieve(String query) {
+        log.info("📚 [Retriever] 标准检索: {}", query);
+        return format(retriever.retrieve(query, STANDARD_TOP_K));
+    }
+    
+    // 多步检索: 原查询和拆出的子查询分别发给向量、关键词检索源，并发执行后按 RRF 融合去重；
+    // 部分超时的结果本次照用，但标记为部分结果不进缓存
+    private RetrievalCache.Result multiStepRetrieve(String query) {
+        log.info("🔄 [Retriever] 多步检索: {}", query);
+        HybridRetriever.StepResult result = hybridRetriever.retrieve(subQueries(query), MULTI_STEP_TOP_K);
+        if (result.partial()) {
+            log.warn("🔄 [Retriever] 多步检索部分超时，使用已完成的 {} 路结果", result.completed());
+        }
+        return new RetrievalCache.Result(format(result.documents()), result.partial());
+    }
+    
+    /**
+     * 查询重写：第一次按原查询展开，之后在上一次重写的基础上依次追加新的检索方向，
+     * 保证每次重写都是新查询，不会命中运行级缓存里刚被判为不相关的结果
+     *
+     * @param previous       上一次重写的查询，没有时为 null
+     * @param transformCount 已经重写的次数
+     */
+    static String rewriteQuery(String original, String previous, int transformCount) {
+        if (previous == null || transformCount == 0) {
+            return "请详细解释 " + original + " 的核心概念、应用场景和最佳实践";
+        }
+        return previous + "，并补充" + REWRITE_DIRECTIONS.get((transformCount - 1) % REWRITE_DIRECTIONS.size());
+    }
+    
+    // 同一运行里上一次检索用的是同一策略和同一查询（re_retrieve）时跳过缓存，否则只会拿回同一批文档
+    private List<String> cachedRetrieve(ComprehensiveWorkflowState state, String strategy, String query,
+                                        String indexVersion, Function<String, RetrievalCache.Result> fetch) {
+        String runId = runId(state);
+        boolean repeated = state.<String>value(LAST_RETRIEVAL).map(retrievalKey(strategy, query)::equals)
+                .orElse(false);
+        return repeated
+                ? retrievalCache.refresh(runId, strategy, query, indexVersion, fetch)
+                : retrievalCache.retrieveResult(runId, strategy, query, indexVersion, fetch);
+    }
+    
+    private static String retrievalKey(String strategy, String query) {
+        return strategy + "|" + query;
+    }
+    
+    // 按标点和连接词拆分复合问题，原查询排第一
+    static List<String> subQueries(String query) {
+        Set<String> queries = new LinkedHashSet<>();
+        queries.add(query);
+        for (String part : SUB_QUERY_SEPARATOR.split(query)) {
+            String trimmed = part.strip();
+            if (trimmed.length() >= 2) {
+                queries.add(trimmed);
+            }
+        }
+        return List.copyOf(queries);
+    }
+    
+    private static List<String> format(List<RetrievedDocument> docs) {
+        return docs.stream().map(RetrievedDocument::format).toList();
+    }
+    
+    private String runId(ComprehensiveWorkflowState state) {
+        return state.<String>value(RUN_ID).orElse("default");
+    }
+    
+    // 优先使用重写后的查询
+    private String retrievalQuery(ComprehensiveWorkflowState state) {
+        return state.<String>value(TRANSFORMED_QUERY).orElse(state.userInput());
+    }
+    
+    private List<String> retrievedDocs(ComprehensiveWorkflowState state) {
+        return state.<List<String>>value(RETRIEVED_DOCS).orElse(List.of());
+    }
+    
+    private static int used(ComprehensiveWorkflowState state, String counter) {
+        return state.<Integer>value(counter).orElse(0);
+    }
+    
+    // ========== 成本预算 ==========
+    
+    /**
+     * 本次运行已消耗的预算
+     */
+    public BudgetUsage budgetUsage(ComprehensiveWorkflowState state) {
+        long startedAt = state.<Long>value(RUN_STARTED_AT).orElse(System.currentTimeMillis());
+        return new BudgetUsage(used(state, RETRIEVALS_USED), used(state, GENERATIONS_USED), used(state, GRADES_USED),
+                Math.max(0, System.currentTimeMillis() - startedAt));
+    }
+    
+    /**
+     * 本次运行的预算消耗报告
+     */
+    public Map<String, Object> budgetReport(ComprehensiveWorkflowState state) {
+        return budgetConfig.report(budgetUsage(state));
+    }
+    
+    private boolean budgetAllows(ComprehensiveWorkflowState state, String loop, int retrievals, int generations,
+                                 int grades) {
+        BudgetUsage usage = budgetUsage(state);
+        if (budgetConfig.allows(usage, retrievals, generations, grades)) {
+            return true;
+        }
+        log.info("💰 [Budget] 预算不足，跳过{} (已用: 检索{}/{}, 生成{}/{}, 评估{}/{}, 耗时{}ms/{}ms)", loop,
+                usage.retrievals(), budgetConfig.maxRetrievals(), usage.generations(), budgetConfig.maxGenerations(),
+                usage.grades(), budgetConfig.maxGrades(), usage.elapsedMillis(), budgetConfig.wallClock().toMillis());
+        return false;
+    }
+    
     // ========== 路由函数 ==========
     
     // 查询类型路由
@@ -306,7 +661,7 @@ public class AdaptiveRAGGraph {
         };
     }
     
-    // 文档相关性路由
+    // 文档相关性路由: 重写要多走 检索 → 文档评估 → 生成 → 答案评估，预算放不下就用现有文档直接生成
     private EdgeAction<ComprehensiveWorkflowState> routeByDocRelevance() {
         return state -> {
             String relevance = state.<String>value(DOC_RELEVANCE).orElse("relevant");
@@ -314,29 +669,35 @@ public class AdaptiveRAGGraph {
             
             if ("relevant".equals(relevance)) {
                 return "generate";
-            } else if (transformCount < 2) {
-                return "transform"; // 最多重写2次
+            } else if (transformCount < MAX_TRANSFORMS && budgetAllows(state, "查询重写", 1, 1, 2)) {
+                return "transform";
             } else {
-                return "generate"; // 超过次数后直接生成
+                return "generate"; // 超过次数或预算后直接生成
             }
         };
     }
     
-    // 答案质量路由
-    private EdgeAction<ComprehensiveWorkflowState> routeByAnswerQuality() {
+    // 答案质量路由: 重新检索 (检索 + 2 次评估 + 生成) 比重新生成 (生成 + 评估) 贵，
+    // 有幻觉时优先重新检索，预算不够再退到重新生成；都放不下就结束
+    EdgeAction<ComprehensiveWorkflowState> routeByAnswerQuality() {
         return state -> {
             String quality = state.<String>value(ANSWER_QUALITY).orElse("useful");
             int regenerateCount = state.<Integer>value(REGENERATE_COUNT).orElse(0);
             
-            if ("useful".equals(quality)) {
-                return "finish";
-            } else if ("hallucination".equals(quality) && regenerateCount < 2) {
-                return "re_retrieve"; // 有幻觉则重新检索
-            } else if ("not_useful".equals(quality) && regenerateCount < 2) {
-                return "regenerate"; // 不够有用则重新生成
+            String route;
+            if ("useful".equals(quality) || regenerateCount >= MAX_ANSWER_RETRIES) {
+                route = "finish";
+            } else if ("hallucination".equals(quality) && budgetAllows(state, "重新检索", 1, 1, 2)) {
+                route = "re_retrieve";
+            } else if (budgetAllows(state, "重新生成", 0, 1, 1)) {
+                route = "regenerate";
             } else {
-                return "finish"; // 超过重试次数
+                route = "finish";
             }
+            if ("finish".equals(route)) {
+                log.info("💰 [Budget] 本次运行消耗: {}", budgetReport(state));
+            }
+            return route;
         };
     }
     
@@ -411,6 +772,34 @@ public class AdaptiveRAGGraph {
         return this.stateGraph;
     }
     
+    public RetrievalCache getRetrievalCache() {
+        return this.retrievalCache;
+    }
+    
+    /**
+     * 关闭检索和评估线程池，连带关闭可关闭的检索器
+     */
+    @Override
+    public void close() throws IOException {
+        documentGrader.close();
+        hybridRetriever.close();
+    }
+    
+    /**
+     * 生成片段旁路，流式接口按 RUN_ID（即 threadId）订阅
+     */
+    public TokenStreams getTokenStreams() {
+        return tokenStreams;
+    }
+    
+    public HybridRetriever getHybridRetriever() {
+        return hybridRetriever;
+    }
+    
+    public Retriever getRetriever() {
+        return this.retriever;
+    }
+    
     public CompiledGraph<ComprehensiveWorkflowState> compile() throws GraphStateException {
         return stateGraph.compile();
     }
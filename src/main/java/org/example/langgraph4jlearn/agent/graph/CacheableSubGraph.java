@@ -0,0 +1,197 @@
+package org.example.langgraph4jlearn.agent.graph;
+
+import lombok.extern.slf4j.Slf4j;
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.action.AsyncNodeActionWithConfig;
+import org.bsc.langgraph4j.state.AgentState;
+import org.bsc.langgraph4j.state.AppenderChannel;
+import org.bsc.langgraph4j.state.Channel;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 可缓存子图 - 把编译后的子图包装成父图中的一个节点
+ *
+ * 子图的输出只依赖声明的输入字段时，缓存子图对父状态的"净增量"(delta):
+ * - 普通字段: 子图执行后发生变化的最终值
+ * - Appender 字段: 子图追加的新元素 (只返回新增部分，父图按 appender 语义追加，不会重复)
+ * - 计数字段: 子图带来的增量 (如 step_count +3)，回放时叠加到父状态当前值上
+ *
+ * 命中时直接回放 delta，不执行子图。执行日志不进缓存（子图的日志带时间戳，回放会伪造一次执行），
+ * 命中时只追加一条缓存命中记录
+ */
+@Slf4j
+public class CacheableSubGraph<S extends AgentState> {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final CompiledGraph<S> subGraph;
+    private final List<String> inputKeys;
+    private final Set<String> counterKeys;
+    private final Set<String> appenderKeys;
+    private final String executionLogKey;
+    private final Map<List<Object>, Delta> cache;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param subGraph    编译后的子图
+     * @param schema      父图/子图共用的 State Schema，用于识别 appender 通道
+     * @param inputKeys   子图输出所依赖的输入字段 (缓存 Key)
+     * @param counterKeys 按增量回放的计数字段
+     * @param executionLogKey 执行日志字段 (appender)，不缓存；为 null 表示没有执行日志
+     */
+    public CacheableSubGraph(CompiledGraph<S> subGraph, Map<String, Channel<?>> schema,
+                             List<String> inputKeys, Set<String> counterKeys, String executionLogKey) {
+        this(subGraph, schema, inputKeys, counterKeys, executionLogKey, DEFAULT_MAX_ENTRIES);
+    }
+
+    public CacheableSubGraph(CompiledGraph<S> subGraph, Map<String, Channel<?>> schema,
+                             List<String> inputKeys, Set<String> counterKeys, String executionLogKey,
+                             int maxEntries) {
+        this.subGraph = subGraph;
+        this.inputKeys = List.copyOf(inputKeys);
+        this.counterKeys = Set.copyOf(counterKeys);
+        this.appenderKeys = appenderKeys(schema);
+        this.executionLogKey = executionLogKey;
+        this.cache = Collections.synchronizedMap(new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Delta> eldest) {
+                return size() > maxEntries;
+            }
+        });
+    }
+
+    private static Set<String> appenderKeys(Map<String, Channel<?>> schema) {
+        Set<String> keys = new HashSet<>();
+        schema.forEach((key, channel) -> {
+            if (channel instanceof AppenderChannel) {
+                keys.add(key);
+            }
+        });
+        return Set.copyOf(keys);
+    }
+
+    /**
+     * 作为父图节点使用的 Action，父图的 RunnableConfig (threadId 等) 原样传给子图
+     */
+    public AsyncNodeActionWithConfig<S> asNode() {
+        return AsyncNodeActionWithConfig.node_async(this::apply);
+    }
+
+    private Map<String, Object> apply(S state, RunnableConfig config) throws Exception {
+        List<Object> key = cacheKey(state);
+
+        Delta delta = cache.get(key);
+        if (delta != null) {
+            hits.incrementAndGet();
+            log.info("♻️ [CacheableSubGraph] 命中缓存，跳过子图执行: {}", key);
+            Map<String, Object> update = delta.replay(state);
+            if (executionLogKey != null) {
+                update.put(executionLogKey, "[" + LocalDateTime.now().format(DateTimeFormatter.ofPattern("HH:mm:ss"))
+                        + "] 子图缓存命中: 跳过执行");
+            }
+            return update;
+        }
+
+        misses.incrementAndGet();
+        S result = subGraph.invoke(state.data(), config)
+                .orElseThrow(() -> new IllegalStateException("子图执行无结果"));
+        delta = diff(state, result);
+        cache.put(key, delta.without(executionLogKey));
+        return delta.replay(state);
+    }
+
+    private List<Object> cacheKey(S state) {
+        // Arrays.asList 允许 null，未设置的输入字段也参与 Key
+        Object[] values = new Object[inputKeys.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = state.value(inputKeys.get(i)).orElse(null);
+        }
+        return Arrays.asList(values);
+    }
+
+    /**
+     * 计算子图对父状态的净增量
+     */
+    private Delta diff(S before, S after) {
+        Map<String, Object> values = new HashMap<>();
+        Map<String, List<Object>> appended = new HashMap<>();
+        Map<String, Long> increments = new HashMap<>();
+
+        for (Map.Entry<String, Object> entry : after.data().entrySet()) {
+            String key = entry.getKey();
+            Object newValue = entry.getValue();
+            Object oldValue = before.data().get(key);
+
+            if (appenderKeys.contains(key)) {
+                List<?> newList = newValue instanceof List<?> l ? l : List.of();
+                int oldSize = oldValue instanceof List<?> l ? l.size() : 0;
+                if (newList.size() > oldSize) {
+                    appended.put(key, List.copyOf(newList.subList(oldSize, newList.size())));
+                }
+            } else if (counterKeys.contains(key) && newValue instanceof Number n) {
+                long base = oldValue instanceof Number o ? o.longValue() : 0L;
+                if (n.longValue() != base) {
+                    increments.put(key, n.longValue() - base);
+                }
+            } else if (!Objects.equals(oldValue, newValue)) {
+                values.put(key, newValue);
+            }
+        }
+        return new Delta(Map.copyOf(values), Map.copyOf(appended), Map.copyOf(increments));
+    }
+
+    public Map<String, Object> stats() {
+        return Map.of(
+                "entries", cache.size(),
+                "hits", hits.get(),
+                "misses", misses.get()
+        );
+    }
+
+    public void clear() {
+        cache.clear();
+    }
+
+    /**
+     * 子图净增量 (不可变)
+     */
+    private record Delta(Map<String, Object> values,
+                         Map<String, List<Object>> appended,
+                         Map<String, Long> increments) {
+
+        Delta without(String key) {
+            if (key == null || (!values.containsKey(key) && !appended.containsKey(key))) {
+                return this;
+            }
+            Map<String, Object> keptValues = new HashMap<>(values);
+            Map<String, List<Object>> keptAppended = new HashMap<>(appended);
+            keptValues.remove(key);
+            keptAppended.remove(key);
+            return new Delta(Map.copyOf(keptValues), Map.copyOf(keptAppended), increments);
+        }
+
+        Map<String, Object> replay(AgentState state) {
+            Map<String, Object> update = new HashMap<>(values);
+            // appender 通道收到 List 时逐个追加
+            update.putAll(appended);
+            increments.forEach((key, inc) -> {
+                Object current = state.value(key).orElse(null);
+                if (current instanceof Integer i) {
+                    update.put(key, (int) (i + inc));
+                } else if (current instanceof Number n) {
+                    update.put(key, n.longValue() + inc);
+                } else {
+                    update.put(key, inc.intValue());
+                }
+            });
+            return update;
+        }
+    }
+}
@@ -21,7 +21,7 @@ import static org.bsc.langgraph4j.action.AsyncEdgeAction.edge_async;
  * 
  * 知识点:
  * - StateGraph, Node, Edge, Conditional Edge
- * - SubGraph (子图) - 健康咨询作为子图
+ * - SubGraph (子图) - 健康咨询作为子图 (按 user_input/health_category 缓存子图结果)
  * - Checkpointer, Human-in-the-loop
  * - Cycle (循环)
  * 
@@ -48,6 +48,7 @@ public class ComprehensiveWorkflowGraph {
     public static final String RESULT_AGGREGATOR = "result_aggregator";
     
     private StateGraph<ComprehensiveWorkflowState> stateGraph;
+    private CacheableSubGraph<ComprehensiveWorkflowState> healthSubGraphNode;
     
     public ComprehensiveWorkflowGraph() {
         buildGraph();
@@ -239,6 +240,11 @@ public class ComprehensiveWorkflowGraph {
             // 创建健康咨询子图并编译
             HealthConsultSubGraph healthSubGraph = new HealthConsultSubGraph();
             CompiledGraph<ComprehensiveWorkflowState> compiledHealthSubGraph = healthSubGraph.compile();
+            // 子图输出只依赖用户输入和健康分类；step_count 按增量回放，执行日志不缓存
+            this.healthSubGraphNode = new CacheableSubGraph<>(compiledHealthSubGraph,
+                    ComprehensiveWorkflowState.SCHEMA,
+                    List.of(ComprehensiveWorkflowState.USER_INPUT, ComprehensiveWorkflowState.HEALTH_CATEGORY),
+                    Set.of(ComprehensiveWorkflowState.STEP_COUNT), ComprehensiveWorkflowState.EXECUTION_LOG);
             
             this.stateGraph = new StateGraph<>(ComprehensiveWorkflowState.SCHEMA, ComprehensiveWorkflowState::new);
             
@@ -254,8 +260,8 @@ public class ComprehensiveWorkflowGraph {
             stateGraph.addNode(REJECTION_HANDLER, rejectNode);
             stateGraph.addNode(RESULT_AGGREGATOR, resultNode);
             
-            // ⭐ 添加子图作为节点 (SubGraph)
-            stateGraph.addNode(HEALTH_SUBGRAPH, compiledHealthSubGraph);
+            // ⭐ 添加子图作为节点 (SubGraph)，相同输入直接回放缓存的子图结果
+            stateGraph.addNode(HEALTH_SUBGRAPH, healthSubGraphNode.asNode());
             log.info("✅ 健康咨询子图已添加为节点: {}", HEALTH_SUBGRAPH);
             
             // 定义边
@@ -298,6 +304,10 @@ public class ComprehensiveWorkflowGraph {
         return this.stateGraph;
     }
     
+    public CacheableSubGraph<ComprehensiveWorkflowState> getHealthSubGraphNode() {
+        return this.healthSubGraphNode;
+    }
+    
     public CompiledGraph<ComprehensiveWorkflowState> compile() throws GraphStateException {
         return stateGraph.compile();
     }
@@ -1,5 +1,8 @@
 package org.example.langgraph4jlearn.controller;
 
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.GraphInput;
 import org.bsc.langgraph4j.RunnableConfig;
@@ -9,10 +12,33 @@ import org.example.langgraph4jlearn.agent.graph.ComprehensiveWorkflowGraph;
 import org.example.langgraph4jlearn.agent.graph.MultiAgentGraph;
 import org.example.langgraph4jlearn.agent.graph.ParallelAgentGraph;
 import org.example.langgraph4jlearn.agent.state.ComprehensiveWorkflowState;
+import org.example.langgraph4jlearn.rag.budget.BudgetConfig;
+import org.example.langgraph4jlearn.rag.cache.RetrievalCache;
+import org.example.langgraph4jlearn.rag.embedding.EmbeddingService;
+import org.example.langgraph4jlearn.rag.embedding.EmbeddingServiceConfig;
+import org.example.langgraph4jlearn.rag.embedding.HashingEmbedder;
+import org.example.langgraph4jlearn.rag.embedding.LangChain4jEmbedder;
+import org.example.langgraph4jlearn.rag.generation.AnswerGenerator;
+import org.example.langgraph4jlearn.rag.generation.LangChain4jAnswerGenerator;
+import org.example.langgraph4jlearn.rag.generation.TemplateAnswerGenerator;
+import org.example.langgraph4jlearn.rag.generation.TokenStreams;
+import org.example.langgraph4jlearn.rag.grading.GradingConfig;
+import org.example.langgraph4jlearn.rag.grading.LexicalOverlapGrader;
+import org.example.langgraph4jlearn.rag.grading.ParallelDocumentGrader;
+import org.example.langgraph4jlearn.rag.ingest.IngestionConfig;
+import org.example.langgraph4jlearn.rag.ingest.IngestionPipeline;
+import org.example.langgraph4jlearn.rag.retrieval.HybridRetrievalConfig;
+import org.example.langgraph4jlearn.rag.retrieval.Retriever;
+import org.example.langgraph4jlearn.rag.vector.QuantizationConfig;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -26,22 +52,85 @@ public class ComprehensiveWorkflowController {
     private final MultiAgentGraph multiAgentGraph;
     private final ParallelAgentGraph parallelAgentGraph;
     private final AdaptiveRAGGraph adaptiveRAGGraph;
+    private final EmbeddingService embeddingService;
+    private final IngestionPipeline ingestionPipeline;
+    private final Path ingestRoot;
     private final MemorySaver checkpointSaver;
     private final Map<String, String> sessionThreadMap = new ConcurrentHashMap<>();
     
-    public ComprehensiveWorkflowController() {
+    public ComprehensiveWorkflowController(@Value("${rag.index.dir:}") String ragIndexDir,
+                                           @Value("${rag.index.quantization:none}") String quantization,
+                                           @Value("${rag.index.pq-subspaces:8}") int pqSubspaces,
+                                           @Value("${rag.hybrid.fan-out:4}") int hybridFanOut,
+                                           @Value("${rag.hybrid.step-budget-ms:300}") long hybridStepBudgetMs,
+                                           @Value("${rag.grading.max-concurrency:4}") int gradingConcurrency,
+                                           @Value("${rag.grading.enough-relevant:3}") int gradingEnoughRelevant,
+                                           @Value("${rag.ingest.root:}") String ingestRoot,
+                                           @Value("${rag.embedding.max-batch-size:64}") int embeddingBatchSize,
+                                           @Value("${rag.embedding.max-wait-ms:5}") long embeddingMaxWaitMs,
+                                           @Value("${rag.embedding.cache-entries:10000}") int embeddingCacheEntries,
+                                           @Value("${rag.generation.timeout-ms:60000}") long generationTimeoutMs,
+                                           @Value("${rag.budget.max-retrievals:4}") int budgetMaxRetrievals,
+                                           @Value("${rag.budget.max-generations:3}") int budgetMaxGenerations,
+                                           @Value("${rag.budget.max-grades:6}") int budgetMaxGrades,
+                                           @Value("${rag.budget.wall-clock-ms:20000}") long budgetWallClockMs,
+                                           ObjectProvider<EmbeddingModel> embeddingModel,
+                                           ObjectProvider<StreamingChatModel> streamingChatModel)
+            throws IOException {
         this.workflowGraph = new ComprehensiveWorkflowGraph();
         this.multiAgentGraph = new MultiAgentGraph();
         this.parallelAgentGraph = new ParallelAgentGraph();
-        this.adaptiveRAGGraph = new AdaptiveRAGGraph();
+        // 容器里有 EmbeddingModel 时用它向量化，否则用本地哈希向量；两者都经过微批 + 缓存
+        EmbeddingModel model = embeddingModel.getIfAvailable();
+        this.embeddingService = new EmbeddingService(
+                model != null ? new LangChain4jEmbedder(model) : new HashingEmbedder(),
+                new EmbeddingServiceConfig(embeddingBatchSize, Duration.ofMillis(embeddingMaxWaitMs),
+                        embeddingCacheEntries));
+        // 配置了索引目录时使用 mmap 持久化索引，否则使用内存索引
+        Retriever retriever = ragIndexDir.isBlank()
+                ? AdaptiveRAGGraph.defaultRetriever(embeddingService)
+                : AdaptiveRAGGraph.persistentRetriever(Path.of(ragIndexDir), embeddingService,
+                        QuantizationConfig.of(quantization, pqSubspaces));
+        HybridRetrievalConfig hybridConfig = new HybridRetrievalConfig(hybridFanOut,
+                Duration.ofMillis(hybridStepBudgetMs), 60, 10);
+        ParallelDocumentGrader documentGrader = new ParallelDocumentGrader(new LexicalOverlapGrader(),
+                new GradingConfig(gradingConcurrency, gradingEnoughRelevant, 1));
+        // 容器里有 StreamingChatModel 时用它流式生成答案，否则用本地模板逐片段输出
+        StreamingChatModel chatModel = streamingChatModel.getIfAvailable();
+        AnswerGenerator answerGenerator = chatModel != null
+                ? new LangChain4jAnswerGenerator(chatModel, Duration.ofMillis(generationTimeoutMs))
+                : new TemplateAnswerGenerator();
+        this.adaptiveRAGGraph = new AdaptiveRAGGraph(new RetrievalCache(), retriever,
+                AdaptiveRAGGraph.defaultLexicalRetriever(), hybridConfig, documentGrader, answerGenerator,
+                new BudgetConfig(budgetMaxRetrievals, budgetMaxGenerations, budgetMaxGrades,
+                        Duration.ofMillis(budgetWallClockMs)));
+        this.ingestionPipeline = adaptiveRAGGraph.ingestionPipeline(IngestionConfig.defaults());
+        this.ingestRoot = ingestRoot.isBlank() ? null : Path.of(ingestRoot).toAbsolutePath().normalize();
         this.checkpointSaver = new MemorySaver();
     }
     
+    /**
+     * 关闭检索 / 评估线程池，连带关闭持久化索引
+     */
+    @PreDestroy
+    public void close() throws IOException {
+        adaptiveRAGGraph.close();
+        embeddingService.close();
+    }
+    
     @GetMapping("/health")
     public Map<String, Object> health() {
         return Map.of("status", "ok", "service", "comprehensive-workflow");
     }
     
+    /**
+     * 健康咨询子图缓存统计
+     */
+    @GetMapping("/subgraph-cache-stats")
+    public Map<String, Object> subGraphCacheStats() {
+        return workflowGraph.getHealthSubGraphNode().stats();
+    }
+    
     @PostMapping("/invoke")
     public Map<String, Object> invoke(@RequestBody Map<String, String> request) {
         String userInput = request.getOrDefault("userInput", "");
@@ -422,6 +511,8 @@ public class ComprehensiveWorkflowController {
             response.put("finalResult", state.finalResult());
             response.put("workflowStatus", state.workflowStatus());
             response.put("totalSteps", state.stepCount());
+            response.put("retrieverCallsSaved", state.<Long>value(AdaptiveRAGGraph.RETRIEVER_CALLS_SAVED).orElse(0L));
+            response.put("budget", adaptiveRAGGraph.budgetReport(state));
             response.put("mode", "adaptive-rag");
         } catch (Exception e) {
             log.error("Adaptive RAG 执行失败", e);
@@ -431,19 +522,97 @@ public class ComprehensiveWorkflowController {
         return response;
     }
     
+    /**
+     * Adaptive RAG 检索缓存统计
+     */
+    @GetMapping("/adaptive-rag/cache-stats")
+    public Map<String, Object> adaptiveRagCacheStats() {
+        return adaptiveRAGGraph.getRetrievalCache().stats();
+    }
+    
+    /**
+     * Adaptive RAG 向量化统计: 缓存命中、合并的重复请求、平均批大小
+     */
+    @GetMapping("/adaptive-rag/embedding-stats")
+    public Map<String, Object> adaptiveRagEmbeddingStats() {
+        return embeddingService.stats();
+    }
+    
+    /**
+     * Adaptive RAG 文档导入: 导入 rag.ingest.root 下的文件或目录，重复导入只更新变化的块
+     */
+    @PostMapping("/adaptive-rag/ingest")
+    public Map<String, Object> adaptiveRagIngest(@RequestBody Map<String, String> request) {
+        Map<String, Object> response = new HashMap<>();
+        if (ingestRoot == null) {
+            response.put("success", false);
+            response.put("error", "rag.ingest.root 未配置，导入已禁用");
+            return response;
+        }
+        Path target = ingestRoot.resolve(request.getOrDefault("path", "")).normalize();
+        if (!target.startsWith(ingestRoot)) {
+            response.put("success", false);
+            response.put("error", "路径必须位于 rag.ingest.root 之下");
+            return response;
+        }
+        log.info("📥 Adaptive RAG 导入: {}", target);
+        try {
+            IngestionPipeline.IngestionReport report = ingestionPipeline.ingest(target);
+            response.put("success", true);
+            response.put("files", report.files());
+            response.put("unchangedFiles", report.unchangedFiles());
+            response.put("chunks", report.chunks());
+            response.put("unchangedChunks", report.unchangedChunks());
+            response.put("written", report.written());
+            response.put("deleted", report.deleted());
+            response.put("elapsedMs", report.elapsed().toMillis());
+        } catch (Exception e) {
+            log.error("Adaptive RAG 导入失败", e);
+            response.put("success", false);
+            response.put("error", e.getMessage());
+        }
+        return response;
+    }
+    
     /**
      * Adaptive RAG 流式执行
+     *
+     * 事件按 type 区分:
+     * - token: 生成节点产出的答案片段，生成过程中实时推送；index 为 0 表示新一轮生成开始（重新生成时客户端应清空已显示的答案）
+     * - node: 节点执行完成后的状态
+     * - final: 运行结束，带完整答案、答案质量、首片段延迟和预算消耗
      */
     @GetMapping(value = "/adaptive-rag/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<Map<String, Object>> adaptiveRagStream(@RequestParam String userInput) {
         log.info("📖🌊 Adaptive RAG 流式执行: {}", userInput);
         return Flux.create(sink -> {
-            try {
+            // runId 作为 threadId 传给图，生成节点按它发布片段
+            String runId = UUID.randomUUID().toString();
+            long start = System.nanoTime();
+            long[] firstTokenMs = {-1};
+            TokenStreams.Subscription subscription = adaptiveRAGGraph.getTokenStreams().subscribe(runId, event -> {
+                long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+                if (firstTokenMs[0] < 0) {
+                    firstTokenMs[0] = elapsedMs;
+                }
+                Map<String, Object> data = new HashMap<>();
+                data.put("type", "token");
+                data.put("node", event.node());
+                data.put("index", event.index());
+                data.put("token", event.token());
+                data.put("elapsedMs", elapsedMs);
+                data.put("mode", "adaptive-rag");
+                sink.next(data);
+            });
+            try (subscription) {
                 var compiled = adaptiveRAGGraph.compile();
+                var config = RunnableConfig.builder().threadId(runId).build();
+                ComprehensiveWorkflowState finalState = null;
                 for (var nodeOutput : compiled.stream(Map.of(
-                        ComprehensiveWorkflowState.USER_INPUT, userInput))) {
+                        ComprehensiveWorkflowState.USER_INPUT, userInput), config)) {
                     ComprehensiveWorkflowState state = nodeOutput.state();
                     Map<String, Object> data = new HashMap<>();
+                    data.put("type", "node");
                     data.put("node", nodeOutput.node());
                     data.put("currentStep", state.currentStep());
                     data.put("intent", state.intent());
@@ -453,6 +622,21 @@ public class ComprehensiveWorkflowController {
                     data.put("executionLog", state.executionLog());
                     data.put("mode", "adaptive-rag");
                     sink.next(data);
+                    finalState = state;
+                }
+                if (finalState != null) {
+                    Map<String, Object> data = new HashMap<>();
+                    data.put("type", "final");
+                    data.put("generatedAnswer", finalState.<String>value(AdaptiveRAGGraph.GENERATED_ANSWER).orElse(""));
+                    data.put("answerQuality", finalState.<String>value(AdaptiveRAGGraph.ANSWER_QUALITY).orElse(""));
+                    data.put("totalSteps", finalState.stepCount());
+                    data.put("retrieverCallsSaved",
+                            finalState.<Long>value(AdaptiveRAGGraph.RETRIEVER_CALLS_SAVED).orElse(0L));
+                    data.put("firstTokenMs", firstTokenMs[0]);
+                    data.put("budget", adaptiveRAGGraph.budgetReport(finalState));
+                    data.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+                    data.put("mode", "adaptive-rag");
+                    sink.next(data);
                 }
                 sink.complete();
             } catch (Exception e) {
@@ -0,0 +1,68 @@
+package org.example.langgraph4jlearn.rag.budget;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 单次运行的成本预算：检索 / 生成 / 评估次数上限加墙钟时间上限
+ *
+ * 预算只约束可选的循环（查询重写、重新生成、重新检索），检索 → 评估 → 生成 → 评估这条必经路径总会走完，
+ * 所以次数上限至少要容纳一次必经路径
+ *
+ * @param maxRetrievals  检索节点次数上限
+ * @param maxGenerations 生成节点次数上限
+ * @param maxGrades      评估节点次数上限（文档评估和答案评估合计）
+ * @param wallClock      墙钟时间上限；剩余时间按已执行步骤的平均耗时外推，放不下整个循环就不再进入
+ */
+public record BudgetConfig(int maxRetrievals, int maxGenerations, int maxGrades, Duration wallClock) {
+
+    public BudgetConfig {
+        if (maxRetrievals < 1 || maxGenerations < 1 || maxGrades < 2) {
+            throw new IllegalArgumentException("Budget must cover one pass (retrievals >= 1, generations >= 1, "
+                    + "grades >= 2): retrievals=" + maxRetrievals + ", generations=" + maxGenerations
+                    + ", grades=" + maxGrades);
+        }
+        if (wallClock == null || wallClock.isNegative() || wallClock.isZero()) {
+            throw new IllegalArgumentException("wallClock must be positive: " + wallClock);
+        }
+    }
+
+    public static BudgetConfig defaults() {
+        return new BudgetConfig(4, 3, 6, Duration.ofSeconds(20));
+    }
+
+    /**
+     * 在已消耗 used 的基础上，再执行 retrievals 次检索、generations 次生成、grades 次评估是否仍在预算内
+     */
+    public boolean allows(BudgetUsage used, int retrievals, int generations, int grades) {
+        if (used.retrievals() + retrievals > maxRetrievals
+                || used.generations() + generations > maxGenerations
+                || used.grades() + grades > maxGrades) {
+            return false;
+        }
+        long average = used.steps() == 0 ? 0 : used.elapsedMillis() / used.steps();
+        long projected = used.elapsedMillis() + average * (retrievals + generations + grades);
+        return projected <= wallClock.toMillis();
+    }
+
+    /**
+     * 预算消耗报告: 各项的已用 / 上限，以及已达上限的项
+     */
+    public Map<String, Object> report(BudgetUsage used) {
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("retrievals", used.retrievals());
+        report.put("maxRetrievals", maxRetrievals);
+        report.put("generations", used.generations());
+        report.put("maxGenerations", maxGenerations);
+        report.put("grades", used.grades());
+        report.put("maxGrades", maxGrades);
+        report.put("elapsedMs", used.elapsedMillis());
+        report.put("wallClockMs", wallClock.toMillis());
+        report.put("retrievalsExhausted", used.retrievals() >= maxRetrievals);
+        report.put("generationsExhausted", used.generations() >= maxGenerations);
+        report.put("gradesExhausted", used.grades() >= maxGrades);
+        report.put("wallClockExceeded", used.elapsedMillis() > wallClock.toMillis());
+        return report;
+    }
+}
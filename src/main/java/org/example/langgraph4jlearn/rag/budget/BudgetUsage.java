@@ -0,0 +1,16 @@
+package org.example.langgraph4jlearn.rag.budget;
+
+/**
+ * 一次运行已消耗的预算
+ *
+ * @param retrievals    实际调用检索器的次数（缓存命中不计）
+ * @param generations   已执行的生成节点次数
+ * @param grades        已执行的评估节点次数（文档评估 + 答案评估）
+ * @param elapsedMillis 运行开始至今的耗时
+ */
+public record BudgetUsage(int retrievals, int generations, int grades, long elapsedMillis) {
+
+    public int steps() {
+        return retrievals + generations + grades;
+    }
+}
@@ -0,0 +1,226 @@
+package org.example.langgraph4jlearn.rag.cache;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * 检索结果两级缓存
+ *
+ * 一级: 单次运行缓存 (按 threadId/runId 隔离)，覆盖 re_retrieve 和 transform 循环里的重复检索
+ * 二级: 全局缓存 (LRU 有界)，Key = 检索策略 + 索引版本 + 归一化查询，跨运行复用
+ *
+ * 文档列表只存一份不可变 List，运行缓存、全局缓存和 State 中引用的都是同一个实例。
+ * 部分结果（如混合检索有检索源超时）只返回给本次调用，两级缓存都不写，下次检索重新执行
+ */
+@Slf4j
+public class RetrievalCache {
+
+    public static final int DEFAULT_MAX_GLOBAL_ENTRIES = 1024;
+    public static final int DEFAULT_MAX_RUN_SCOPES = 256;
+
+    private final Map<String, List<String>> globalEntries;
+    private final Map<String, RunScope> runScopes;
+
+    private final AtomicLong globalHits = new AtomicLong();
+    private final AtomicLong runHits = new AtomicLong();
+    private final AtomicLong retrieverCalls = new AtomicLong();
+    private final AtomicLong partialResults = new AtomicLong();
+
+    /**
+     * 检索函数的结果
+     *
+     * @param documents 文档列表
+     * @param partial   是否为部分结果；部分结果不进缓存
+     */
+    public record Result(List<String> documents, boolean partial) {
+
+        public static Result complete(List<String> documents) {
+            return new Result(documents, false);
+        }
+    }
+
+    public RetrievalCache() {
+        this(DEFAULT_MAX_GLOBAL_ENTRIES, DEFAULT_MAX_RUN_SCOPES);
+    }
+
+    public RetrievalCache(int maxGlobalEntries, int maxRunScopes) {
+        this.globalEntries = lruMap(maxGlobalEntries);
+        this.runScopes = lruMap(maxRunScopes);
+    }
+
+    private static <V> Map<String, V> lruMap(int maxEntries) {
+        return new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 开始一次新的运行：清空该 runId 下的运行缓存和统计
+     */
+    public void beginRun(String runId) {
+        synchronized (runScopes) {
+            runScopes.put(runId, new RunScope());
+        }
+    }
+
+    /**
+     * 带缓存的检索
+     *
+     * @param runId        运行标识 (threadId)
+     * @param strategy     检索策略 (节点名)
+     * @param query        查询文本
+     * @param indexVersion 索引版本，索引更新后旧缓存自然失效
+     * @param retriever    真正的检索函数
+     * @return 不可变文档列表 (共享实例，不要修改)
+     */
+    public List<String> retrieve(String runId, String strategy, String query, String indexVersion,
+                                 Function<String, List<String>> retriever) {
+        return retrieveResult(runId, strategy, query, indexVersion, q -> Result.complete(retriever.apply(q)));
+    }
+
+    /**
+     * 带缓存的检索，检索函数可以报告部分结果；部分结果原样返回，不写入运行缓存和全局缓存
+     *
+     * @see #retrieve(String, String, String, String, Function)
+     */
+    public List<String> retrieveResult(String runId, String strategy, String query, String indexVersion,
+                                       Function<String, Result> retriever) {
+        String key = cacheKey(strategy, query, indexVersion);
+        RunScope scope = scope(runId);
+
+        List<String> docs = scope.entries.get(key);
+        if (docs != null) {
+            scope.runHits.incrementAndGet();
+            runHits.incrementAndGet();
+            log.debug("♻️ [RetrievalCache] 运行级命中: run={}, key={}", runId, key);
+            return docs;
+        }
+
+        synchronized (globalEntries) {
+            docs = globalEntries.get(key);
+        }
+        if (docs != null) {
+            scope.globalHits.incrementAndGet();
+            globalHits.incrementAndGet();
+            scope.entries.put(key, docs);
+            log.debug("♻️ [RetrievalCache] 全局命中: run={}, key={}", runId, key);
+            return docs;
+        }
+        return load(runId, scope, key, query, retriever);
+    }
+
+    /**
+     * 跳过两级缓存直接调用检索器，结果覆盖缓存中的旧条目。
+     * 用于同一运行内重复检索同一查询（如答案评估后重新检索），命中缓存只会拿回刚被判为不够用的文档
+     */
+    public List<String> refresh(String runId, String strategy, String query, String indexVersion,
+                                Function<String, Result> retriever) {
+        String key = cacheKey(strategy, query, indexVersion);
+        log.debug("🔁 [RetrievalCache] 跳过缓存重新检索: run={}, key={}", runId, key);
+        return load(runId, scope(runId), key, query, retriever);
+    }
+
+    private List<String> load(String runId, RunScope scope, String key, String query,
+                              Function<String, Result> retriever) {
+        Result result = retriever.apply(query);
+        List<String> docs = List.copyOf(result.documents());
+        scope.retrieverCalls.incrementAndGet();
+        retrieverCalls.incrementAndGet();
+        if (result.partial()) {
+            partialResults.incrementAndGet();
+            log.debug("⚠️ [RetrievalCache] 部分结果不缓存: run={}, key={}", runId, key);
+            return docs;
+        }
+        scope.entries.put(key, docs);
+        synchronized (globalEntries) {
+            globalEntries.put(key, docs);
+        }
+        return docs;
+    }
+
+    /**
+     * 获取某次运行的统计
+     */
+    public RunStats runStats(String runId) {
+        RunScope scope;
+        synchronized (runScopes) {
+            scope = runScopes.get(runId);
+        }
+        if (scope == null) {
+            return new RunStats(0, 0, 0);
+        }
+        return new RunStats(scope.retrieverCalls.get(), scope.runHits.get(), scope.globalHits.get());
+    }
+
+    /**
+     * 全局统计
+     */
+    public Map<String, Object> stats() {
+        int size;
+        synchronized (globalEntries) {
+            size = globalEntries.size();
+        }
+        return Map.of(
+                "globalEntries", size,
+                "retrieverCalls", retrieverCalls.get(),
+                "runHits", runHits.get(),
+                "globalHits", globalHits.get(),
+                "retrieverCallsSaved", runHits.get() + globalHits.get(),
+                "partialResults", partialResults.get()
+        );
+    }
+
+    public void clear() {
+        synchronized (globalEntries) {
+            globalEntries.clear();
+        }
+        synchronized (runScopes) {
+            runScopes.clear();
+        }
+    }
+
+    private RunScope scope(String runId) {
+        synchronized (runScopes) {
+            return runScopes.computeIfAbsent(runId, id -> new RunScope());
+        }
+    }
+
+    /**
+     * 查询归一化: 去首尾空白、合并连续空白、统一小写，让轻微改写的查询落到同一个 Key
+     */
+    static String cacheKey(String strategy, String query, String indexVersion) {
+        String normalized = query == null ? "" : query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return strategy + "|" + indexVersion + "|" + normalized;
+    }
+
+    private static class RunScope {
+        private final Map<String, List<String>> entries = new ConcurrentHashMap<>();
+        private final AtomicLong retrieverCalls = new AtomicLong();
+        private final AtomicLong runHits = new AtomicLong();
+        private final AtomicLong globalHits = new AtomicLong();
+    }
+
+    /**
+     * 单次运行的检索统计
+     *
+     * @param retrieverCalls 实际调用检索器次数
+     * @param runHits        运行级缓存命中次数
+     * @param globalHits     全局缓存命中次数
+     */
+    public record RunStats(long retrieverCalls, long runHits, long globalHits) {
+
+        public long retrieverCallsSaved() {
+            return runHits + globalHits;
+        }
+    }
+}
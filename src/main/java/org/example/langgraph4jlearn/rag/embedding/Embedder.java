@@ -0,0 +1,28 @@
+package org.example.langgraph4jlearn.rag.embedding;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 文本向量化
+ */
+public interface Embedder {
+
+    /**
+     * 向量维度，同一个 Embedder 的输出维度固定
+     */
+    int dimension();
+
+    float[] embed(String text);
+
+    /**
+     * 批量向量化，结果顺序与输入一致；远程模型应覆盖为一次请求
+     */
+    default List<float[]> embedAll(List<String> texts) {
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            vectors.add(embed(text));
+        }
+        return vectors;
+    }
+}
@@ -0,0 +1,265 @@
+package org.example.langgraph4jlearn.rag.embedding;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 向量化服务：在任意 {@link Embedder} 后端（本地哈希、langchain4j 模型）前面加内容哈希缓存和微批
+ *
+ * 查询线程和导入线程的请求进同一个队列，由单个批处理线程合并：第一个请求到达后最多等 maxWait，
+ * 或凑满 maxBatchSize 条，一次调用后端 embedAll。相同内容只算一次——命中缓存直接返回，
+ * 正在计算的相同内容共享同一个结果。本身也是 Embedder，可以直接交给检索器和导入流水线
+ */
+@Slf4j
+public class EmbeddingService implements Embedder, Closeable {
+
+    private final Embedder backend;
+    private final EmbeddingServiceConfig config;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final Map<String, CompletableFuture<float[]>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, float[]> cache;
+    private final Thread batcher;
+    // 入队和关闭互斥：关闭之后不会再有请求进队列，关闭时最后一次清空队列就能覆盖所有请求
+    private final Object lifecycle = new Object();
+    private volatile boolean closed;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong deduplicated = new AtomicLong();
+    private final AtomicLong modelCalls = new AtomicLong();
+    private final AtomicLong embeddedTexts = new AtomicLong();
+
+    private record Request(String key, String text, CompletableFuture<float[]> future) {
+    }
+
+    public EmbeddingService(Embedder backend) {
+        this(backend, EmbeddingServiceConfig.defaults());
+    }
+
+    public EmbeddingService(Embedder backend, EmbeddingServiceConfig config) {
+        this.backend = backend;
+        this.config = config;
+        int maxEntries = config.cacheEntries();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, float[]> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.batcher = new Thread(this::batchLoop, "embedding-batcher");
+        this.batcher.setDaemon(true);
+        this.batcher.start();
+    }
+
+    @Override
+    public int dimension() {
+        return backend.dimension();
+    }
+
+    /**
+     * 返回的数组是副本，调用方可以修改
+     */
+    @Override
+    public float[] embed(String text) {
+        return await(submit(text)).clone();
+    }
+
+    /**
+     * 整批一起入队，缓存未命中的部分会被合进同一次（或少数几次）模型调用
+     */
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<CompletableFuture<float[]>> futures = new ArrayList<>(texts.size());
+        for (String text : texts) {
+            futures.add(submit(text));
+        }
+        List<float[]> vectors = new ArrayList<>(texts.size());
+        for (CompletableFuture<float[]> future : futures) {
+            vectors.add(await(future).clone());
+        }
+        return vectors;
+    }
+
+    private CompletableFuture<float[]> submit(String text) {
+        requests.incrementAndGet();
+        String key = contentKey(text);
+        float[] cached = cached(key);
+        if (cached != null) {
+            cacheHits.incrementAndGet();
+            return CompletableFuture.completedFuture(cached);
+        }
+        CompletableFuture<float[]> created = new CompletableFuture<>();
+        CompletableFuture<float[]> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            deduplicated.incrementAndGet();
+            return existing;
+        }
+        // 批处理线程先写缓存再移出 inFlight，两次检查之间可能刚好算完
+        cached = cached(key);
+        if (cached != null) {
+            inFlight.remove(key, created);
+            cacheHits.incrementAndGet();
+            created.complete(cached);
+            return created;
+        }
+        synchronized (lifecycle) {
+            if (closed) {
+                inFlight.remove(key, created);
+                throw new IllegalStateException("EmbeddingService is closed");
+            }
+            queue.add(new Request(key, text, created));
+        }
+        return created;
+    }
+
+    private static float[] await(CompletableFuture<float[]> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Embedding failed", e.getCause());
+        }
+    }
+
+    // ========== 批处理线程 ==========
+
+    private void batchLoop() {
+        List<Request> batch = new ArrayList<>(config.maxBatchSize());
+        try {
+            while (!closed) {
+                Request first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + config.maxWait().toNanos();
+                while (batch.size() < config.maxBatchSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    // 等待时间用完后，队列里已有的请求仍然顺带发出
+                    Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                run(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 凑批时被关闭打断，已取出队列的请求也要结束
+        batch.forEach(request -> fail(request, new IllegalStateException("EmbeddingService is closed")));
+        failQueued();
+    }
+
+    private void failQueued() {
+        List<Request> abandoned = new ArrayList<>();
+        queue.drainTo(abandoned);
+        abandoned.forEach(request -> fail(request, new IllegalStateException("EmbeddingService is closed")));
+    }
+
+    private void run(List<Request> batch) {
+        List<String> texts = batch.stream().map(Request::text).toList();
+        try {
+            List<float[]> vectors = backend.embedAll(texts);
+            modelCalls.incrementAndGet();
+            embeddedTexts.addAndGet(batch.size());
+            for (int i = 0; i < batch.size(); i++) {
+                Request request = batch.get(i);
+                synchronized (cache) {
+                    cache.put(request.key(), vectors.get(i));
+                }
+                inFlight.remove(request.key(), request.future());
+                request.future().complete(vectors.get(i));
+            }
+            log.debug("🧮 [EmbeddingService] 批量向量化 {} 条", batch.size());
+        } catch (Exception e) {
+            log.warn("⚠️ [EmbeddingService] 批量向量化失败 ({} 条): {}", batch.size(), e.toString());
+            batch.forEach(request -> fail(request, e));
+        }
+    }
+
+    private void fail(Request request, Exception e) {
+        inFlight.remove(request.key(), request.future());
+        request.future().completeExceptionally(e);
+    }
+
+    // ========== 缓存 ==========
+
+    private float[] cached(String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    // 以内容的 SHA-256 作为缓存 Key，不在内存里保留原文
+    private static String contentKey(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 统计: 请求数、缓存命中、合并的重复请求、模型调用次数和平均批大小
+     */
+    public Map<String, Object> stats() {
+        long calls = modelCalls.get();
+        int cacheSize;
+        synchronized (cache) {
+            cacheSize = cache.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", requests.get());
+        stats.put("cacheHits", cacheHits.get());
+        stats.put("deduplicated", deduplicated.get());
+        stats.put("modelCalls", calls);
+        stats.put("embeddedTexts", embeddedTexts.get());
+        stats.put("averageBatchSize", calls == 0 ? 0.0 : (double) embeddedTexts.get() / calls);
+        stats.put("cacheSize", cacheSize);
+        return stats;
+    }
+
+    public Embedder getBackend() {
+        return backend;
+    }
+
+    /**
+     * 停止批处理线程，尚未处理的请求以异常结束
+     */
+    @Override
+    public void close() {
+        synchronized (lifecycle) {
+            closed = true;
+        }
+        batcher.interrupt();
+        try {
+            batcher.join(1_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 批处理线程没能按时退出时也不留下永远等不到结果的请求
+        failQueued();
+    }
+}
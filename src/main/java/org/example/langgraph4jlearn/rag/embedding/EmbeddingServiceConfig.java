@@ -0,0 +1,27 @@
+package org.example.langgraph4jlearn.rag.embedding;
+
+import java.time.Duration;
+
+/**
+ * 向量化服务参数
+ *
+ * @param maxBatchSize 单次请求模型的最大文本数
+ * @param maxWait      攒批等待上限：第一个请求到达后最多再等这么久，凑不满也发出
+ * @param cacheEntries 内容哈希缓存条数上限（LRU）
+ */
+public record EmbeddingServiceConfig(int maxBatchSize, Duration maxWait, int cacheEntries) {
+
+    public EmbeddingServiceConfig {
+        if (maxBatchSize < 1 || cacheEntries < 0) {
+            throw new IllegalArgumentException("maxBatchSize must be positive and cacheEntries non-negative: "
+                    + maxBatchSize + ", " + cacheEntries);
+        }
+        if (maxWait.isNegative()) {
+            throw new IllegalArgumentException("maxWait must not be negative: " + maxWait);
+        }
+    }
+
+    public static EmbeddingServiceConfig defaults() {
+        return new EmbeddingServiceConfig(64, Duration.ofMillis(5), 10_000);
+    }
+}
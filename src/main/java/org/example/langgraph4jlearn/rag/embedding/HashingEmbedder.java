@@ -0,0 +1,104 @@
+package org.example.langgraph4jlearn.rag.embedding;
+
+import java.util.Locale;
+
+import static org.example.langgraph4jlearn.rag.lexical.Tokenizer.isCjk;
+
+/**
+ * 特征哈希向量化：确定性、无模型、无网络
+ *
+ * 英文 / 数字按词切分，中文连续字符切成单字 + 相邻二字，每个特征哈希到一个维度并带 ±1 符号，
+ * 最后做 L2 归一化。共享词越多余弦越高，适合作为本地 / 离线的检索基线
+ */
+public class HashingEmbedder implements Embedder {
+
+    public static final int DEFAULT_DIMENSION = 256;
+
+    private final int dimension;
+
+    public HashingEmbedder() {
+        this(DEFAULT_DIMENSION);
+    }
+
+    public HashingEmbedder(int dimension) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        float[] vector = new float[dimension];
+        if (text == null || text.isEmpty()) {
+            return vector;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < lower.length()) {
+            int cp = lower.codePointAt(i);
+            if (isCjk(cp)) {
+                int start = i;
+                while (i < lower.length() && isCjk(lower.codePointAt(i))) {
+                    i += Character.charCount(lower.codePointAt(i));
+                }
+                addCjkRun(vector, lower.substring(start, i));
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < lower.length() && Character.isLetterOrDigit(lower.codePointAt(i))
+                        && !isCjk(lower.codePointAt(i))) {
+                    i += Character.charCount(lower.codePointAt(i));
+                }
+                addFeature(vector, lower.substring(start, i));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        normalize(vector);
+        return vector;
+    }
+
+    private void addCjkRun(float[] vector, String run) {
+        int[] chars = run.codePoints().toArray();
+        for (int i = 0; i < chars.length; i++) {
+            addFeature(vector, new String(chars, i, 1));
+            if (i + 1 < chars.length) {
+                addFeature(vector, new String(chars, i, 2));
+            }
+        }
+    }
+
+    private void addFeature(float[] vector, String feature) {
+        int hash = mix(feature.hashCode());
+        vector[Math.floorMod(hash, dimension)] += (hash & 0x8000_0000) == 0 ? 1f : -1f;
+    }
+
+    // murmur3 fmix32，把 String.hashCode 的低位相关性打散
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static void normalize(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        if (norm == 0) {
+            return;
+        }
+        float inverse = (float) (1 / Math.sqrt(norm));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= inverse;
+        }
+    }
+}
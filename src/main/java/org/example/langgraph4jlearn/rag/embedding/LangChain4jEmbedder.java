@@ -0,0 +1,47 @@
+package org.example.langgraph4jlearn.rag.embedding;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * langchain4j EmbeddingModel 适配器，批量请求走一次 embedAll
+ */
+public class LangChain4jEmbedder implements Embedder {
+
+    private final EmbeddingModel model;
+    private final int dimension;
+
+    public LangChain4jEmbedder(EmbeddingModel model) {
+        this.model = model;
+        // 部分模型的 dimension() 需要实际调用一次，构造时取一次即可
+        this.dimension = model.dimension();
+    }
+
+    @Override
+    public int dimension() {
+        return dimension;
+    }
+
+    @Override
+    public float[] embed(String text) {
+        return model.embed(text).content().vector();
+    }
+
+    @Override
+    public List<float[]> embedAll(List<String> texts) {
+        List<Embedding> embeddings = model.embedAll(texts.stream().map(TextSegment::from).toList()).content();
+        if (embeddings.size() != texts.size()) {
+            throw new IllegalStateException("Embedding model returned " + embeddings.size() + " vectors for "
+                    + texts.size() + " texts");
+        }
+        List<float[]> vectors = new ArrayList<>(embeddings.size());
+        for (Embedding embedding : embeddings) {
+            vectors.add(embedding.vector());
+        }
+        return vectors;
+    }
+}
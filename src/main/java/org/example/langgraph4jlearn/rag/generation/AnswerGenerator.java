@@ -0,0 +1,15 @@
+package org.example.langgraph4jlearn.rag.generation;
+
+import java.util.function.Consumer;
+
+/**
+ * 流式答案生成器
+ */
+public interface AnswerGenerator {
+
+    /**
+     * 生成答案，阻塞到生成结束；每产出一个增量片段就在生成线程上回调 onToken，
+     * 所有片段按顺序拼接等于返回的完整答案
+     */
+    String generate(GenerationRequest request, Consumer<String> onToken);
+}
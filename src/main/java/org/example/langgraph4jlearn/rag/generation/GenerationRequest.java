@@ -0,0 +1,26 @@
+package org.example.langgraph4jlearn.rag.generation;
+
+import java.util.List;
+
+/**
+ * 一次答案生成的输入
+ *
+ * @param query     用户查询
+ * @param queryType 查询分析得到的类型: simple / standard / complex
+ * @param documents 评估通过的检索文档，格式同 RETRIEVED_DOCS
+ * @param grounded  是否基于检索结果生成；false 为不检索的直接生成
+ */
+public record GenerationRequest(String query, String queryType, List<String> documents, boolean grounded) {
+
+    public GenerationRequest {
+        documents = documents == null ? List.of() : List.copyOf(documents);
+    }
+
+    public static GenerationRequest direct(String query, String queryType) {
+        return new GenerationRequest(query, queryType, List.of(), false);
+    }
+
+    public static GenerationRequest grounded(String query, String queryType, List<String> documents) {
+        return new GenerationRequest(query, queryType, documents, true);
+    }
+}
@@ -0,0 +1,96 @@
+package org.example.langgraph4jlearn.rag.generation;
+
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.example.langgraph4jlearn.rag.retrieval.RetrievedDocument;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * langchain4j StreamingChatModel 适配器：partial response 原样转成片段回调，
+ * 等待完整响应最多 timeout，超时视为生成失败；超时或被中断后模型继续推送的片段不再转给回调
+ */
+public class LangChain4jAnswerGenerator implements AnswerGenerator {
+
+    private static final String GROUNDED_SYSTEM_PROMPT =
+            "你是一个问答助手。只根据给出的参考文档回答问题，文档中没有的信息请直接说明不知道。";
+    private static final String DIRECT_SYSTEM_PROMPT = "你是一个问答助手，请简洁地回答问题。";
+
+    private final StreamingChatModel model;
+    private final Duration timeout;
+
+    public LangChain4jAnswerGenerator(StreamingChatModel model, Duration timeout) {
+        this.model = model;
+        this.timeout = timeout;
+    }
+
+    @Override
+    public String generate(GenerationRequest request, Consumer<String> onToken) {
+        CompletableFuture<String> completed = new CompletableFuture<>();
+        StringBuilder streamed = new StringBuilder();
+        // 调用方已经放弃等待：生成失败的片段不能再发布到 token 流
+        AtomicBoolean cancelled = new AtomicBoolean();
+        model.chat(List.of(
+                SystemMessage.from(request.grounded() ? GROUNDED_SYSTEM_PROMPT : DIRECT_SYSTEM_PROMPT),
+                UserMessage.from(prompt(request))), new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                if (cancelled.get()) {
+                    return;
+                }
+                streamed.append(partialResponse);
+                onToken.accept(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse completeResponse) {
+                if (cancelled.get()) {
+                    return;
+                }
+                String text = completeResponse.aiMessage() == null ? null : completeResponse.aiMessage().text();
+                completed.complete(text != null ? text : streamed.toString());
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                completed.completeExceptionally(error);
+            }
+        });
+        try {
+            return completed.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            cancelled.set(true);
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Generation interrupted");
+        } catch (TimeoutException e) {
+            cancelled.set(true);
+            throw new IllegalStateException("Chat model did not complete within " + timeout.toMillis() + "ms");
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Chat model failed: " + e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    static String prompt(GenerationRequest request) {
+        if (!request.grounded()) {
+            return request.query();
+        }
+        StringBuilder prompt = new StringBuilder("参考文档:\n");
+        List<String> documents = request.documents();
+        for (int i = 0; i < documents.size(); i++) {
+            prompt.append('[').append(i + 1).append("] ").append(RetrievedDocument.contentOf(documents.get(i)))
+                    .append('\n');
+        }
+        return prompt.append("\n问题: ").append(request.query()).toString();
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.langgraph4jlearn.rag.generation;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.function.Consumer;
+
+/**
+ * 本地模板生成器：没有配置聊天模型时使用，按模板拼出答案后每 2 个字符作为一个片段流式输出，
+ * 可设置片段间隔模拟模型的出字速度
+ */
+public class TemplateAnswerGenerator implements AnswerGenerator {
+
+    private static final int TOKEN_CODE_POINTS = 2;
+
+    private final Duration tokenDelay;
+
+    public TemplateAnswerGenerator() {
+        this(Duration.ZERO);
+    }
+
+    public TemplateAnswerGenerator(Duration tokenDelay) {
+        this.tokenDelay = tokenDelay;
+    }
+
+    @Override
+    public String generate(GenerationRequest request, Consumer<String> onToken) {
+        String answer = request.grounded() ? groundedAnswer(request) : directAnswer(request);
+        int[] codePoints = answer.codePoints().toArray();
+        for (int i = 0; i < codePoints.length; i += TOKEN_CODE_POINTS) {
+            if (i > 0) {
+                pause();
+            }
+            onToken.accept(new String(codePoints, i, Math.min(TOKEN_CODE_POINTS, codePoints.length - i)));
+        }
+        return answer;
+    }
+
+    private static String directAnswer(GenerationRequest request) {
+        return "【直接生成答案】\n" +
+                "查询: " + request.query() + "\n" +
+                "答案: 这是一个简单查询，基于模型内置知识直接生成答案。\n" +
+                "无需检索外部文档。";
+    }
+
+    private static String groundedAnswer(GenerationRequest request) {
+        return "【RAG生成答案】\n" +
+                "查询类型: " + request.queryType() + "\n" +
+                "基于检索文档数: " + request.documents().size() + "\n" +
+                "答案: 根据检索到的相关文档，综合分析如下...\n" +
+                "1. 核心概念已在Doc1中详细解释\n" +
+                "2. 实践应用参考Doc2的案例\n" +
+                "3. 最新进展见Doc3的研究结果";
+    }
+
+    private void pause() {
+        if (tokenDelay.isZero()) {
+            return;
+        }
+        try {
+            Thread.sleep(tokenDelay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Generation interrupted");
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.example.langgraph4jlearn.rag.generation;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 生成片段的旁路通道：生成节点边生成边按 runId 发布片段，订阅方（如 SSE 接口）实时转发，
+ * 不必等节点结束。图状态里仍只写完整答案；没有订阅者时发布是空操作
+ */
+@Slf4j
+public class TokenStreams {
+
+    /**
+     * @param index 本次生成内的片段序号，从 0 开始；重新生成时同一节点会再从 0 开始
+     */
+    public record TokenEvent(String runId, String node, int index, String token) {
+    }
+
+    /**
+     * 订阅句柄，关闭即取消订阅
+     */
+    @FunctionalInterface
+    public interface Subscription extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private final Map<String, Consumer<TokenEvent>> listeners = new ConcurrentHashMap<>();
+
+    /**
+     * 订阅 runId 的片段，每次运行只允许一个订阅者；需在运行开始前订阅
+     */
+    public Subscription subscribe(String runId, Consumer<TokenEvent> listener) {
+        if (listeners.putIfAbsent(runId, listener) != null) {
+            throw new IllegalStateException("Run already has a token listener: " + runId);
+        }
+        return () -> listeners.remove(runId, listener);
+    }
+
+    /**
+     * 生成节点用：返回发布到 runId / node 的片段回调。订阅方抛异常时取消该订阅，生成继续
+     */
+    public Consumer<String> publisher(String runId, String node) {
+        Consumer<TokenEvent> listener = listeners.get(runId);
+        if (listener == null) {
+            return token -> {
+            };
+        }
+        AtomicInteger index = new AtomicInteger();
+        return token -> {
+            if (listeners.get(runId) != listener) {
+                return;
+            }
+            try {
+                listener.accept(new TokenEvent(runId, node, index.getAndIncrement(), token));
+            } catch (RuntimeException e) {
+                log.warn("🌊 [TokenStreams] 订阅方处理失败，取消订阅: run={}, node={}", runId, node, e);
+                listeners.remove(runId, listener);
+            }
+        };
+    }
+}
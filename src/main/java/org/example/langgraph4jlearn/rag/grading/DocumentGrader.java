@@ -0,0 +1,16 @@
+package org.example.langgraph4jlearn.rag.grading;
+
+/**
+ * 单篇文档相关性评估
+ *
+ * 实现需要线程安全：{@link ParallelDocumentGrader} 会并发调用
+ */
+public interface DocumentGrader {
+
+    /**
+     * @param query    检索查询
+     * @param document 文档内容
+     * @return 文档是否和查询相关
+     */
+    boolean isRelevant(String query, String document);
+}
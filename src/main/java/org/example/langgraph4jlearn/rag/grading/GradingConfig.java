@@ -0,0 +1,23 @@
+package org.example.langgraph4jlearn.rag.grading;
+
+/**
+ * 并行评估参数
+ *
+ * @param maxConcurrency 同时评估的文档数上限
+ * @param enoughRelevant 相关文档达到该数量即停止，剩余文档不再评估
+ * @param minRelevant    判定为 "相关" 至少需要的相关文档数；剩余文档全部通过也达不到时立即停止
+ */
+public record GradingConfig(int maxConcurrency, int enoughRelevant, int minRelevant) {
+
+    public GradingConfig {
+        if (maxConcurrency < 1 || minRelevant < 1 || enoughRelevant < minRelevant) {
+            throw new IllegalArgumentException("Require maxConcurrency >= 1 and 1 <= minRelevant <= enoughRelevant: "
+                    + "maxConcurrency=" + maxConcurrency + ", enoughRelevant=" + enoughRelevant
+                    + ", minRelevant=" + minRelevant);
+        }
+    }
+
+    public static GradingConfig defaults() {
+        return new GradingConfig(4, 3, 1);
+    }
+}
@@ -0,0 +1,40 @@
+package org.example.langgraph4jlearn.rag.grading;
+
+import org.example.langgraph4jlearn.rag.lexical.Tokenizer;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * 本地评估器：查询词在文档中出现的比例达到阈值即判为相关
+ *
+ * 不调用模型，用作默认实现和测试替身；分词和 BM25 检索一致，中文按 bigram 匹配
+ */
+public class LexicalOverlapGrader implements DocumentGrader {
+
+    public static final double DEFAULT_MIN_OVERLAP = 0.2;
+
+    private final double minOverlap;
+
+    public LexicalOverlapGrader() {
+        this(DEFAULT_MIN_OVERLAP);
+    }
+
+    public LexicalOverlapGrader(double minOverlap) {
+        if (minOverlap <= 0 || minOverlap > 1) {
+            throw new IllegalArgumentException("minOverlap must be in (0, 1]: " + minOverlap);
+        }
+        this.minOverlap = minOverlap;
+    }
+
+    @Override
+    public boolean isRelevant(String query, String document) {
+        Set<String> queryTerms = new HashSet<>(Tokenizer.tokenize(query));
+        if (queryTerms.isEmpty()) {
+            return false;
+        }
+        Set<String> documentTerms = new HashSet<>(Tokenizer.tokenize(document));
+        long matched = queryTerms.stream().filter(documentTerms::contains).count();
+        return matched >= minOverlap * queryTerms.size();
+    }
+}
@@ -0,0 +1,138 @@
+package org.example.langgraph4jlearn.rag.grading;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.UnaryOperator;
+
+/**
+ * 逐篇并行评估文档相关性，够用或不可能够用时提前结束
+ *
+ * 同时在评估的文档不超过 maxConcurrency 篇：先提交一个窗口，每完成一篇再补一篇，
+ * 提前结束时未提交的文档根本不会评估，已提交的被中断。模型评估时这能省掉大部分调用
+ */
+@Slf4j
+public class ParallelDocumentGrader implements Closeable {
+
+    private final DocumentGrader grader;
+    private final GradingConfig config;
+    private final ExecutorService executor;
+
+    /**
+     * 评估结果
+     *
+     * @param relevant   通过评估的文档，保持检索排序
+     * @param graded     实际评估完成的文档数
+     * @param skipped    因提前结束未评估（或被中断）的文档数
+     * @param sufficient 相关文档数是否达到 minRelevant
+     */
+    public record GradingResult(List<String> relevant, int graded, int skipped, boolean sufficient) {
+
+        public boolean stoppedEarly() {
+            return skipped > 0;
+        }
+    }
+
+    public ParallelDocumentGrader(DocumentGrader grader, GradingConfig config) {
+        this.grader = grader;
+        this.config = config;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(config.maxConcurrency(), runnable -> {
+            Thread thread = new Thread(runnable, "document-grader-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public GradingResult grade(String query, List<String> documents) {
+        return grade(query, documents, UnaryOperator.identity());
+    }
+
+    /**
+     * @param content 从文档文本中取出交给评估器的内容，例如去掉 ID 和检索分数前缀；返回的仍是原始文档文本
+     */
+    public GradingResult grade(String query, List<String> documents, UnaryOperator<String> content) {
+        int total = documents.size();
+        ExecutorCompletionService<Boolean> completion = new ExecutorCompletionService<>(executor);
+        Map<Future<Boolean>, Integer> inFlight = new HashMap<>();
+        boolean[] passed = new boolean[total];
+        int submitted = 0;
+        int graded = 0;
+        int relevant = 0;
+
+        try {
+            while (submitted < Math.min(config.maxConcurrency(), total)) {
+                submit(completion, inFlight, query, content.apply(documents.get(submitted)), submitted++);
+            }
+            while (!inFlight.isEmpty()) {
+                Future<Boolean> done = completion.take();
+                int index = inFlight.remove(done);
+                graded++;
+                if (verdict(done, index)) {
+                    passed[index] = true;
+                    relevant++;
+                }
+                if (relevant >= config.enoughRelevant()) {
+                    log.debug("📊 [DocumentGrader] 已有 {} 篇相关，提前结束", relevant);
+                    break;
+                }
+                // 剩下的全部通过也凑不够 minRelevant
+                if (relevant + (total - graded) < config.minRelevant()) {
+                    log.debug("📊 [DocumentGrader] 剩余 {} 篇不足以达到 {} 篇相关，提前结束", total - graded,
+                            config.minRelevant());
+                    break;
+                }
+                if (submitted < total) {
+                    submit(completion, inFlight, query, content.apply(documents.get(submitted)), submitted++);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while grading documents", e);
+        } finally {
+            inFlight.keySet().forEach(future -> future.cancel(true));
+        }
+
+        List<String> result = new ArrayList<>(relevant);
+        for (int i = 0; i < total; i++) {
+            if (passed[i]) {
+                result.add(documents.get(i));
+            }
+        }
+        return new GradingResult(result, graded, total - graded, relevant >= config.minRelevant());
+    }
+
+    private void submit(ExecutorCompletionService<Boolean> completion, Map<Future<Boolean>, Integer> inFlight,
+                        String query, String document, int index) {
+        inFlight.put(completion.submit(() -> grader.isRelevant(query, document)), index);
+    }
+
+    // 单篇评估失败按不相关处理，不影响其余文档
+    private boolean verdict(Future<Boolean> done, int index) throws InterruptedException {
+        try {
+            return done.get();
+        } catch (ExecutionException e) {
+            log.warn("⚠️ [DocumentGrader] 第 {} 篇文档评估失败: {}", index + 1, e.getCause().toString());
+            return false;
+        }
+    }
+
+    public GradingConfig getConfig() {
+        return config;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
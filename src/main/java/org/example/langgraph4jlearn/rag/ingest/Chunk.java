@@ -0,0 +1,15 @@
+package org.example.langgraph4jlearn.rag.ingest;
+
+/**
+ * 待写入索引的文本块
+ *
+ * @param id     块 ID: 来源 ID + "#" + 内容哈希，内容不变 ID 就不变
+ * @param text   块文本，含与上一块重叠的部分
+ * @param vector 向量，不需要向量的写入目标为 null
+ */
+public record Chunk(String id, String text, float[] vector) {
+
+    public Chunk withVector(float[] vector) {
+        return new Chunk(id, text, vector);
+    }
+}
@@ -0,0 +1,108 @@
+package org.example.langgraph4jlearn.rag.ingest;
+
+import org.example.langgraph4jlearn.rag.retrieval.Bm25Retriever;
+import org.example.langgraph4jlearn.rag.retrieval.PersistentVectorRetriever;
+import org.example.langgraph4jlearn.rag.retrieval.Retriever;
+import org.example.langgraph4jlearn.rag.retrieval.VectorRetriever;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * 导入流水线的写入目标
+ */
+public interface ChunkSink {
+
+    /**
+     * 批量写入或更新
+     */
+    void upsert(List<Chunk> batch);
+
+    void delete(Collection<String> ids);
+
+    /**
+     * 是否需要向量；所有目标都不需要时流水线跳过向量化
+     */
+    default boolean needsVectors() {
+        return true;
+    }
+
+    /**
+     * 写入是否能跨进程重启保留；只有所有目标都持久化时，重启后才能按持久化的清单跳过未变文件
+     */
+    default boolean durable() {
+        return false;
+    }
+
+    /**
+     * 一次导入结束时调用
+     */
+    default void flush() {
+    }
+
+    /**
+     * 把已有检索器适配成写入目标
+     */
+    static ChunkSink of(Retriever retriever) {
+        if (retriever instanceof VectorRetriever vector) {
+            return new ChunkSink() {
+                @Override
+                public void upsert(List<Chunk> batch) {
+                    batch.forEach(chunk -> vector.add(chunk.id(), chunk.text(), chunk.vector()));
+                }
+
+                @Override
+                public void delete(Collection<String> ids) {
+                    ids.forEach(vector::remove);
+                }
+            };
+        }
+        if (retriever instanceof PersistentVectorRetriever persistent) {
+            return new ChunkSink() {
+                @Override
+                public void upsert(List<Chunk> batch) {
+                    batch.forEach(chunk -> persistent.add(chunk.id(), chunk.text(), chunk.vector()));
+                }
+
+                @Override
+                public void delete(Collection<String> ids) {
+                    ids.forEach(persistent::remove);
+                }
+
+                @Override
+                public void flush() {
+                    persistent.flush();
+                }
+
+                @Override
+                public boolean durable() {
+                    return true;
+                }
+            };
+        }
+        if (retriever instanceof Bm25Retriever lexical) {
+            return new ChunkSink() {
+                @Override
+                public void upsert(List<Chunk> batch) {
+                    batch.forEach(chunk -> lexical.add(chunk.id(), chunk.text()));
+                }
+
+                @Override
+                public void delete(Collection<String> ids) {
+                    ids.forEach(lexical::remove);
+                }
+
+                @Override
+                public void flush() {
+                    lexical.flush();
+                }
+
+                @Override
+                public boolean needsVectors() {
+                    return false;
+                }
+            };
+        }
+        throw new IllegalArgumentException("Unsupported retriever for ingestion: " + retriever.getClass().getName());
+    }
+}
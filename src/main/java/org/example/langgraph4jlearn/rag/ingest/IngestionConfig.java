@@ -0,0 +1,33 @@
+package org.example.langgraph4jlearn.rag.ingest;
+
+/**
+ * 导入流水线参数，长度单位均为字符
+ *
+ * @param minChunkChars    块的最小长度；新内容不足时不在段落边界切块
+ * @param targetChunkChars 块的目标长度；超过后在下一个段落边界切块
+ * @param maxChunkChars    块的最大长度；超长段落在句末或空白处强制切开，也是单行读取的上限
+ * @param overlapChars     相邻块的重叠长度
+ * @param embedBatchSize   每次向量化的块数
+ * @param writeBatchSize   每次写索引的块数
+ * @param queueCapacity    阶段间队列容量（块数）；下游慢时上游阻塞，内存占用与输入大小无关
+ */
+public record IngestionConfig(int minChunkChars, int targetChunkChars, int maxChunkChars, int overlapChars,
+                              int embedBatchSize, int writeBatchSize, int queueCapacity) {
+
+    public IngestionConfig {
+        if (minChunkChars < 1 || targetChunkChars < minChunkChars || maxChunkChars < targetChunkChars) {
+            throw new IllegalArgumentException("Require 1 <= minChunkChars <= targetChunkChars <= maxChunkChars: "
+                    + minChunkChars + ", " + targetChunkChars + ", " + maxChunkChars);
+        }
+        if (overlapChars < 0 || overlapChars >= minChunkChars) {
+            throw new IllegalArgumentException("overlapChars must be in [0, minChunkChars): " + overlapChars);
+        }
+        if (embedBatchSize < 1 || writeBatchSize < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Batch sizes and queueCapacity must be positive");
+        }
+    }
+
+    public static IngestionConfig defaults() {
+        return new IngestionConfig(200, 800, 1600, 100, 32, 128, 256);
+    }
+}
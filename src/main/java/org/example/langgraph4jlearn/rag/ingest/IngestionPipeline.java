@@ -0,0 +1,474 @@
+package org.example.langgraph4jlearn.rag.ingest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import lombok.extern.slf4j.Slf4j;
+import org.example.langgraph4jlearn.rag.embedding.Embedder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * 文档导入流水线: 读取切块 -> 批量向量化 -> 批量写索引，三个阶段各占一个线程，之间用有界队列连接
+ *
+ * 下游慢时队列写满，上游阻塞（背压），内存占用由队列容量和块长度决定，与文件大小无关。
+ * 支持 .txt / .md / .markdown 以及 .jsonl（每行一个 JSON 对象，取 content 或 text 字段，id 字段可选）。
+ *
+ * 增量更新: 记录每个文件的指纹（大小 + 修改时间）和块 ID 集合。文件未变整体跳过；
+ * 变了则重新切块，内容没变的块（ID 相同）不再向量化和写入，只写新块、删掉消失的旧块。
+ * 导入目录时，目录下已经不存在的文件，其块也会被删除。
+ *
+ * 配置了清单文件时，每次导入成功后把清单写到文件里，重启后加载。所有写入目标都持久化时按指纹整体跳过未变文件；
+ * 有内存目标时重启后内存目标是空的，文件要重新写入，清单里的块 ID 只用来删除已经消失的旧块
+ */
+@Slf4j
+public class IngestionPipeline {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final Set<String> TEXT_EXTENSIONS = Set.of("txt", "md", "markdown");
+    private static final String JSONL_EXTENSION = "jsonl";
+
+    private final Embedder embedder;
+    private final List<ChunkSink> sinks;
+    private final IngestionConfig config;
+    private final TextChunker chunker;
+    private final boolean needsVectors;
+    private final boolean durable;
+    // 清单持久化位置，null 表示只在内存里
+    private final Path manifestFile;
+
+    // 来源 ID -> 已导入状态；写入阶段更新，读取阶段只读
+    private final Map<String, SourceState> manifest = new ConcurrentHashMap<>();
+
+    /**
+     * 导入结果
+     *
+     * @param files           处理的文件数
+     * @param unchangedFiles  指纹未变直接跳过的文件数
+     * @param chunks          切出的块数
+     * @param unchangedChunks 内容未变、未重新写入的块数
+     * @param written         向量化并写入的块数
+     * @param deleted         删除的旧块数
+     * @param elapsed         耗时
+     */
+    public record IngestionReport(int files, int unchangedFiles, int chunks, int unchangedChunks, int written,
+                                  int deleted, Duration elapsed) {
+    }
+
+    /**
+     * @param fingerprint 文件指纹；null 表示块没有写进所有目标（重启后的内存目标），只有块 ID 可用于删除旧块
+     */
+    private record SourceState(String fingerprint, Set<String> chunkIds) {
+    }
+
+    // 阶段间传递的消息: 块批次、来源结束标记、结束信号
+    private sealed interface Item permits ChunkItem, Batch, SourceDone, End {
+    }
+
+    private record ChunkItem(Chunk chunk) implements Item {
+    }
+
+    private record Batch(List<Chunk> chunks) implements Item {
+    }
+
+    /**
+     * 一个来源的块全部发出；写入阶段在它之前的块落盘后才删除旧块、更新清单，失败时旧块保留
+     */
+    private record SourceDone(String sourceId, String fingerprint, Set<String> chunkIds) implements Item {
+    }
+
+    private record End() implements Item {
+    }
+
+    public IngestionPipeline(Embedder embedder, List<ChunkSink> sinks, IngestionConfig config) {
+        this.embedder = embedder;
+        this.sinks = List.copyOf(sinks);
+        this.config = config;
+        this.chunker = new TextChunker(config);
+        this.needsVectors = sinks.stream().anyMatch(ChunkSink::needsVectors);
+        this.durable = sinks.stream().allMatch(ChunkSink::durable);
+        this.manifestFile = null;
+    }
+
+    /**
+     * @param manifestFile 清单文件，一般放在持久化索引旁边；存在时加载上次导入的状态
+     */
+    public IngestionPipeline(Embedder embedder, List<ChunkSink> sinks, IngestionConfig config, Path manifestFile)
+            throws IOException {
+        this.embedder = embedder;
+        this.sinks = List.copyOf(sinks);
+        this.config = config;
+        this.chunker = new TextChunker(config);
+        this.needsVectors = sinks.stream().anyMatch(ChunkSink::needsVectors);
+        this.durable = sinks.stream().allMatch(ChunkSink::durable);
+        this.manifestFile = manifestFile;
+        loadManifest();
+    }
+
+    /**
+     * 导入单个文件或目录（递归）；同一时间只允许一个导入
+     */
+    public synchronized IngestionReport ingest(Path path) throws IOException {
+        long start = System.nanoTime();
+        Path root = path.toAbsolutePath().normalize();
+        Counters counters = new Counters();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        BlockingQueue<Item> chunkQueue = new ArrayBlockingQueue<>(config.queueCapacity());
+        BlockingQueue<Item> writeQueue = new ArrayBlockingQueue<>(
+                Math.max(2, config.queueCapacity() / config.embedBatchSize()));
+
+        Thread embedStage = stage("ingest-embed", failure, () -> embedLoop(chunkQueue, writeQueue, failure));
+        Thread writeStage = stage("ingest-write", failure, () -> writeLoop(writeQueue, counters));
+        embedStage.start();
+        writeStage.start();
+        try {
+            Set<String> seen = new HashSet<>();
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(root)) {
+                files = walk.filter(Files::isRegularFile).filter(IngestionPipeline::isSupported).sorted().toList();
+            }
+            for (Path file : files) {
+                String sourceId = file.toString();
+                seen.add(sourceId);
+                readSource(file, sourceId, chunkQueue, failure, counters);
+            }
+            // 目录下已删除的文件
+            for (String sourceId : manifest.keySet()) {
+                if (!seen.contains(sourceId) && Path.of(sourceId).startsWith(root)) {
+                    put(chunkQueue, new SourceDone(sourceId, null, Set.of()), failure);
+                }
+            }
+            put(chunkQueue, new End(), failure);
+            embedStage.join();
+            if (failure.get() != null) {
+                // 向量化阶段失败时写入阶段收不到结束信号
+                writeStage.interrupt();
+            }
+            writeStage.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            embedStage.interrupt();
+            writeStage.interrupt();
+            throw new IOException("Ingestion interrupted", e);
+        } catch (RuntimeException | IOException e) {
+            embedStage.interrupt();
+            writeStage.interrupt();
+            if (failure.get() != null) {
+                throw new IOException("Ingestion failed: " + failure.get(), failure.get());
+            }
+            throw e;
+        }
+        if (failure.get() != null) {
+            throw new IOException("Ingestion failed: " + failure.get(), failure.get());
+        }
+        // 写入目标已经 flush，清单才落盘；失败时文件里保留上次成功的清单，下次导入多做一些重复写入
+        saveManifest();
+
+        IngestionReport report = new IngestionReport(counters.files.get(), counters.unchangedFiles.get(),
+                counters.chunks.get(), counters.unchangedChunks.get(), counters.written.get(),
+                counters.deleted.get(), Duration.ofNanos(System.nanoTime() - start));
+        log.info("📥 [Ingestion] {}: {}", root, report);
+        return report;
+    }
+
+    // ========== 阶段一: 读取切块（调用线程） ==========
+
+    private void readSource(Path file, String sourceId, BlockingQueue<Item> queue, AtomicReference<Throwable> failure,
+                            Counters counters) throws IOException, InterruptedException {
+        counters.files.incrementAndGet();
+        String fingerprint = Files.size(file) + ":" + Files.getLastModifiedTime(file).toMillis();
+        SourceState previous = manifest.get(sourceId);
+        if (previous != null && fingerprint.equals(previous.fingerprint())) {
+            counters.unchangedFiles.incrementAndGet();
+            return;
+        }
+        // 没有指纹的旧块不一定在所有目标里，全部重新写入
+        Set<String> previousIds = previous == null || previous.fingerprint() == null ? Set.of() : previous.chunkIds();
+        Set<String> chunkIds = new HashSet<>();
+        ChunkEmitter emitter = (prefix, text) -> {
+            String id = prefix + "#" + contentHash(text);
+            if (!chunkIds.add(id)) {
+                return;
+            }
+            counters.chunks.incrementAndGet();
+            if (previousIds.contains(id)) {
+                counters.unchangedChunks.incrementAndGet();
+                return;
+            }
+            try {
+                put(queue, new ChunkItem(new Chunk(id, text, null)), failure);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Ingestion interrupted", e);
+            }
+        };
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            if (extension(file).equals(JSONL_EXTENSION)) {
+                readJsonLines(reader, sourceId, emitter);
+            } else {
+                chunker.chunk(reader, text -> emitter.emit(sourceId, text));
+            }
+        }
+        put(queue, new SourceDone(sourceId, fingerprint, chunkIds), failure);
+    }
+
+    // JSONL 每条记录单独切块，块 ID 带上记录 ID，记录之间不重叠
+    private void readJsonLines(BufferedReader reader, String sourceId, ChunkEmitter emitter) throws IOException {
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode record;
+            try {
+                record = MAPPER.readTree(line);
+            } catch (JsonProcessingException e) {
+                log.warn("📥 [Ingestion] {}:{} 不是合法 JSON，跳过: {}", sourceId, lineNumber, e.getOriginalMessage());
+                continue;
+            }
+            JsonNode content = record.hasNonNull("content") ? record.get("content") : record.get("text");
+            if (content == null || !content.isTextual()) {
+                log.warn("📥 [Ingestion] {}:{} 缺少 content/text 字段，跳过", sourceId, lineNumber);
+                continue;
+            }
+            String prefix = sourceId + "/" + (record.hasNonNull("id") ? record.get("id").asText() : lineNumber);
+            chunker.chunk(new StringReader(content.asText()), text -> emitter.emit(prefix, text));
+        }
+    }
+
+    @FunctionalInterface
+    private interface ChunkEmitter {
+        void emit(String prefix, String text);
+    }
+
+    // ========== 阶段二: 批量向量化 ==========
+
+    private void embedLoop(BlockingQueue<Item> input, BlockingQueue<Item> output, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        List<Chunk> batch = new ArrayList<>(config.embedBatchSize());
+        // 结束标记要排在它之前的块后面，批次发出前先攒着
+        List<Item> markers = new ArrayList<>();
+        while (true) {
+            Item item = input.take();
+            if (item instanceof ChunkItem chunkItem) {
+                batch.add(chunkItem.chunk());
+                if (batch.size() >= config.embedBatchSize()) {
+                    flushEmbeddings(batch, markers, output, failure);
+                }
+            } else {
+                markers.add(item);
+                if (item instanceof End) {
+                    flushEmbeddings(batch, markers, output, failure);
+                    return;
+                }
+            }
+        }
+    }
+
+    private void flushEmbeddings(List<Chunk> batch, List<Item> markers, BlockingQueue<Item> output,
+                                 AtomicReference<Throwable> failure) throws InterruptedException {
+        if (!batch.isEmpty()) {
+            List<Chunk> embedded = new ArrayList<>(batch.size());
+            if (needsVectors) {
+                List<float[]> vectors = embedder.embedAll(batch.stream().map(Chunk::text).toList());
+                for (int i = 0; i < batch.size(); i++) {
+                    embedded.add(batch.get(i).withVector(vectors.get(i)));
+                }
+            } else {
+                embedded.addAll(batch);
+            }
+            put(output, new Batch(embedded), failure);
+            batch.clear();
+        }
+        for (Item marker : markers) {
+            put(output, marker, failure);
+        }
+        markers.clear();
+    }
+
+    // ========== 阶段三: 批量写索引 ==========
+
+    private void writeLoop(BlockingQueue<Item> input, Counters counters) throws InterruptedException {
+        List<Chunk> pending = new ArrayList<>(config.writeBatchSize());
+        List<SourceDone> markers = new ArrayList<>();
+        while (true) {
+            Item item = input.take();
+            if (item instanceof Batch batch) {
+                pending.addAll(batch.chunks());
+                if (pending.size() >= config.writeBatchSize()) {
+                    flushWrites(pending, markers, counters);
+                }
+            } else if (item instanceof SourceDone done) {
+                markers.add(done);
+            } else if (item instanceof End) {
+                flushWrites(pending, markers, counters);
+                sinks.forEach(ChunkSink::flush);
+                return;
+            }
+        }
+    }
+
+    private void flushWrites(List<Chunk> pending, List<SourceDone> markers, Counters counters) {
+        if (!pending.isEmpty()) {
+            List<Chunk> batch = List.copyOf(pending);
+            sinks.forEach(sink -> sink.upsert(batch));
+            counters.written.addAndGet(batch.size());
+            pending.clear();
+        }
+        for (SourceDone done : markers) {
+            SourceState previous = manifest.get(done.sourceId());
+            if (previous != null) {
+                List<String> stale = previous.chunkIds().stream().filter(id -> !done.chunkIds().contains(id)).toList();
+                if (!stale.isEmpty()) {
+                    sinks.forEach(sink -> sink.delete(stale));
+                    counters.deleted.addAndGet(stale.size());
+                }
+            }
+            if (done.fingerprint() == null) {
+                manifest.remove(done.sourceId());
+            } else {
+                manifest.put(done.sourceId(), new SourceState(done.fingerprint(), Set.copyOf(done.chunkIds())));
+            }
+        }
+        markers.clear();
+    }
+
+    // ========== 清单持久化 ==========
+
+    // 格式: {"来源 ID": {"fingerprint": "...", "chunkIds": [...]}}
+    private void loadManifest() throws IOException {
+        if (manifestFile == null || !Files.exists(manifestFile)) {
+            return;
+        }
+        JsonNode root = MAPPER.readTree(manifestFile.toFile());
+        for (Iterator<Map.Entry<String, JsonNode>> it = root.fields(); it.hasNext(); ) {
+            Map.Entry<String, JsonNode> entry = it.next();
+            JsonNode fingerprint = entry.getValue().get("fingerprint");
+            Set<String> chunkIds = new HashSet<>();
+            entry.getValue().path("chunkIds").forEach(id -> chunkIds.add(id.asText()));
+            // 有内存目标时上次写入的块已经随进程丢失，只保留块 ID
+            manifest.put(entry.getKey(), new SourceState(
+                    durable && fingerprint != null && fingerprint.isTextual() ? fingerprint.asText() : null,
+                    Set.copyOf(chunkIds)));
+        }
+        log.info("📥 [Ingestion] 加载清单 {}: {} 个来源", manifestFile, manifest.size());
+    }
+
+    private void saveManifest() throws IOException {
+        if (manifestFile == null) {
+            return;
+        }
+        ObjectNode root = MAPPER.createObjectNode();
+        manifest.forEach((sourceId, state) -> {
+            ObjectNode node = root.putObject(sourceId);
+            node.put("fingerprint", state.fingerprint());
+            state.chunkIds().stream().sorted().forEach(node.putArray("chunkIds")::add);
+        });
+        Path temp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        MAPPER.writeValue(temp.toFile(), root);
+        Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ========== 工具 ==========
+
+    @FunctionalInterface
+    private interface StageBody {
+        void run() throws Exception;
+    }
+
+    private static Thread stage(String name, AtomicReference<Throwable> failure, StageBody body) {
+        Thread thread = new Thread(() -> {
+            try {
+                body.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                failure.compareAndSet(null, e);
+            } catch (Throwable e) {
+                log.error("📥 [Ingestion] {} 阶段失败", name, e);
+                failure.compareAndSet(null, e);
+            }
+        }, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * 阻塞写入队列（背压）；下游已失败时不再等待
+     */
+    private static void put(BlockingQueue<Item> queue, Item item, AtomicReference<Throwable> failure)
+            throws InterruptedException {
+        while (!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+            if (failure.get() != null) {
+                throw new IllegalStateException("Ingestion stage failed", failure.get());
+            }
+        }
+    }
+
+    private static boolean isSupported(Path file) {
+        String extension = extension(file);
+        return TEXT_EXTENSIONS.contains(extension) || JSONL_EXTENSION.equals(extension);
+    }
+
+    private static String extension(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "" : name.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+
+    private static String contentHash(String text) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 当前已导入的来源数
+     */
+    public int sourceCount() {
+        return manifest.size();
+    }
+
+    public IngestionConfig getConfig() {
+        return config;
+    }
+
+    private static final class Counters {
+        final AtomicInteger files = new AtomicInteger();
+        final AtomicInteger unchangedFiles = new AtomicInteger();
+        final AtomicInteger chunks = new AtomicInteger();
+        final AtomicInteger unchangedChunks = new AtomicInteger();
+        final AtomicInteger written = new AtomicInteger();
+        final AtomicInteger deleted = new AtomicInteger();
+    }
+}
@@ -0,0 +1,177 @@
+package org.example.langgraph4jlearn.rag.ingest;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.function.Consumer;
+
+/**
+ * 流式文本切块
+ *
+ * 逐字符读入，按行拼成段落（空行或 Markdown 标题分隔），再把段落装进块里；任何时候只缓存一行、一个段落和一个块，
+ * 最长都不超过 maxChunkChars，与输入大小无关。
+ *
+ * 切块点由内容决定：新内容达到 minChunkChars 后，遇到哈希命中的段落（约四分之一）或达到 targetChunkChars 就在段落末尾切开。
+ * 文件中间改了一段时，切块点在改动之后很快重新对齐，后面的块内容和 ID 都不变，重新导入只需要更新附近几块
+ */
+public class TextChunker {
+
+    private final IngestionConfig config;
+
+    public TextChunker(IngestionConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 切块，每得到一块回调一次；不关闭 reader
+     */
+    public void chunk(Reader reader, Consumer<String> sink) throws IOException {
+        new Session(sink).run(reader);
+    }
+
+    private final class Session {
+        private final Consumer<String> sink;
+        private final StringBuilder line = new StringBuilder();
+        private final StringBuilder unit = new StringBuilder();
+        private final StringBuilder current = new StringBuilder();
+        // current 中除去重叠部分的新内容长度
+        private int fresh;
+        private boolean lineStart = true;
+
+        private Session(Consumer<String> sink) {
+            this.sink = sink;
+        }
+
+        private void run(Reader reader) throws IOException {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    char c = buffer[i];
+                    if (c == '\n') {
+                        onLine(true);
+                    } else if (c != '\r') {
+                        line.append(c);
+                        if (line.length() >= config.maxChunkChars()) {
+                            onLine(false);
+                        }
+                    }
+                }
+            }
+            if (!line.isEmpty()) {
+                onLine(true);
+            }
+            finishUnit();
+            closeChunk();
+        }
+
+        private void onLine(boolean complete) {
+            String text = line.toString();
+            line.setLength(0);
+            if (lineStart && complete && text.isBlank()) {
+                finishUnit();
+                return;
+            }
+            if (lineStart && text.startsWith("#")) {
+                finishUnit();
+            }
+            unit.append(text);
+            if (complete) {
+                unit.append('\n');
+            }
+            lineStart = complete;
+            while (unit.length() >= config.maxChunkChars()) {
+                int cut = cutPosition(unit, config.maxChunkChars());
+                emitUnit(unit.substring(0, cut).strip());
+                unit.delete(0, cut);
+            }
+        }
+
+        private void finishUnit() {
+            String text = unit.toString().strip();
+            unit.setLength(0);
+            if (!text.isEmpty()) {
+                emitUnit(text);
+            }
+        }
+
+        private void emitUnit(String text) {
+            if (text.isEmpty()) {
+                return;
+            }
+            if (fresh > 0 && current.length() + 2 + text.length() > config.maxChunkChars()) {
+                closeChunk();
+            }
+            if (fresh == 0 && current.length() + 2 + text.length() > config.maxChunkChars()) {
+                // 放不下重叠部分就不带重叠
+                current.setLength(0);
+            }
+            if (!current.isEmpty()) {
+                current.append("\n\n");
+            }
+            current.append(text);
+            fresh += text.length();
+            if (fresh >= config.minChunkChars() && (isCutPoint(text) || fresh >= config.targetChunkChars())) {
+                closeChunk();
+            }
+        }
+
+        private void closeChunk() {
+            if (fresh == 0) {
+                return;
+            }
+            String text = current.toString();
+            sink.accept(text);
+            current.setLength(0);
+            fresh = 0;
+            if (config.overlapChars() > 0) {
+                current.append(overlapTail(text, config.overlapChars()));
+            }
+        }
+    }
+
+    // 段落内容哈希的低两位为 0 时作为切块点
+    private static boolean isCutPoint(String paragraph) {
+        int h = paragraph.hashCode();
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        return (h & 3) == 0;
+    }
+
+    /**
+     * 在 limit 之前找切分位置: 优先句末，其次空白，都没有就硬切（不拆代理对）
+     */
+    static int cutPosition(CharSequence text, int limit) {
+        int floor = limit / 2;
+        for (int i = limit - 1; i >= floor; i--) {
+            if ("。！？；.!?;\n".indexOf(text.charAt(i)) >= 0) {
+                return i + 1;
+            }
+        }
+        for (int i = limit - 1; i >= floor; i--) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return i + 1;
+            }
+        }
+        return Character.isHighSurrogate(text.charAt(limit - 1)) ? limit - 1 : limit;
+    }
+
+    /**
+     * 取末尾约 overlap 个字符作为下一块的开头，尽量从词边界开始
+     */
+    static String overlapTail(String text, int overlap) {
+        if (text.length() <= overlap) {
+            return text;
+        }
+        int start = text.length() - overlap;
+        if (Character.isLowSurrogate(text.charAt(start))) {
+            start++;
+        }
+        for (int i = start; i < text.length() - 1; i++) {
+            if (Character.isWhitespace(text.charAt(i))) {
+                return text.substring(i + 1);
+            }
+        }
+        return text.substring(start);
+    }
+}
@@ -0,0 +1,424 @@
+package org.example.langgraph4jlearn.rag.lexical;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 分段的 BM25 倒排索引
+ *
+ * 写入先进内存缓冲，达到阈值时在写线程上、或缓冲最早一条写入满 refreshInterval 时在后台刷新线程上
+ * 封成不可变的 {@link Bm25Segment}；段数超过 mergeFactor 时把最小的几个合并。
+ * 查询只读已发布的段快照，从不封段或合并；需要立即可见的写入方调用 {@link #flush()}。
+ * 查询对每个词算出 BM25 上界，用 WAND 在所有段上共享一个 top-k 堆：候选文档的上界之和不超过当前第 k 名时整段跳过，
+ * 不需要给每个命中文档打分。idf / 平均文档长度按所有段汇总，分段不影响打分。
+ * 写入串行（单锁），查询无锁读段快照
+ */
+public class Bm25Index {
+
+    public static final double K1 = 1.2;
+    public static final double B = 0.75;
+    public static final int DEFAULT_SEAL_THRESHOLD = 4096;
+    public static final int DEFAULT_MERGE_FACTOR = 8;
+    public static final Duration DEFAULT_REFRESH_INTERVAL = Duration.ofSeconds(1);
+
+    // 所有索引共用一个后台刷新线程，任务是一次性的，不持有索引到下一次写入之后
+    private static final ScheduledExecutorService REFRESHER = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "bm25-refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 上界放大一点，避免浮点舍入让上界略小于真实分数
+    private static final double UPPER_BOUND_SLACK = 1 + 1e-9;
+
+    private final int sealThreshold;
+    private final int mergeFactor;
+    private final Duration refreshInterval;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<String, String> pending = new LinkedHashMap<>();
+    private volatile List<Bm25Segment> segments = List.of();
+    // 是否已有等待执行的后台刷新，writeLock 保护
+    private boolean refreshScheduled;
+
+    /**
+     * 命中结果
+     */
+    public record Hit(String id, String content, double score) {
+    }
+
+    public Bm25Index() {
+        this(DEFAULT_SEAL_THRESHOLD, DEFAULT_MERGE_FACTOR);
+    }
+
+    public Bm25Index(int sealThreshold, int mergeFactor) {
+        this(sealThreshold, mergeFactor, DEFAULT_REFRESH_INTERVAL);
+    }
+
+    /**
+     * @param refreshInterval 未满阈值的写入最多等这么久由后台封段变为可见
+     */
+    public Bm25Index(int sealThreshold, int mergeFactor, Duration refreshInterval) {
+        if (sealThreshold <= 0 || mergeFactor < 2) {
+            throw new IllegalArgumentException("sealThreshold must be > 0 and mergeFactor >= 2");
+        }
+        if (refreshInterval.isNegative() || refreshInterval.isZero()) {
+            throw new IllegalArgumentException("refreshInterval must be positive: " + refreshInterval);
+        }
+        this.sealThreshold = sealThreshold;
+        this.mergeFactor = mergeFactor;
+        this.refreshInterval = refreshInterval;
+    }
+
+    // ========== 写入 ==========
+
+    /**
+     * 写入或更新文档：旧版本在所在段里打删除标记
+     */
+    public void upsert(String id, String content) {
+        writeLock.lock();
+        try {
+            deleteFromSegments(id);
+            pending.remove(id);
+            pending.put(id, content);
+            if (pending.size() >= sealThreshold) {
+                seal();
+            } else if (!refreshScheduled) {
+                refreshScheduled = true;
+                REFRESHER.schedule(this::refresh, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public boolean delete(String id) {
+        writeLock.lock();
+        try {
+            return pending.remove(id) != null | deleteFromSegments(id);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private boolean deleteFromSegments(String id) {
+        boolean deleted = false;
+        for (Bm25Segment segment : segments) {
+            int doc = segment.docOf(id);
+            if (doc >= 0) {
+                deleted |= segment.delete(doc);
+            }
+        }
+        return deleted;
+    }
+
+    /**
+     * 把内存缓冲封成段，返回后之前的写入对查询可见
+     */
+    public void flush() {
+        writeLock.lock();
+        try {
+            seal();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // 后台刷新：封段和可能的合并都在刷新线程上
+    private void refresh() {
+        writeLock.lock();
+        try {
+            refreshScheduled = false;
+            seal();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void seal() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        Bm25SegmentWriter writer = new Bm25SegmentWriter();
+        pending.forEach(writer::add);
+        pending.clear();
+        List<Bm25Segment> next = new ArrayList<>(segments);
+        next.add(writer.build());
+        if (next.size() > mergeFactor) {
+            next = merge(next);
+        }
+        segments = List.copyOf(next);
+    }
+
+    // 合并最小的 mergeFactor 个段，顺带清掉已删除文档
+    private List<Bm25Segment> merge(List<Bm25Segment> current) {
+        List<Bm25Segment> bySize = new ArrayList<>(current);
+        bySize.sort(Comparator.comparingInt(Bm25Segment::docCount));
+        List<Bm25Segment> victims = bySize.subList(0, mergeFactor);
+        Bm25SegmentWriter writer = new Bm25SegmentWriter();
+        for (Bm25Segment segment : victims) {
+            for (int doc = 0; doc < segment.docCount(); doc++) {
+                if (!segment.isDeleted(doc)) {
+                    writer.add(segment.id(doc), segment.content(doc));
+                }
+            }
+        }
+        List<Bm25Segment> merged = new ArrayList<>(current);
+        merged.removeAll(victims);
+        if (writer.docCount() > 0) {
+            merged.add(writer.build());
+        }
+        return merged;
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * BM25 top-k，WAND 剪枝
+     */
+    public List<Hit> search(String query, int k) {
+        return search(query, k, true);
+    }
+
+    /**
+     * @param prune false 时给所有命中文档打分，仅用于对照测试和基准
+     */
+    List<Hit> search(String query, int k, boolean prune) {
+        if (k <= 0) {
+            return List.of();
+        }
+        List<Bm25Segment> snapshot = segments;
+        Map<String, Integer> queryTerms = new LinkedHashMap<>();
+        for (String token : Tokenizer.tokenize(query)) {
+            queryTerms.merge(token, 1, Integer::sum);
+        }
+        if (queryTerms.isEmpty() || snapshot.isEmpty()) {
+            return List.of();
+        }
+
+        long docCount = 0;
+        long totalLength = 0;
+        for (Bm25Segment segment : snapshot) {
+            docCount += segment.docCount();
+            totalLength += segment.totalLength();
+        }
+        double averageLength = docCount == 0 ? 1 : Math.max(1.0, (double) totalLength / docCount);
+
+        // 按词汇总全局 df，算 idf × 查询词频
+        String[] terms = queryTerms.keySet().toArray(new String[0]);
+        Bm25Segment.TermInfo[][] infos = new Bm25Segment.TermInfo[snapshot.size()][terms.length];
+        double[] weights = new double[terms.length];
+        for (int t = 0; t < terms.length; t++) {
+            long df = 0;
+            for (int s = 0; s < snapshot.size(); s++) {
+                infos[s][t] = snapshot.get(s).termInfo(terms[t]);
+                if (infos[s][t] != null) {
+                    df += infos[s][t].df();
+                }
+            }
+            weights[t] = queryTerms.get(terms[t]) * Math.log(1 + (docCount - df + 0.5) / (df + 0.5));
+        }
+
+        TopDocs top = new TopDocs(k);
+        for (int s = 0; s < snapshot.size(); s++) {
+            searchSegment(snapshot.get(s), s, infos[s], weights, averageLength, top, prune);
+        }
+
+        List<Hit> hits = new ArrayList<>(top.size);
+        for (int i = 0; i < top.size; i++) {
+            Bm25Segment segment = snapshot.get(top.segments[i]);
+            hits.add(new Hit(segment.id(top.docs[i]), segment.content(top.docs[i]), top.scores[i]));
+        }
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed().thenComparing(Hit::id));
+        return hits;
+    }
+
+    private static void searchSegment(Bm25Segment segment, int segmentIndex, Bm25Segment.TermInfo[] infos,
+                                      double[] weights, double averageLength, TopDocs top, boolean prune) {
+        int count = 0;
+        for (Bm25Segment.TermInfo info : infos) {
+            if (info != null) {
+                count++;
+            }
+        }
+        if (count == 0) {
+            return;
+        }
+        // terms 保持查询词顺序，用于按固定顺序累加分数；sorted 按当前文档排序，用于找 pivot
+        PostingsCursor[] terms = new PostingsCursor[count];
+        double[] termWeights = new double[count];
+        double[] upperBounds = new double[count];
+        int c = 0;
+        for (int t = 0; t < infos.length; t++) {
+            if (infos[t] != null) {
+                terms[c] = segment.postings(infos[t]);
+                termWeights[c] = weights[t];
+                upperBounds[c] = weights[t] * termScore(infos[t].maxTf(), infos[t].minLength(), averageLength)
+                        * UPPER_BOUND_SLACK;
+                terms[c].next();
+                c++;
+            }
+        }
+        int[] sorted = new int[count];
+        for (int i = 0; i < count; i++) {
+            sorted[i] = i;
+        }
+
+        while (true) {
+            sortByDoc(sorted, terms);
+            double threshold = prune ? top.threshold() : Double.NEGATIVE_INFINITY;
+            double bound = 0;
+            int pivot = -1;
+            for (int i = 0; i < count; i++) {
+                if (terms[sorted[i]].doc() == PostingsCursor.NO_MORE_DOCS) {
+                    break;
+                }
+                bound += upperBounds[sorted[i]];
+                if (bound > threshold) {
+                    pivot = i;
+                    break;
+                }
+            }
+            if (pivot < 0) {
+                return;
+            }
+            int pivotDoc = terms[sorted[pivot]].doc();
+            if (terms[sorted[0]].doc() == pivotDoc) {
+                if (!segment.isDeleted(pivotDoc)) {
+                    int length = segment.docLength(pivotDoc);
+                    double score = 0;
+                    for (int i = 0; i < count; i++) {
+                        if (terms[i].doc() == pivotDoc) {
+                            score += termWeights[i] * termScore(terms[i].freq(), length, averageLength);
+                        }
+                    }
+                    top.offer(score, segmentIndex, pivotDoc);
+                }
+                for (int i = 0; i < count; i++) {
+                    if (terms[i].doc() == pivotDoc) {
+                        terms[i].next();
+                    }
+                }
+            } else {
+                // pivot 之前的游标都还没到 pivotDoc，跳到 pivotDoc：中间的文档上界不够，不可能进 top-k
+                for (int i = 0; i < pivot; i++) {
+                    terms[sorted[i]].advance(pivotDoc);
+                }
+            }
+        }
+    }
+
+    static double termScore(int tf, int length, double averageLength) {
+        return tf * (K1 + 1) / (tf + K1 * (1 - B + B * length / averageLength));
+    }
+
+    // 查询词通常只有几个，插入排序即可
+    private static void sortByDoc(int[] sorted, PostingsCursor[] terms) {
+        for (int i = 1; i < sorted.length; i++) {
+            int value = sorted[i];
+            int doc = terms[value].doc();
+            int j = i - 1;
+            while (j >= 0 && terms[sorted[j]].doc() > doc) {
+                sorted[j + 1] = sorted[j];
+                j--;
+            }
+            sorted[j + 1] = value;
+        }
+    }
+
+    // ========== 统计 ==========
+
+    public int size() {
+        int size = 0;
+        for (Bm25Segment segment : segments) {
+            size += segment.liveDocCount();
+        }
+        writeLock.lock();
+        try {
+            return size + pending.size();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    public long sizeInBytes() {
+        long bytes = 0;
+        for (Bm25Segment segment : segments) {
+            bytes += segment.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    List<Bm25Segment> segments() {
+        return segments;
+    }
+
+    /**
+     * 固定容量的最小堆，堆顶是当前第 k 名
+     */
+    private static final class TopDocs {
+        private final double[] scores;
+        private final int[] segments;
+        private final int[] docs;
+        private int size;
+
+        TopDocs(int capacity) {
+            scores = new double[capacity];
+            segments = new int[capacity];
+            docs = new int[capacity];
+        }
+
+        double threshold() {
+            return size < scores.length ? 0 : scores[0];
+        }
+
+        void offer(double score, int segment, int doc) {
+            if (size < scores.length) {
+                int i = size++;
+                while (i > 0 && scores[(i - 1) / 2] > score) {
+                    set(i, (i - 1) / 2);
+                    i = (i - 1) / 2;
+                }
+                put(i, score, segment, doc);
+            } else if (score > scores[0]) {
+                int i = 0;
+                while (true) {
+                    int child = 2 * i + 1;
+                    if (child >= size) {
+                        break;
+                    }
+                    if (child + 1 < size && scores[child + 1] < scores[child]) {
+                        child++;
+                    }
+                    if (scores[child] >= score) {
+                        break;
+                    }
+                    set(i, child);
+                    i = child;
+                }
+                put(i, score, segment, doc);
+            }
+        }
+
+        private void set(int to, int from) {
+            put(to, scores[from], segments[from], docs[from]);
+        }
+
+        private void put(int i, double score, int segment, int doc) {
+            scores[i] = score;
+            segments[i] = segment;
+            docs[i] = doc;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package org.example.langgraph4jlearn.rag.lexical;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 不可变的倒排索引段，所有数据都在一个 ByteBuffer 里（堆内或 mmap），读取不做反序列化
+ *
+ * 布局（小端，int 对齐）:
+ * <pre>
+ *   header      magic, version, docCount, termCount, totalLength(long),
+ *               docLengthsOffset, termTableOffset, payloadTableOffset, idIndexOffset
+ *   docLengths  int × docCount，文档词数
+ *   termTable   int × termCount，按词典序排列的词条偏移，用于二分查找
+ *   terms       (int 长度, UTF-8 词, 对齐, int df, int maxTf, int minLength,
+ *                int postingsOffset, int postingsLength, int skipsOffset, int skipCount)
+ *   postings    (varint docDelta, varint tf) × df，docDelta 相对上一个文档
+ *   skips       每 SKIP_INTERVAL 个文档一条 (int 块前最后一个文档, int 块起始字节偏移)
+ *   payload     int 偏移表 + (int 长度, UTF-8 文档ID, int 长度, UTF-8 内容)
+ *   idIndex     按文档 ID 排序的文档序号
+ * </pre>
+ *
+ * maxTf / minLength 是该词所有文档里的最大词频和最短文档长度，查询时据此算出 BM25 分数上界，供 WAND 跳过文档。
+ * 段内容不可变；运行期删除记录在内存位图里
+ */
+public class Bm25Segment {
+
+    static final int MAGIC = 0x42_4D_32_35;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int SKIP_INTERVAL = 128;
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private final ByteBuffer data;
+    private final int docCount;
+    private final int termCount;
+    private final long totalLength;
+    private final int docLengthsOffset;
+    private final int termTableOffset;
+    private final int payloadTableOffset;
+    private final int idIndexOffset;
+
+    private final AtomicLongArray deletes;
+    private final AtomicInteger deletedCount = new AtomicInteger();
+
+    /**
+     * 词条元数据
+     */
+    record TermInfo(int df, int maxTf, int minLength, int postingsOffset, int postingsLength,
+                    int skipsOffset, int skipCount) {
+    }
+
+    Bm25Segment(ByteBuffer data) {
+        this.data = data.duplicate().order(ORDER);
+        if (this.data.limit() < HEADER_SIZE || this.data.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("Not a BM25 segment");
+        }
+        if (this.data.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Unsupported BM25 segment version " + this.data.getInt(4));
+        }
+        this.docCount = this.data.getInt(8);
+        this.termCount = this.data.getInt(12);
+        this.totalLength = this.data.getLong(16);
+        this.docLengthsOffset = this.data.getInt(24);
+        this.termTableOffset = this.data.getInt(28);
+        this.payloadTableOffset = this.data.getInt(32);
+        this.idIndexOffset = this.data.getInt(36);
+        this.deletes = new AtomicLongArray((docCount + 63) >>> 6);
+    }
+
+    /**
+     * 以只读 mmap 方式打开段文件
+     */
+    public static Bm25Segment open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new Bm25Segment(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * 写成段文件（临时文件 + 原子改名），之后可用 {@link #open(Path)} 映射
+     */
+    public void writeTo(Path path) throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer source = data.duplicate();
+            source.clear();
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // ========== 词典与倒排 ==========
+
+    /**
+     * 二分查找词条，不存在返回 null
+     */
+    TermInfo termInfo(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int entry = data.getInt(termTableOffset + 4 * mid);
+            int cmp = compareTerm(entry, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int meta = align(entry + 4 + key.length);
+                return new TermInfo(data.getInt(meta), data.getInt(meta + 4), data.getInt(meta + 8),
+                        data.getInt(meta + 12), data.getInt(meta + 16), data.getInt(meta + 20), data.getInt(meta + 24));
+            }
+        }
+        return null;
+    }
+
+    // 按无符号字节比较，和写入时的排序一致
+    private int compareTerm(int entry, byte[] key) {
+        int length = data.getInt(entry);
+        int n = Math.min(length, key.length);
+        for (int i = 0; i < n; i++) {
+            int cmp = Byte.toUnsignedInt(data.get(entry + 4 + i)) - Byte.toUnsignedInt(key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    PostingsCursor postings(TermInfo info) {
+        return new PostingsCursor(data, info);
+    }
+
+    static int align(int position) {
+        return (position + 3) & ~3;
+    }
+
+    // ========== 文档 ==========
+
+    int docLength(int doc) {
+        return data.getInt(docLengthsOffset + 4 * doc);
+    }
+
+    public String id(int doc) {
+        int position = data.getInt(payloadTableOffset + 4 * doc);
+        return string(position);
+    }
+
+    public String content(int doc) {
+        int position = data.getInt(payloadTableOffset + 4 * doc);
+        return string(position + 4 + data.getInt(position));
+    }
+
+    private String string(int position) {
+        byte[] bytes = new byte[data.getInt(position)];
+        data.get(position + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按文档 ID 查找存活的文档序号，不存在返回 -1
+     */
+    public int docOf(String id) {
+        int low = 0;
+        int high = docCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = id(data.getInt(idIndexOffset + 4 * mid)).compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                int doc = data.getInt(idIndexOffset + 4 * mid);
+                return isDeleted(doc) ? -1 : doc;
+            }
+        }
+        return -1;
+    }
+
+    public boolean isDeleted(int doc) {
+        return (deletes.get(doc >>> 6) & (1L << doc)) != 0;
+    }
+
+    public boolean delete(int doc) {
+        long mask = 1L << doc;
+        long previous = deletes.getAndAccumulate(doc >>> 6, mask, (a, b) -> a | b);
+        if ((previous & mask) != 0) {
+            return false;
+        }
+        deletedCount.incrementAndGet();
+        return true;
+    }
+
+    // ========== 统计 ==========
+
+    public int docCount() {
+        return docCount;
+    }
+
+    public int liveDocCount() {
+        return docCount - deletedCount.get();
+    }
+
+    public int termCount() {
+        return termCount;
+    }
+
+    public long totalLength() {
+        return totalLength;
+    }
+
+    public int sizeInBytes() {
+        return data.limit();
+    }
+}
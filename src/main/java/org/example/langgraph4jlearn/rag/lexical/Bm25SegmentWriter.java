@@ -0,0 +1,218 @@
+package org.example.langgraph4jlearn.rag.lexical;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.example.langgraph4jlearn.rag.lexical.Bm25Segment.*;
+
+/**
+ * 把一批文档编码成 {@link Bm25Segment} 格式
+ *
+ * 倒排在内存里用 int 数组交替存 (doc, tf)，不装箱；build 时按词典序写出 varint 差分编码和跳表。
+ * 同一个 writer 里文档 ID 不能重复，由调用方去重
+ */
+public final class Bm25SegmentWriter {
+
+    private final Map<String, IntList> postings = new HashMap<>();
+    private final List<String> ids = new ArrayList<>();
+    private final List<String> contents = new ArrayList<>();
+    private final IntList docLengths = new IntList();
+    private long totalLength;
+
+    /**
+     * 追加文档，返回段内文档序号
+     */
+    public int add(String id, String content) {
+        int doc = ids.size();
+        List<String> tokens = Tokenizer.tokenize(content);
+        Map<String, Integer> frequencies = new HashMap<>();
+        for (String token : tokens) {
+            frequencies.merge(token, 1, Integer::sum);
+        }
+        frequencies.forEach((term, tf) -> {
+            IntList list = postings.computeIfAbsent(term, t -> new IntList());
+            list.add(doc);
+            list.add(tf);
+        });
+        ids.add(id);
+        contents.add(content);
+        docLengths.add(tokens.size());
+        totalLength += tokens.size();
+        return doc;
+    }
+
+    public int docCount() {
+        return ids.size();
+    }
+
+    /**
+     * 编码为堆内段
+     */
+    public Bm25Segment build() {
+        int docCount = ids.size();
+        byte[][] terms = new byte[postings.size()][];
+        IntList[] lists = new IntList[postings.size()];
+        Integer[] order = new Integer[postings.size()];
+        int t = 0;
+        for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+            terms[t] = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            lists[t] = entry.getValue();
+            order[t] = t;
+            t++;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(terms[a], terms[b]));
+
+        // 先把所有倒排编码出来，才知道各段大小
+        ByteList encoded = new ByteList();
+        IntList skips = new IntList();
+        int[][] meta = new int[terms.length][];
+        for (int rank = 0; rank < order.length; rank++) {
+            IntList list = lists[order[rank]];
+            int start = encoded.size();
+            int skipStart = skips.size() / 2;
+            int previous = 0;
+            int maxTf = 0;
+            int minLength = Integer.MAX_VALUE;
+            int df = list.size() / 2;
+            for (int i = 0; i < df; i++) {
+                int doc = list.get(2 * i);
+                int tf = list.get(2 * i + 1);
+                if (i > 0 && i % SKIP_INTERVAL == 0) {
+                    skips.add(previous);
+                    skips.add(encoded.size() - start);
+                }
+                encoded.addVInt(doc - previous);
+                encoded.addVInt(tf);
+                previous = doc;
+                maxTf = Math.max(maxTf, tf);
+                minLength = Math.min(minLength, docLengths.get(doc));
+            }
+            meta[rank] = new int[]{df, maxTf, minLength, start, encoded.size() - start, skipStart,
+                    skips.size() / 2 - skipStart};
+        }
+
+        byte[][] idBytes = new byte[docCount][];
+        byte[][] contentBytes = new byte[docCount][];
+        long payloadSize = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            idBytes[doc] = ids.get(doc).getBytes(StandardCharsets.UTF_8);
+            contentBytes[doc] = contents.get(doc).getBytes(StandardCharsets.UTF_8);
+            payloadSize += align(8 + idBytes[doc].length + contentBytes[doc].length);
+        }
+
+        long termsSize = 0;
+        for (byte[] term : terms) {
+            termsSize += align(4 + term.length) + 28;
+        }
+        long docLengthsOffset = HEADER_SIZE;
+        long termTableOffset = docLengthsOffset + 4L * docCount;
+        long termsOffset = termTableOffset + 4L * terms.length;
+        long postingsOffset = termsOffset + termsSize;
+        long skipsOffset = postingsOffset + align(encoded.size());
+        long payloadTableOffset = skipsOffset + 4L * skips.size();
+        long idIndexOffset = payloadTableOffset + 4L * docCount + payloadSize;
+        long total = idIndexOffset + 4L * docCount;
+        if (total > Integer.MAX_VALUE) {
+            throw new IllegalStateException("BM25 segment exceeds 2GB, flush smaller batches");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate((int) total).order(ORDER);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(docCount).putInt(terms.length).putLong(totalLength)
+                .putInt((int) docLengthsOffset).putInt((int) termTableOffset)
+                .putInt((int) payloadTableOffset).putInt((int) idIndexOffset);
+        for (int doc = 0; doc < docCount; doc++) {
+            buffer.putInt(docLengths.get(doc));
+        }
+
+        int entry = (int) termsOffset;
+        for (int rank = 0; rank < order.length; rank++) {
+            buffer.putInt((int) termTableOffset + 4 * rank, entry);
+            byte[] term = terms[order[rank]];
+            buffer.putInt(entry, term.length);
+            buffer.put(entry + 4, term);
+            int position = align(entry + 4 + term.length);
+            int[] m = meta[rank];
+            buffer.putInt(position, m[0]).putInt(position + 4, m[1]).putInt(position + 8, m[2])
+                    .putInt(position + 12, (int) postingsOffset + m[3]).putInt(position + 16, m[4])
+                    .putInt(position + 20, (int) skipsOffset + 8 * m[5]).putInt(position + 24, m[6]);
+            entry = position + 28;
+        }
+        buffer.put((int) postingsOffset, encoded.array(), 0, encoded.size());
+        for (int i = 0; i < skips.size(); i++) {
+            buffer.putInt((int) skipsOffset + 4 * i, skips.get(i));
+        }
+
+        int record = (int) payloadTableOffset + 4 * docCount;
+        for (int doc = 0; doc < docCount; doc++) {
+            buffer.putInt((int) payloadTableOffset + 4 * doc, record);
+            buffer.putInt(record, idBytes[doc].length);
+            buffer.put(record + 4, idBytes[doc]);
+            int contentPosition = record + 4 + idBytes[doc].length;
+            buffer.putInt(contentPosition, contentBytes[doc].length);
+            buffer.put(contentPosition + 4, contentBytes[doc]);
+            record += align(8 + idBytes[doc].length + contentBytes[doc].length);
+        }
+
+        Integer[] byId = new Integer[docCount];
+        for (int doc = 0; doc < docCount; doc++) {
+            byId[doc] = doc;
+        }
+        Arrays.sort(byId, Comparator.comparing(ids::get));
+        for (int rank = 0; rank < docCount; rank++) {
+            buffer.putInt((int) idIndexOffset + 4 * rank, byId[rank]);
+        }
+        return new Bm25Segment(buffer.clear());
+    }
+
+    // ========== 基本类型容器 ==========
+
+    static final class IntList {
+        private int[] values = new int[8];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int get(int index) {
+            return values[index];
+        }
+
+        int size() {
+            return size;
+        }
+    }
+
+    static final class ByteList {
+        private byte[] values = new byte[1024];
+        private int size;
+
+        void addVInt(int value) {
+            if (size + 5 > values.length) {
+                values = Arrays.copyOf(values, values.length * 2);
+            }
+            while ((value & ~0x7F) != 0) {
+                values[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            values[size++] = (byte) value;
+        }
+
+        byte[] array() {
+            return values;
+        }
+
+        int size() {
+            return size;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package org.example.langgraph4jlearn.rag.lexical;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 单个词的倒排游标：顺序解 varint，advance 时先查跳表整块跳过
+ */
+final class PostingsCursor {
+
+    static final int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+    private final ByteBuffer data;
+    private final Bm25Segment.TermInfo info;
+    private final int end;
+
+    private int position;
+    private int read;
+    private int doc = -1;
+    private int freq;
+
+    PostingsCursor(ByteBuffer data, Bm25Segment.TermInfo info) {
+        this.data = data;
+        this.info = info;
+        this.position = info.postingsOffset();
+        this.end = info.postingsOffset() + info.postingsLength();
+    }
+
+    Bm25Segment.TermInfo info() {
+        return info;
+    }
+
+    int doc() {
+        return doc;
+    }
+
+    int freq() {
+        return freq;
+    }
+
+    /**
+     * 移到下一个文档
+     */
+    int next() {
+        if (position >= end) {
+            return doc = NO_MORE_DOCS;
+        }
+        doc = (doc < 0 ? 0 : doc) + readVInt();
+        freq = readVInt();
+        read++;
+        return doc;
+    }
+
+    /**
+     * 移到第一个 >= target 的文档
+     */
+    int advance(int target) {
+        if (doc >= target) {
+            return doc;
+        }
+        skipTo(target);
+        while (doc < target) {
+            next();
+        }
+        return doc;
+    }
+
+    // 跳表第 i 条记录的是第 (i+1)*SKIP_INTERVAL 个文档所在块之前的最后一个文档和块起始位置
+    private void skipTo(int target) {
+        int skips = info.skipsOffset();
+        int block = read / Bm25Segment.SKIP_INTERVAL;
+        int candidate = -1;
+        for (int i = block; i < info.skipCount(); i++) {
+            if (data.getInt(skips + 8 * i) >= target) {
+                break;
+            }
+            candidate = i;
+        }
+        if (candidate >= 0 && (candidate + 1) * Bm25Segment.SKIP_INTERVAL > read) {
+            doc = data.getInt(skips + 8 * candidate);
+            position = info.postingsOffset() + data.getInt(skips + 8 * candidate + 4);
+            read = (candidate + 1) * Bm25Segment.SKIP_INTERVAL;
+        }
+    }
+
+    private int readVInt() {
+        byte b = data.get(position++);
+        int value = b & 0x7F;
+        for (int shift = 7; b < 0; shift += 7) {
+            b = data.get(position++);
+            value |= (b & 0x7F) << shift;
+        }
+        return value;
+    }
+}
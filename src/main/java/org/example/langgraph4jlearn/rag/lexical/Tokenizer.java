@@ -0,0 +1,65 @@
+package org.example.langgraph4jlearn.rag.lexical;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 中英文混合分词
+ *
+ * 英文 / 数字按连续字母数字切词并转小写；中日韩连续字符没有词边界，退化为相邻二字 (bigram)，
+ * 单个汉字保留为一元词。药名、术语这类精确匹配需求用 bigram 就能命中，无需词典
+ */
+public final class Tokenizer {
+
+    private Tokenizer() {
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null || text.isEmpty()) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int i = 0;
+        while (i < lower.length()) {
+            int cp = lower.codePointAt(i);
+            if (isCjk(cp)) {
+                int start = i;
+                while (i < lower.length() && isCjk(lower.codePointAt(i))) {
+                    i += Character.charCount(lower.codePointAt(i));
+                }
+                addBigrams(tokens, lower.substring(start, i));
+            } else if (Character.isLetterOrDigit(cp)) {
+                int start = i;
+                while (i < lower.length() && Character.isLetterOrDigit(lower.codePointAt(i))
+                        && !isCjk(lower.codePointAt(i))) {
+                    i += Character.charCount(lower.codePointAt(i));
+                }
+                tokens.add(lower.substring(start, i));
+            } else {
+                i += Character.charCount(cp);
+            }
+        }
+        return tokens;
+    }
+
+    private static void addBigrams(List<String> tokens, String run) {
+        int[] chars = run.codePoints().toArray();
+        if (chars.length == 1) {
+            tokens.add(run);
+            return;
+        }
+        for (int i = 0; i + 1 < chars.length; i++) {
+            tokens.add(new String(chars, i, 2));
+        }
+    }
+
+    public static boolean isCjk(int codePoint) {
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN
+                || script == Character.UnicodeScript.HIRAGANA
+                || script == Character.UnicodeScript.KATAKANA
+                || script == Character.UnicodeScript.HANGUL;
+    }
+}
@@ -0,0 +1,75 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.langgraph4jlearn.rag.lexical.Bm25Index;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 BM25 倒排索引的关键词检索器
+ *
+ * 和向量检索互补：药名、型号、错误码这类精确词，哈希/语义向量容易漏掉，倒排一定能命中
+ */
+@Slf4j
+public class Bm25Retriever implements Retriever {
+
+    private final Bm25Index index;
+    private final AtomicLong generation = new AtomicLong();
+
+    public Bm25Retriever() {
+        this(new Bm25Index());
+    }
+
+    public Bm25Retriever(Bm25Index index) {
+        this.index = index;
+    }
+
+    /**
+     * 写入或更新文档
+     */
+    public void add(String id, String content) {
+        index.upsert(id, content);
+        generation.incrementAndGet();
+    }
+
+    /**
+     * 删除文档，返回是否存在
+     */
+    public boolean remove(String id) {
+        boolean removed = index.delete(id);
+        if (removed) {
+            generation.incrementAndGet();
+        }
+        return removed;
+    }
+
+    /**
+     * 把已写入的文档封段，返回后对检索可见；未调用时由索引在刷新间隔内后台封段
+     */
+    public void flush() {
+        index.flush();
+    }
+
+    @Override
+    public List<RetrievedDocument> retrieve(String query, int topK) {
+        List<RetrievedDocument> results = index.search(query, topK).stream()
+                .map(hit -> new RetrievedDocument(hit.id(), hit.content(), hit.score()))
+                .toList();
+        log.debug("🔤 [Bm25Retriever] query={}, hits={}", query, results.size());
+        return results;
+    }
+
+    @Override
+    public String version() {
+        return "bm25-" + generation.get();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Bm25Index getIndex() {
+        return index;
+    }
+}
@@ -0,0 +1,28 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import java.time.Duration;
+
+/**
+ * 混合检索参数
+ *
+ * @param fanOut        单步最多并发的子查询数（检索源 × 查询变体）；线程池按需创建线程，大小与它无关
+ * @param stepBudget    单步延迟预算；到点未返回的子查询被取消，只融合已完成的结果
+ * @param rrfK          倒数排名融合常数，得分为 Σ 1 / (rrfK + rank)；越大越削弱头部名次的优势
+ * @param perSourceTopK 每个子查询取回的条数
+ */
+public record HybridRetrievalConfig(int fanOut, Duration stepBudget, int rrfK, int perSourceTopK) {
+
+    public HybridRetrievalConfig {
+        if (fanOut < 1 || rrfK < 1 || perSourceTopK < 1) {
+            throw new IllegalArgumentException("fanOut, rrfK and perSourceTopK must be positive: fanOut=" + fanOut
+                    + ", rrfK=" + rrfK + ", perSourceTopK=" + perSourceTopK);
+        }
+        if (stepBudget.isNegative() || stepBudget.isZero()) {
+            throw new IllegalArgumentException("stepBudget must be positive: " + stepBudget);
+        }
+    }
+
+    public static HybridRetrievalConfig defaults() {
+        return new HybridRetrievalConfig(4, Duration.ofMillis(300), 60, 10);
+    }
+}
@@ -0,0 +1,169 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * 混合检索器：多个检索源（向量 / 关键词）× 多个查询变体并发执行，用倒数排名融合 (RRF) 合并
+ *
+ * 各检索源的分数量纲不同，RRF 只看名次，不需要归一化；同一文档在多路结果里出现时名次得分累加，天然去重。
+ * 每一步有延迟预算：慢的检索源到点就放弃，返回已完成部分的融合结果，单步耗时约等于最慢的一路而不是各路之和。
+ * 线程池按需扩容、空闲回收，不按 fanOut 定长：多个运行同时检索时子查询不会排队，预算只花在检索源本身上
+ */
+@Slf4j
+public class HybridRetriever implements Retriever, Closeable {
+
+    private final Map<String, Retriever> sources;
+    private final HybridRetrievalConfig config;
+    private final ExecutorService executor;
+
+    /**
+     * 一步检索的结果
+     *
+     * @param documents 融合后的文档，score 为 RRF 得分
+     * @param completed 按时完成的子查询数
+     * @param abandoned 超出预算或失败的子查询数
+     */
+    public record StepResult(List<RetrievedDocument> documents, int completed, int abandoned) {
+
+        public boolean partial() {
+            return abandoned > 0;
+        }
+    }
+
+    /**
+     * @param sources 名称 -> 检索源，按迭代顺序分配并发名额
+     */
+    public HybridRetriever(Map<String, Retriever> sources, HybridRetrievalConfig config) {
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("At least one retriever is required");
+        }
+        this.sources = new LinkedHashMap<>(sources);
+        this.config = config;
+        AtomicInteger threads = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "hybrid-retrieval-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public List<RetrievedDocument> retrieve(String query, int topK) {
+        return retrieve(List.of(query), topK).documents();
+    }
+
+    /**
+     * 一步混合检索：每个查询变体发给每个检索源，最多 fanOut 个子查询并发，超出的变体丢弃
+     *
+     * @param queries 查询变体，第一个通常是原始查询，优先级最高
+     */
+    public StepResult retrieve(List<String> queries, int topK) {
+        List<SubQuery> subQueries = new ArrayList<>();
+        for (String query : queries) {
+            for (Map.Entry<String, Retriever> source : sources.entrySet()) {
+                if (subQueries.size() < config.fanOut()) {
+                    subQueries.add(new SubQuery(source.getKey(), query, executor.submit(
+                            () -> source.getValue().retrieve(query, config.perSourceTopK()))));
+                }
+            }
+        }
+
+        long deadline = System.nanoTime() + config.stepBudget().toNanos();
+        List<List<RetrievedDocument>> rankings = new ArrayList<>();
+        int abandoned = 0;
+        for (SubQuery subQuery : subQueries) {
+            try {
+                long remaining = Math.max(0, deadline - System.nanoTime());
+                rankings.add(subQuery.future().get(remaining, TimeUnit.NANOSECONDS));
+            } catch (TimeoutException e) {
+                // 中断执行中的子查询，免得慢检索源一直占着线程
+                subQuery.future().cancel(true);
+                abandoned++;
+                log.warn("⏱️ [HybridRetriever] {} 超出预算 {}ms，已放弃: {}", subQuery.source(),
+                        config.stepBudget().toMillis(), subQuery.query());
+            } catch (ExecutionException e) {
+                abandoned++;
+                log.warn("⚠️ [HybridRetriever] {} 检索失败: {}", subQuery.source(), e.getCause().toString());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                subQueries.forEach(pending -> pending.future().cancel(true));
+                throw new IllegalStateException("Interrupted while waiting for retrievers", e);
+            }
+        }
+
+        List<RetrievedDocument> fused = fuse(rankings, config.rrfK());
+        log.debug("🔀 [HybridRetriever] subQueries={}, completed={}, abandoned={}, fused={}", subQueries.size(),
+                rankings.size(), abandoned, fused.size());
+        return new StepResult(fused.subList(0, Math.min(topK, fused.size())), rankings.size(), abandoned);
+    }
+
+    /**
+     * 倒数排名融合，按文档 ID 去重，内容取第一次出现的版本
+     */
+    static List<RetrievedDocument> fuse(List<List<RetrievedDocument>> rankings, int rrfK) {
+        Map<String, RetrievedDocument> documents = new LinkedHashMap<>();
+        Map<String, Double> scores = new LinkedHashMap<>();
+        for (List<RetrievedDocument> ranking : rankings) {
+            for (int rank = 0; rank < ranking.size(); rank++) {
+                RetrievedDocument doc = ranking.get(rank);
+                documents.putIfAbsent(doc.id(), doc);
+                scores.merge(doc.id(), 1.0 / (rrfK + rank + 1), Double::sum);
+            }
+        }
+        List<RetrievedDocument> fused = new ArrayList<>(documents.size());
+        documents.forEach((id, doc) -> fused.add(new RetrievedDocument(id, doc.content(), scores.get(id))));
+        fused.sort(Comparator.comparingDouble(RetrievedDocument::score).reversed()
+                .thenComparing(RetrievedDocument::id));
+        return fused;
+    }
+
+    /**
+     * 组合各检索源的版本，任一检索源更新都会让缓存失效
+     */
+    @Override
+    public String version() {
+        return sources.entrySet().stream()
+                .map(source -> source.getKey() + ":" + source.getValue().version())
+                .collect(Collectors.joining(",", "hybrid(", ")"));
+    }
+
+    public Map<String, Retriever> getSources() {
+        return sources;
+    }
+
+    public HybridRetrievalConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 关闭线程池和可关闭的检索源
+     */
+    @Override
+    public void close() throws IOException {
+        executor.shutdownNow();
+        for (Retriever source : sources.values()) {
+            if (source instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private record SubQuery(String source, String query, Future<List<RetrievedDocument>> future) {
+    }
+}
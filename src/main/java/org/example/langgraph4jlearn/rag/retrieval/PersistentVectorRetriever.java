@@ -0,0 +1,109 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import org.example.langgraph4jlearn.rag.embedding.Embedder;
+import org.example.langgraph4jlearn.rag.vector.HnswConfig;
+import org.example.langgraph4jlearn.rag.vector.QuantizationConfig;
+import org.example.langgraph4jlearn.rag.vector.SegmentedVectorIndex;
+import org.example.langgraph4jlearn.rag.vector.VectorSimilarity;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 持久化向量检索器：索引保存在目录下的 mmap 段文件里，重启后直接打开，不重建
+ */
+public class PersistentVectorRetriever implements Retriever, Closeable {
+
+    private final Embedder embedder;
+    private final SegmentedVectorIndex index;
+    private final AtomicLong generation = new AtomicLong();
+
+    public PersistentVectorRetriever(Embedder embedder, Path directory) throws IOException {
+        this(embedder, directory, QuantizationConfig.none());
+    }
+
+    public PersistentVectorRetriever(Embedder embedder, Path directory, QuantizationConfig quantization)
+            throws IOException {
+        this(embedder, new SegmentedVectorIndex(directory, embedder.dimension(), VectorSimilarity.COSINE,
+                HnswConfig.defaults(), SegmentedVectorIndex.DEFAULT_FLUSH_THRESHOLD,
+                SegmentedVectorIndex.DEFAULT_MERGE_FACTOR, quantization));
+    }
+
+    public PersistentVectorRetriever(Embedder embedder, SegmentedVectorIndex index) {
+        this.embedder = embedder;
+        this.index = index;
+    }
+
+    /**
+     * 写入或更新文档
+     */
+    public void add(String id, String content) {
+        add(id, content, embedder.embed(content));
+    }
+
+    /**
+     * 写入已向量化的文档，vector 必须来自同一个 Embedder
+     */
+    public void add(String id, String content, float[] vector) {
+        index.upsert(id, content, vector);
+        generation.incrementAndGet();
+    }
+
+    public boolean remove(String id) {
+        boolean removed = index.delete(id);
+        if (removed) {
+            generation.incrementAndGet();
+        }
+        return removed;
+    }
+
+    @Override
+    public List<RetrievedDocument> retrieve(String query, int topK) {
+        return index.search(embedder.embed(query), topK).stream()
+                .map(hit -> new RetrievedDocument(hit.id(), hit.content(), hit.score()))
+                .toList();
+    }
+
+    /**
+     * 进程内写入计数；重启后从 0 开始，但全局检索缓存也随进程重建，不会串版本
+     */
+    @Override
+    public String version() {
+        return "segments-" + generation.get();
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    public Embedder getEmbedder() {
+        return embedder;
+    }
+
+    /**
+     * 索引所在目录
+     */
+    public Path getDirectory() {
+        return index.directory();
+    }
+
+    public Map<String, Object> stats() {
+        return index.stats();
+    }
+
+    /**
+     * 把内存段落盘
+     */
+    public void flush() {
+        index.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        index.close();
+    }
+}
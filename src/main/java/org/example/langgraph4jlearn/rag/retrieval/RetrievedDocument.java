@@ -0,0 +1,28 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import java.util.Locale;
+
+/**
+ * 检索命中的文档
+ *
+ * @param id      文档 ID
+ * @param content 文档内容
+ * @param score   检索分数，越大越相关；不同检索器的分数不可直接比较
+ */
+public record RetrievedDocument(String id, String content, double score) {
+
+    /**
+     * 写入 State 的文本形式: "id (score): content"
+     */
+    public String format() {
+        return id + " (" + String.format(Locale.ROOT, "%.3f", score) + "): " + content;
+    }
+
+    /**
+     * 从 {@link #format()} 的文本里取回文档内容，不是该格式时原样返回
+     */
+    public static String contentOf(String formatted) {
+        int separator = formatted.indexOf("): ");
+        return separator < 0 ? formatted : formatted.substring(separator + 3);
+    }
+}
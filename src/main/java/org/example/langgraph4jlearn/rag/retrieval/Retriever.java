@@ -0,0 +1,21 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import java.util.List;
+
+/**
+ * 检索器
+ */
+public interface Retriever {
+
+    /**
+     * top-k 检索
+     *
+     * @return 按分数从高到低排列
+     */
+    List<RetrievedDocument> retrieve(String query, int topK);
+
+    /**
+     * 索引版本：内容变化后版本随之变化，用作检索缓存 Key 的一部分
+     */
+    String version();
+}
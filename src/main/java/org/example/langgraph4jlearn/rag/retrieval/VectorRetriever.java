@@ -0,0 +1,120 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import lombok.extern.slf4j.Slf4j;
+import org.example.langgraph4jlearn.rag.embedding.Embedder;
+import org.example.langgraph4jlearn.rag.vector.HnswConfig;
+import org.example.langgraph4jlearn.rag.vector.HnswIndex;
+import org.example.langgraph4jlearn.rag.vector.VectorSimilarity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于 HNSW 的向量检索器
+ *
+ * 文档内容向量化后写入 HnswIndex，索引序号 -> 文档的映射保存在内存里。
+ * 同一个文档 ID 重复写入视为更新：旧节点打墓碑，新节点生效。
+ * 查询可以和写入并发进行
+ */
+@Slf4j
+public class VectorRetriever implements Retriever {
+
+    private final Embedder embedder;
+    private final HnswIndex index;
+
+    private final Map<Integer, StoredDocument> documents = new ConcurrentHashMap<>();
+    private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    public VectorRetriever(Embedder embedder) {
+        this(embedder, HnswConfig.defaults());
+    }
+
+    public VectorRetriever(Embedder embedder, HnswConfig config) {
+        this.embedder = embedder;
+        this.index = new HnswIndex(embedder.dimension(), VectorSimilarity.COSINE, config);
+    }
+
+    private record StoredDocument(String id, String content) {
+    }
+
+    /**
+     * 写入或更新文档
+     */
+    public void add(String id, String content) {
+        add(id, content, embedder.embed(content));
+    }
+
+    /**
+     * 写入已向量化的文档，vector 必须来自同一个 Embedder
+     */
+    public void add(String id, String content, float[] vector) {
+        // 写入本身由索引串行化；这里加锁是为了让 "插入新节点 + 删除旧节点" 对同一 ID 原子
+        synchronized (this) {
+            int ord = index.add(vector);
+            documents.put(ord, new StoredDocument(id, content));
+            Integer previous = ordinals.put(id, ord);
+            if (previous != null) {
+                index.delete(previous);
+                documents.remove(previous);
+            }
+            generation.incrementAndGet();
+        }
+    }
+
+    /**
+     * 删除文档，返回是否存在
+     */
+    public synchronized boolean remove(String id) {
+        Integer ord = ordinals.remove(id);
+        if (ord == null) {
+            return false;
+        }
+        index.delete(ord);
+        documents.remove(ord);
+        generation.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public List<RetrievedDocument> retrieve(String query, int topK) {
+        return retrieve(query, topK, index.config().efSearch());
+    }
+
+    /**
+     * 指定 efSearch 的检索，用于按查询调节召回与延迟
+     */
+    public List<RetrievedDocument> retrieve(String query, int topK, int efSearch) {
+        List<HnswIndex.Neighbor> hits = index.search(embedder.embed(query), topK, efSearch);
+        List<RetrievedDocument> results = new ArrayList<>(hits.size());
+        for (HnswIndex.Neighbor hit : hits) {
+            StoredDocument document = documents.get(hit.node());
+            // 并发更新时节点可能刚被替换
+            if (document != null) {
+                results.add(new RetrievedDocument(document.id(), document.content(), hit.score()));
+            }
+        }
+        log.debug("🧭 [VectorRetriever] query={}, hits={}", query, results.size());
+        return results;
+    }
+
+    @Override
+    public String version() {
+        return "hnsw-" + generation.get();
+    }
+
+    public int size() {
+        return ordinals.size();
+    }
+
+    public Embedder getEmbedder() {
+        return embedder;
+    }
+
+    public HnswIndex getIndex() {
+        return index;
+    }
+}
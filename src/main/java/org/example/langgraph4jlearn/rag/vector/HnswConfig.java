@@ -0,0 +1,30 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+/**
+ * HNSW 参数
+ *
+ * @param m              每层最大连接数（第 0 层为 2M）；越大召回越高、内存和构建时间越多
+ * @param efConstruction 构建时的候选集大小；越大图质量越好、插入越慢
+ * @param efSearch       默认查询候选集大小（不小于 topK）；越大召回越高、查询越慢
+ * @param seed           层级随机数种子，相同输入顺序得到相同的图
+ */
+public record HnswConfig(int m, int efConstruction, int efSearch, long seed) {
+
+    public HnswConfig {
+        if (m < 2) {
+            throw new IllegalArgumentException("m must be >= 2: " + m);
+        }
+        if (efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("ef must be positive: efConstruction=" + efConstruction
+                    + ", efSearch=" + efSearch);
+        }
+    }
+
+    public static HnswConfig defaults() {
+        return new HnswConfig(16, 200, 64, 42L);
+    }
+
+    public HnswConfig withEfSearch(int efSearch) {
+        return new HnswConfig(m, efConstruction, efSearch, seed);
+    }
+}
@@ -0,0 +1,24 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+/**
+ * HNSW 图的只读视图：内存索引和 mmap 段共用同一套搜索算法
+ */
+interface HnswGraph {
+
+    /**
+     * 第 level 层的最大邻居数，第 0 层最大
+     */
+    int maxConnections(int level);
+
+    /**
+     * 把 node 在 level 层的邻居写入 buffer，返回邻居个数；node 不在该层时返回 0
+     */
+    int neighbors(int node, int level, int[] buffer);
+
+    /**
+     * query 必须已经过 {@link VectorSimilarity#prepare} 预处理
+     */
+    float score(float[] query, int node);
+
+    boolean isDeleted(int node);
+}
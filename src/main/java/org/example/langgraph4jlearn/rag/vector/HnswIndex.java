@@ -0,0 +1,363 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 进程内 HNSW (Hierarchical Navigable Small World) 近似最近邻索引
+ *
+ * 节点用从 0 开始连续分配的序号标识，序号到外部文档 ID 的映射由调用方维护。
+ *
+ * 并发模型：写入串行（单写锁），查询无锁且可与写入并发。
+ * 每层邻居表是不可变的 int[]，插入时整表替换后通过 AtomicReferenceArray 发布；
+ * 新节点先放进节点表再被任何邻居表引用，入口点在新节点所有层都连好之后才切换，
+ * 所以查询线程看到的总是某个一致的邻居表版本，不会读到半连接的节点。
+ * 删除只打墓碑：节点仍参与图遍历保持连通性，但不会出现在结果里。
+ */
+public class HnswIndex {
+
+    private static final int[] NO_NEIGHBORS = new int[0];
+    private static final int MAX_LEVEL = 16;
+
+    private final int dimension;
+    private final VectorSimilarity similarity;
+    private final HnswConfig config;
+    private final double levelMultiplier;
+
+    private final ReentrantLock writeLock = new ReentrantLock();
+    // 只在写锁内使用
+    private final SplittableRandom random;
+
+    private volatile Node[] nodes = new Node[1024];
+    private volatile int size;
+    private volatile EntryPoint entryPoint;
+    private final AtomicInteger deleted = new AtomicInteger();
+
+    private final HnswGraph graph = new HnswGraph() {
+        @Override
+        public int maxConnections(int level) {
+            return HnswIndex.this.maxConnections(level);
+        }
+
+        @Override
+        public int neighbors(int node, int level, int[] buffer) {
+            int[] neighbors = HnswIndex.this.neighbors(node, level);
+            System.arraycopy(neighbors, 0, buffer, 0, neighbors.length);
+            return neighbors.length;
+        }
+
+        @Override
+        public float score(float[] query, int node) {
+            return similarity.score(query, node(node).vector);
+        }
+
+        @Override
+        public boolean isDeleted(int node) {
+            return node(node).deleted;
+        }
+    };
+
+    public HnswIndex(int dimension) {
+        this(dimension, VectorSimilarity.COSINE, HnswConfig.defaults());
+    }
+
+    public HnswIndex(int dimension, VectorSimilarity similarity, HnswConfig config) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+        this.similarity = similarity;
+        this.config = config;
+        this.levelMultiplier = 1 / Math.log(config.m());
+        this.random = new SplittableRandom(config.seed());
+    }
+
+    /**
+     * 查询结果
+     *
+     * @param node  节点序号
+     * @param score 相似度，越大越相似
+     */
+    public record Neighbor(int node, float score) {
+    }
+
+    private record EntryPoint(int node, int level) {
+    }
+
+    private static final class Node {
+        private final float[] vector;
+        private final AtomicReferenceArray<int[]> neighbors;
+        private volatile boolean deleted;
+
+        private Node(float[] vector, int level) {
+            this.vector = vector;
+            this.neighbors = new AtomicReferenceArray<>(level + 1);
+            for (int l = 0; l <= level; l++) {
+                neighbors.set(l, NO_NEIGHBORS);
+            }
+        }
+
+        private int level() {
+            return neighbors.length() - 1;
+        }
+    }
+
+    // ========== 写入 ==========
+
+    /**
+     * 插入向量
+     *
+     * @return 新节点的序号
+     */
+    public int add(float[] vector) {
+        checkDimension(vector);
+        float[] stored = similarity.prepare(vector);
+
+        writeLock.lock();
+        try {
+            int ord = size;
+            int level = randomLevel();
+            Node node = new Node(stored, level);
+            store(ord, node);
+
+            EntryPoint entry = entryPoint;
+            if (entry == null) {
+                size = ord + 1;
+                entryPoint = new EntryPoint(ord, level);
+                return ord;
+            }
+
+            int[] buffer = new int[maxConnections(0)];
+            int current = entry.node();
+            for (int l = entry.level(); l > level; l--) {
+                current = HnswSearcher.greedyClosest(graph, stored, current, l, buffer);
+            }
+
+            NeighborQueue candidates = new NeighborQueue(config.efConstruction(), false);
+            int[] entryPoints = {current};
+            for (int l = Math.min(level, entry.level()); l >= 0; l--) {
+                candidates.clear();
+                HnswSearcher.searchLayer(graph, stored, entryPoints, config.efConstruction(), l, candidates, false, ord + 1);
+                int[] sortedCandidates = drainBestFirst(candidates);
+                int[] selected = selectNeighbors(stored, sortedCandidates, config.m());
+                node.neighbors.set(l, selected);
+                for (int neighbor : selected) {
+                    link(neighbor, ord, l);
+                }
+                entryPoints = sortedCandidates;
+            }
+
+            size = ord + 1;
+            if (level > entry.level()) {
+                entryPoint = new EntryPoint(ord, level);
+            }
+            return ord;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * 删除（墓碑），返回是否是首次删除
+     */
+    public boolean delete(int ord) {
+        Node node = node(ord);
+        if (node == null || node.deleted) {
+            return false;
+        }
+        node.deleted = true;
+        deleted.incrementAndGet();
+        return true;
+    }
+
+    public boolean isDeleted(int ord) {
+        Node node = node(ord);
+        return node == null || node.deleted;
+    }
+
+    // ========== 查询 ==========
+
+    public List<Neighbor> search(float[] query, int k) {
+        return search(query, k, config.efSearch());
+    }
+
+    /**
+     * top-k 近似最近邻
+     *
+     * @param ef 候选集大小，实际取 max(ef, k)
+     * @return 按分数从高到低排列，已删除的节点不出现在结果里
+     */
+    public List<Neighbor> search(float[] query, int k, int ef) {
+        checkDimension(query);
+        EntryPoint entry = entryPoint;
+        if (entry == null || k <= 0) {
+            return List.of();
+        }
+        return HnswSearcher.search(graph, similarity.prepare(query), entry.node(), entry.level(), k, ef, size + 1);
+    }
+
+    // ========== 建图 ==========
+
+    /**
+     * 启发式选邻 (论文 Algorithm 4)：候选按相似度从高到低，
+     * 只保留"离目标比离任何已选邻居都近"的候选，让连接覆盖不同方向
+     */
+    private int[] selectNeighbors(float[] target, int[] bestFirst, int max) {
+        int[] selected = new int[Math.min(max, bestFirst.length)];
+        int count = 0;
+        for (int i = 0; i < bestFirst.length && count < selected.length; i++) {
+            float[] candidate = node(bestFirst[i]).vector;
+            float toTarget = similarity.score(target, candidate);
+            boolean diverse = true;
+            for (int j = 0; j < count; j++) {
+                if (similarity.score(candidate, node(selected[j]).vector) > toTarget) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[count++] = bestFirst[i];
+            }
+        }
+        return count == selected.length ? selected : Arrays.copyOf(selected, count);
+    }
+
+    /**
+     * 反向连接；邻居表满了就对 旧邻居 + 新节点 重新选邻
+     */
+    private void link(int from, int to, int level) {
+        Node node = node(from);
+        int[] current = node.neighbors.get(level);
+        int max = maxConnections(level);
+        if (current.length < max) {
+            int[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = to;
+            node.neighbors.set(level, grown);
+            return;
+        }
+        NeighborQueue candidates = new NeighborQueue(current.length + 1, false);
+        for (int neighbor : current) {
+            candidates.push(neighbor, similarity.score(node.vector, node(neighbor).vector));
+        }
+        candidates.push(to, similarity.score(node.vector, node(to).vector));
+        node.neighbors.set(level, selectNeighbors(node.vector, drainBestFirst(candidates), max));
+    }
+
+    private static int[] drainBestFirst(NeighborQueue minHeap) {
+        int[] bestFirst = new int[minHeap.size()];
+        for (int i = bestFirst.length - 1; i >= 0; i--) {
+            bestFirst[i] = minHeap.pop();
+        }
+        return bestFirst;
+    }
+
+    private int maxConnections(int level) {
+        return level == 0 ? config.m() * 2 : config.m();
+    }
+
+    private int randomLevel() {
+        double level = -Math.log(1 - random.nextDouble()) * levelMultiplier;
+        return Math.min((int) level, MAX_LEVEL);
+    }
+
+    private void store(int ord, Node node) {
+        Node[] current = nodes;
+        if (ord == current.length) {
+            current = Arrays.copyOf(current, current.length * 2);
+            nodes = current;
+        }
+        current[ord] = node;
+    }
+
+    // ========== 读取 ==========
+
+    private Node node(int ord) {
+        // 每次都读 volatile 的 nodes：扩容后旧数组里没有新节点
+        Node[] current = nodes;
+        return ord < current.length ? current[ord] : null;
+    }
+
+    private int[] neighbors(int ord, int level) {
+        Node node = node(ord);
+        return level <= node.level() ? node.neighbors.get(level) : NO_NEIGHBORS;
+    }
+
+    // ========== 段写入用的只读访问 ==========
+
+    /**
+     * 预处理后的向量（共享实例，不要修改）
+     */
+    float[] vector(int ord) {
+        return node(ord).vector;
+    }
+
+    int level(int ord) {
+        return node(ord).level();
+    }
+
+    int[] neighborsAt(int ord, int level) {
+        return neighbors(ord, level);
+    }
+
+    /**
+     * 入口点 {node, level}，空索引返回 null
+     */
+    int[] entry() {
+        EntryPoint entry = entryPoint;
+        return entry == null ? null : new int[]{entry.node(), entry.level()};
+    }
+
+    private void checkDimension(float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int liveSize() {
+        return size - deleted.get();
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public VectorSimilarity similarity() {
+        return similarity;
+    }
+
+    public HnswConfig config() {
+        return config;
+    }
+
+    /**
+     * 各层节点数，下标即层号
+     */
+    public List<Integer> levelSizes() {
+        EntryPoint entry = entryPoint;
+        List<Integer> sizes = new ArrayList<>();
+        if (entry == null) {
+            return sizes;
+        }
+        int[] counts = new int[entry.level() + 1];
+        int n = size;
+        for (int i = 0; i < n; i++) {
+            int level = Math.min(node(i).level(), entry.level());
+            for (int l = 0; l <= level; l++) {
+                counts[l]++;
+            }
+        }
+        for (int count : counts) {
+            sizes.add(count);
+        }
+        return sizes;
+    }
+}
@@ -0,0 +1,150 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * HNSW 搜索算法，对 {@link HnswGraph} 的具体存储无感知
+ */
+final class HnswSearcher {
+
+    private static final ThreadLocal<VisitedSet> VISITED = ThreadLocal.withInitial(VisitedSet::new);
+
+    private HnswSearcher() {
+    }
+
+    /**
+     * top-k 搜索：上层贪心下降到第 1 层，第 0 层 beam search
+     *
+     * @param query    已预处理的查询向量
+     * @param capacity 图中节点数上限，用于预分配访问标记
+     * @return 按分数从高到低排列，不含已删除节点
+     */
+    static List<HnswIndex.Neighbor> search(HnswGraph graph, float[] query, int entryNode, int entryLevel,
+                                           int k, int ef, int capacity) {
+        int[] buffer = new int[graph.maxConnections(0)];
+        int current = entryNode;
+        for (int l = entryLevel; l > 0; l--) {
+            current = greedyClosest(graph, query, current, l, buffer);
+        }
+        int beam = Math.max(ef, k);
+        NeighborQueue results = new NeighborQueue(beam, false);
+        searchLayer(graph, query, new int[]{current}, beam, 0, results, true, capacity);
+
+        while (results.size() > k) {
+            results.pop();
+        }
+        HnswIndex.Neighbor[] hits = new HnswIndex.Neighbor[results.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            float score = results.topScore();
+            hits[i] = new HnswIndex.Neighbor(results.pop(), score);
+        }
+        return Arrays.asList(hits);
+    }
+
+    /**
+     * 单层 beam search (论文 Algorithm 2)
+     *
+     * @param results     输出，最小堆，容量 ef
+     * @param skipDeleted 为 true 时已删除节点只用于导航，不进入结果
+     */
+    static void searchLayer(HnswGraph graph, float[] query, int[] entryPoints, int ef, int level,
+                            NeighborQueue results, boolean skipDeleted, int capacity) {
+        VisitedSet seen = VISITED.get();
+        seen.reset(capacity);
+        int[] buffer = new int[graph.maxConnections(level)];
+        NeighborQueue candidates = new NeighborQueue(ef, true);
+
+        for (int ep : entryPoints) {
+            if (!seen.add(ep)) {
+                continue;
+            }
+            float score = graph.score(query, ep);
+            candidates.push(ep, score);
+            if (!skipDeleted || !graph.isDeleted(ep)) {
+                offer(results, ep, score, ef);
+            }
+        }
+
+        while (!candidates.isEmpty()) {
+            if (results.size() >= ef && candidates.topScore() < results.topScore()) {
+                break;
+            }
+            int candidate = candidates.pop();
+            int count = graph.neighbors(candidate, level, buffer);
+            for (int i = 0; i < count; i++) {
+                int neighbor = buffer[i];
+                if (!seen.add(neighbor)) {
+                    continue;
+                }
+                float score = graph.score(query, neighbor);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbor, score);
+                    if (!skipDeleted || !graph.isDeleted(neighbor)) {
+                        offer(results, neighbor, score, ef);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 上层贪心下降：一直走向更近的邻居，直到局部最优
+     */
+    static int greedyClosest(HnswGraph graph, float[] query, int start, int level, int[] buffer) {
+        int current = start;
+        float best = graph.score(query, current);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int count = graph.neighbors(current, level, buffer);
+            for (int i = 0; i < count; i++) {
+                float score = graph.score(query, buffer[i]);
+                if (score > best) {
+                    best = score;
+                    current = buffer[i];
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    private static void offer(NeighborQueue results, int node, float score, int ef) {
+        results.push(node, score);
+        if (results.size() > ef) {
+            results.pop();
+        }
+    }
+
+    /**
+     * 每个线程一份的访问标记：用代数 (epoch) 代替每次清零，百万级节点也不用每次分配
+     */
+    private static final class VisitedSet {
+        private int[] marks = new int[1024];
+        private int epoch;
+
+        private void reset(int capacity) {
+            if (capacity > marks.length) {
+                marks = new int[Math.max(capacity, marks.length * 2)];
+                epoch = 0;
+            }
+            epoch++;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(marks, 0);
+                epoch = 1;
+            }
+        }
+
+        private boolean add(int node) {
+            if (node >= marks.length) {
+                marks = Arrays.copyOf(marks, Math.max(node + 1, marks.length * 2));
+            }
+            if (marks[node] == epoch) {
+                return false;
+            }
+            marks[node] = epoch;
+            return true;
+        }
+    }
+}
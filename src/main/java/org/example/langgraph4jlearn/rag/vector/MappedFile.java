@@ -0,0 +1,112 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 只读 mmap 文件，按 1GB 分块映射以突破 MappedByteBuffer 的 2GB 上限
+ *
+ * 相邻分块之间重叠 overlap 字节：只要单条记录（向量、邻居槽）不超过 overlap，
+ * 从某个分块开始的记录就完整落在这个分块里，读的时候不用处理跨块。
+ * 所有读取都是绝对位置读，不改 position，多线程并发读安全
+ */
+final class MappedFile {
+
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+    private static final long CHUNK_SIZE = 1L << 30;
+
+    private final ByteBuffer[] chunks;
+    private final FloatBuffer[] floatViews;
+    private final IntBuffer[] intViews;
+    private final long size;
+
+    private MappedFile(ByteBuffer[] chunks, long size) {
+        this.chunks = chunks;
+        this.size = size;
+        this.floatViews = new FloatBuffer[chunks.length];
+        this.intViews = new IntBuffer[chunks.length];
+        for (int i = 0; i < chunks.length; i++) {
+            floatViews[i] = chunks[i].asFloatBuffer();
+            intViews[i] = chunks[i].asIntBuffer();
+        }
+    }
+
+    static MappedFile map(Path path, int overlap) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            int count = (int) Math.max(1, (size + CHUNK_SIZE - 1) / CHUNK_SIZE);
+            ByteBuffer[] chunks = new ByteBuffer[count];
+            for (int i = 0; i < count; i++) {
+                long start = i * CHUNK_SIZE;
+                long length = Math.min(size - start, CHUNK_SIZE + overlap);
+                // 映射在 channel 关闭后依然有效
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, length).order(ORDER);
+            }
+            return new MappedFile(chunks, size);
+        }
+    }
+
+    long size() {
+        return size;
+    }
+
+    int getInt(long position) {
+        return chunks[chunk(position)].getInt(offset(position));
+    }
+
+    long getLong(long position) {
+        return chunks[chunk(position)].getLong(offset(position));
+    }
+
+    /**
+     * 读 dst.length 个 float；position 必须 4 字节对齐
+     */
+    void getFloats(long position, float[] dst) {
+        floatViews[chunk(position)].get(offset(position) >> 2, dst);
+    }
+
+    /**
+     * 读 count 个 int；position 必须 4 字节对齐
+     */
+    void getInts(long position, int[] dst, int count) {
+        intViews[chunk(position)].get(offset(position) >> 2, dst, 0, count);
+    }
+
+    /**
+     * 读 dst.length 个字节，不跨分块；单条记录（量化码）不超过 overlap
+     */
+    void getBytes(long position, byte[] dst) {
+        chunks[chunk(position)].get(offset(position), dst);
+    }
+
+    /**
+     * 读任意长度的字节，允许跨分块
+     */
+    byte[] getBytes(long position, int length) {
+        byte[] bytes = new byte[length];
+        int copied = 0;
+        while (copied < length) {
+            long current = position + copied;
+            ByteBuffer chunk = chunks[chunk(current)];
+            int offset = offset(current);
+            int n = Math.min(length - copied, chunk.limit() - offset);
+            chunk.get(offset, bytes, copied, n);
+            copied += n;
+        }
+        return bytes;
+    }
+
+    private static int chunk(long position) {
+        return (int) (position / CHUNK_SIZE);
+    }
+
+    private static int offset(long position) {
+        return (int) (position % CHUNK_SIZE);
+    }
+}
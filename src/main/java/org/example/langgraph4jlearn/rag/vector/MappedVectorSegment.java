@@ -0,0 +1,381 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 不可变的 mmap 向量段：向量、HNSW 邻接表和文档内容都直接在映射内存上读，打开时不做反序列化
+ *
+ * 文件布局（小端，各段 8 字节对齐）:
+ * <pre>
+ *   header   magic, version, dimension, similarity, count, m, entryNode, entryLevel, deletedCount, quantization,
+ *            vectorsOffset, nodesOffset, deletedOffset, payloadTableOffset, idIndexOffset,
+ *            codesOffset, codebookOffset, codeSize, int8 scale, PQ subspaces, PQ centroids
+ *   vectors  count × dimension × float32（已按 similarity 预处理）
+ *   codes    量化段才有: count × codeSize 字节的量化码
+ *   codebook PQ 段才有: subspaces × centroids × (dimension / subspaces) × float32
+ *   nodes    count × (long 邻接表偏移, int 层数, int 保留)
+ *   deleted  写入时已删除的节点位图
+ *   graph    每个节点每层一个定长槽: int 邻居数 + 邻居序号，第 0 层 2M 个、其余层 M 个
+ *   payload  count × long 偏移表 + (int 长度, UTF-8 文档ID, int 长度, UTF-8 内容)
+ *   idIndex  按文档 ID 排序的节点序号，用于二分查找
+ * </pre>
+ *
+ * 打开段只读 header 和映射文件，耗时与段大小无关；同一台机器上多个 JVM 映射同一个文件时共享 OS 页缓存。
+ * 段文件本身永不修改，运行期删除记录在内存位图里，由 {@link #saveDeletes()} 写到旁路的 .del 文件。
+ * 量化段的图遍历只读量化码，候选再读 float32 重排；版本 1 的段（无量化字段）照常读取
+ */
+public class MappedVectorSegment {
+
+    static final int MAGIC = 0x48_4E_53_57;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 112;
+    // 版本 1 没有量化字段
+    private static final int V1_HEADER_SIZE = 80;
+    static final int NODE_ENTRY_SIZE = 16;
+    // 单条记录（向量 / 邻居槽）的上限，也是分块映射的重叠区大小
+    static final int MAX_RECORD_BYTES = 64 * 1024;
+    static final String DELETES_SUFFIX = ".del";
+
+    private final Path path;
+    private final MappedFile file;
+    private final int dimension;
+    private final VectorSimilarity similarity;
+    private final int count;
+    private final int m;
+    private final int entryNode;
+    private final int entryLevel;
+    private final long vectorsOffset;
+    private final long nodesOffset;
+    private final long deletedOffset;
+    private final long payloadTableOffset;
+    private final long idIndexOffset;
+    private final long codesOffset;
+    private final VectorQuantizer quantizer;
+
+    private final AtomicLongArray runtimeDeletes;
+    private final AtomicInteger deletedCount;
+    private final AtomicBoolean deletesDirty = new AtomicBoolean();
+    private final ThreadLocal<float[]> scratch;
+    private final ThreadLocal<byte[]> codeScratch;
+
+    private final HnswGraph graph = new HnswGraph() {
+        @Override
+        public int maxConnections(int level) {
+            return level == 0 ? m * 2 : m;
+        }
+
+        @Override
+        public int neighbors(int node, int level, int[] buffer) {
+            long entry = nodesOffset + (long) node * NODE_ENTRY_SIZE;
+            if (level > file.getInt(entry + 8)) {
+                return 0;
+            }
+            long slot = file.getLong(entry) + slotOffset(level);
+            int size = file.getInt(slot);
+            file.getInts(slot + 4, buffer, size);
+            return size;
+        }
+
+        @Override
+        public float score(float[] query, int node) {
+            float[] vector = scratch.get();
+            readVector(node, vector);
+            return similarity.score(query, vector);
+        }
+
+        @Override
+        public boolean isDeleted(int node) {
+            return MappedVectorSegment.this.isDeleted(node);
+        }
+    };
+
+    private MappedVectorSegment(Path path, MappedFile file) throws IOException {
+        this.path = path;
+        this.file = file;
+        if (file.size() < V1_HEADER_SIZE || file.getInt(0) != MAGIC) {
+            throw new IOException("Not a vector segment: " + path);
+        }
+        int version = file.getInt(4);
+        if ((version != 1 && version != VERSION) || (version == VERSION && file.size() < HEADER_SIZE)) {
+            throw new IOException("Unsupported vector segment version " + version + ": " + path);
+        }
+        this.dimension = file.getInt(8);
+        this.similarity = VectorSimilarity.values()[file.getInt(12)];
+        this.count = file.getInt(16);
+        this.m = file.getInt(20);
+        this.entryNode = file.getInt(24);
+        this.entryLevel = file.getInt(28);
+        this.vectorsOffset = file.getLong(40);
+        this.nodesOffset = file.getLong(48);
+        this.deletedOffset = file.getLong(56);
+        this.payloadTableOffset = file.getLong(64);
+        this.idIndexOffset = file.getLong(72);
+        this.runtimeDeletes = new AtomicLongArray(words(count));
+        this.deletedCount = new AtomicInteger(file.getInt(32));
+        this.scratch = ThreadLocal.withInitial(() -> new float[dimension]);
+        QuantizationConfig.Mode mode = version == 1 ? QuantizationConfig.Mode.NONE
+                : QuantizationConfig.Mode.values()[file.getInt(36)];
+        this.codesOffset = mode == QuantizationConfig.Mode.NONE ? 0 : file.getLong(80);
+        this.quantizer = switch (mode) {
+            case NONE -> null;
+            case INT8 -> new ScalarQuantizer(similarity, dimension, Float.intBitsToFloat(file.getInt(100)));
+            case PQ -> readProductQuantizer(file.getLong(88), file.getInt(104), file.getInt(108));
+        };
+        int codeSize = quantizer == null ? 0 : quantizer.codeSize();
+        this.codeScratch = ThreadLocal.withInitial(() -> new byte[codeSize]);
+    }
+
+    private ProductQuantizer readProductQuantizer(long codebookOffset, int subspaces, int centroids) {
+        int subDimension = dimension / subspaces;
+        float[][] codebook = new float[subspaces * centroids][];
+        for (int i = 0; i < codebook.length; i++) {
+            codebook[i] = new float[subDimension];
+            file.getFloats(codebookOffset + 4L * i * subDimension, codebook[i]);
+        }
+        return new ProductQuantizer(similarity, dimension, subspaces, centroids, codebook);
+    }
+
+    /**
+     * 打开段文件；同名 .del 文件存在时一并加载运行期删除
+     */
+    public static MappedVectorSegment open(Path path) throws IOException {
+        MappedVectorSegment segment = new MappedVectorSegment(path, MappedFile.map(path, MAX_RECORD_BYTES));
+        segment.loadDeletes();
+        return segment;
+    }
+
+    static int words(int count) {
+        return (count + 63) >>> 6;
+    }
+
+    // 第 0 层槽 1 + 2M 个 int，之后每层 1 + M 个
+    private long slotOffset(int level) {
+        return level == 0 ? 0 : 4L * ((1 + 2L * m) + (long) (level - 1) * (1 + m));
+    }
+
+    // ========== 查询 ==========
+
+    /**
+     * top-k 近似最近邻，query 为原始向量
+     *
+     * 量化段先在量化码上搜出 max(ef, k) 个候选，再用 float32 向量重排取 top-k，返回精确分数
+     */
+    public List<HnswIndex.Neighbor> search(float[] query, int k, int ef) {
+        if (query.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + query.length);
+        }
+        if (count == 0 || entryNode < 0 || k <= 0) {
+            return List.of();
+        }
+        float[] prepared = similarity.prepare(query);
+        if (quantizer == null) {
+            return HnswSearcher.search(graph, prepared, entryNode, entryLevel, k, ef, count);
+        }
+        List<HnswIndex.Neighbor> candidates = HnswSearcher.search(quantizedGraph(quantizer.scorer(prepared)),
+                prepared, entryNode, entryLevel, Math.max(ef, k), ef, count);
+        float[] vector = scratch.get();
+        List<HnswIndex.Neighbor> reranked = new ArrayList<>(candidates.size());
+        for (HnswIndex.Neighbor candidate : candidates) {
+            readVector(candidate.node(), vector);
+            reranked.add(new HnswIndex.Neighbor(candidate.node(), similarity.score(prepared, vector)));
+        }
+        reranked.sort(Comparator.comparingDouble(HnswIndex.Neighbor::score).reversed());
+        return reranked.size() > k ? List.copyOf(reranked.subList(0, k)) : reranked;
+    }
+
+    // 一次查询的图视图：邻接表同 graph，打分走量化码
+    private HnswGraph quantizedGraph(VectorQuantizer.QueryScorer scorer) {
+        byte[] codes = codeScratch.get();
+        int codeSize = codes.length;
+        return new HnswGraph() {
+            @Override
+            public int maxConnections(int level) {
+                return graph.maxConnections(level);
+            }
+
+            @Override
+            public int neighbors(int node, int level, int[] buffer) {
+                return graph.neighbors(node, level, buffer);
+            }
+
+            @Override
+            public float score(float[] query, int node) {
+                file.getBytes(codesOffset + (long) node * codeSize, codes);
+                return scorer.score(codes);
+            }
+
+            @Override
+            public boolean isDeleted(int node) {
+                return graph.isDeleted(node);
+            }
+        };
+    }
+
+    /**
+     * 读取预处理后的向量
+     */
+    public void readVector(int ord, float[] dst) {
+        file.getFloats(vectorsOffset + (long) ord * dimension * 4, dst);
+    }
+
+    public String id(int ord) {
+        long position = file.getLong(payloadTableOffset + (long) ord * 8);
+        return new String(file.getBytes(position + 4, file.getInt(position)), StandardCharsets.UTF_8);
+    }
+
+    public String content(int ord) {
+        long position = file.getLong(payloadTableOffset + (long) ord * 8);
+        long contentPosition = position + 4 + file.getInt(position);
+        return new String(file.getBytes(contentPosition + 4, file.getInt(contentPosition)), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 按文档 ID 二分查找存活的节点序号，不存在或已删除返回 -1
+     * 同一个 ID 在段内可能有多个副本（写入期间被更新过），其中最多一个存活
+     */
+    public int ordinalOf(String id) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = id(sortedOrdinal(mid)).compareTo(id);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                for (int i = mid; i >= 0 && id(sortedOrdinal(i)).equals(id); i--) {
+                    if (!isDeleted(sortedOrdinal(i))) {
+                        return sortedOrdinal(i);
+                    }
+                }
+                for (int i = mid + 1; i < count && id(sortedOrdinal(i)).equals(id); i++) {
+                    if (!isDeleted(sortedOrdinal(i))) {
+                        return sortedOrdinal(i);
+                    }
+                }
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    private int sortedOrdinal(int rank) {
+        return file.getInt(idIndexOffset + 4L * rank);
+    }
+
+    // ========== 删除 ==========
+
+    public boolean isDeleted(int ord) {
+        int word = ord >>> 6;
+        long mask = 1L << ord;
+        return (file.getLong(deletedOffset + 8L * word) & mask) != 0 || (runtimeDeletes.get(word) & mask) != 0;
+    }
+
+    /**
+     * 运行期删除，返回是否是首次删除
+     */
+    public boolean delete(int ord) {
+        if (isDeleted(ord)) {
+            return false;
+        }
+        int word = ord >>> 6;
+        long mask = 1L << ord;
+        long previous = runtimeDeletes.getAndAccumulate(word, mask, (a, b) -> a | b);
+        if ((previous & mask) != 0) {
+            return false;
+        }
+        deletedCount.incrementAndGet();
+        deletesDirty.set(true);
+        return true;
+    }
+
+    /**
+     * 把运行期删除写到 .del 文件（先写临时文件再原子替换）
+     */
+    public void saveDeletes() throws IOException {
+        if (!deletesDirty.getAndSet(false)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(runtimeDeletes.length() * 8).order(MappedFile.ORDER);
+        for (int i = 0; i < runtimeDeletes.length(); i++) {
+            buffer.putLong(runtimeDeletes.get(i));
+        }
+        Path target = deletesPath(path);
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        Files.write(temp, buffer.array());
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void loadDeletes() throws IOException {
+        Path deletes = deletesPath(path);
+        if (!Files.exists(deletes)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(deletes)).order(MappedFile.ORDER);
+        for (int i = 0; i < runtimeDeletes.length() && buffer.remaining() >= 8; i++) {
+            long bits = buffer.getLong() & ~file.getLong(deletedOffset + 8L * i);
+            runtimeDeletes.set(i, bits);
+            deletedCount.addAndGet(Long.bitCount(bits));
+        }
+    }
+
+    static Path deletesPath(Path segment) {
+        return segment.resolveSibling(segment.getFileName() + DELETES_SUFFIX);
+    }
+
+    // ========== 元数据 ==========
+
+    public Path path() {
+        return path;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    public VectorSimilarity similarity() {
+        return similarity;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int liveSize() {
+        return count - deletedCount.get();
+    }
+
+    public long sizeInBytes() {
+        return file.size();
+    }
+
+    public QuantizationConfig.Mode quantization() {
+        return quantizer == null ? QuantizationConfig.Mode.NONE : quantizer.mode();
+    }
+
+    /**
+     * float32 向量区字节数；量化段只在重排时读这部分
+     */
+    public long vectorBytes() {
+        return (long) count * dimension * 4;
+    }
+
+    /**
+     * 量化码字节数，量化段图遍历的热数据
+     */
+    public long codeBytes() {
+        return quantizer == null ? 0 : (long) count * quantizer.codeSize();
+    }
+}
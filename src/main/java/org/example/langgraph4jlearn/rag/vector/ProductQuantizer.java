@@ -0,0 +1,186 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 乘积量化 (PQ)：向量切成 subspaces 段，每段用 k-means 训练出最多 256 个中心，存中心编号（1 字节）
+ *
+ * 查询时先算查询每一段到该段所有中心的部分分数，组成 subspaces × centroids 的查表；
+ * 候选打分就是 subspaces 次查表相加 (ADC)，不需要解码向量。误差比 INT8 大，靠重排补回召回
+ */
+final class ProductQuantizer implements VectorQuantizer {
+
+    static final int MAX_CENTROIDS = 256;
+    private static final int ITERATIONS = 8;
+
+    private final VectorSimilarity similarity;
+    private final int subspaces;
+    private final int subDimension;
+    private final int centroids;
+    // [subspace * centroids + c] -> 该中心的 subDimension 个分量
+    private final float[][] codebook;
+
+    ProductQuantizer(VectorSimilarity similarity, int dimension, int subspaces, int centroids, float[][] codebook) {
+        if (subspaces <= 0 || dimension % subspaces != 0) {
+            throw new IllegalArgumentException("subspaces must divide dimension: " + subspaces + " / " + dimension);
+        }
+        if (centroids <= 0 || centroids > MAX_CENTROIDS || codebook.length != subspaces * centroids) {
+            throw new IllegalArgumentException("Invalid codebook: centroids=" + centroids);
+        }
+        this.similarity = similarity;
+        this.subspaces = subspaces;
+        this.subDimension = dimension / subspaces;
+        this.centroids = centroids;
+        this.codebook = codebook;
+    }
+
+    /**
+     * 每个子空间独立跑 k-means (Lloyd)，随机样本初始化，空簇用随机样本补
+     */
+    static ProductQuantizer train(VectorSimilarity similarity, int dimension, int subspaces, List<float[]> sample,
+                                  long seed) {
+        if (sample.isEmpty()) {
+            throw new IllegalArgumentException("PQ training needs at least one vector");
+        }
+        if (dimension % subspaces != 0) {
+            throw new IllegalArgumentException("subspaces must divide dimension: " + subspaces + " / " + dimension);
+        }
+        int subDimension = dimension / subspaces;
+        int centroids = Math.min(MAX_CENTROIDS, sample.size());
+        SplittableRandom random = new SplittableRandom(seed);
+        float[][] codebook = new float[subspaces * centroids][];
+        float[][] points = new float[sample.size()][subDimension];
+        for (int s = 0; s < subspaces; s++) {
+            for (int i = 0; i < points.length; i++) {
+                System.arraycopy(sample.get(i), s * subDimension, points[i], 0, subDimension);
+            }
+            float[][] centers = kMeans(points, centroids, random);
+            System.arraycopy(centers, 0, codebook, s * centroids, centroids);
+        }
+        return new ProductQuantizer(similarity, dimension, subspaces, centroids, codebook);
+    }
+
+    private static float[][] kMeans(float[][] points, int k, SplittableRandom random) {
+        int dimension = points[0].length;
+        // 部分 Fisher-Yates 洗牌取 k 个不同的样本作初始中心
+        int[] order = new int[points.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        float[][] centers = new float[k][];
+        for (int c = 0; c < k; c++) {
+            int j = c + random.nextInt(order.length - c);
+            int swap = order[c];
+            order[c] = order[j];
+            order[j] = swap;
+            centers[c] = points[order[c]].clone();
+        }
+
+        int[] assignment = new int[points.length];
+        for (int iteration = 0; iteration < ITERATIONS; iteration++) {
+            boolean changed = false;
+            for (int i = 0; i < points.length; i++) {
+                int nearest = nearest(centers, 0, k, points[i]);
+                if (nearest != assignment[i]) {
+                    assignment[i] = nearest;
+                    changed = true;
+                }
+            }
+            if (iteration > 0 && !changed) {
+                break;
+            }
+            float[][] sums = new float[k][dimension];
+            int[] counts = new int[k];
+            for (int i = 0; i < points.length; i++) {
+                float[] sum = sums[assignment[i]];
+                for (int d = 0; d < dimension; d++) {
+                    sum[d] += points[i][d];
+                }
+                counts[assignment[i]]++;
+            }
+            for (int c = 0; c < k; c++) {
+                if (counts[c] == 0) {
+                    centers[c] = points[random.nextInt(points.length)].clone();
+                    continue;
+                }
+                for (int d = 0; d < dimension; d++) {
+                    sums[c][d] /= counts[c];
+                }
+                centers[c] = sums[c];
+            }
+        }
+        return centers;
+    }
+
+    // centers[from, from + count) 中离 point 最近的，返回相对编号
+    private static int nearest(float[][] centers, int from, int count, float[] point) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int c = 0; c < count; c++) {
+            float distance = VectorKernels.INSTANCE.squareDistance(point, centers[from + c]);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = c;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public QuantizationConfig.Mode mode() {
+        return QuantizationConfig.Mode.PQ;
+    }
+
+    @Override
+    public int codeSize() {
+        return subspaces;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes) {
+        float[] sub = new float[subDimension];
+        for (int s = 0; s < subspaces; s++) {
+            System.arraycopy(vector, s * subDimension, sub, 0, subDimension);
+            codes[s] = (byte) nearest(codebook, s * centroids, centroids, sub);
+        }
+    }
+
+    @Override
+    public QueryScorer scorer(float[] query) {
+        boolean euclidean = similarity == VectorSimilarity.EUCLIDEAN;
+        float[] table = new float[subspaces * centroids];
+        float[] sub = new float[subDimension];
+        for (int s = 0; s < subspaces; s++) {
+            System.arraycopy(query, s * subDimension, sub, 0, subDimension);
+            for (int c = 0; c < centroids; c++) {
+                float[] center = codebook[s * centroids + c];
+                table[s * centroids + c] = euclidean
+                        ? VectorKernels.INSTANCE.squareDistance(sub, center)
+                        : VectorKernels.INSTANCE.dot(sub, center);
+            }
+        }
+        return codes -> {
+            float sum = 0;
+            for (int s = 0; s < subspaces; s++) {
+                sum += table[s * centroids + (codes[s] & 0xFF)];
+            }
+            return euclidean ? 1f / (1f + sum) : sum;
+        };
+    }
+
+    int subspaces() {
+        return subspaces;
+    }
+
+    int centroids() {
+        return centroids;
+    }
+
+    /**
+     * 第 subspace 段第 c 个中心（共享实例，不要修改）
+     */
+    float[] centroid(int subspace, int c) {
+        return codebook[subspace * centroids + c];
+    }
+}
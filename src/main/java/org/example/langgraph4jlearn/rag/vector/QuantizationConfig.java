@@ -0,0 +1,57 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.util.Locale;
+
+/**
+ * 段文件的向量量化参数
+ *
+ * 量化段除了 float32 原始向量还存一份紧凑的量化码：HNSW 遍历只读量化码，热数据约为原来的 1/4 (INT8)
+ * 或更小 (PQ)；遍历得到的候选再读 float32 重排，返回的分数仍是精确分数。
+ * 量化器按段训练，段落盘 / 合并时用当时的配置重新编码，改配置不需要重建旧段
+ *
+ * @param mode         NONE 只存 float32；INT8 每维 1 字节；PQ 每个子空间 1 字节
+ * @param subspaces    PQ 子空间数，必须整除向量维度；其余模式为 0
+ * @param rerankFactor 量化段先在量化码上取 max(ef, k × rerankFactor) 个候选再重排；越大召回越高、重排越慢
+ */
+public record QuantizationConfig(Mode mode, int subspaces, int rerankFactor) {
+
+    public enum Mode {
+        NONE, INT8, PQ
+    }
+
+    public QuantizationConfig {
+        if (mode == Mode.PQ && subspaces <= 0) {
+            throw new IllegalArgumentException("PQ needs subspaces > 0: " + subspaces);
+        }
+        if (rerankFactor < 1) {
+            throw new IllegalArgumentException("rerankFactor must be >= 1: " + rerankFactor);
+        }
+    }
+
+    public static QuantizationConfig none() {
+        return new QuantizationConfig(Mode.NONE, 0, 1);
+    }
+
+    public static QuantizationConfig int8() {
+        return new QuantizationConfig(Mode.INT8, 0, 2);
+    }
+
+    /**
+     * PQ 误差比 INT8 大得多，默认重排更多候选
+     */
+    public static QuantizationConfig pq(int subspaces) {
+        return new QuantizationConfig(Mode.PQ, subspaces, 8);
+    }
+
+    /**
+     * 从配置项解析: none / int8 / pq
+     */
+    public static QuantizationConfig of(String mode, int subspaces) {
+        return switch (mode.trim().toLowerCase(Locale.ROOT)) {
+            case "", "none" -> none();
+            case "int8" -> int8();
+            case "pq" -> pq(subspaces);
+            default -> throw new IllegalArgumentException("Unknown quantization mode: " + mode);
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * int8 对称标量量化：每维 round(x / scale)，截断到 [-127, 127]
+ *
+ * scale 取样本各维绝对值的 99.9% 分位数 / 127，少量离群值被截断，换来其余值更细的刻度。
+ * 查询同样量化成 int8，点积 / 平方距离在整数上算（SIMD 内核），再乘 scale² 还原量级
+ */
+final class ScalarQuantizer implements VectorQuantizer {
+
+    static final double CONFIDENCE = 0.999;
+    // 训练最多看这么多个分量，足够估计分位数
+    private static final int MAX_TRAINING_VALUES = 1 << 20;
+
+    private final VectorSimilarity similarity;
+    private final int dimension;
+    private final float scale;
+
+    ScalarQuantizer(VectorSimilarity similarity, int dimension, float scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("scale must be positive: " + scale);
+        }
+        this.similarity = similarity;
+        this.dimension = dimension;
+        this.scale = scale;
+    }
+
+    static ScalarQuantizer train(VectorSimilarity similarity, int dimension, List<float[]> sample) {
+        int stride = Math.max(1, (int) ((long) sample.size() * dimension / MAX_TRAINING_VALUES));
+        float[] values = new float[(sample.size() + stride - 1) / stride * dimension];
+        int n = 0;
+        for (int i = 0; i < sample.size(); i += stride) {
+            for (float value : sample.get(i)) {
+                values[n++] = Math.abs(value);
+            }
+        }
+        Arrays.sort(values, 0, n);
+        float bound = n == 0 ? 0 : values[(int) Math.floor(CONFIDENCE * (n - 1))];
+        if (!(bound > 0)) {
+            // 样本几乎全零，取最大值兜底
+            bound = n == 0 || values[n - 1] == 0 ? 1 : values[n - 1];
+        }
+        return new ScalarQuantizer(similarity, dimension, bound / 127);
+    }
+
+    @Override
+    public QuantizationConfig.Mode mode() {
+        return QuantizationConfig.Mode.INT8;
+    }
+
+    @Override
+    public int codeSize() {
+        return dimension;
+    }
+
+    @Override
+    public void encode(float[] vector, byte[] codes) {
+        for (int i = 0; i < dimension; i++) {
+            int q = Math.round(vector[i] / scale);
+            codes[i] = (byte) Math.max(-127, Math.min(127, q));
+        }
+    }
+
+    @Override
+    public QueryScorer scorer(float[] query) {
+        byte[] encoded = new byte[dimension];
+        encode(query, encoded);
+        float factor = scale * scale;
+        VectorKernels kernels = VectorKernels.INSTANCE;
+        if (similarity == VectorSimilarity.EUCLIDEAN) {
+            return codes -> 1f / (1f + factor * kernels.squareDistance(encoded, codes));
+        }
+        return codes -> factor * kernels.dot(encoded, codes);
+    }
+
+    float scale() {
+        return scale;
+    }
+}
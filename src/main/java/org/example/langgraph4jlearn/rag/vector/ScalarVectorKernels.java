@@ -0,0 +1,91 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+/**
+ * 标量内核：四路累加打破循环依赖，JIT 才能流水线化（float 累加有序，C2 不会自动向量化）
+ */
+final class ScalarVectorKernels extends VectorKernels {
+
+    @Override
+    float dot(float[] a, float[] b) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int bound = a.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    @Override
+    float squareDistance(float[] a, float[] b) {
+        float s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int bound = a.length & ~3;
+        for (; i < bound; i += 4) {
+            float d0 = a[i] - b[i];
+            float d1 = a[i + 1] - b[i + 1];
+            float d2 = a[i + 2] - b[i + 2];
+            float d3 = a[i + 3] - b[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < a.length; i++) {
+            float d = a[i] - b[i];
+            s0 += d * d;
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    // int8 同样四路展开：byte 乘加归约 C2 向量化不了，展开后靠指令级并行
+    @Override
+    int dot(byte[] a, byte[] b) {
+        int s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int bound = a.length & ~3;
+        for (; i < bound; i += 4) {
+            s0 += a[i] * b[i];
+            s1 += a[i + 1] * b[i + 1];
+            s2 += a[i + 2] * b[i + 2];
+            s3 += a[i + 3] * b[i + 3];
+        }
+        for (; i < a.length; i++) {
+            s0 += a[i] * b[i];
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    @Override
+    int squareDistance(byte[] a, byte[] b) {
+        int s0 = 0, s1 = 0, s2 = 0, s3 = 0;
+        int i = 0;
+        int bound = a.length & ~3;
+        for (; i < bound; i += 4) {
+            int d0 = a[i] - b[i];
+            int d1 = a[i + 1] - b[i + 1];
+            int d2 = a[i + 2] - b[i + 2];
+            int d3 = a[i + 3] - b[i + 3];
+            s0 += d0 * d0;
+            s1 += d1 * d1;
+            s2 += d2 * d2;
+            s3 += d3 * d3;
+        }
+        for (; i < a.length; i++) {
+            int d = a[i] - b[i];
+            s0 += d * d;
+        }
+        return s0 + s1 + s2 + s3;
+    }
+
+    @Override
+    String name() {
+        return "scalar";
+    }
+}
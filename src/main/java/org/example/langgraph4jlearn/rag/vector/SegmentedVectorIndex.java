@@ -0,0 +1,548 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * 分段持久化向量索引
+ *
+ * 新文档先写进内存中的小可变段 (HnswIndex)，达到 flushThreshold 后冻结并在后台线程写成不可变的
+ * mmap 段；段数超过 mergeFactor 时后台把最小的几个段合并成一个。目录里的 segments 清单列出当前生效的段，
+ * 每次变更都先写临时文件再原子替换。
+ *
+ * 启动只读清单并映射段文件，不重建索引，耗时与语料规模无关。
+ * 段上的删除在删除时追加到 deletes.log（段名 + 节点序号），落盘删除位图后截断，崩溃重启时重放。
+ * 落盘失败的内存段继续服务查询，在下一次 flush / close 时重试；close 时仍未落盘则抛异常。
+ * 配置了量化时，落盘 / 合并出的段带量化码，查询在量化码上遍历、float32 重排（见 {@link QuantizationConfig}）。
+ * 同一文档 ID 只会有一个存活副本：更新时在所有段里给旧副本打删除标记
+ */
+@Slf4j
+public class SegmentedVectorIndex implements Closeable {
+
+    public static final int DEFAULT_FLUSH_THRESHOLD = 10_000;
+    public static final int DEFAULT_MERGE_FACTOR = 4;
+
+    static final String MANIFEST = "segments";
+    static final String SEGMENT_SUFFIX = ".hnsw";
+    static final String DELETE_LOG = "deletes.log";
+
+    private final Path directory;
+    private final int dimension;
+    private final VectorSimilarity similarity;
+    private final HnswConfig config;
+    private final int flushThreshold;
+    private final int mergeFactor;
+    private final QuantizationConfig quantization;
+
+    private final Object writeLock = new Object();
+    private final ExecutorService maintenance = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "vector-segment-maintenance");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // 查询读 volatile 快照，写入在 writeLock 内替换
+    private volatile Snapshot snapshot;
+    private long nextSegment;
+
+    /**
+     * 查询命中
+     */
+    public record Hit(String id, String content, float score) {
+    }
+
+    /**
+     * @param segments 已落盘的段，旧的在前
+     * @param buffers  内存段，最后一个是当前写入的活跃段，其余正在后台落盘
+     */
+    private record Snapshot(List<MappedVectorSegment> segments, List<BufferSegment> buffers) {
+
+        private BufferSegment active() {
+            return buffers.get(buffers.size() - 1);
+        }
+    }
+
+    public SegmentedVectorIndex(Path directory, int dimension) throws IOException {
+        this(directory, dimension, VectorSimilarity.COSINE, HnswConfig.defaults(),
+                DEFAULT_FLUSH_THRESHOLD, DEFAULT_MERGE_FACTOR);
+    }
+
+    public SegmentedVectorIndex(Path directory, int dimension, VectorSimilarity similarity, HnswConfig config,
+                                int flushThreshold, int mergeFactor) throws IOException {
+        this(directory, dimension, similarity, config, flushThreshold, mergeFactor, QuantizationConfig.none());
+    }
+
+    public SegmentedVectorIndex(Path directory, int dimension, VectorSimilarity similarity, HnswConfig config,
+                                int flushThreshold, int mergeFactor, QuantizationConfig quantization)
+            throws IOException {
+        if (flushThreshold <= 0 || mergeFactor < 2) {
+            throw new IllegalArgumentException("flushThreshold must be positive and mergeFactor >= 2");
+        }
+        if (quantization.mode() == QuantizationConfig.Mode.PQ && dimension % quantization.subspaces() != 0) {
+            throw new IllegalArgumentException("PQ subspaces " + quantization.subspaces()
+                    + " must divide dimension " + dimension);
+        }
+        this.directory = directory;
+        this.dimension = dimension;
+        this.similarity = similarity;
+        this.config = config;
+        this.flushThreshold = flushThreshold;
+        this.mergeFactor = mergeFactor;
+        this.quantization = quantization;
+        Files.createDirectories(directory);
+        List<MappedVectorSegment> segments = openSegments();
+        replayDeleteLog(segments);
+        this.snapshot = new Snapshot(segments, List.of(newBuffer()));
+    }
+
+    // ========== 启动 ==========
+
+    private List<MappedVectorSegment> openSegments() throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        List<String> names = Files.exists(manifest) ? Files.readAllLines(manifest) : List.of();
+        List<MappedVectorSegment> segments = new ArrayList<>();
+        Set<String> live = new HashSet<>();
+        for (String name : names) {
+            if (name.isBlank()) {
+                continue;
+            }
+            MappedVectorSegment segment = MappedVectorSegment.open(directory.resolve(name));
+            if (segment.dimension() != dimension || segment.similarity() != similarity) {
+                throw new IOException("Segment " + name + " has dimension " + segment.dimension() + "/"
+                        + segment.similarity() + ", expected " + dimension + "/" + similarity);
+            }
+            segments.add(segment);
+            live.add(name);
+            nextSegment = Math.max(nextSegment, segmentNumber(name) + 1);
+        }
+        // 清理崩溃留下的、不在清单里的段
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                String base = name.endsWith(MappedVectorSegment.DELETES_SUFFIX)
+                        ? name.substring(0, name.length() - MappedVectorSegment.DELETES_SUFFIX.length()) : name;
+                if ((base.endsWith(SEGMENT_SUFFIX) || name.endsWith(".tmp")) && !live.contains(base)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+        log.info("📂 [SegmentedVectorIndex] 打开 {} 个段, {} 个向量: {}", segments.size(),
+                segments.stream().mapToInt(MappedVectorSegment::liveSize).sum(), directory);
+        return segments;
+    }
+
+    /**
+     * 重放上次未落到删除位图的删除记录，写回位图后清空日志；已被合并掉的段跳过
+     */
+    private void replayDeleteLog(List<MappedVectorSegment> segments) throws IOException {
+        Path deleteLog = directory.resolve(DELETE_LOG);
+        if (!Files.exists(deleteLog)) {
+            return;
+        }
+        Map<String, MappedVectorSegment> byName = new HashMap<>();
+        for (MappedVectorSegment segment : segments) {
+            byName.put(segment.path().getFileName().toString(), segment);
+        }
+        int replayed = 0;
+        for (String line : Files.readAllLines(deleteLog)) {
+            int space = line.indexOf(' ');
+            MappedVectorSegment segment = space < 0 ? null : byName.get(line.substring(0, space));
+            if (segment != null && segment.delete(Integer.parseInt(line.substring(space + 1)))) {
+                replayed++;
+            }
+        }
+        for (MappedVectorSegment segment : segments) {
+            segment.saveDeletes();
+        }
+        Files.delete(deleteLog);
+        log.info("♻️ [SegmentedVectorIndex] 重放删除日志: {} 条", replayed);
+    }
+
+    private static long segmentNumber(String name) {
+        return Long.parseLong(name.substring("seg-".length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // ========== 写入 ==========
+
+    /**
+     * 写入或更新文档
+     */
+    public void upsert(String id, String content, float[] vector) {
+        if (vector.length != dimension) {
+            throw new IllegalArgumentException("Expected dimension " + dimension + " but got " + vector.length);
+        }
+        synchronized (writeLock) {
+            deleteLocked(id);
+            Snapshot current = snapshot;
+            BufferSegment active = current.active();
+            active.add(id, content, vector);
+            if (active.size() >= flushThreshold) {
+                sealLocked();
+            }
+        }
+    }
+
+    /**
+     * 删除文档，返回是否存在
+     */
+    public boolean delete(String id) {
+        synchronized (writeLock) {
+            return deleteLocked(id);
+        }
+    }
+
+    private boolean deleteLocked(String id) {
+        Snapshot current = snapshot;
+        for (BufferSegment buffer : current.buffers()) {
+            if (buffer.delete(id)) {
+                return true;
+            }
+        }
+        for (MappedVectorSegment segment : current.segments()) {
+            int ord = segment.ordinalOf(id);
+            if (ord >= 0 && !segment.isDeleted(ord)) {
+                // 先记日志再改内存位图，重启后删除不会丢
+                appendDeleteLog(segment, ord);
+                return segment.delete(ord);
+            }
+        }
+        return false;
+    }
+
+    private void appendDeleteLog(MappedVectorSegment segment, int ord) {
+        try {
+            Files.writeString(directory.resolve(DELETE_LOG), segment.path().getFileName() + " " + ord + "\n",
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to log delete", e);
+        }
+    }
+
+    /**
+     * 冻结活跃段并排入后台落盘，同时重新排入之前落盘失败的内存段；只在 writeLock 内调用
+     */
+    private void sealLocked() {
+        Snapshot current = snapshot;
+        List<BufferSegment> buffers = new ArrayList<>(current.buffers());
+        BufferSegment active = current.active();
+        if (active.size() > 0) {
+            buffers.add(newBuffer());
+            snapshot = new Snapshot(current.segments(), List.copyOf(buffers));
+        }
+        for (BufferSegment buffer : buffers) {
+            if (buffer.failure != null || (buffer == active && active.size() > 0)) {
+                buffer.failure = null;
+                maintenance.execute(() -> flush(buffer));
+            }
+        }
+    }
+
+    /**
+     * 把当前活跃段和之前落盘失败的内存段落盘并等待后台任务完成
+     *
+     * @throws IllegalStateException 仍有内存段未能落盘（数据保留在内存中，下次 flush 重试）
+     */
+    public void flush() {
+        synchronized (writeLock) {
+            sealLocked();
+        }
+        try {
+            maintenance.submit(this::saveDeletes).get();
+        } catch (Exception e) {
+            throw new IllegalStateException("Flush failed", e);
+        }
+        synchronized (writeLock) {
+            List<BufferSegment> failed = snapshot.buffers().stream()
+                    .filter(buffer -> buffer.failure != null)
+                    .toList();
+            if (!failed.isEmpty()) {
+                IllegalStateException error = new IllegalStateException(
+                        failed.size() + " memory segment(s) could not be flushed", failed.get(0).failure);
+                failed.stream().skip(1).forEach(buffer -> error.addSuppressed(buffer.failure));
+                throw error;
+            }
+        }
+    }
+
+    // ========== 后台落盘与合并 ==========
+
+    private void flush(BufferSegment buffer) {
+        try {
+            Path file = directory.resolve(nextSegmentName());
+            VectorSegmentWriter.write(file, buffer.index, buffer::id, buffer::content, quantization);
+            MappedVectorSegment segment = MappedVectorSegment.open(file);
+            synchronized (writeLock) {
+                // 落盘期间发生的删除补到新段上，节点序号一一对应
+                for (int ord = 0; ord < segment.size(); ord++) {
+                    if (buffer.index.isDeleted(ord)) {
+                        segment.delete(ord);
+                    }
+                }
+                Snapshot current = snapshot;
+                List<MappedVectorSegment> segments = new ArrayList<>(current.segments());
+                segments.add(segment);
+                // 删除位图和清单写成功后才发布新段、移除内存段；失败时内存段原样保留
+                segment.saveDeletes();
+                writeManifest(segments);
+                List<BufferSegment> buffers = new ArrayList<>(current.buffers());
+                buffers.remove(buffer);
+                snapshot = new Snapshot(List.copyOf(segments), List.copyOf(buffers));
+            }
+            log.info("💾 [SegmentedVectorIndex] 落盘 {}: {} 个向量", file.getFileName(), segment.size());
+        } catch (IOException e) {
+            synchronized (writeLock) {
+                buffer.failure = e;
+            }
+            log.error("❌ [SegmentedVectorIndex] 落盘失败，内存段保留继续服务查询，下次 flush 重试", e);
+            return;
+        }
+        try {
+            maybeMerge();
+        } catch (IOException e) {
+            log.error("❌ [SegmentedVectorIndex] 合并失败，源段保持不变", e);
+        }
+    }
+
+    private void maybeMerge() throws IOException {
+        List<MappedVectorSegment> sources;
+        synchronized (writeLock) {
+            if (snapshot.segments().size() <= mergeFactor) {
+                return;
+            }
+            sources = snapshot.segments().stream()
+                    .sorted(Comparator.comparingInt(MappedVectorSegment::liveSize))
+                    .limit(mergeFactor)
+                    .toList();
+        }
+
+        // 合并在锁外进行：重新建图，只保留存活文档
+        HnswIndex merged = new HnswIndex(dimension, similarity, config);
+        List<String> ids = new ArrayList<>();
+        List<String> contents = new ArrayList<>();
+        List<int[]> mappings = new ArrayList<>();
+        float[] vector = new float[dimension];
+        for (MappedVectorSegment source : sources) {
+            int[] mapping = new int[source.size()];
+            for (int ord = 0; ord < source.size(); ord++) {
+                if (source.isDeleted(ord)) {
+                    mapping[ord] = -1;
+                    continue;
+                }
+                source.readVector(ord, vector);
+                mapping[ord] = merged.add(vector);
+                ids.add(source.id(ord));
+                contents.add(source.content(ord));
+            }
+            mappings.add(mapping);
+        }
+        Path file = directory.resolve(nextSegmentName());
+        VectorSegmentWriter.write(file, merged, ids::get, contents::get, quantization);
+        MappedVectorSegment segment = MappedVectorSegment.open(file);
+
+        synchronized (writeLock) {
+            // 合并期间源段上发生的删除补到新段
+            for (int i = 0; i < sources.size(); i++) {
+                MappedVectorSegment source = sources.get(i);
+                int[] mapping = mappings.get(i);
+                for (int ord = 0; ord < mapping.length; ord++) {
+                    if (mapping[ord] >= 0 && source.isDeleted(ord)) {
+                        segment.delete(mapping[ord]);
+                    }
+                }
+            }
+            Snapshot current = snapshot;
+            List<MappedVectorSegment> segments = new ArrayList<>(current.segments());
+            segments.removeAll(sources);
+            segments.add(segment);
+            // 和落盘一样先写删除位图和清单再发布；失败时查询继续使用源段，源段文件也不会被删除
+            segment.saveDeletes();
+            writeManifest(segments);
+            snapshot = new Snapshot(List.copyOf(segments), current.buffers());
+        }
+        // 进行中的查询仍持有旧映射；Linux 上删除已映射的文件是安全的，映射随 GC 释放
+        for (MappedVectorSegment source : sources) {
+            Files.deleteIfExists(source.path());
+            Files.deleteIfExists(MappedVectorSegment.deletesPath(source.path()));
+        }
+        log.info("🔗 [SegmentedVectorIndex] 合并 {} 个段 -> {}: {} 个向量", sources.size(), file.getFileName(),
+                segment.size());
+        maybeMerge();
+    }
+
+    /**
+     * 所有段的删除位图落盘后，删除日志里的记录都已生效，截断日志
+     */
+    private void saveDeletes() {
+        synchronized (writeLock) {
+            try {
+                for (MappedVectorSegment segment : snapshot.segments()) {
+                    segment.saveDeletes();
+                }
+                Files.deleteIfExists(directory.resolve(DELETE_LOG));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void writeManifest(List<MappedVectorSegment> segments) throws IOException {
+        Path manifest = directory.resolve(MANIFEST);
+        Path temp = directory.resolve(MANIFEST + ".tmp");
+        Files.write(temp, segments.stream().map(segment -> segment.path().getFileName().toString()).toList());
+        Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private String nextSegmentName() {
+        synchronized (writeLock) {
+            return String.format("seg-%06d%s", nextSegment++, SEGMENT_SUFFIX);
+        }
+    }
+
+    private BufferSegment newBuffer() {
+        return new BufferSegment(new HnswIndex(dimension, similarity, config));
+    }
+
+    // ========== 查询 ==========
+
+    public List<Hit> search(float[] query, int k) {
+        return search(query, k, config.efSearch());
+    }
+
+    /**
+     * 在所有段上分别搜索，按分数合并 top-k；量化段的候选数放大 rerankFactor 倍再重排，各段分数都是精确分数
+     */
+    public List<Hit> search(float[] query, int k, int ef) {
+        Snapshot current = snapshot;
+        List<Hit> hits = new ArrayList<>();
+        for (MappedVectorSegment segment : current.segments()) {
+            int segmentEf = segment.quantization() == QuantizationConfig.Mode.NONE
+                    ? ef : Math.max(ef, k * quantization.rerankFactor());
+            for (HnswIndex.Neighbor neighbor : segment.search(query, k, segmentEf)) {
+                hits.add(new Hit(segment.id(neighbor.node()), segment.content(neighbor.node()), neighbor.score()));
+            }
+        }
+        for (BufferSegment buffer : current.buffers()) {
+            for (HnswIndex.Neighbor neighbor : buffer.index.search(query, k, ef)) {
+                hits.add(new Hit(buffer.id(neighbor.node()), buffer.content(neighbor.node()), neighbor.score()));
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::score).reversed());
+        return hits.size() > k ? List.copyOf(hits.subList(0, k)) : hits;
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current.segments().stream().mapToInt(MappedVectorSegment::liveSize).sum()
+                + current.buffers().stream().mapToInt(BufferSegment::size).sum();
+    }
+
+    public int segmentCount() {
+        return snapshot.segments().size();
+    }
+
+    /**
+     * 段统计：段数、内存段数、存活向量数、段文件总字节数，以及 float32 向量区和量化码的字节数
+     */
+    public Map<String, Object> stats() {
+        Snapshot current = snapshot;
+        return Map.of(
+                "segments", current.segments().size(),
+                "memorySegments", current.buffers().size(),
+                "vectors", size(),
+                "segmentBytes", current.segments().stream().mapToLong(MappedVectorSegment::sizeInBytes).sum(),
+                "quantization", quantization.mode().name(),
+                "vectorBytes", current.segments().stream().mapToLong(MappedVectorSegment::vectorBytes).sum(),
+                "codeBytes", current.segments().stream().mapToLong(MappedVectorSegment::codeBytes).sum()
+        );
+    }
+
+    public QuantizationConfig quantization() {
+        return quantization;
+    }
+
+    public Path directory() {
+        return directory;
+    }
+
+    /**
+     * 落盘剩余的内存段（含之前失败的）并停止后台线程
+     *
+     * @throws IOException 仍有内存段未能落盘，这些文档没有持久化
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } catch (IllegalStateException e) {
+            throw new IOException("Unflushed documents lost on close: " + e.getMessage(), e.getCause());
+        } finally {
+            maintenance.shutdown();
+            try {
+                if (!maintenance.awaitTermination(1, TimeUnit.MINUTES)) {
+                    log.warn("⚠️ [SegmentedVectorIndex] 后台合并未在 1 分钟内结束");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 内存段：HnswIndex + 文档内容，节点序号与落盘后的段一一对应
+     */
+    private static final class BufferSegment {
+        private final HnswIndex index;
+        private final Map<Integer, String[]> documents = new ConcurrentHashMap<>();
+        private final Map<String, Integer> ordinals = new ConcurrentHashMap<>();
+        // 最近一次落盘失败的原因，writeLock 保护；非 null 表示等待重试
+        private IOException failure;
+
+        private BufferSegment(HnswIndex index) {
+            this.index = index;
+        }
+
+        // 只在 writeLock 内调用：先放文档再插入向量，查询线程搜到新节点时文档一定已经在
+        private void add(String id, String content, float[] vector) {
+            int ord = index.size();
+            documents.put(ord, new String[]{id, content});
+            index.add(vector);
+            ordinals.put(id, ord);
+        }
+
+        private boolean delete(String id) {
+            Integer ord = ordinals.remove(id);
+            return ord != null && index.delete(ord);
+        }
+
+        private String id(int ord) {
+            return documents.get(ord)[0];
+        }
+
+        private String content(int ord) {
+            return documents.get(ord)[1];
+        }
+
+        private int size() {
+            return ordinals.size();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 向量打分内核：float32 和 int8 的点积 / 平方距离
+ *
+ * 默认是纯 Java 标量实现 (Java 17)。用 Java 21 且 mvn -Dvector 编译（java21-vector profile）、启动参数带
+ * --add-modules jdk.incubator.vector 时，加载 src/main/java21 下基于 Vector API 的 SIMD 实现；
+ * 任一条件不满足都静默退回标量实现，结果一致（浮点累加顺序不同，末位可能有差异）
+ */
+@Slf4j
+abstract class VectorKernels {
+
+    static final VectorKernels INSTANCE = load();
+
+    private static final String PANAMA_KERNELS = "org.example.langgraph4jlearn.rag.vector.PanamaVectorKernels";
+
+    abstract float dot(float[] a, float[] b);
+
+    abstract float squareDistance(float[] a, float[] b);
+
+    /**
+     * int8 点积，累加为 int：长度不超过 2^17 时不会溢出
+     */
+    abstract int dot(byte[] a, byte[] b);
+
+    abstract int squareDistance(byte[] a, byte[] b);
+
+    /**
+     * 实现名，用于日志和基准输出
+     */
+    abstract String name();
+
+    private static VectorKernels load() {
+        try {
+            VectorKernels kernels = (VectorKernels) Class.forName(PANAMA_KERNELS).getDeclaredConstructor().newInstance();
+            log.info("⚡ [VectorKernels] 使用 SIMD 打分内核: {}", kernels.name());
+            return kernels;
+        } catch (ClassNotFoundException e) {
+            // 没有用 Java 21 profile 编译
+        } catch (LinkageError | ReflectiveOperationException e) {
+            log.info("⚡ [VectorKernels] Vector API 不可用 ({}), 使用标量内核；Java 21 上可加 --add-modules jdk.incubator.vector",
+                    e.toString());
+        }
+        return new ScalarVectorKernels();
+    }
+}
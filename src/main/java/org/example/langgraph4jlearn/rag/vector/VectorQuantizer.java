@@ -0,0 +1,45 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.util.List;
+
+/**
+ * 把预处理后的向量编码成定长字节码，并给查询生成基于字节码的近似打分器
+ */
+interface VectorQuantizer {
+
+    QuantizationConfig.Mode mode();
+
+    /**
+     * 每个向量的编码字节数
+     */
+    int codeSize();
+
+    /**
+     * vector 必须已经过 {@link VectorSimilarity#prepare} 预处理
+     */
+    void encode(float[] vector, byte[] codes);
+
+    /**
+     * 为一次查询准备打分器，query 必须已预处理；打分器不是线程安全的，一次查询一个
+     */
+    QueryScorer scorer(float[] query);
+
+    /**
+     * 近似分数，与 {@link VectorSimilarity#score} 同向：越大越相似
+     */
+    interface QueryScorer {
+        float score(byte[] codes);
+    }
+
+    /**
+     * 按配置在样本上训练量化器；NONE 返回 null
+     */
+    static VectorQuantizer train(QuantizationConfig config, VectorSimilarity similarity, int dimension,
+                                 List<float[]> sample, long seed) {
+        return switch (config.mode()) {
+            case NONE -> null;
+            case INT8 -> ScalarQuantizer.train(similarity, dimension, sample);
+            case PQ -> ProductQuantizer.train(similarity, dimension, config.subspaces(), sample, seed);
+        };
+    }
+}
@@ -0,0 +1,283 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.IntFunction;
+
+import static org.example.langgraph4jlearn.rag.vector.MappedVectorSegment.*;
+
+/**
+ * 把内存中的 HnswIndex 写成 {@link MappedVectorSegment} 格式的不可变段文件
+ *
+ * 先写同目录下的临时文件，完成后原子改名，读者永远看不到写了一半的段。
+ * 配置了量化时，量化器在本段的向量上训练（最多抽样 TRAINING_SAMPLE 个），量化码和码本跟在 float32 向量后面
+ */
+public final class VectorSegmentWriter {
+
+    static final int TRAINING_SAMPLE = 10_000;
+
+    private VectorSegmentWriter() {
+    }
+
+    public static void write(Path target, HnswIndex index, IntFunction<String> ids,
+                             IntFunction<String> contents) throws IOException {
+        write(target, index, ids, contents, QuantizationConfig.none());
+    }
+
+    /**
+     * 写段文件；调用期间 index 不能再有写入
+     *
+     * @param ids      节点序号 -> 文档 ID
+     * @param contents 节点序号 -> 文档内容
+     */
+    public static void write(Path target, HnswIndex index, IntFunction<String> ids,
+                             IntFunction<String> contents, QuantizationConfig quantization) throws IOException {
+        int count = index.size();
+        int dimension = index.dimension();
+        int m = index.config().m();
+        if ((long) dimension * 4 > MAX_RECORD_BYTES || (1L + 2L * m) * 4 > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Vector or neighbor slot exceeds " + MAX_RECORD_BYTES + " bytes");
+        }
+        VectorQuantizer quantizer = count == 0 ? null : VectorQuantizer.train(quantization, index.similarity(),
+                dimension, trainingSample(index), index.config().seed());
+
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+             Output out = new Output(channel)) {
+            out.skip(HEADER_SIZE);
+
+            long vectorsOffset = out.position();
+            for (int ord = 0; ord < count; ord++) {
+                for (float value : index.vector(ord)) {
+                    out.putFloat(value);
+                }
+            }
+            out.align();
+
+            long codesOffset = 0;
+            long codebookOffset = 0;
+            if (quantizer != null) {
+                codesOffset = out.position();
+                byte[] codes = new byte[quantizer.codeSize()];
+                for (int ord = 0; ord < count; ord++) {
+                    quantizer.encode(index.vector(ord), codes);
+                    out.putBytes(codes);
+                }
+                out.align();
+                if (quantizer instanceof ProductQuantizer pq) {
+                    codebookOffset = out.position();
+                    for (int s = 0; s < pq.subspaces(); s++) {
+                        for (int c = 0; c < pq.centroids(); c++) {
+                            for (float value : pq.centroid(s, c)) {
+                                out.putFloat(value);
+                            }
+                        }
+                    }
+                    out.align();
+                }
+            }
+
+            // 邻接表紧跟在节点表和删除位图之后，位置可以提前算出来
+            long nodesOffset = out.position();
+            long deletedOffset = nodesOffset + (long) count * NODE_ENTRY_SIZE;
+            long graphOffset = deletedOffset + 8L * words(count);
+            long slot = graphOffset;
+            for (int ord = 0; ord < count; ord++) {
+                int level = index.level(ord);
+                out.putLong(slot);
+                out.putInt(level);
+                out.putInt(0);
+                slot += slotBytes(level, m);
+            }
+            long[] deleted = new long[words(count)];
+            int deletedCount = 0;
+            for (int ord = 0; ord < count; ord++) {
+                if (index.isDeleted(ord)) {
+                    deleted[ord >>> 6] |= 1L << ord;
+                    deletedCount++;
+                }
+            }
+            for (long word : deleted) {
+                out.putLong(word);
+            }
+
+            for (int ord = 0; ord < count; ord++) {
+                int level = index.level(ord);
+                for (int l = 0; l <= level; l++) {
+                    int[] neighbors = index.neighborsAt(ord, l);
+                    int capacity = l == 0 ? 2 * m : m;
+                    out.putInt(neighbors.length);
+                    for (int i = 0; i < capacity; i++) {
+                        out.putInt(i < neighbors.length ? neighbors[i] : -1);
+                    }
+                }
+            }
+            out.align();
+
+            long payloadTableOffset = out.position();
+            long payload = payloadTableOffset + 8L * count;
+            String[] idByOrd = new String[count];
+            for (int ord = 0; ord < count; ord++) {
+                idByOrd[ord] = ids.apply(ord);
+            }
+            long[] payloadOffsets = new long[count];
+            for (int ord = 0; ord < count; ord++) {
+                payloadOffsets[ord] = payload;
+                payload += 8 + utf8Length(idByOrd[ord]) + utf8Length(contents.apply(ord));
+                out.putLong(payloadOffsets[ord]);
+            }
+            for (int ord = 0; ord < count; ord++) {
+                out.putString(idByOrd[ord]);
+                out.putString(contents.apply(ord));
+            }
+            out.align();
+
+            long idIndexOffset = out.position();
+            Integer[] sorted = new Integer[count];
+            Arrays.setAll(sorted, i -> i);
+            Arrays.sort(sorted, Comparator.comparing(ord -> idByOrd[ord]));
+            for (int ord : sorted) {
+                out.putInt(ord);
+            }
+            out.flush();
+
+            int[] entry = index.entry();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(MappedFile.ORDER);
+            header.putInt(MAGIC).putInt(VERSION).putInt(dimension).putInt(index.similarity().ordinal())
+                    .putInt(count).putInt(m)
+                    .putInt(entry == null ? -1 : entry[0]).putInt(entry == null ? 0 : entry[1])
+                    .putInt(deletedCount)
+                    .putInt(quantizer == null ? QuantizationConfig.Mode.NONE.ordinal() : quantizer.mode().ordinal())
+                    .putLong(vectorsOffset).putLong(nodesOffset).putLong(deletedOffset)
+                    .putLong(payloadTableOffset).putLong(idIndexOffset)
+                    .putLong(codesOffset).putLong(codebookOffset)
+                    .putInt(quantizer == null ? 0 : quantizer.codeSize())
+                    .putFloat(quantizer instanceof ScalarQuantizer sq ? sq.scale() : 0)
+                    .putInt(quantizer instanceof ProductQuantizer pq ? pq.subspaces() : 0)
+                    .putInt(quantizer instanceof ProductQuantizer pq ? pq.centroids() : 0);
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    // 均匀抽样存活节点的预处理向量
+    private static List<float[]> trainingSample(HnswIndex index) {
+        int stride = Math.max(1, index.liveSize() / TRAINING_SAMPLE);
+        List<float[]> sample = new ArrayList<>();
+        for (int ord = 0, live = 0; ord < index.size() && sample.size() < TRAINING_SAMPLE; ord++) {
+            if (!index.isDeleted(ord) && live++ % stride == 0) {
+                sample.add(index.vector(ord));
+            }
+        }
+        if (sample.isEmpty()) {
+            // 全部已删除，仍然要为图遍历编码
+            sample.add(index.vector(0));
+        }
+        return sample;
+    }
+
+    static long slotBytes(int level, int m) {
+        return 4L * ((1 + 2L * m) + (long) level * (1 + m));
+    }
+
+    private static int utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * 顺序写缓冲，小端
+     */
+    private static final class Output implements AutoCloseable {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 20).order(MappedFile.ORDER);
+        private long position;
+
+        private Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        long position() {
+            return position;
+        }
+
+        void skip(int bytes) throws IOException {
+            for (int i = 0; i < bytes; i++) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+            position += bytes;
+        }
+
+        void align() throws IOException {
+            int padding = (int) ((8 - position % 8) % 8);
+            skip(padding);
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(4);
+            buffer.putInt(value);
+            position += 4;
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        void putFloat(float value) throws IOException {
+            ensure(4);
+            buffer.putFloat(value);
+            position += 4;
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            int written = 0;
+            while (written < bytes.length) {
+                ensure(1);
+                int n = Math.min(buffer.remaining(), bytes.length - written);
+                buffer.put(bytes, written, n);
+                written += n;
+            }
+            position += bytes.length;
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            putBytes(bytes);
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
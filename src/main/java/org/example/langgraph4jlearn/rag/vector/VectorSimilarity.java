@@ -0,0 +1,63 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+/**
+ * 向量相似度，统一为"分数越大越相似"
+ */
+public enum VectorSimilarity {
+
+    /**
+     * 余弦相似度：写入和查询时先归一化，打分退化为点积
+     */
+    COSINE {
+        @Override
+        public float[] prepare(float[] vector) {
+            float[] copy = vector.clone();
+            double norm = Math.sqrt(dot(copy, copy));
+            if (norm > 0) {
+                for (int i = 0; i < copy.length; i++) {
+                    copy[i] /= (float) norm;
+                }
+            }
+            return copy;
+        }
+
+        @Override
+        public float score(float[] a, float[] b) {
+            return dot(a, b);
+        }
+    },
+
+    DOT_PRODUCT {
+        @Override
+        public float score(float[] a, float[] b) {
+            return dot(a, b);
+        }
+    },
+
+    /**
+     * 欧氏距离映射到 (0, 1]：1 / (1 + d²)
+     */
+    EUCLIDEAN {
+        @Override
+        public float score(float[] a, float[] b) {
+            return 1f / (1f + squareDistance(a, b));
+        }
+    };
+
+    /**
+     * 写入 / 查询前的预处理，返回副本，不修改入参
+     */
+    public float[] prepare(float[] vector) {
+        return vector.clone();
+    }
+
+    public abstract float score(float[] a, float[] b);
+
+    static float dot(float[] a, float[] b) {
+        return VectorKernels.INSTANCE.dot(a, b);
+    }
+
+    static float squareDistance(float[] a, float[] b) {
+        return VectorKernels.INSTANCE.squareDistance(a, b);
+    }
+}
@@ -0,0 +1,119 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * 基于 jdk.incubator.vector 的 SIMD 内核，只在 java21-vector profile 下编译，由 {@link VectorKernels} 反射加载
+ *
+ * float32 用 CPU 的首选宽度；int8 每次读半个寄存器宽的字节，扩成一整个寄存器的 short 相乘，
+ * 再把两半分别扩成 int 累加。需要 256 位以上的寄存器，更窄的 CPU（如只有 128 位 NEON）int8 退回标量循环
+ */
+final class PanamaVectorKernels extends VectorKernels {
+
+    private static final VectorSpecies<Float> FLOAT = FloatVector.SPECIES_PREFERRED;
+    private static final int BITS = FLOAT.vectorBitSize();
+    private static final boolean WIDE_INT8 = BITS >= 256;
+    private static final VectorSpecies<Byte> BYTE = WIDE_INT8
+            ? VectorSpecies.of(byte.class, VectorShape.forBitSize(BITS / 2)) : null;
+    private static final VectorSpecies<Short> SHORT = WIDE_INT8 ? ShortVector.SPECIES_PREFERRED : null;
+    private static final VectorSpecies<Integer> INT = WIDE_INT8 ? IntVector.SPECIES_PREFERRED : null;
+
+    private final ScalarVectorKernels scalar = new ScalarVectorKernels();
+
+    @Override
+    float dot(float[] a, float[] b) {
+        int i = 0;
+        float sum = 0;
+        int bound = FLOAT.loopBound(a.length);
+        if (bound > 0) {
+            FloatVector acc = FloatVector.zero(FLOAT);
+            for (; i < bound; i += FLOAT.length()) {
+                acc = FloatVector.fromArray(FLOAT, a, i).fma(FloatVector.fromArray(FLOAT, b, i), acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    float squareDistance(float[] a, float[] b) {
+        int i = 0;
+        float sum = 0;
+        int bound = FLOAT.loopBound(a.length);
+        if (bound > 0) {
+            FloatVector acc = FloatVector.zero(FLOAT);
+            for (; i < bound; i += FLOAT.length()) {
+                FloatVector diff = FloatVector.fromArray(FLOAT, a, i).sub(FloatVector.fromArray(FLOAT, b, i));
+                acc = diff.fma(diff, acc);
+            }
+            sum = acc.reduceLanes(VectorOperators.ADD);
+        }
+        for (; i < a.length; i++) {
+            float d = a[i] - b[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    int dot(byte[] a, byte[] b) {
+        if (!WIDE_INT8) {
+            return scalar.dot(a, b);
+        }
+        int i = 0;
+        IntVector acc = IntVector.zero(INT);
+        int bound = BYTE.loopBound(a.length);
+        for (; i < bound; i += BYTE.length()) {
+            // int8 × int8 最大 16384，short 放得下
+            ShortVector va = (ShortVector) ByteVector.fromArray(BYTE, a, i).convertShape(VectorOperators.B2S, SHORT, 0);
+            ShortVector vb = (ShortVector) ByteVector.fromArray(BYTE, b, i).convertShape(VectorOperators.B2S, SHORT, 0);
+            ShortVector product = va.mul(vb);
+            acc = acc.add(product.convertShape(VectorOperators.S2I, INT, 0))
+                    .add(product.convertShape(VectorOperators.S2I, INT, 1));
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    @Override
+    int squareDistance(byte[] a, byte[] b) {
+        if (!WIDE_INT8) {
+            return scalar.squareDistance(a, b);
+        }
+        int i = 0;
+        IntVector acc = IntVector.zero(INT);
+        int bound = BYTE.loopBound(a.length);
+        for (; i < bound; i += BYTE.length()) {
+            ShortVector va = (ShortVector) ByteVector.fromArray(BYTE, a, i).convertShape(VectorOperators.B2S, SHORT, 0);
+            ShortVector vb = (ShortVector) ByteVector.fromArray(BYTE, b, i).convertShape(VectorOperators.B2S, SHORT, 0);
+            // 差值的平方最大 65025，超出 short，先扩成 int 再乘
+            ShortVector diff = va.sub(vb);
+            IntVector low = (IntVector) diff.convertShape(VectorOperators.S2I, INT, 0);
+            IntVector high = (IntVector) diff.convertShape(VectorOperators.S2I, INT, 1);
+            acc = acc.add(low.mul(low)).add(high.mul(high));
+        }
+        int sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < a.length; i++) {
+            int d = a[i] - b[i];
+            sum += d * d;
+        }
+        return sum;
+    }
+
+    @Override
+    String name() {
+        return "panama-" + FLOAT.vectorBitSize() + "bit";
+    }
+}
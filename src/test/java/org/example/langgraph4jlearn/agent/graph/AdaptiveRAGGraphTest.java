@@ -0,0 +1,113 @@
+package org.example.langgraph4jlearn.agent.graph;
+
+import org.bsc.langgraph4j.RunnableConfig;
+import org.example.langgraph4jlearn.agent.state.ComprehensiveWorkflowState;
+import org.example.langgraph4jlearn.rag.cache.RetrievalCache;
+import org.example.langgraph4jlearn.rag.generation.TemplateAnswerGenerator;
+import org.example.langgraph4jlearn.rag.grading.GradingConfig;
+import org.example.langgraph4jlearn.rag.grading.ParallelDocumentGrader;
+import org.example.langgraph4jlearn.rag.retrieval.HybridRetrievalConfig;
+import org.example.langgraph4jlearn.rag.retrieval.RetrievedDocument;
+import org.example.langgraph4jlearn.rag.retrieval.Retriever;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * AdaptiveRAGGraph测试类
+ */
+class AdaptiveRAGGraphTest {
+
+    // 记录收到的每一次查询
+    private static class RecordingRetriever implements Retriever {
+        private final List<String> queries = new CopyOnWriteArrayList<>();
+
+        @Override
+        public List<RetrievedDocument> retrieve(String query, int topK) {
+            queries.add(query);
+            return List.of(new RetrievedDocument("d" + queries.size(), "无关内容 " + queries.size(), 0.5));
+        }
+
+        @Override
+        public String version() {
+            return "v1";
+        }
+    }
+
+    @Test
+    void testEveryTransformReachesRetriever() throws Exception {
+        RecordingRetriever retriever = new RecordingRetriever();
+        // 文档永远不相关，图会把查询重写用到上限
+        try (AdaptiveRAGGraph graph = new AdaptiveRAGGraph(new RetrievalCache(), retriever, retriever,
+                HybridRetrievalConfig.defaults(),
+                new ParallelDocumentGrader((query, document) -> false, GradingConfig.defaults()),
+                new TemplateAnswerGenerator(Duration.ZERO))) {
+            graph.compile().invoke(Map.of(ComprehensiveWorkflowState.USER_INPUT, "检索增强生成在企业知识库里的落地实践"),
+                    RunnableConfig.builder().threadId("transform-test").build());
+        }
+
+        // 原查询 + 每次重写各调用一次检索器；答案评估随机触发的 re_retrieve 也会再调用，但查询不变
+        int expected = 1 + AdaptiveRAGGraph.MAX_TRANSFORMS;
+        assertTrue(retriever.queries.size() >= expected, "每次重写都应实际调用检索器: " + retriever.queries);
+        List<String> transforms = retriever.queries.subList(0, expected);
+        assertEquals(expected, new LinkedHashSet<>(transforms).size(), "每次重写的查询都应不同: " + transforms);
+        retriever.queries.subList(expected, retriever.queries.size())
+                .forEach(query -> assertEquals(transforms.get(expected - 1), query));
+    }
+
+    @Test
+    void testRetrievalBudgetCountsOnlyRetrieverCalls() throws Exception {
+        RecordingRetriever retriever = new RecordingRetriever();
+        RetrievalCache cache = new RetrievalCache();
+        try (AdaptiveRAGGraph graph = new AdaptiveRAGGraph(cache, retriever, retriever,
+                HybridRetrievalConfig.defaults(),
+                new ParallelDocumentGrader((query, document) -> true, GradingConfig.defaults()),
+                new TemplateAnswerGenerator(Duration.ZERO))) {
+            var app = graph.compile();
+            for (String threadId : List.of("budget-1", "budget-2")) {
+                int callsBefore = retriever.queries.size();
+                ComprehensiveWorkflowState result = app.invoke(
+                        Map.of(ComprehensiveWorkflowState.USER_INPUT, "检索增强生成在企业知识库里的落地实践"),
+                        RunnableConfig.builder().threadId(threadId).build()).orElseThrow();
+                // 第二次运行的首次检索命中全局缓存，不消耗检索预算
+                assertEquals(retriever.queries.size() - callsBefore,
+                        result.<Integer>value(AdaptiveRAGGraph.RETRIEVALS_USED).orElseThrow().intValue(), threadId);
+            }
+        }
+    }
+
+    @Test
+    void testAnswerRetriesStopAtLimit() throws Exception {
+        try (AdaptiveRAGGraph graph = new AdaptiveRAGGraph()) {
+            var route = graph.routeByAnswerQuality();
+            for (String quality : List.of("not_useful", "hallucination")) {
+                assertNotEquals("finish", route.apply(answerState(quality, AdaptiveRAGGraph.MAX_ANSWER_RETRIES - 1)));
+                assertEquals("finish", route.apply(answerState(quality, AdaptiveRAGGraph.MAX_ANSWER_RETRIES)), quality);
+            }
+            assertEquals("finish", route.apply(answerState("useful", 0)));
+        }
+    }
+
+    private static ComprehensiveWorkflowState answerState(String quality, int regenerateCount) {
+        return new ComprehensiveWorkflowState(Map.of(
+                AdaptiveRAGGraph.ANSWER_QUALITY, quality,
+                AdaptiveRAGGraph.REGENERATE_COUNT, regenerateCount));
+    }
+
+    @Test
+    void testRewriteBuildsOnPreviousQuery() {
+        String first = AdaptiveRAGGraph.rewriteQuery("RAG", null, 0);
+        String second = AdaptiveRAGGraph.rewriteQuery("RAG", first, 1);
+        String third = AdaptiveRAGGraph.rewriteQuery("RAG", second, 2);
+
+        assertTrue(second.startsWith(first));
+        assertTrue(third.startsWith(second));
+        assertNotEquals(second, third);
+    }
+}
@@ -0,0 +1,118 @@
+package org.example.langgraph4jlearn.agent.graph;
+
+import org.bsc.langgraph4j.CompiledGraph;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.bsc.langgraph4j.StateGraph;
+import org.bsc.langgraph4j.action.AsyncNodeActionWithConfig;
+import org.example.langgraph4jlearn.agent.state.ComprehensiveWorkflowState;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.bsc.langgraph4j.StateGraph.END;
+import static org.bsc.langgraph4j.StateGraph.START;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * CacheableSubGraph测试类
+ */
+class CacheableSubGraphTest {
+
+    private final AtomicInteger executions = new AtomicInteger();
+    private final List<String> threadIds = new CopyOnWriteArrayList<>();
+
+    /**
+     * 单节点子图: 记录执行次数和收到的 threadId，step_count +1，写一条带执行序号的日志
+     */
+    private CompiledGraph<ComprehensiveWorkflowState> subGraph() throws Exception {
+        StateGraph<ComprehensiveWorkflowState> graph =
+                new StateGraph<>(ComprehensiveWorkflowState.SCHEMA, ComprehensiveWorkflowState::new);
+        graph.addNode("consult", AsyncNodeActionWithConfig.node_async((state, config) -> {
+            int run = executions.incrementAndGet();
+            threadIds.add(config.threadId().orElse("none"));
+            return Map.of(
+                    ComprehensiveWorkflowState.STEP_COUNT, state.stepCount() + 1,
+                    ComprehensiveWorkflowState.FINAL_RESULT, "建议: " + state.userInput(),
+                    ComprehensiveWorkflowState.MESSAGES, "consulted",
+                    ComprehensiveWorkflowState.EXECUTION_LOG, "run#" + run
+            );
+        }));
+        graph.addEdge(START, "consult");
+        graph.addEdge("consult", END);
+        return graph.compile();
+    }
+
+    private CacheableSubGraph<ComprehensiveWorkflowState> cached(int maxEntries) throws Exception {
+        return new CacheableSubGraph<>(subGraph(), ComprehensiveWorkflowState.SCHEMA,
+                List.of(ComprehensiveWorkflowState.USER_INPUT), Set.of(ComprehensiveWorkflowState.STEP_COUNT),
+                ComprehensiveWorkflowState.EXECUTION_LOG, maxEntries);
+    }
+
+    private static Map<String, Object> run(CacheableSubGraph<ComprehensiveWorkflowState> node, String input,
+                                           int stepCount, String threadId) {
+        Map<String, Object> data = new HashMap<>();
+        data.put(ComprehensiveWorkflowState.USER_INPUT, input);
+        data.put(ComprehensiveWorkflowState.STEP_COUNT, stepCount);
+        data.put(ComprehensiveWorkflowState.MESSAGES, List.of("before"));
+        data.put(ComprehensiveWorkflowState.EXECUTION_LOG, List.of("parent"));
+        return node.asNode().apply(new ComprehensiveWorkflowState(data),
+                RunnableConfig.builder().threadId(threadId).build()).join();
+    }
+
+    @Test
+    void testMissRunsSubGraphAndReturnsDelta() throws Exception {
+        CacheableSubGraph<ComprehensiveWorkflowState> node = cached(8);
+
+        Map<String, Object> update = run(node, "头疼", 5, "thread-1");
+
+        assertEquals(1, executions.get());
+        assertEquals(6, update.get(ComprehensiveWorkflowState.STEP_COUNT));
+        assertEquals("建议: 头疼", update.get(ComprehensiveWorkflowState.FINAL_RESULT));
+        // appender 字段只返回子图新增的元素
+        assertEquals(List.of("consulted"), update.get(ComprehensiveWorkflowState.MESSAGES));
+        assertEquals(List.of("run#1"), update.get(ComprehensiveWorkflowState.EXECUTION_LOG));
+        // 父图的 RunnableConfig 传给了子图
+        assertEquals(List.of("thread-1"), threadIds);
+        assertEquals(1L, node.stats().get("misses"));
+    }
+
+    @Test
+    void testHitReplaysDeltaWithoutStaleExecutionLog() throws Exception {
+        CacheableSubGraph<ComprehensiveWorkflowState> node = cached(8);
+        run(node, "头疼", 5, "thread-1");
+
+        Map<String, Object> update = run(node, "头疼", 10, "thread-2");
+
+        assertEquals(1, executions.get());
+        assertEquals(1L, node.stats().get("hits"));
+        // 计数按增量叠加到当前值上
+        assertEquals(11, update.get(ComprehensiveWorkflowState.STEP_COUNT));
+        assertEquals("建议: 头疼", update.get(ComprehensiveWorkflowState.FINAL_RESULT));
+        assertEquals(List.of("consulted"), update.get(ComprehensiveWorkflowState.MESSAGES));
+        // 不回放上次执行的日志，只记一条命中
+        String log = String.valueOf(update.get(ComprehensiveWorkflowState.EXECUTION_LOG));
+        assertFalse(log.contains("run#1"), log);
+        assertTrue(log.contains("子图缓存命中"), log);
+    }
+
+    @Test
+    void testLeastRecentlyUsedEntryIsEvicted() throws Exception {
+        CacheableSubGraph<ComprehensiveWorkflowState> node = cached(2);
+        run(node, "a", 0, "t");
+        run(node, "b", 0, "t");
+        run(node, "a", 0, "t");  // 命中，a 变为最近使用
+        run(node, "c", 0, "t");  // 淘汰 b
+        assertEquals(3, executions.get());
+        assertEquals(2, node.stats().get("entries"));
+
+        run(node, "a", 0, "t");
+        assertEquals(3, executions.get());
+        run(node, "b", 0, "t");
+        assertEquals(4, executions.get());
+    }
+}
@@ -0,0 +1,53 @@
+package org.example.langgraph4jlearn.rag.budget;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * BudgetConfig测试类
+ */
+class BudgetConfigTest {
+
+    private static final BudgetConfig BUDGET = new BudgetConfig(2, 2, 4, Duration.ofSeconds(1));
+
+    @Test
+    void testCountLimitsGateEachLoop() {
+        // 一次完整路径后: 检索1 生成1 评估2
+        BudgetUsage firstPass = new BudgetUsage(1, 1, 2, 10);
+        assertTrue(BUDGET.allows(firstPass, 1, 1, 2), "re-retrieve fits exactly");
+        assertTrue(BUDGET.allows(firstPass, 0, 1, 1), "regenerate fits");
+
+        BudgetUsage afterRetry = new BudgetUsage(2, 2, 4, 20);
+        assertFalse(BUDGET.allows(afterRetry, 1, 1, 2));
+        assertFalse(BUDGET.allows(afterRetry, 0, 1, 1));
+        assertTrue(BUDGET.allows(afterRetry, 0, 0, 0));
+    }
+
+    @Test
+    void testWallClockProjectsAverageStepCost() {
+        // 4 步用了 600ms，平均 150ms；再走 4 步预计到 1200ms，超出 1s
+        BudgetUsage slow = new BudgetUsage(1, 1, 2, 600);
+        assertFalse(BUDGET.allows(slow, 1, 1, 2));
+        // 再走 2 步预计到 900ms，放得下
+        assertTrue(BUDGET.allows(slow, 0, 1, 1));
+
+        assertFalse(BUDGET.allows(new BudgetUsage(0, 0, 0, 1_500), 0, 1, 1));
+    }
+
+    @Test
+    void testReportAndValidation() {
+        Map<String, Object> report = BUDGET.report(new BudgetUsage(2, 1, 3, 1_200));
+        assertEquals(2, report.get("retrievals"));
+        assertEquals(true, report.get("retrievalsExhausted"));
+        assertEquals(false, report.get("generationsExhausted"));
+        assertEquals(true, report.get("wallClockExceeded"));
+        assertEquals(1_000L, report.get("wallClockMs"));
+
+        assertThrows(IllegalArgumentException.class, () -> new BudgetConfig(1, 1, 1, Duration.ofSeconds(1)));
+        assertThrows(IllegalArgumentException.class, () -> new BudgetConfig(1, 1, 2, Duration.ZERO));
+    }
+}
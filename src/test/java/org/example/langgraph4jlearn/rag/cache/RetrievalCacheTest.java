@@ -0,0 +1,111 @@
+package org.example.langgraph4jlearn.rag.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * RetrievalCache测试类
+ */
+class RetrievalCacheTest {
+
+    private RetrievalCache cache;
+    private AtomicInteger retrieverCalls;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RetrievalCache(2, 4);
+        retrieverCalls = new AtomicInteger();
+    }
+
+    private List<String> retriever(String query) {
+        retrieverCalls.incrementAndGet();
+        return List.of("doc:" + query);
+    }
+
+    @Test
+    void testRunLevelHit() {
+        cache.beginRun("run-1");
+        List<String> first = cache.retrieve("run-1", "standard", "LangGraph 是什么", "v1", this::retriever);
+        List<String> second = cache.retrieve("run-1", "standard", "  langgraph   是什么 ", "v1", this::retriever);
+
+        assertEquals(1, retrieverCalls.get(), "轻微改写的查询应命中运行级缓存");
+        assertSame(first, second, "缓存应返回同一个文档列表实例");
+
+        RetrievalCache.RunStats stats = cache.runStats("run-1");
+        assertEquals(1, stats.retrieverCalls());
+        assertEquals(1, stats.runHits());
+        assertEquals(1, stats.retrieverCallsSaved());
+    }
+
+    @Test
+    void testGlobalHitAcrossRuns() {
+        cache.beginRun("run-1");
+        cache.retrieve("run-1", "standard", "RAG", "v1", this::retriever);
+
+        cache.beginRun("run-2");
+        cache.retrieve("run-2", "standard", "RAG", "v1", this::retriever);
+
+        assertEquals(1, retrieverCalls.get());
+        assertEquals(1, cache.runStats("run-2").globalHits());
+    }
+
+    @Test
+    void testIndexVersionInvalidates() {
+        cache.beginRun("run-1");
+        cache.retrieve("run-1", "standard", "RAG", "v1", this::retriever);
+        cache.retrieve("run-1", "standard", "RAG", "v2", this::retriever);
+
+        assertEquals(2, retrieverCalls.get(), "索引版本变化后不应命中旧缓存");
+    }
+
+    @Test
+    void testGlobalEviction() {
+        cache.beginRun("run-1");
+        cache.retrieve("run-1", "standard", "q1", "v1", this::retriever);
+        cache.retrieve("run-1", "standard", "q2", "v1", this::retriever);
+        cache.retrieve("run-1", "standard", "q3", "v1", this::retriever);
+
+        // q1 已被全局 LRU 淘汰，新的运行需要重新检索
+        cache.beginRun("run-2");
+        cache.retrieve("run-2", "standard", "q1", "v1", this::retriever);
+        assertEquals(4, retrieverCalls.get());
+    }
+
+    @Test
+    void testPartialResultIsNotCached() {
+        cache.beginRun("run-1");
+        List<String> partial = cache.retrieveResult("run-1", "multi_step", "RAG", "v1",
+                query -> new RetrievalCache.Result(retriever(query), true));
+        assertEquals(List.of("doc:RAG"), partial);
+
+        // 同一运行和其他运行都不会复用部分结果，而是重新检索
+        cache.retrieveResult("run-1", "multi_step", "RAG", "v1", query -> RetrievalCache.Result.complete(retriever(query)));
+        assertEquals(2, retrieverCalls.get());
+        assertEquals(0, cache.runStats("run-1").runHits());
+
+        cache.beginRun("run-2");
+        cache.retrieve("run-2", "multi_step", "RAG", "v1", this::retriever);
+        assertEquals(2, retrieverCalls.get(), "完整结果应进入全局缓存");
+        assertEquals(1, cache.runStats("run-2").globalHits());
+        assertEquals(1L, cache.stats().get("partialResults"));
+    }
+
+    @Test
+    void testRefreshBypassesCacheAndReplacesEntry() {
+        cache.beginRun("run-1");
+        cache.retrieve("run-1", "standard", "RAG", "v1", this::retriever);
+        List<String> refreshed = cache.refresh("run-1", "standard", "RAG", "v1",
+                query -> RetrievalCache.Result.complete(List.of("fresh:" + query)));
+        assertEquals(List.of("fresh:RAG"), refreshed);
+        assertEquals(2, cache.runStats("run-1").retrieverCalls(), "refresh 应直接调用检索器");
+
+        // 之后的普通检索拿到的是刷新后的结果
+        assertEquals(refreshed, cache.retrieve("run-1", "standard", "RAG", "v1", this::retriever));
+        assertEquals(1, retrieverCalls.get());
+    }
+}
@@ -0,0 +1,178 @@
+package org.example.langgraph4jlearn.rag.embedding;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * EmbeddingService测试类
+ */
+class EmbeddingServiceTest {
+
+    /**
+     * 包一层本地哈希向量，记录 embedAll 调用次数和每次的批大小
+     */
+    private static class CountingEmbedder implements Embedder {
+        final HashingEmbedder delegate = new HashingEmbedder();
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger texts = new AtomicInteger();
+        final List<Integer> batchSizes = new ArrayList<>();
+        volatile boolean failing;
+
+        @Override
+        public int dimension() {
+            return delegate.dimension();
+        }
+
+        @Override
+        public float[] embed(String text) {
+            return embedAll(List.of(text)).get(0);
+        }
+
+        @Override
+        public List<float[]> embedAll(List<String> batch) {
+            calls.incrementAndGet();
+            texts.addAndGet(batch.size());
+            synchronized (batchSizes) {
+                batchSizes.add(batch.size());
+            }
+            if (failing) {
+                throw new IllegalStateException("model unavailable");
+            }
+            return delegate.embedAll(batch);
+        }
+    }
+
+    @Test
+    void testMergesConcurrentRequestsIntoBatches() throws Exception {
+        CountingEmbedder backend = new CountingEmbedder();
+        int callers = 32;
+        try (EmbeddingService service = new EmbeddingService(backend,
+                new EmbeddingServiceConfig(16, Duration.ofMillis(50), 1_000))) {
+            ExecutorService pool = Executors.newFixedThreadPool(callers);
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<float[]>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                String text = "query " + i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return service.embed(text);
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < callers; i++) {
+                assertArrayEquals(backend.delegate.embed("query " + i), futures.get(i).get());
+            }
+            pool.shutdown();
+
+            assertEquals(callers, backend.texts.get());
+            assertTrue(backend.calls.get() < callers, "并发请求应被合并, calls=" + backend.calls.get());
+            assertTrue(backend.batchSizes.stream().allMatch(size -> size <= 16), "批大小不超过上限");
+        }
+    }
+
+    @Test
+    void testIdenticalContentIsEmbeddedOnce() {
+        CountingEmbedder backend = new CountingEmbedder();
+        try (EmbeddingService service = new EmbeddingService(backend)) {
+            List<float[]> vectors = service.embedAll(List.of("同一段文字", "另一段文字", "同一段文字"));
+            assertArrayEquals(vectors.get(0), vectors.get(2));
+            assertEquals(2, backend.texts.get(), "批内重复内容只算一次");
+
+            float[] again = service.embed("同一段文字");
+            assertArrayEquals(vectors.get(0), again);
+            assertEquals(2, backend.texts.get(), "第二次命中缓存");
+
+            // 返回副本，调用方修改不影响缓存
+            again[0] = 42f;
+            assertArrayEquals(vectors.get(0), service.embed("同一段文字"));
+
+            assertEquals(5L, service.stats().get("requests"));
+            assertEquals(2L, service.stats().get("cacheHits"));
+            assertEquals(1L, service.stats().get("deduplicated"));
+        }
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsedEntries() {
+        CountingEmbedder backend = new CountingEmbedder();
+        try (EmbeddingService service = new EmbeddingService(backend,
+                new EmbeddingServiceConfig(8, Duration.ofMillis(1), 2))) {
+            service.embed("a");
+            service.embed("b");
+            service.embed("a");
+            service.embed("c");
+            assertEquals(2, service.stats().get("cacheSize"));
+            service.embed("a");
+            assertEquals(3, backend.texts.get(), "a 最近用过，不应被淘汰");
+            service.embed("b");
+            assertEquals(4, backend.texts.get(), "b 已被淘汰，需要重新计算");
+        }
+    }
+
+    @Test
+    void testBackendFailurePropagatesAndIsNotCached() {
+        CountingEmbedder backend = new CountingEmbedder();
+        try (EmbeddingService service = new EmbeddingService(backend)) {
+            backend.failing = true;
+            IllegalStateException error = assertThrows(IllegalStateException.class, () -> service.embed("x"));
+            assertEquals("model unavailable", error.getMessage());
+
+            backend.failing = false;
+            assertArrayEquals(backend.delegate.embed("x"), service.embed("x"));
+            assertEquals(2, backend.calls.get());
+        }
+    }
+
+    @Test
+    void testRejectsRequestsAfterClose() {
+        EmbeddingService service = new EmbeddingService(new HashingEmbedder());
+        service.close();
+        assertThrows(IllegalStateException.class, () -> service.embed("late"));
+    }
+
+    @Test
+    void testRequestsRacingCloseAlwaysComplete() throws Exception {
+        ExecutorService callers = Executors.newFixedThreadPool(4);
+        try {
+            for (int round = 0; round < 50; round++) {
+                EmbeddingService service = new EmbeddingService(new HashingEmbedder(),
+                        new EmbeddingServiceConfig(8, Duration.ofMillis(1), 1_000));
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<?>> calls = new ArrayList<>();
+                for (int c = 0; c < 4; c++) {
+                    int caller = c;
+                    calls.add(callers.submit(() -> {
+                        start.await();
+                        for (int i = 0; i < 20; i++) {
+                            try {
+                                service.embed("round text " + caller + "-" + i);
+                            } catch (IllegalStateException closed) {
+                                return null;
+                            }
+                        }
+                        return null;
+                    }));
+                }
+                start.countDown();
+                service.close();
+                // 与 close 并发的请求要么完成要么失败，不能永远挂起
+                for (Future<?> call : calls) {
+                    call.get(10, TimeUnit.SECONDS);
+                }
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package org.example.langgraph4jlearn.rag.generation;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.model.chat.StreamingChatModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import org.bsc.langgraph4j.RunnableConfig;
+import org.example.langgraph4jlearn.agent.graph.AdaptiveRAGGraph;
+import org.example.langgraph4jlearn.agent.state.ComprehensiveWorkflowState;
+import org.example.langgraph4jlearn.rag.cache.RetrievalCache;
+import org.example.langgraph4jlearn.rag.grading.GradingConfig;
+import org.example.langgraph4jlearn.rag.grading.LexicalOverlapGrader;
+import org.example.langgraph4jlearn.rag.grading.ParallelDocumentGrader;
+import org.example.langgraph4jlearn.rag.retrieval.HybridRetrievalConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 流式答案生成测试类
+ */
+class StreamingGenerationTest {
+
+    /**
+     * 本地假流式模型：在独立线程上每隔 delay 推一个片段，最后给出完整响应；按发生顺序记录推送事件
+     */
+    private static class FakeStreamingChatModel implements StreamingChatModel {
+        final List<String> tokens;
+        final Duration delay;
+        final RuntimeException failure;
+        final List<String> events = new CopyOnWriteArrayList<>();
+        volatile ChatRequest lastRequest;
+
+        FakeStreamingChatModel(List<String> tokens, Duration delay, RuntimeException failure) {
+            this.tokens = tokens;
+            this.delay = delay;
+            this.failure = failure;
+        }
+
+        @Override
+        public void doChat(ChatRequest chatRequest, StreamingChatResponseHandler handler) {
+            lastRequest = chatRequest;
+            Thread worker = new Thread(() -> {
+                try {
+                    for (String token : tokens) {
+                        Thread.sleep(delay.toMillis());
+                        events.add("partial:" + token);
+                        handler.onPartialResponse(token);
+                    }
+                    if (failure != null) {
+                        handler.onError(failure);
+                        return;
+                    }
+                    events.add("complete");
+                    handler.onCompleteResponse(ChatResponse.builder()
+                            .aiMessage(AiMessage.from(String.join("", tokens)))
+                            .build());
+                } catch (InterruptedException e) {
+                    handler.onError(e);
+                }
+            });
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    @Test
+    void testLangChain4jGeneratorForwardsPartialResponsesAsTheyArrive() {
+        List<String> tokens = List.of("RAG", "先检索", "相关文档，", "再生成", "答案。");
+        FakeStreamingChatModel model = new FakeStreamingChatModel(tokens, Duration.ofMillis(5), null);
+        LangChain4jAnswerGenerator generator = new LangChain4jAnswerGenerator(model, Duration.ofSeconds(5));
+        List<String> received = new CopyOnWriteArrayList<>();
+
+        String answer = generator.generate(GenerationRequest.grounded("什么是RAG", "standard",
+                List.of("doc-rag (0.900): RAG结合了检索和生成")), token -> {
+            received.add(token);
+            model.events.add("received:" + token);
+        });
+
+        assertEquals(tokens, received);
+        assertEquals(String.join("", tokens), answer);
+        // 每个片段在模型推下一个片段之前就交给了回调，不等整段生成结束
+        List<String> expected = new ArrayList<>();
+        for (String token : tokens) {
+            expected.add("partial:" + token);
+            expected.add("received:" + token);
+        }
+        expected.add("complete");
+        assertEquals(expected, model.events);
+        assertEquals(2, model.lastRequest.messages().size());
+    }
+
+    @Test
+    void testLangChain4jGeneratorSurfacesModelErrorAndTimeout() {
+        FakeStreamingChatModel failing = new FakeStreamingChatModel(List.of("半"), Duration.ofMillis(5),
+                new IllegalArgumentException("rate limited"));
+        IllegalStateException error = assertThrows(IllegalStateException.class, () ->
+                new LangChain4jAnswerGenerator(failing, Duration.ofSeconds(5))
+                        .generate(GenerationRequest.direct("q", "simple"), token -> {
+                        }));
+        assertTrue(error.getMessage().contains("rate limited"));
+
+        FakeStreamingChatModel slow = new FakeStreamingChatModel(List.of("慢"), Duration.ofSeconds(2), null);
+        assertThrows(IllegalStateException.class, () ->
+                new LangChain4jAnswerGenerator(slow, Duration.ofMillis(50))
+                        .generate(GenerationRequest.direct("q", "simple"), token -> {
+                        }));
+    }
+
+    @Test
+    void testLangChain4jGeneratorStopsForwardingAfterTimeout() throws Exception {
+        FakeStreamingChatModel slow = new FakeStreamingChatModel(List.of("迟", "到"), Duration.ofMillis(150), null);
+        List<String> received = new CopyOnWriteArrayList<>();
+        assertThrows(IllegalStateException.class, () ->
+                new LangChain4jAnswerGenerator(slow, Duration.ofMillis(50))
+                        .generate(GenerationRequest.direct("q", "simple"), received::add));
+
+        // 模型在超时后照常推完所有片段，回调一个都收不到
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!slow.events.contains("complete") && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(slow.events.contains("complete"));
+        assertEquals(List.of(), received);
+    }
+
+    @Test
+    void testGraphPublishesTokensBeforeGenerateNodeCompletes() throws Exception {
+        AdaptiveRAGGraph graph = new AdaptiveRAGGraph(new RetrievalCache(), AdaptiveRAGGraph.defaultRetriever(),
+                AdaptiveRAGGraph.defaultLexicalRetriever(), HybridRetrievalConfig.defaults(),
+                new ParallelDocumentGrader(new LexicalOverlapGrader(), GradingConfig.defaults()),
+                new TemplateAnswerGenerator(Duration.ofMillis(1)));
+        String runId = "stream-test";
+        AtomicInteger nodesCompleted = new AtomicInteger();
+        List<TokenStreams.TokenEvent> events = new CopyOnWriteArrayList<>();
+        List<Integer> nodesCompletedAtToken = new CopyOnWriteArrayList<>();
+        List<String> directAnswers = new ArrayList<>();
+        AtomicInteger directOutputPosition = new AtomicInteger(-1);
+
+        try (graph; TokenStreams.Subscription ignored = graph.getTokenStreams().subscribe(runId, event -> {
+            events.add(event);
+            nodesCompletedAtToken.add(nodesCompleted.get());
+        })) {
+            var config = RunnableConfig.builder().threadId(runId).build();
+            for (var output : graph.compile().stream(Map.of(ComprehensiveWorkflowState.USER_INPUT, "什么是RAG"),
+                    config)) {
+                int position = nodesCompleted.incrementAndGet();
+                if (AdaptiveRAGGraph.DIRECT_GENERATE.equals(output.node())) {
+                    directOutputPosition.set(position);
+                    directAnswers.add(output.state().<String>value(AdaptiveRAGGraph.GENERATED_ANSWER).orElseThrow());
+                }
+            }
+        }
+
+        assertEquals(1, directAnswers.size());
+        List<TokenStreams.TokenEvent> direct = events.stream()
+                .filter(event -> AdaptiveRAGGraph.DIRECT_GENERATE.equals(event.node())).toList();
+        assertTrue(direct.size() > 1, "tokens: " + direct.size());
+        assertEquals(directAnswers.get(0), String.join("", direct.stream().map(TokenStreams.TokenEvent::token).toList()));
+        for (int i = 0; i < direct.size(); i++) {
+            assertEquals(i, direct.get(i).index());
+        }
+        // 全部片段都在 direct_generate 的节点输出之前到达，且期间没有其他节点完成
+        int firstDirect = events.indexOf(direct.get(0));
+        int lastDirect = events.indexOf(direct.get(direct.size() - 1));
+        int startNodes = nodesCompletedAtToken.get(firstDirect);
+        int endNodes = nodesCompletedAtToken.get(lastDirect);
+        assertEquals(startNodes, endNodes);
+        assertEquals(directOutputPosition.get() - 1, endNodes);
+
+        // 取消订阅后不再收到片段，也不影响生成
+        int before = events.size();
+        graph.getTokenStreams().publisher(runId, AdaptiveRAGGraph.GENERATE_ANSWER).accept("late");
+        assertEquals(before, events.size());
+    }
+}
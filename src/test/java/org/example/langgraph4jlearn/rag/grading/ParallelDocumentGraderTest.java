@@ -0,0 +1,93 @@
+package org.example.langgraph4jlearn.rag.grading;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * ParallelDocumentGrader测试类
+ */
+class ParallelDocumentGraderTest {
+
+    private static final List<String> DOCS = IntStream.range(0, 20).mapToObj(i -> (i % 2 == 0 ? "hit-" : "miss-") + i)
+            .toList();
+
+    /**
+     * 以 "hit-" 开头的文档相关，记录调用次数和最大并发
+     */
+    private static class CountingGrader implements DocumentGrader {
+        final AtomicInteger calls = new AtomicInteger();
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+
+        @Override
+        public boolean isRelevant(String query, String document) {
+            calls.incrementAndGet();
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                running.decrementAndGet();
+            }
+            if (document.startsWith("boom")) {
+                throw new IllegalStateException("grader failure");
+            }
+            return document.startsWith("hit-");
+        }
+    }
+
+    @Test
+    void testStopsOnceEnoughRelevantFound() {
+        CountingGrader grader = new CountingGrader();
+        try (ParallelDocumentGrader parallel = new ParallelDocumentGrader(grader, new GradingConfig(3, 3, 1))) {
+            ParallelDocumentGrader.GradingResult result = parallel.grade("q", DOCS);
+            assertEquals(3, result.relevant().size());
+            assertTrue(result.sufficient());
+            assertTrue(result.stoppedEarly());
+            assertTrue(grader.calls.get() < DOCS.size(), "calls: " + grader.calls.get());
+            assertTrue(grader.maxRunning.get() <= 3, "max concurrency: " + grader.maxRunning.get());
+            // 通过的文档保持检索顺序
+            List<String> sorted = result.relevant().stream().sorted((a, b) ->
+                    Integer.compare(DOCS.indexOf(a), DOCS.indexOf(b))).toList();
+            assertEquals(sorted, result.relevant());
+        }
+    }
+
+    @Test
+    void testStopsWhenMinimumBecomesUnreachable() {
+        CountingGrader grader = new CountingGrader();
+        List<String> docs = List.of("miss-1", "miss-2", "miss-3", "hit-4", "hit-5", "miss-6");
+        try (ParallelDocumentGrader parallel = new ParallelDocumentGrader(grader, new GradingConfig(1, 5, 5))) {
+            ParallelDocumentGrader.GradingResult result = parallel.grade("q", docs);
+            // 第 2 篇不相关后最多只剩 4 篇，凑不够 5 篇
+            assertFalse(result.sufficient());
+            assertEquals(2, result.graded());
+            assertEquals(4, result.skipped());
+            assertEquals(2, grader.calls.get());
+        }
+    }
+
+    @Test
+    void testFailedGradeCountsAsNotRelevant() {
+        CountingGrader grader = new CountingGrader();
+        try (ParallelDocumentGrader parallel = new ParallelDocumentGrader(grader, GradingConfig.defaults())) {
+            ParallelDocumentGrader.GradingResult result = parallel.grade("q", List.of("boom", "hit-1", "miss-2"));
+            assertEquals(List.of("hit-1"), result.relevant());
+            assertEquals(3, result.graded());
+            assertFalse(result.stoppedEarly());
+        }
+    }
+
+    @Test
+    void testLexicalOverlapGrader() {
+        LexicalOverlapGrader grader = new LexicalOverlapGrader();
+        assertTrue(grader.isRelevant("什么是RAG", "RAG结合了检索和生成，先检索相关文档再生成答案"));
+        assertFalse(grader.isRelevant("布洛芬的副作用", "向量数据库用于存储和检索文档嵌入"));
+    }
+}
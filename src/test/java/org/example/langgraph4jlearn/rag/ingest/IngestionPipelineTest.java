@@ -0,0 +1,199 @@
+package org.example.langgraph4jlearn.rag.ingest;
+
+import org.example.langgraph4jlearn.rag.embedding.HashingEmbedder;
+import org.example.langgraph4jlearn.rag.retrieval.Bm25Retriever;
+import org.example.langgraph4jlearn.rag.retrieval.PersistentVectorRetriever;
+import org.example.langgraph4jlearn.rag.retrieval.VectorRetriever;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * IngestionPipeline测试类
+ */
+class IngestionPipelineTest {
+
+    private static final IngestionConfig CONFIG = new IngestionConfig(80, 200, 400, 30, 4, 8, 8);
+
+    @TempDir
+    Path directory;
+
+    private static String paragraphs(int count, String tag) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append("## Section ").append(i).append('\n')
+                    .append("Paragraph ").append(i).append(" of ").append(tag)
+                    .append(" explains topic").append(i).append(" with enough words to fill a chunk. ")
+                    .append("It continues with more detail about topic").append(i).append(".\n\n");
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void testIngestFeedsVectorAndLexicalRetrievers() throws Exception {
+        Files.writeString(directory.resolve("guide.md"), paragraphs(10, "guide"));
+        Files.writeString(directory.resolve("drugs.jsonl"),
+                "{\"id\":\"ibuprofen\",\"content\":\"布洛芬缓释胶囊用于缓解轻至中度疼痛\"}\n"
+                        + "not json\n"
+                        + "{\"text\":\"阿莫西林胶囊用于敏感菌所致的感染\"}\n");
+        Files.writeString(directory.resolve("ignored.pdf"), "binary");
+
+        VectorRetriever vector = new VectorRetriever(new HashingEmbedder());
+        Bm25Retriever lexical = new Bm25Retriever();
+        IngestionPipeline pipeline = new IngestionPipeline(new HashingEmbedder(),
+                List.of(ChunkSink.of(vector), ChunkSink.of(lexical)), CONFIG);
+        IngestionPipeline.IngestionReport report = pipeline.ingest(directory);
+
+        assertEquals(2, report.files());
+        assertEquals(report.chunks(), report.written());
+        assertEquals(report.written(), vector.size());
+        assertEquals(report.written(), lexical.size());
+        // JSONL 块 ID: 文件路径/记录ID#内容哈希，没有 id 字段时用行号
+        assertTrue(lexical.retrieve("布洛芬", 1).get(0).id().contains("drugs.jsonl/ibuprofen#"));
+        assertTrue(lexical.retrieve("阿莫西林", 1).get(0).id().contains("drugs.jsonl/3#"));
+        assertTrue(lexical.retrieve("topic7", 1).get(0).content().contains("topic7"));
+        assertTrue(vector.retrieve("Paragraph 3 of guide explains topic3", 3).stream()
+                .anyMatch(doc -> doc.content().contains("topic3")));
+    }
+
+    @Test
+    void testReingestUpdatesOnlyChangedChunks() throws Exception {
+        Path file = directory.resolve("notes.md");
+        Files.writeString(file, paragraphs(40, "v1"));
+        Bm25Retriever lexical = new Bm25Retriever();
+        IngestionPipeline pipeline = new IngestionPipeline(new HashingEmbedder(), List.of(ChunkSink.of(lexical)),
+                CONFIG);
+        IngestionPipeline.IngestionReport first = pipeline.ingest(directory);
+        assertTrue(first.chunks() > 10, "chunks: " + first.chunks());
+
+        IngestionPipeline.IngestionReport unchanged = pipeline.ingest(directory);
+        assertEquals(1, unchanged.unchangedFiles());
+        assertEquals(0, unchanged.written());
+
+        // 只改中间一段
+        String edited = paragraphs(40, "v1").replace("explains topic20 ", "describes the rewritten topic20 ");
+        Files.writeString(file, edited);
+        Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis() + 5_000));
+        IngestionPipeline.IngestionReport second = pipeline.ingest(directory);
+        assertTrue(second.written() <= 3, "written: " + second.written());
+        assertEquals(second.written(), second.deleted());
+        assertTrue(second.unchangedChunks() >= first.chunks() - 3);
+        assertEquals(second.chunks(), lexical.size());
+        assertTrue(lexical.retrieve("rewritten", 1).get(0).content().contains("rewritten topic20"));
+
+        Files.delete(file);
+        IngestionPipeline.IngestionReport removed = pipeline.ingest(directory);
+        assertEquals(second.chunks(), removed.deleted());
+        assertEquals(0, lexical.size());
+        assertEquals(0, pipeline.sourceCount());
+    }
+
+    @Test
+    void testManifestSurvivesRestart() throws Exception {
+        Path docs = Files.createDirectories(directory.resolve("docs"));
+        Path index = directory.resolve("index");
+        Path manifest = index.resolve("ingest-manifest.json");
+        Path file = docs.resolve("notes.md");
+        Files.writeString(file, paragraphs(20, "v1"));
+
+        int chunks;
+        try (PersistentVectorRetriever vector = new PersistentVectorRetriever(new HashingEmbedder(), index)) {
+            chunks = new IngestionPipeline(new HashingEmbedder(), List.of(ChunkSink.of(vector)), CONFIG, manifest)
+                    .ingest(docs).written();
+        }
+        assertTrue(Files.exists(manifest));
+
+        // 重启: 新的检索器和流水线，未变的文件不再向量化；删除的文件的块从持久化索引里删掉
+        try (PersistentVectorRetriever vector = new PersistentVectorRetriever(new HashingEmbedder(), index)) {
+            IngestionPipeline pipeline = new IngestionPipeline(new HashingEmbedder(),
+                    List.of(ChunkSink.of(vector)), CONFIG, manifest);
+            assertEquals(1, pipeline.sourceCount());
+            IngestionPipeline.IngestionReport unchanged = pipeline.ingest(docs);
+            assertEquals(1, unchanged.unchangedFiles());
+            assertEquals(0, unchanged.written());
+
+            Files.delete(file);
+            assertEquals(chunks, pipeline.ingest(docs).deleted());
+            assertEquals(0, vector.size());
+        }
+
+        // 有内存目标时，重启后的内存目标是空的，文件要重新写入
+        Files.writeString(file, paragraphs(20, "v1"));
+        try (PersistentVectorRetriever vector = new PersistentVectorRetriever(new HashingEmbedder(), index)) {
+            new IngestionPipeline(new HashingEmbedder(), List.of(ChunkSink.of(vector)), CONFIG, manifest).ingest(docs);
+        }
+        try (PersistentVectorRetriever vector = new PersistentVectorRetriever(new HashingEmbedder(), index)) {
+            Bm25Retriever lexical = new Bm25Retriever();
+            IngestionPipeline.IngestionReport refill = new IngestionPipeline(new HashingEmbedder(),
+                    List.of(ChunkSink.of(vector), ChunkSink.of(lexical)), CONFIG, manifest).ingest(docs);
+            assertEquals(0, refill.unchangedFiles());
+            assertEquals(refill.chunks(), refill.written());
+            assertEquals(refill.written(), lexical.size());
+            assertEquals(refill.written(), vector.size());
+        }
+    }
+
+    @Test
+    void testChunkerBoundsChunkSizeAndOverlaps() throws IOException {
+        TextChunker chunker = new TextChunker(CONFIG);
+        List<String> chunks = new ArrayList<>();
+        // 一百万字符的单行输入，逐块读取，不整体进内存
+        Reader endless = new Reader() {
+            private int remaining = 1_000_000;
+
+            @Override
+            public int read(char[] buffer, int offset, int length) {
+                if (remaining == 0) {
+                    return -1;
+                }
+                int n = Math.min(length, remaining);
+                for (int i = 0; i < n; i++) {
+                    buffer[offset + i] = (remaining - i) % 7 == 0 ? ' ' : 'x';
+                }
+                remaining -= n;
+                return n;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        chunker.chunk(endless, chunks::add);
+        assertTrue(chunks.size() > 1_000_000 / CONFIG.maxChunkChars());
+        for (int i = 0; i < chunks.size(); i++) {
+            assertTrue(chunks.get(i).length() <= CONFIG.maxChunkChars() + CONFIG.overlapChars(),
+                    "chunk " + i + " length " + chunks.get(i).length());
+        }
+        String tail = TextChunker.overlapTail(chunks.get(0), CONFIG.overlapChars());
+        assertTrue(chunks.get(1).startsWith(tail));
+    }
+
+    @Test
+    void testFailingSinkSurfacesErrorWithoutHanging() throws Exception {
+        Files.writeString(directory.resolve("a.md"), paragraphs(50, "a"));
+        ChunkSink failing = new ChunkSink() {
+            @Override
+            public void upsert(List<Chunk> batch) {
+                throw new IllegalStateException("index unavailable");
+            }
+
+            @Override
+            public void delete(Collection<String> ids) {
+            }
+        };
+        IngestionPipeline pipeline = new IngestionPipeline(new HashingEmbedder(), List.of(failing), CONFIG);
+        IOException error = assertThrows(IOException.class, () -> pipeline.ingest(directory));
+        assertTrue(error.getMessage().contains("index unavailable"));
+        assertEquals(0, pipeline.sourceCount());
+    }
+}
@@ -0,0 +1,193 @@
+package org.example.langgraph4jlearn.rag.lexical;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Bm25Index测试类
+ */
+class Bm25IndexTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testChineseBigramsMatchExactDrugNames() {
+        Bm25Index index = new Bm25Index();
+        index.upsert("drug-1", "阿莫西林胶囊用于敏感菌所致的呼吸道感染");
+        index.upsert("drug-2", "布洛芬缓释胶囊用于缓解轻至中度疼痛");
+        index.upsert("drug-3", "对乙酰氨基酚片用于普通感冒引起的发热");
+        index.upsert("en-1", "Ibuprofen 200mg tablets relieve pain and fever");
+        index.flush();
+
+        assertEquals("drug-2", index.search("布洛芬", 1).get(0).id());
+        assertEquals("drug-1", index.search("阿莫西林的用法", 1).get(0).id());
+        assertEquals("en-1", index.search("IBUPROFEN dosage", 1).get(0).id());
+        assertTrue(index.search("华法林", 3).isEmpty());
+
+        List<Bm25Index.Hit> hits = index.search("胶囊", 5);
+        assertEquals(2, hits.size());
+        assertTrue(hits.get(0).score() >= hits.get(1).score());
+    }
+
+    @Test
+    void testWandMatchesExhaustiveScoring() {
+        Bm25Index index = new Bm25Index(700, 4);
+        Random random = new Random(7);
+        for (int i = 0; i < 5_000; i++) {
+            index.upsert("doc-" + i, zipfDocument(random, 2_000, 5 + random.nextInt(60)));
+        }
+        // 删一部分，更新一部分，让多个段里都有墓碑
+        for (int i = 0; i < 5_000; i += 11) {
+            index.delete("doc-" + i);
+        }
+        for (int i = 3; i < 5_000; i += 13) {
+            index.upsert("doc-" + i, zipfDocument(random, 2_000, 20));
+        }
+        index.flush();
+        assertTrue(index.segmentCount() > 1);
+
+        for (int q = 0; q < 200; q++) {
+            String query = zipfDocument(random, 2_000, 1 + random.nextInt(5));
+            List<Bm25Index.Hit> wand = index.search(query, 10, true);
+            List<Bm25Index.Hit> exhaustive = index.search(query, 10, false);
+            assertEquals(exhaustive, wand, query);
+        }
+    }
+
+    @Test
+    void testUpdatesAndDeletesAcrossSegments() {
+        Bm25Index index = new Bm25Index(2, 3);
+        index.upsert("a", "redis cache eviction");
+        index.upsert("b", "postgres vacuum");
+        index.upsert("c", "kafka consumer lag");
+        assertEquals("a", index.search("redis", 1).get(0).id());
+
+        index.upsert("a", "memcached slab allocator");
+        // 旧版本的删除标记立即生效
+        assertTrue(index.search("redis", 3).isEmpty());
+        assertEquals("memcached slab allocator", index.search("memcached", 1).get(0).content());
+
+        assertTrue(index.delete("b"));
+        assertFalse(index.delete("b"));
+        assertTrue(index.search("vacuum", 3).isEmpty());
+        assertEquals(2, index.size());
+
+        for (int i = 0; i < 20; i++) {
+            index.upsert("extra-" + i, "filler text " + i);
+        }
+        index.flush();
+        assertTrue(index.segmentCount() <= 3, "segments: " + index.segmentCount());
+        assertEquals(22, index.size());
+        assertEquals("c", index.search("kafka lag", 1).get(0).id());
+    }
+
+    @Test
+    void testSearchOnlyReadsPublishedSegments() throws Exception {
+        Bm25Index manual = new Bm25Index(100, 2, Duration.ofHours(1));
+        manual.upsert("a", "redis cache eviction");
+        // 查询不替写入方封段
+        assertTrue(manual.search("redis", 1).isEmpty());
+        assertEquals(0, manual.segmentCount());
+        manual.flush();
+        assertEquals("a", manual.search("redis", 1).get(0).id());
+
+        // 未满阈值的写入由后台刷新线程封段
+        Bm25Index refreshed = new Bm25Index(100, 2, Duration.ofMillis(20));
+        refreshed.upsert("b", "kafka consumer lag");
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (refreshed.segmentCount() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(1, refreshed.segmentCount());
+        assertEquals("b", refreshed.search("kafka", 1).get(0).id());
+    }
+
+    @Test
+    void testMappedSegmentReadsSamePostings() throws Exception {
+        Bm25SegmentWriter writer = new Bm25SegmentWriter();
+        Random random = new Random(9);
+        for (int i = 0; i < 1_000; i++) {
+            writer.add("doc-" + i, zipfDocument(random, 300, 30));
+        }
+        Bm25Segment heap = writer.build();
+        Path file = directory.resolve("bm25.seg");
+        heap.writeTo(file);
+        Bm25Segment mapped = Bm25Segment.open(file);
+
+        assertEquals(heap.docCount(), mapped.docCount());
+        assertEquals(heap.termCount(), mapped.termCount());
+        assertEquals(heap.content(512), mapped.content(512));
+        assertEquals(512, mapped.docOf("doc-512"));
+
+        // 高频词的倒排超过跳表间隔，advance 走跳表后结果要和逐个 next 一致
+        Bm25Segment.TermInfo info = mapped.termInfo("t0");
+        assertTrue(info.df() > 2 * Bm25Segment.SKIP_INTERVAL);
+        PostingsCursor sequential = heap.postings(heap.termInfo("t0"));
+        PostingsCursor skipping = mapped.postings(info);
+        for (int target = 0; target < 1_000; target += 97) {
+            while (sequential.doc() < target) {
+                sequential.next();
+            }
+            assertEquals(sequential.doc(), skipping.advance(target));
+            assertEquals(sequential.freq(), skipping.freq());
+        }
+    }
+
+    /**
+     * 查询延迟随语料规模变化，默认不跑:
+     * mvn test -Dtest=Bm25IndexTest -Drag.benchmark=true [-Drag.benchmark.size=1000000]
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "rag.benchmark", matches = "true")
+    void benchmarkQueryLatencyByCorpusSize() {
+        int maxSize = Integer.getInteger("rag.benchmark.size", 1_000_000);
+        Random random = new Random(11);
+        String[] queries = new String[500];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = zipfDocument(random, 50_000, 2 + random.nextInt(3));
+        }
+        for (int size = 10_000; size <= maxSize; size *= 10) {
+            Bm25Index index = new Bm25Index(50_000, Bm25Index.DEFAULT_MERGE_FACTOR);
+            long start = System.nanoTime();
+            for (int i = 0; i < size; i++) {
+                index.upsert("doc-" + i, zipfDocument(random, 50_000, 20 + random.nextInt(80)));
+            }
+            index.flush();
+            double buildSeconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("corpus=%d build=%.1fs segments=%d bytes=%dMB%n", size, buildSeconds,
+                    index.segmentCount(), index.sizeInBytes() >> 20);
+            for (boolean prune : new boolean[]{true, false}) {
+                long[] latencies = new long[queries.length];
+                for (int i = 0; i < queries.length; i++) {
+                    long t = System.nanoTime();
+                    index.search(queries[i], 10, prune);
+                    latencies[i] = System.nanoTime() - t;
+                }
+                Arrays.sort(latencies);
+                System.out.printf("  %-10s p50=%.3fms p99=%.3fms%n", prune ? "wand" : "exhaustive",
+                        latencies[latencies.length / 2] / 1e6, latencies[latencies.length * 99 / 100] / 1e6);
+            }
+        }
+    }
+
+    // 词频服从 Zipf 分布的合成文档，词表 t0..t{vocabulary-1}
+    private static String zipfDocument(Random random, int vocabulary, int length) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            int rank = (int) Math.floor(Math.pow(vocabulary + 1, random.nextDouble())) - 1;
+            builder.append('t').append(Math.min(rank, vocabulary - 1)).append(' ');
+        }
+        return builder.toString();
+    }
+}
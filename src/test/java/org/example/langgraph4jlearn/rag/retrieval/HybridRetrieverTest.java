@@ -0,0 +1,148 @@
+package org.example.langgraph4jlearn.rag.retrieval;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HybridRetriever测试类
+ */
+class HybridRetrieverTest {
+
+    private static Retriever fixed(long delayMs, String... ids) {
+        return new Retriever() {
+            @Override
+            public List<RetrievedDocument> retrieve(String query, int topK) {
+                try {
+                    Thread.sleep(delayMs);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return List.of();
+                }
+                double score = ids.length;
+                List<RetrievedDocument> docs = new java.util.ArrayList<>();
+                for (String id : ids) {
+                    docs.add(new RetrievedDocument(id, "content of " + id, score--));
+                }
+                return docs;
+            }
+
+            @Override
+            public String version() {
+                return "fixed";
+            }
+        };
+    }
+
+    private static HybridRetriever hybrid(int fanOut, long budgetMs, Retriever vector, Retriever lexical) {
+        Map<String, Retriever> sources = new LinkedHashMap<>();
+        sources.put("vector", vector);
+        sources.put("lexical", lexical);
+        return new HybridRetriever(sources, new HybridRetrievalConfig(fanOut, Duration.ofMillis(budgetMs), 60, 10));
+    }
+
+    @Test
+    void testReciprocalRankFusionDeduplicatesById() throws Exception {
+        try (HybridRetriever retriever = hybrid(2, 1_000, fixed(0, "a", "b", "c"), fixed(0, "c", "b", "d"))) {
+            HybridRetriever.StepResult result = retriever.retrieve(List.of("q"), 10);
+            List<String> ids = result.documents().stream().map(RetrievedDocument::id).toList();
+            // b、c 两路都命中，排在只出现一次的 a、d 前面；c 的名次 3 + 1 略好于 b 的 2 + 2
+            assertEquals(List.of("c", "b", "a", "d"), ids);
+            assertEquals(1.0 / 63 + 1.0 / 61, result.documents().get(0).score(), 1e-12);
+            assertEquals(2.0 / 62, result.documents().get(1).score(), 1e-12);
+            assertFalse(result.partial());
+            assertEquals("hybrid(vector:fixed,lexical:fixed)", retriever.version());
+        }
+    }
+
+    /**
+     * 所有调用都到齐后才返回的检索源：只有 parties 个子查询同时在执行时才能按时完成
+     */
+    private static Retriever rendezvous(CountDownLatch arrived, String id) {
+        return new Retriever() {
+            @Override
+            public List<RetrievedDocument> retrieve(String query, int topK) {
+                arrived.countDown();
+                try {
+                    if (!arrived.await(10, TimeUnit.SECONDS)) {
+                        throw new IllegalStateException("sub-queries did not run concurrently");
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return List.of();
+                }
+                return List.of(new RetrievedDocument(id + ":" + query, "content", 1));
+            }
+
+            @Override
+            public String version() {
+                return "rendezvous";
+            }
+        };
+    }
+
+    @Test
+    void testSubQueriesRunConcurrently() throws Exception {
+        CountDownLatch arrived = new CountDownLatch(4);
+        try (HybridRetriever retriever = hybrid(4, 30_000, rendezvous(arrived, "a"), rendezvous(arrived, "b"))) {
+            HybridRetriever.StepResult result = retriever.retrieve(List.of("q1", "q2"), 10);
+            assertEquals(4, result.completed());
+            assertFalse(result.partial());
+        }
+    }
+
+    @Test
+    void testConcurrentRunsDoNotQueueBehindEachOther() throws Exception {
+        // 两个运行各 2 路子查询，4 路必须同时执行：线程池若按 fanOut 定长，第二个运行会排队直到超时
+        CountDownLatch arrived = new CountDownLatch(4);
+        ExecutorService runs = Executors.newFixedThreadPool(2);
+        try (HybridRetriever retriever = hybrid(2, 30_000, rendezvous(arrived, "a"), rendezvous(arrived, "b"))) {
+            Future<HybridRetriever.StepResult> first = runs.submit(() -> retriever.retrieve(List.of("q1"), 10));
+            Future<HybridRetriever.StepResult> second = runs.submit(() -> retriever.retrieve(List.of("q2"), 10));
+            assertFalse(first.get().partial());
+            assertFalse(second.get().partial());
+        } finally {
+            runs.shutdownNow();
+        }
+    }
+
+    @Test
+    void testSlowSourceIsAbandonedAtBudget() throws Exception {
+        CountDownLatch never = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        Retriever slow = new Retriever() {
+            @Override
+            public List<RetrievedDocument> retrieve(String query, int topK) {
+                try {
+                    never.await();
+                } catch (InterruptedException e) {
+                    // 超出预算后子查询被取消，执行线程收到中断
+                    cancelled.countDown();
+                }
+                return List.of(new RetrievedDocument("slow", "content", 1));
+            }
+
+            @Override
+            public String version() {
+                return "slow";
+            }
+        };
+        try (HybridRetriever retriever = hybrid(2, 100, fixed(0, "fast"), slow)) {
+            HybridRetriever.StepResult result = retriever.retrieve(List.of("q"), 10);
+            assertTrue(result.partial());
+            assertEquals(1, result.abandoned());
+            assertEquals(List.of("fast"), result.documents().stream().map(RetrievedDocument::id).toList());
+            assertTrue(cancelled.await(10, TimeUnit.SECONDS), "slow sub-query was not cancelled");
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * HnswIndex测试类
+ */
+class HnswIndexTest {
+
+    private static final int DIMENSION = 32;
+
+    @Test
+    void testRecallAgainstBruteForce() {
+        float[][] corpus = clusteredVectors(5_000, DIMENSION, 50, new Random(1));
+        HnswIndex index = new HnswIndex(DIMENSION);
+        for (float[] vector : corpus) {
+            index.add(vector);
+        }
+        assertEquals(corpus.length, index.size());
+
+        float[][] queries = clusteredVectors(50, DIMENSION, 50, new Random(2));
+        double recall = recall(index, corpus, queries, 10, 64);
+        assertTrue(recall >= 0.9, "recall@10 = " + recall);
+
+        // 结果按分数降序
+        List<HnswIndex.Neighbor> hits = index.search(queries[0], 10);
+        for (int i = 1; i < hits.size(); i++) {
+            assertTrue(hits.get(i - 1).score() >= hits.get(i).score());
+        }
+    }
+
+    @Test
+    void testDeletedNodesAreSkipped() {
+        HnswIndex index = new HnswIndex(DIMENSION);
+        float[][] corpus = clusteredVectors(500, DIMENSION, 5, new Random(3));
+        for (float[] vector : corpus) {
+            index.add(vector);
+        }
+        int target = index.search(corpus[7], 1).get(0).node();
+        assertEquals(7, target);
+
+        assertTrue(index.delete(7));
+        assertFalse(index.delete(7));
+        assertEquals(499, index.liveSize());
+        assertTrue(index.search(corpus[7], 10).stream().noneMatch(hit -> hit.node() == 7));
+    }
+
+    @Test
+    void testConcurrentSearchDuringInserts() throws Exception {
+        HnswIndex index = new HnswIndex(DIMENSION, VectorSimilarity.COSINE, new HnswConfig(8, 64, 32, 7L));
+        float[][] corpus = clusteredVectors(4_000, DIMENSION, 20, new Random(4));
+        index.add(corpus[0]);
+
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        AtomicBoolean writing = new AtomicBoolean(true);
+        CountDownLatch started = new CountDownLatch(4);
+        List<Future<Integer>> searches = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int seed = t;
+            searches.add(readers.submit(() -> {
+                Random random = new Random(seed);
+                started.countDown();
+                int count = 0;
+                while (writing.get()) {
+                    List<HnswIndex.Neighbor> hits = index.search(corpus[random.nextInt(corpus.length)], 5);
+                    assertFalse(hits.isEmpty());
+                    count++;
+                }
+                return count;
+            }));
+        }
+        started.await();
+        for (int i = 1; i < corpus.length; i++) {
+            index.add(corpus[i]);
+        }
+        writing.set(false);
+        int totalSearches = 0;
+        for (Future<Integer> search : searches) {
+            totalSearches += search.get(30, TimeUnit.SECONDS);
+        }
+        readers.shutdown();
+
+        assertTrue(totalSearches > 0);
+        assertEquals(corpus.length, index.size());
+        // 写完之后每个向量都能找回自己
+        for (int i = 0; i < corpus.length; i += 97) {
+            assertEquals(i, index.search(corpus[i], 1, 64).get(0).node());
+        }
+    }
+
+    /**
+     * 基准：合成语料上的构建耗时、recall@10 和查询延迟
+     * mvn test -Dtest=HnswIndexTest -Drag.benchmark=true [-Drag.benchmark.size=1000000 -Drag.benchmark.dimension=64]
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "rag.benchmark", matches = "true")
+    void benchmarkRecallAndLatency() {
+        int size = Integer.getInteger("rag.benchmark.size", 1_000_000);
+        int dimension = Integer.getInteger("rag.benchmark.dimension", 64);
+        int queryCount = 200;
+        float[][] corpus = clusteredVectors(size, dimension, 1_000, new Random(11));
+        float[][] queries = clusteredVectors(queryCount, dimension, 1_000, new Random(12));
+
+        HnswIndex index = new HnswIndex(dimension);
+        long start = System.nanoTime();
+        for (float[] vector : corpus) {
+            index.add(vector);
+        }
+        double buildSeconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("corpus=%d dim=%d build=%.1fs (%.0f inserts/s) levels=%s%n",
+                size, dimension, buildSeconds, size / buildSeconds, index.levelSizes());
+
+        int[][] truth = bruteForce(corpus, queries, 10);
+        for (int ef : new int[]{16, 32, 64, 128, 256}) {
+            long[] latencies = new long[queryCount];
+            int found = 0;
+            for (int q = 0; q < queryCount; q++) {
+                long t0 = System.nanoTime();
+                List<HnswIndex.Neighbor> hits = index.search(queries[q], 10, ef);
+                latencies[q] = System.nanoTime() - t0;
+                found += overlap(hits, truth[q]);
+            }
+            Arrays.sort(latencies);
+            System.out.printf("efSearch=%-4d recall@10=%.3f p50=%.3fms p99=%.3fms%n", ef,
+                    (double) found / (queryCount * 10),
+                    latencies[queryCount / 2] / 1e6, latencies[queryCount * 99 / 100] / 1e6);
+        }
+    }
+
+    private static double recall(HnswIndex index, float[][] corpus, float[][] queries, int k, int ef) {
+        int[][] truth = bruteForce(corpus, queries, k);
+        int found = 0;
+        for (int q = 0; q < queries.length; q++) {
+            found += overlap(index.search(queries[q], k, ef), truth[q]);
+        }
+        return (double) found / (queries.length * k);
+    }
+
+    private static int overlap(List<HnswIndex.Neighbor> hits, int[] truth) {
+        Set<Integer> expected = new HashSet<>();
+        for (int node : truth) {
+            expected.add(node);
+        }
+        return (int) hits.stream().filter(hit -> expected.contains(hit.node())).count();
+    }
+
+    private static int[][] bruteForce(float[][] corpus, float[][] queries, int k) {
+        float[][] normalized = new float[corpus.length][];
+        for (int i = 0; i < corpus.length; i++) {
+            normalized[i] = VectorSimilarity.COSINE.prepare(corpus[i]);
+        }
+        int[][] truth = new int[queries.length][];
+        for (int q = 0; q < queries.length; q++) {
+            float[] query = VectorSimilarity.COSINE.prepare(queries[q]);
+            NeighborQueue best = new NeighborQueue(k + 1, false);
+            for (int i = 0; i < corpus.length; i++) {
+                best.push(i, VectorSimilarity.COSINE.score(query, normalized[i]));
+                if (best.size() > k) {
+                    best.pop();
+                }
+            }
+            truth[q] = new int[best.size()];
+            for (int i = 0; i < truth[q].length; i++) {
+                truth[q][i] = best.pop();
+            }
+        }
+        return truth;
+    }
+
+    /**
+     * 聚类分布的合成向量：真实嵌入有明显的簇结构，纯均匀随机向量不具代表性
+     */
+    private static float[][] clusteredVectors(int count, int dimension, int clusters, Random random) {
+        Random centroidRandom = new Random(clusters);
+        float[][] centroids = new float[clusters][dimension];
+        for (float[] centroid : centroids) {
+            for (int d = 0; d < dimension; d++) {
+                centroid[d] = (float) centroidRandom.nextGaussian();
+            }
+        }
+        float[][] vectors = new float[count][dimension];
+        for (float[] vector : vectors) {
+            float[] centroid = centroids[random.nextInt(clusters)];
+            for (int d = 0; d < dimension; d++) {
+                vector[d] = centroid[d] + (float) random.nextGaussian() * 0.5f;
+            }
+        }
+        return vectors;
+    }
+}
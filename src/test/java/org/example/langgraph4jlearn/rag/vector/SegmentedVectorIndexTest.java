@@ -0,0 +1,160 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * SegmentedVectorIndex测试类
+ */
+class SegmentedVectorIndexTest {
+
+    private static final int DIMENSION = 16;
+
+    @TempDir
+    Path directory;
+
+    private SegmentedVectorIndex open(int flushThreshold, int mergeFactor) throws Exception {
+        return new SegmentedVectorIndex(directory, DIMENSION, VectorSimilarity.COSINE,
+                new HnswConfig(8, 64, 32, 1L), flushThreshold, mergeFactor);
+    }
+
+    private static float[][] vectors(int count) {
+        Random random = new Random(5);
+        float[][] vectors = new float[count][DIMENSION];
+        for (float[] vector : vectors) {
+            for (int d = 0; d < DIMENSION; d++) {
+                vector[d] = (float) random.nextGaussian();
+            }
+        }
+        return vectors;
+    }
+
+    @Test
+    void testReopenServesSameResultsWithoutRebuild() throws Exception {
+        float[][] vectors = vectors(300);
+        List<SegmentedVectorIndex.Hit> before;
+        try (SegmentedVectorIndex index = open(100, 10)) {
+            for (int i = 0; i < vectors.length; i++) {
+                index.upsert("doc-" + i, "content " + i, vectors[i]);
+            }
+            index.flush();
+            assertEquals(3, index.segmentCount());
+            before = index.search(vectors[42], 5);
+        }
+
+        try (SegmentedVectorIndex reopened = open(100, 10)) {
+            assertEquals(300, reopened.size());
+            assertEquals(3, reopened.segmentCount());
+            List<SegmentedVectorIndex.Hit> after = reopened.search(vectors[42], 5);
+            assertEquals(before, after);
+            assertEquals("doc-42", after.get(0).id());
+            assertEquals("content 42", after.get(0).content());
+        }
+    }
+
+    @Test
+    void testUpdatesAndDeletesSurviveRestart() throws Exception {
+        float[][] vectors = vectors(120);
+        try (SegmentedVectorIndex index = open(50, 10)) {
+            for (int i = 0; i < 100; i++) {
+                index.upsert("doc-" + i, "v1", vectors[i]);
+            }
+            index.flush();
+            // doc-3 已在段文件里：更新后旧副本打删除标记，新副本进内存段
+            index.upsert("doc-3", "v2", vectors[110]);
+            assertTrue(index.delete("doc-7"));
+            assertFalse(index.delete("doc-7"));
+            assertEquals(99, index.size());
+        }
+
+        try (SegmentedVectorIndex reopened = open(50, 10)) {
+            assertEquals(99, reopened.size());
+            SegmentedVectorIndex.Hit updated = reopened.search(vectors[110], 1).get(0);
+            assertEquals("doc-3", updated.id());
+            assertEquals("v2", updated.content());
+            assertTrue(reopened.search(vectors[3], 10).stream().noneMatch(hit -> "v1".equals(hit.content())
+                    && "doc-3".equals(hit.id())));
+            assertTrue(reopened.search(vectors[7], 10).stream().noneMatch(hit -> "doc-7".equals(hit.id())));
+        }
+    }
+
+    @Test
+    void testBackgroundMergeKeepsLiveDocuments() throws Exception {
+        float[][] vectors = vectors(200);
+        try (SegmentedVectorIndex index = open(20, 3)) {
+            for (int i = 0; i < vectors.length; i++) {
+                index.upsert("doc-" + i, "content " + i, vectors[i]);
+            }
+            index.delete("doc-0");
+            index.flush();
+            assertTrue(index.segmentCount() <= 3, "segments: " + index.segmentCount());
+            assertEquals(199, index.size());
+            for (int i = 1; i < vectors.length; i += 37) {
+                assertEquals("doc-" + i, index.search(vectors[i], 1, 64).get(0).id());
+            }
+        }
+    }
+
+    @Test
+    void testDeletesSurviveCrashBeforeFlush() throws Exception {
+        float[][] vectors = vectors(60);
+        SegmentedVectorIndex crashed = open(100, 10);
+        for (int i = 0; i < vectors.length; i++) {
+            crashed.upsert("doc-" + i, "content " + i, vectors[i]);
+        }
+        crashed.flush();
+        assertTrue(crashed.delete("doc-7"));
+        // 不 flush 不 close，模拟进程崩溃：删除只记在 deletes.log 里
+
+        try (SegmentedVectorIndex reopened = open(100, 10)) {
+            assertEquals(59, reopened.size());
+            assertTrue(reopened.search(vectors[7], 10).stream().noneMatch(hit -> "doc-7".equals(hit.id())));
+            assertFalse(Files.exists(directory.resolve(SegmentedVectorIndex.DELETE_LOG)));
+        }
+    }
+
+    @Test
+    void testFailedFlushIsRetriedOnNextFlush() throws Exception {
+        float[][] vectors = vectors(30);
+        try (SegmentedVectorIndex index = open(100, 10)) {
+            for (int i = 0; i < vectors.length; i++) {
+                index.upsert("doc-" + i, "content " + i, vectors[i]);
+            }
+            // 占住第一个段的临时文件名，让第一次落盘失败
+            Path blocker = Files.createDirectories(directory.resolve("seg-000000.hnsw.tmp").resolve("blocker"));
+            assertThrows(IllegalStateException.class, index::flush);
+            assertEquals(0, index.segmentCount());
+            assertEquals(30, index.size());
+            assertEquals("doc-3", index.search(vectors[3], 1).get(0).id());
+
+            Files.delete(blocker);
+            index.flush();
+            assertEquals(1, index.segmentCount());
+            assertEquals(30, index.size());
+        }
+
+        try (SegmentedVectorIndex reopened = open(100, 10)) {
+            assertEquals(30, reopened.size());
+        }
+    }
+
+    @Test
+    void testCloseFailsWhenBufferCannotBeFlushed() throws Exception {
+        SegmentedVectorIndex index = open(100, 10);
+        index.upsert("doc-0", "content", vectors(1)[0]);
+        Files.createDirectories(directory.resolve("seg-000000.hnsw.tmp").resolve("blocker"));
+        Files.createDirectories(directory.resolve("seg-000001.hnsw.tmp").resolve("blocker"));
+        assertThrows(IllegalStateException.class, index::flush);
+
+        // close 重试一次仍失败，不能静默丢数据
+        assertThrows(IOException.class, index::close);
+    }
+}
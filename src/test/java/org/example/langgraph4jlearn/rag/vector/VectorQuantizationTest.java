@@ -0,0 +1,246 @@
+package org.example.langgraph4jlearn.rag.vector;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 向量量化与打分内核测试类
+ */
+class VectorQuantizationTest {
+
+    private static final int DIMENSION = 32;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testKernelsMatchScalarReference() {
+        VectorKernels scalar = new ScalarVectorKernels();
+        VectorKernels kernels = VectorKernels.INSTANCE;
+        Random random = new Random(1);
+        for (int length = 1; length <= 100; length++) {
+            float[] a = new float[length];
+            float[] b = new float[length];
+            byte[] qa = new byte[length];
+            byte[] qb = new byte[length];
+            for (int i = 0; i < length; i++) {
+                a[i] = (float) random.nextGaussian();
+                b[i] = (float) random.nextGaussian();
+                qa[i] = (byte) (random.nextInt(255) - 127);
+                qb[i] = (byte) (random.nextInt(255) - 127);
+            }
+            assertEquals(scalar.dot(a, b), kernels.dot(a, b), 1e-3f * length);
+            assertEquals(scalar.squareDistance(a, b), kernels.squareDistance(a, b), 1e-3f * length);
+            assertEquals(scalar.dot(qa, qb), kernels.dot(qa, qb));
+            assertEquals(scalar.squareDistance(qa, qb), kernels.squareDistance(qa, qb));
+        }
+    }
+
+    @Test
+    void testInt8ScoresApproximateFloatScores() {
+        float[][] vectors = prepared(clusteredVectors(2_000, DIMENSION, 20, new Random(2)));
+        ScalarQuantizer quantizer = ScalarQuantizer.train(VectorSimilarity.COSINE, DIMENSION, Arrays.asList(vectors));
+        byte[] codes = new byte[quantizer.codeSize()];
+        for (int q = 0; q < 20; q++) {
+            VectorQuantizer.QueryScorer scorer = quantizer.scorer(vectors[q]);
+            for (int i = 100; i < 200; i++) {
+                quantizer.encode(vectors[i], codes);
+                float exact = VectorSimilarity.COSINE.score(vectors[q], vectors[i]);
+                assertEquals(exact, scorer.score(codes), 0.03f, "cosine " + q + "/" + i);
+            }
+        }
+    }
+
+    @Test
+    void testQuantizedSegmentsKeepRecallAndExactScores() throws Exception {
+        float[][] corpus = clusteredVectors(3_000, DIMENSION, 30, new Random(3));
+        float[][] queries = clusteredVectors(50, DIMENSION, 30, new Random(4));
+        int[][] truth = bruteForce(corpus, queries, 10);
+
+        for (QuantizationConfig quantization : List.of(QuantizationConfig.int8(), QuantizationConfig.pq(8))) {
+            Path path = Files.createDirectory(directory.resolve(quantization.mode().name()));
+            try (SegmentedVectorIndex index = open(path, quantization)) {
+                for (int i = 0; i < corpus.length; i++) {
+                    index.upsert("doc-" + i, "content " + i, corpus[i]);
+                }
+                index.flush();
+                assertEquals(2, index.segmentCount());
+                assertEquals(quantization.mode().name(), index.stats().get("quantization"));
+                long codeBytes = (long) index.stats().get("codeBytes");
+                long vectorBytes = (long) index.stats().get("vectorBytes");
+                long expected = quantization.mode() == QuantizationConfig.Mode.INT8 ? vectorBytes / 4 : 3_000L * 8;
+                assertEquals(expected, codeBytes);
+
+                double recall = recall(index, queries, truth, 10);
+                assertTrue(recall >= 0.9, quantization.mode() + " recall@10 = " + recall);
+
+                // 重排后返回的是 float32 精确分数
+                SegmentedVectorIndex.Hit top = index.search(corpus[42], 1).get(0);
+                assertEquals("doc-42", top.id());
+                assertEquals(1.0f, top.score(), 1e-5f);
+            }
+
+            try (SegmentedVectorIndex reopened = open(path, quantization)) {
+                assertEquals(corpus.length, reopened.size());
+                assertTrue(recall(reopened, queries, truth, 10) >= 0.9);
+            }
+        }
+    }
+
+    @Test
+    void testPlainSegmentsStillReadableUnderQuantizedConfig() throws Exception {
+        float[][] corpus = clusteredVectors(600, DIMENSION, 10, new Random(5));
+        try (SegmentedVectorIndex plain = open(directory, QuantizationConfig.none())) {
+            for (int i = 0; i < corpus.length; i++) {
+                plain.upsert("doc-" + i, "content " + i, corpus[i]);
+            }
+            plain.flush();
+        }
+        // 已有段保持原格式，之后新落盘的段才带量化码
+        try (SegmentedVectorIndex index = open(directory, QuantizationConfig.int8())) {
+            assertEquals(0L, index.stats().get("codeBytes"));
+            assertEquals("doc-7", index.search(corpus[7], 1).get(0).id());
+        }
+    }
+
+    /**
+     * 量化前后的召回和吞吐对比，默认不跑：
+     * mvn test -Dtest=VectorQuantizationTest -Drag.benchmark=true [-Drag.benchmark.size=200000 -Drag.benchmark.dimension=128]
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "rag.benchmark", matches = "true")
+    void benchmarkRecallAndThroughput() throws Exception {
+        int size = Integer.getInteger("rag.benchmark.size", 200_000);
+        int dimension = Integer.getInteger("rag.benchmark.dimension", 128);
+        int queryCount = 1_000;
+        float[][] corpus = clusteredVectors(size, dimension, 1_000, new Random(11));
+        float[][] queries = clusteredVectors(queryCount, dimension, 1_000, new Random(12));
+        int[][] truth = bruteForce(corpus, queries, 10);
+        System.out.printf("kernels=%s corpus=%d dim=%d%n", VectorKernels.INSTANCE.name(), size, dimension);
+        benchmarkKernels(dimension);
+
+        for (QuantizationConfig quantization : List.of(QuantizationConfig.none(), QuantizationConfig.int8(),
+                QuantizationConfig.pq(dimension / 4), QuantizationConfig.pq(dimension / 8))) {
+            Path path = Files.createDirectory(directory.resolve("bench-" + quantization.mode() + "-"
+                    + quantization.subspaces()));
+            try (SegmentedVectorIndex index = new SegmentedVectorIndex(path, dimension, VectorSimilarity.COSINE,
+                    HnswConfig.defaults(), size, 4, quantization)) {
+                for (int i = 0; i < size; i++) {
+                    index.upsert("doc-" + i, "", corpus[i]);
+                }
+                index.flush();
+                // 预热
+                for (float[] query : queries) {
+                    index.search(query, 10);
+                }
+                long start = System.nanoTime();
+                double recall = recall(index, queries, truth, 10);
+                double seconds = (System.nanoTime() - start) / 1e9;
+                long vectorBytes = (long) index.stats().get("vectorBytes");
+                long codeBytes = (long) index.stats().get("codeBytes");
+                long hotBytes = codeBytes > 0 ? codeBytes : vectorBytes;
+                System.out.printf("%-5s subspaces=%-3d recall@10=%.3f qps=%.0f traversalBytes=%.1fMB (%.1fx smaller)%n",
+                        quantization.mode(), quantization.subspaces(), recall, queryCount / seconds,
+                        hotBytes / 1e6, (double) vectorBytes / hotBytes);
+            }
+        }
+    }
+
+    private static void benchmarkKernels(int dimension) {
+        Random random = new Random(13);
+        float[] a = new float[dimension];
+        float[] b = new float[dimension];
+        byte[] qa = new byte[dimension];
+        byte[] qb = new byte[dimension];
+        for (int i = 0; i < dimension; i++) {
+            a[i] = (float) random.nextGaussian();
+            b[i] = (float) random.nextGaussian();
+            qa[i] = (byte) (random.nextInt(255) - 127);
+            qb[i] = (byte) (random.nextInt(255) - 127);
+        }
+        int rounds = 20_000_000;
+        for (VectorKernels kernels : List.of(new ScalarVectorKernels(), VectorKernels.INSTANCE)) {
+            float floatSink = 0;
+            long t0 = System.nanoTime();
+            for (int i = 0; i < rounds; i++) {
+                floatSink += kernels.dot(a, b);
+            }
+            long t1 = System.nanoTime();
+            long intSink = 0;
+            for (int i = 0; i < rounds; i++) {
+                intSink += kernels.dot(qa, qb);
+            }
+            long t2 = System.nanoTime();
+            System.out.printf("%-16s float32 dot=%.1fns int8 dot=%.1fns (sink %s)%n", kernels.name(),
+                    (double) (t1 - t0) / rounds, (double) (t2 - t1) / rounds, floatSink + intSink);
+        }
+    }
+
+    private static SegmentedVectorIndex open(Path path, QuantizationConfig quantization) throws Exception {
+        return new SegmentedVectorIndex(path, DIMENSION, VectorSimilarity.COSINE, new HnswConfig(8, 64, 32, 1L),
+                1_500, 10, quantization);
+    }
+
+    private static double recall(SegmentedVectorIndex index, float[][] queries, int[][] truth, int k) {
+        int found = 0;
+        for (int q = 0; q < queries.length; q++) {
+            List<String> ids = index.search(queries[q], k).stream().map(SegmentedVectorIndex.Hit::id).toList();
+            for (int expected : truth[q]) {
+                if (ids.contains("doc-" + expected)) {
+                    found++;
+                }
+            }
+        }
+        return (double) found / (queries.length * k);
+    }
+
+    private static int[][] bruteForce(float[][] corpus, float[][] queries, int k) {
+        float[][] prepared = prepared(corpus);
+        return Arrays.stream(queries).parallel().map(query -> {
+            float[] q = VectorSimilarity.COSINE.prepare(query);
+            return IntStream.range(0, prepared.length).boxed()
+                    .sorted(Comparator.comparingDouble(i -> -VectorSimilarity.COSINE.score(q, prepared[i])))
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+        }).toArray(int[][]::new);
+    }
+
+    private static float[][] prepared(float[][] vectors) {
+        List<float[]> prepared = new ArrayList<>(vectors.length);
+        for (float[] vector : vectors) {
+            prepared.add(VectorSimilarity.COSINE.prepare(vector));
+        }
+        return prepared.toArray(new float[0][]);
+    }
+
+    private static float[][] clusteredVectors(int count, int dimension, int clusters, Random random) {
+        Random centroidRandom = new Random(clusters);
+        float[][] centroids = new float[clusters][dimension];
+        for (float[] centroid : centroids) {
+            for (int d = 0; d < dimension; d++) {
+                centroid[d] = (float) centroidRandom.nextGaussian();
+            }
+        }
+        float[][] vectors = new float[count][dimension];
+        for (float[] vector : vectors) {
+            float[] centroid = centroids[random.nextInt(clusters)];
+            for (int d = 0; d < dimension; d++) {
+                vector[d] = centroid[d] + (float) random.nextGaussian() * 0.5f;
+            }
+        }
+        return vectors;
+    }
+}